@@ -0,0 +1,21 @@
+package com.jespinel.terraform_provider_server.batch;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.validation.Validator;
+
+/**
+ * Creates the validator of the batches of books and words, which are limited to
+ * {@code batch.max-size} items.
+ */
+@Configuration
+@EnableConfigurationProperties(BatchProperties.class)
+public class BatchConfiguration {
+
+    @Bean
+    public ItemValidator itemValidator(Validator validator, BatchProperties properties) {
+        return new ItemValidator(validator, properties.getMaxSize());
+    }
+}
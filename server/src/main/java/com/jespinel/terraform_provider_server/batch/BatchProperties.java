@@ -0,0 +1,19 @@
+package com.jespinel.terraform_provider_server.batch;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Settings of the batches of books and words, under the {@code batch} prefix.
+ */
+@Data
+@ConfigurationProperties(prefix = "batch")
+public class BatchProperties {
+
+    /**
+     * Maximum number of items of a batch. Larger batches are rejected with a 400, as they would
+     * hold a worker thread, and delay the other writes of a durable store, for too long.
+     */
+    private int maxSize = 1000;
+}
@@ -0,0 +1,31 @@
+package com.jespinel.terraform_provider_server.batch;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.jespinel.terraform_provider_server.exceptions.APIException;
+
+import org.springframework.http.HttpStatus;
+
+import lombok.Value;
+
+/**
+ * Outcome of one item of a batch request: the status and body the item would get as a single
+ * request, or the status and message of its error.
+ *
+ * @param <T> Type of the body.
+ */
+@Value
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchResult<T> {
+
+    private int status;
+    private T body;
+    private String message;
+
+    public static <T> BatchResult<T> success(HttpStatus status, T body) {
+        return new BatchResult<>(status.value(), body, null);
+    }
+
+    public static <T> BatchResult<T> failure(APIException exception) {
+        return new BatchResult<>(exception.getStatusCode().value(), null, exception.getMessage());
+    }
+}
@@ -0,0 +1,65 @@
+package com.jespinel.terraform_provider_server.batch;
+
+import com.jespinel.terraform_provider_server.exceptions.APIException;
+
+import org.springframework.http.HttpStatus;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+
+/**
+ * Validates the items of a batch one by one, so an invalid item fails on its own instead of
+ * failing the whole batch. Only a batch with too many items fails as a whole.
+ */
+public class ItemValidator {
+
+    private static final APIException MISSING_ITEM = new APIException(HttpStatus.BAD_REQUEST, "item is required");
+
+    private final Validator validator;
+    private final int maxSize;
+    private final APIException tooLarge;
+
+    /**
+     * @param maxSize Maximum number of items of a batch.
+     */
+    public ItemValidator(Validator validator, int maxSize) {
+        this.validator = validator;
+        this.maxSize = maxSize;
+        this.tooLarge = new APIException(HttpStatus.BAD_REQUEST, "a batch must have at most " + maxSize + " items");
+    }
+
+    /**
+     * @param items Items of a batch.
+     * @throws APIException With status 400, if the batch has more items than allowed.
+     */
+    public void checkSize(List<?> items) throws APIException {
+        if (items.size() > maxSize) {
+            throw tooLarge;
+        }
+    }
+
+    /**
+     * @param item Item of a batch.
+     * @param <T>  Type of the item.
+     * @throws APIException With status 400 and the messages of the violated constraints, if the
+     *                      item is not valid.
+     */
+    public <T> void validate(T item) throws APIException {
+        if (item == null) {
+            throw MISSING_ITEM;
+        }
+
+        Set<ConstraintViolation<T>> violations = validator.validate(item);
+        if (!violations.isEmpty()) {
+            String errorMessage = violations.stream()
+                .map(ConstraintViolation::getMessage)
+                .sorted()
+                .collect(Collectors.joining(", "));
+            throw new APIException(HttpStatus.BAD_REQUEST, errorMessage);
+        }
+    }
+}
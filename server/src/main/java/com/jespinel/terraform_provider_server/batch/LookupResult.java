@@ -0,0 +1,19 @@
+package com.jespinel.terraform_provider_server.batch;
+
+import java.util.List;
+import java.util.UUID;
+
+import lombok.Value;
+
+/**
+ * Result of reading several entities at once: the entities found, and the IDs of the ones that
+ * do not exist.
+ *
+ * @param <T> Type of the entities.
+ */
+@Value
+public class LookupResult<T> {
+
+    private List<T> found;
+    private List<UUID> missing;
+}
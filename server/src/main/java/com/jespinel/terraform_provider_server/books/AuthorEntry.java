@@ -0,0 +1,29 @@
+package com.jespinel.terraform_provider_server.books;
+
+import java.util.UUID;
+
+/**
+ * ID of a book under its lower case author. A single sorted set of these costs a node per
+ * book, where a set per author would cost a whole set per author.
+ */
+final class AuthorEntry implements Comparable<AuthorEntry> {
+
+    /**
+     * Lowest UUID in {@link UUID#compareTo} order, to start a page of the books of an author.
+     */
+    static final UUID MIN_ID = new UUID(Long.MIN_VALUE, Long.MIN_VALUE);
+
+    final String author;
+    final UUID id;
+
+    AuthorEntry(String author, UUID id) {
+        this.author = author;
+        this.id = id;
+    }
+
+    @Override
+    public int compareTo(AuthorEntry other) {
+        int byAuthor = author.compareTo(other.author);
+        return byAuthor != 0 ? byAuthor : id.compareTo(other.id);
+    }
+}
@@ -3,11 +3,23 @@ package com.jespinel.terraform_provider_server.books;
 import java.util.UUID;
 
 import lombok.Value;
+import lombok.With;
 
 @Value
 public class Book {
 
+    /**
+     * Version of a book when it is created.
+     */
+    public static final long FIRST_VERSION = 1;
+
     private final UUID id;
     private final String title;
     private final String author;
+
+    /**
+     * Version of the book, increased by every update.
+     */
+    @With
+    private final long version;
 }
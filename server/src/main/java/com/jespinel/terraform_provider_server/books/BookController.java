@@ -1,10 +1,22 @@
 package com.jespinel.terraform_provider_server.books;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jespinel.terraform_provider_server.batch.BatchResult;
+import com.jespinel.terraform_provider_server.batch.LookupResult;
 import com.jespinel.terraform_provider_server.exceptions.APIException;
-
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import com.jespinel.terraform_provider_server.formats.CborConfiguration;
+import com.jespinel.terraform_provider_server.idempotency.IdempotencyCache;
+import com.jespinel.terraform_provider_server.pagination.Cursors;
+import com.jespinel.terraform_provider_server.pagination.JsonLines;
+import com.jespinel.terraform_provider_server.pagination.Page;
+import com.jespinel.terraform_provider_server.search.SearchQueries;
+import com.jespinel.terraform_provider_server.sync.Delta;
+import com.jespinel.terraform_provider_server.versioning.EntityTags;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -12,126 +24,172 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.Optional;
+import java.util.List;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
 
 import javax.validation.Valid;
 
 /**
- * Controller responsible for Create, Read, Update and Delete books.
+ * Controller responsible for Create, Read, Update and Delete books, in the servlet mode. See
+ * {@link BookHandler} for the reactive mode.
  */
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RestController
 @RequestMapping("/books")
 public class BookController {
 
-    private static final Logger LOGGER = LoggerFactory.getLogger(BookController.class);
+    private final BookService bookService;
+    private final ObjectMapper objectMapper;
 
-    /**
-     * Map to store books and its IDs.
-     */
-    private static final ConcurrentMap<UUID, Book> books = new ConcurrentHashMap<>();
+    public BookController(BookService bookService, ObjectMapper objectMapper) {
+        this.bookService = bookService;
+        this.objectMapper = objectMapper;
+    }
 
     @PostMapping
-    public ResponseEntity<Book> create(@Valid @RequestBody BookRequest request) throws APIException {
-        String title = request.getTitle();
-        String author = request.getAuthor();
-        LOGGER.info("Create book: {}", request);
+    public ResponseEntity<Book> create(
+        @RequestHeader(value = IdempotencyCache.HEADER, required = false) String idempotencyKey,
+        @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+        @Valid @RequestBody BookRequest request) throws APIException {
+
+        Book book = bookService.create(request, idempotencyKey);
+        return ResponseEntity.status(HttpStatus.CREATED).eTag(getETag(book, accept)).body(book);
+    }
+
+    @PostMapping("/batch")
+    public ResponseEntity<List<BatchResult<Book>>> createBatch(@RequestBody List<BookRequest> requests)
+        throws APIException {
+
+        return ResponseEntity.ok(bookService.createBatch(requests));
+    }
 
-        Optional<Book> existingBook = getBookByTitle(title);
-        if (existingBook.isPresent()) {
-            String errorMessage = String.format("The book '%s' already exists", title);
-            LOGGER.error(errorMessage);
-            throw new APIException(HttpStatus.CONFLICT, errorMessage);
-        }
+    @GetMapping("/search")
+    public ResponseEntity<Page<Book>> search(
+        @RequestParam(required = false) String q,
+        @RequestParam(defaultValue = SearchQueries.DEFAULT_MATCH) String match,
+        @RequestParam(defaultValue = SearchQueries.DEFAULT_LIMIT) int limit) throws APIException {
 
-        UUID id = UUID.randomUUID();
-        Book book = new Book(id, title, author);
-        books.put(id, book);
-        LOGGER.info("Book created: {}", book);
-        return ResponseEntity.status(HttpStatus.CREATED).body(book);
+        return ResponseEntity.ok(bookService.search(q, match, limit));
+    }
+
+    /**
+     * Returns the books changed since a revision, so a client that keeps a copy of them only
+     * reads what changed.
+     */
+    @GetMapping("/changes")
+    public ResponseEntity<Delta<Book>> changes(@RequestParam(defaultValue = "0") long since,
+                                               @RequestParam(defaultValue = Cursors.DEFAULT_LIMIT) int limit)
+        throws APIException {
+
+        return ResponseEntity.ok(bookService.changesSince(since, limit));
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Book> read(@PathVariable UUID id) throws APIException {
-        LOGGER.info("Read book with ID: {}", id);
-        if (!books.containsKey(id)) {
-            String errorMessage = String.format("The book with ID '%s' does not exist", id);
-            LOGGER.error(errorMessage);
-            throw new APIException(HttpStatus.NOT_FOUND, errorMessage);
-        }
+    public ResponseEntity<Book> read(@PathVariable UUID id,
+                                     @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept)
+        throws APIException {
 
-        Book book = books.get(id);
-        LOGGER.info("Read book: {}", book);
-        return ResponseEntity.ok(book);
+        Book book = bookService.read(id);
+        return ResponseEntity.ok().eTag(getETag(book, accept)).body(book);
     }
 
     @GetMapping
-    public ResponseEntity<Book> readByTitle(@RequestParam String title) throws APIException {
-        LOGGER.info("Read book by title: {}", title);
-        Optional<Book> book = getBookByTitle(title);
-        if (!book.isPresent()) {
-            String errorMessage = String.format("The book with title '%s' does not exist", title);
-            LOGGER.error(errorMessage);
-            throw new APIException(HttpStatus.NOT_FOUND, errorMessage);
-        }
+    public ResponseEntity<Page<Book>> list(@RequestParam(required = false) String cursor,
+                                           @RequestParam(defaultValue = Cursors.DEFAULT_LIMIT) int limit)
+        throws APIException {
 
-        LOGGER.info("Read book: {}", book.get());
-        return ResponseEntity.ok(book.get());
+        return ResponseEntity.ok(bookService.list(cursor, limit));
     }
 
-    @PutMapping("/{id}")
-    public ResponseEntity<Book> update(@PathVariable UUID id,
-                                       @Valid @RequestBody BookRequest request) throws APIException {
+    /**
+     * Writes every book as newline delimited JSON while it iterates the store, so the response
+     * does not have to fit in memory.
+     */
+    @GetMapping(produces = JsonLines.MEDIA_TYPE)
+    public ResponseEntity<StreamingResponseBody> stream() {
+        return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType(JsonLines.MEDIA_TYPE))
+            .body(JsonLines.body(objectMapper, Book.class, bookService::stream));
+    }
+
+    @GetMapping(params = "ids")
+    public ResponseEntity<LookupResult<Book>> readAll(@RequestParam List<UUID> ids) {
+        return ResponseEntity.ok(bookService.lookup(ids));
+    }
 
-        LOGGER.info("Update book with ID: {}", id);
-        if (!books.containsKey(id)) {
-            String errorMessage = String.format("The book with ID '%s' does not exist", id);
-            LOGGER.error(errorMessage);
-            throw new APIException(HttpStatus.NOT_FOUND, errorMessage);
-        }
+    /**
+     * Same as {@link #readAll(List)}, for lists of IDs too long for a URL.
+     */
+    @PostMapping("/lookup")
+    public ResponseEntity<LookupResult<Book>> lookupAll(@RequestBody List<UUID> ids) {
+        return ResponseEntity.ok(bookService.lookup(ids));
+    }
+
+    @GetMapping(params = "author")
+    public ResponseEntity<Page<Book>> listByAuthor(@RequestParam String author,
+                                                   @RequestParam(required = false) String cursor,
+                                                   @RequestParam(defaultValue = Cursors.DEFAULT_LIMIT) int limit)
+        throws APIException {
+
+        return ResponseEntity.ok(bookService.listByAuthor(author, cursor, limit));
+    }
 
-        Book oldBook = books.get(id);
-        Book newBook = new Book(id, request.getTitle(), request.getAuthor());
-        LOGGER.info("Updating '{}' by '{}'", oldBook, newBook);
+    @GetMapping(params = "title")
+    public ResponseEntity<Book> readByTitle(@RequestParam String title,
+                                            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept)
+        throws APIException {
 
-        books.put(id, newBook);
-        return ResponseEntity.ok(newBook);
+        Book book = bookService.readByTitle(title);
+        return ResponseEntity.ok().eTag(getETag(book, accept)).body(book);
+    }
+
+    @PutMapping("/{id}")
+    public ResponseEntity<Book> update(
+        @PathVariable UUID id,
+        @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+        @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+        @Valid @RequestBody BookRequest request) throws APIException {
+
+        Book updatedBook = bookService.update(id, EntityTags.parseIfMatch(id, ifMatch), request);
+        return ResponseEntity.ok().eTag(getETag(updatedBook, accept)).body(updatedBook);
+    }
+
+    @PutMapping("/batch")
+    public ResponseEntity<List<BatchResult<Book>>> updateBatch(@RequestBody List<BookUpdateRequest> requests)
+        throws APIException {
+
+        return ResponseEntity.ok(bookService.updateBatch(requests));
     }
 
     @DeleteMapping("/{id}")
     public ResponseEntity<Book> delete(@PathVariable UUID id) {
-        LOGGER.info("Delete book with ID: {}", id);
-        Book removedBook = books.remove(id);
-        LOGGER.info("Book deleted: {}", removedBook);
+        bookService.delete(id);
         return ResponseEntity.noContent().build();
     }
 
+    @DeleteMapping("/batch")
+    public ResponseEntity<List<BatchResult<Book>>> deleteBatch(@RequestBody List<UUID> ids) throws APIException {
+        return ResponseEntity.ok(bookService.deleteBatch(ids));
+    }
+
     @DeleteMapping()
     public ResponseEntity<Book> deleteAll() {
-        LOGGER.info("Delete all books");
-        books.clear();
+        bookService.deleteAll();
         return ResponseEntity.noContent().build();
     }
 
     /**
-     * Returns an Optional<Book> if there is a book with the same title in the cache,
-     * otherwise returns an empty optional.
-     *
-     * @param title Title of a book.
-     * @return A book if the cache contains the book title, otherwise returns an empty optional.
+     * Returns the entity tag of a book, derived from its ID, its version and the
+     * representation the client prefers. Reads with a matching {@code If-None-Match} header get
+     * a 304 response without body.
      */
-    private Optional<Book> getBookByTitle(final String title) {
-        for (final Book book : books.values()) {
-            if (book.getTitle().equalsIgnoreCase(title)) {
-                return Optional.of(book);
-            }
-        }
-        return Optional.empty();
+    private static String getETag(Book book, String accept) {
+        return EntityTags.of(book.getId(), book.getVersion(), CborConfiguration.prefersCbor(accept));
     }
 }
@@ -0,0 +1,205 @@
+package com.jespinel.terraform_provider_server.books;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jespinel.terraform_provider_server.formats.CborConfiguration;
+import com.jespinel.terraform_provider_server.idempotency.IdempotencyCache;
+import com.jespinel.terraform_provider_server.pagination.Cursors;
+import com.jespinel.terraform_provider_server.pagination.Page;
+import com.jespinel.terraform_provider_server.reactive.ReactiveRequests;
+import com.jespinel.terraform_provider_server.reactive.ReactiveResponses;
+import com.jespinel.terraform_provider_server.search.SearchQueries;
+import com.jespinel.terraform_provider_server.versioning.EntityTags;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.RequestPredicates;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import java.util.List;
+import java.util.UUID;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Functional routes of the books, in the reactive mode. They answer like {@link BookController}
+ * does in the servlet mode.
+ */
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@Component
+public class BookHandler {
+
+    private static final ParameterizedTypeReference<List<BookRequest>> BOOK_REQUESTS =
+        new ParameterizedTypeReference<List<BookRequest>>() {
+        };
+    private static final ParameterizedTypeReference<List<BookUpdateRequest>> BOOK_UPDATE_REQUESTS =
+        new ParameterizedTypeReference<List<BookUpdateRequest>>() {
+        };
+    private static final ParameterizedTypeReference<List<UUID>> IDS =
+        new ParameterizedTypeReference<List<UUID>>() {
+        };
+
+    private final BookService bookService;
+    private final ReactiveRequests requests;
+    private final ObjectMapper objectMapper;
+
+    public BookHandler(BookService bookService, ReactiveRequests requests, ObjectMapper objectMapper) {
+        this.bookService = bookService;
+        this.requests = requests;
+        this.objectMapper = objectMapper;
+    }
+
+    public RouterFunction<ServerResponse> routes() {
+        return RouterFunctions.route()
+            .path("/books", books -> books
+                .POST("/batch", this::createBatch)
+                .PUT("/batch", this::updateBatch)
+                .DELETE("/batch", this::deleteBatch)
+                .POST("/lookup", this::lookupAll)
+                .GET("/search", this::search)
+                .GET("/changes", this::changes)
+                .GET("/{id}", this::read)
+                .PUT("/{id}", this::update)
+                .DELETE("/{id}", this::delete)
+                .POST("", this::create)
+                .GET("", ReactiveResponses::acceptsJsonLines, this::stream)
+                .GET("", RequestPredicates.queryParam("ids", ids -> true), this::readAll)
+                .GET("", RequestPredicates.queryParam("title", title -> true), this::readByTitle)
+                .GET("", RequestPredicates.queryParam("author", author -> true), this::listByAuthor)
+                .GET("", this::list)
+                .DELETE("", this::deleteAll))
+            .build();
+    }
+
+    public Mono<ServerResponse> create(ServerRequest request) {
+        String idempotencyKey = request.headers().firstHeader(IdempotencyCache.HEADER);
+        return requests.body(request, BookRequest.class)
+            .flatMap(body -> idempotencyKey == null
+                ? requests.call(() -> bookService.create(body, null))
+                : requests.callWaiting(() -> bookService.create(body, idempotencyKey)))
+            .flatMap(book -> ServerResponse.status(HttpStatus.CREATED).eTag(getETag(request, book)).bodyValue(book));
+    }
+
+    public Mono<ServerResponse> createBatch(ServerRequest request) {
+        return requests.bodyList(request, BOOK_REQUESTS)
+            .flatMap(books -> requests.call(() -> bookService.createBatch(books)))
+            .flatMap(results -> ServerResponse.ok().bodyValue(results));
+    }
+
+    public Mono<ServerResponse> read(ServerRequest request) {
+        return requests.call(() -> bookService.read(ReactiveRequests.pathId(request)))
+            .flatMap(book -> withETag(request, book));
+    }
+
+    public Mono<ServerResponse> list(ServerRequest request) {
+        return requests.call(() -> bookService.list(request.queryParam("cursor").orElse(null),
+                ReactiveRequests.intParam(request, "limit", Cursors.DEFAULT_LIMIT)))
+            .flatMap(page -> ServerResponse.ok().bodyValue(page));
+    }
+
+    public Mono<ServerResponse> listByAuthor(ServerRequest request) {
+        return requests.call(() -> bookService.listByAuthor(request.queryParam("author").orElse(""),
+                request.queryParam("cursor").orElse(null),
+                ReactiveRequests.intParam(request, "limit", Cursors.DEFAULT_LIMIT)))
+            .flatMap(page -> ServerResponse.ok().bodyValue(page));
+    }
+
+    public Mono<ServerResponse> search(ServerRequest request) {
+        return requests.call(() -> bookService.search(request.queryParam("q").orElse(null),
+                request.queryParam("match").orElse(SearchQueries.DEFAULT_MATCH),
+                ReactiveRequests.intParam(request, "limit", SearchQueries.DEFAULT_LIMIT)))
+            .flatMap(page -> ServerResponse.ok().bodyValue(page));
+    }
+
+    public Mono<ServerResponse> changes(ServerRequest request) {
+        return requests.call(() -> bookService.changesSince(ReactiveRequests.longParam(request, "since", "0"),
+                ReactiveRequests.intParam(request, "limit", Cursors.DEFAULT_LIMIT)))
+            .flatMap(delta -> ServerResponse.ok().bodyValue(delta));
+    }
+
+    /**
+     * Writes every book as newline delimited JSON, reading the store a page at a time as the
+     * client reads the response.
+     */
+    public Mono<ServerResponse> stream(ServerRequest request) {
+        Flux<List<Book>> pages = requests.call(() -> bookService.list(null, Cursors.MAX_LIMIT))
+            .expand(page -> page.getNextCursor() == null
+                ? Mono.empty()
+                : requests.call(() -> bookService.list(page.getNextCursor(), Cursors.MAX_LIMIT)))
+            .map(Page::getItems);
+        return ReactiveResponses.jsonLines(objectMapper, pages);
+    }
+
+    public Mono<ServerResponse> readAll(ServerRequest request) {
+        return requests.call(() -> bookService.lookup(ReactiveRequests.idsParam(request, "ids")))
+            .flatMap(result -> ServerResponse.ok().bodyValue(result));
+    }
+
+    public Mono<ServerResponse> lookupAll(ServerRequest request) {
+        return requests.bodyList(request, IDS)
+            .flatMap(ids -> requests.call(() -> bookService.lookup(ids)))
+            .flatMap(result -> ServerResponse.ok().bodyValue(result));
+    }
+
+    public Mono<ServerResponse> readByTitle(ServerRequest request) {
+        return requests.call(() -> bookService.readByTitle(request.queryParam("title").orElse("")))
+            .flatMap(book -> withETag(request, book));
+    }
+
+    public Mono<ServerResponse> update(ServerRequest request) {
+        String ifMatch = request.headers().asHttpHeaders().getFirst(HttpHeaders.IF_MATCH);
+        return requests.body(request, BookRequest.class)
+            .flatMap(body -> requests.call(() -> {
+                UUID id = ReactiveRequests.pathId(request);
+                return bookService.update(id, EntityTags.parseIfMatch(id, ifMatch), body);
+            }))
+            .flatMap(book -> ServerResponse.ok().eTag(getETag(request, book)).bodyValue(book));
+    }
+
+    public Mono<ServerResponse> updateBatch(ServerRequest request) {
+        return requests.bodyList(request, BOOK_UPDATE_REQUESTS)
+            .flatMap(books -> requests.call(() -> bookService.updateBatch(books)))
+            .flatMap(results -> ServerResponse.ok().bodyValue(results));
+    }
+
+    public Mono<ServerResponse> delete(ServerRequest request) {
+        return requests.call(() -> {
+            bookService.delete(ReactiveRequests.pathId(request));
+            return true;
+        }).then(ServerResponse.noContent().build());
+    }
+
+    public Mono<ServerResponse> deleteBatch(ServerRequest request) {
+        return requests.bodyList(request, IDS)
+            .flatMap(ids -> requests.call(() -> bookService.deleteBatch(ids)))
+            .flatMap(results -> ServerResponse.ok().bodyValue(results));
+    }
+
+    public Mono<ServerResponse> deleteAll(ServerRequest request) {
+        return requests.call(() -> {
+            bookService.deleteAll();
+            return true;
+        }).then(ServerResponse.noContent().build());
+    }
+
+    /**
+     * Answers with a book and its entity tag, or with 304 and no body if the request has a
+     * matching {@code If-None-Match} header.
+     */
+    private static Mono<ServerResponse> withETag(ServerRequest request, Book book) {
+        String eTag = getETag(request, book);
+        return request.checkNotModified(eTag)
+            .switchIfEmpty(Mono.defer(() -> ServerResponse.ok().eTag(eTag).bodyValue(book)));
+    }
+
+    private static String getETag(ServerRequest request, Book book) {
+        boolean cbor = CborConfiguration.prefersCbor(request.headers().accept());
+        return EntityTags.of(book.getId(), book.getVersion(), cbor);
+    }
+}
@@ -0,0 +1,60 @@
+package com.jespinel.terraform_provider_server.books;
+
+import com.jespinel.terraform_provider_server.exceptions.DuplicateKeyException;
+import com.jespinel.terraform_provider_server.exceptions.VersionConflictException;
+import com.jespinel.terraform_provider_server.replication.ReplicaStore;
+
+import java.util.Collection;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Copies the books of a primary into the book store of a replica.
+ * <p>
+ * The replica gets the writes of each book in order, and replaces the book it has with a single
+ * update, which takes the version of the primary even if the replica missed some versions.
+ * Readers never see the book missing.
+ */
+public class BookReplicaStore implements ReplicaStore<Book> {
+
+    private final BookStore store;
+
+    public BookReplicaStore(BookStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public UUID getId(Book book) {
+        return book.getId();
+    }
+
+    @Override
+    public void put(Book book) throws DuplicateKeyException {
+        Optional<Book> currentBook = store.get(book.getId());
+        if (!currentBook.isPresent()) {
+            store.insert(book);
+            return;
+        }
+
+        long currentVersion = currentBook.get().getVersion();
+        if (currentVersion >= book.getVersion()) {
+            return;
+        }
+        try {
+            store.update(book, currentVersion);
+        } catch (VersionConflictException e) {
+            throw new IllegalStateException("The book " + book.getId() + " changed outside of replication", e);
+        }
+    }
+
+    @Override
+    public void remove(UUID id) {
+        store.delete(id);
+    }
+
+    @Override
+    public void reset(Collection<Book> books) throws DuplicateKeyException {
+        store.deleteAll();
+        store.load(books);
+    }
+}
@@ -0,0 +1,360 @@
+package com.jespinel.terraform_provider_server.books;
+
+import com.jespinel.terraform_provider_server.batch.BatchResult;
+import com.jespinel.terraform_provider_server.batch.ItemValidator;
+import com.jespinel.terraform_provider_server.batch.LookupResult;
+import com.jespinel.terraform_provider_server.exceptions.APIException;
+import com.jespinel.terraform_provider_server.exceptions.DuplicateKeyException;
+import com.jespinel.terraform_provider_server.exceptions.VersionConflictException;
+import com.jespinel.terraform_provider_server.idempotency.IdempotencyCache;
+import com.jespinel.terraform_provider_server.pagination.Cursors;
+import com.jespinel.terraform_provider_server.pagination.Page;
+import com.jespinel.terraform_provider_server.search.SearchQueries;
+import com.jespinel.terraform_provider_server.search.TextMatch;
+import com.jespinel.terraform_provider_server.sync.Delta;
+import com.jespinel.terraform_provider_server.sync.Deltas;
+import com.jespinel.terraform_provider_server.sync.RevisionIndex;
+import com.jespinel.terraform_provider_server.versioning.EntityTags;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Creates, reads, updates and deletes books, for both the servlet controller and the reactive
+ * routes. Failures are thrown as {@link APIException}s with the status of the response.
+ */
+@Service
+public class BookService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BookService.class);
+    private static final APIException MISSING_ID = new APIException(HttpStatus.BAD_REQUEST, "id is required");
+
+    private final BookStore bookStore;
+    private final ItemValidator itemValidator;
+    private final IdempotencyCache<Book> bookCreations;
+    private final RevisionIndex<Book> bookRevisions;
+
+    public BookService(BookStore bookStore, ItemValidator itemValidator, IdempotencyCache<Book> bookCreations,
+                       ObjectProvider<RevisionIndex<Book>> bookRevisions) {
+        this.bookStore = bookStore;
+        this.itemValidator = itemValidator;
+        this.bookCreations = bookCreations;
+        this.bookRevisions = bookRevisions.getIfAvailable();
+    }
+
+    public Book create(BookRequest request) throws APIException {
+        Book book = insert(new Book(UUID.randomUUID(), request.getTitle(), request.getAuthor(), Book.FIRST_VERSION));
+        LOGGER.info("event=book.created id={}", book.getId());
+        return book;
+    }
+
+    /**
+     * Creates a book once per idempotency key, see {@link IdempotencyCache}.
+     *
+     * @param request        Title and author of the book.
+     * @param idempotencyKey Key of the creation, or null to always create a book.
+     * @return The book created by the first request with the key.
+     * @throws APIException If the key is not valid or was used with another request, or the
+     *                      first request with the key failed.
+     */
+    public Book create(BookRequest request, String idempotencyKey) throws APIException {
+        return bookCreations.execute(idempotencyKey, request, () -> create(request));
+    }
+
+    public List<BatchResult<Book>> createBatch(List<BookRequest> requests) throws APIException {
+        itemValidator.checkSize(requests);
+        LOGGER.info("event=books.batch_created count={}", requests.size());
+        Map<String, UUID> batchTitles = new HashMap<>();
+        return bookStore.batch(() -> {
+            List<BatchResult<Book>> created = new ArrayList<>(requests.size());
+            for (BookRequest request : requests) {
+                try {
+                    itemValidator.validate(request);
+                    Book book = new Book(UUID.randomUUID(), request.getTitle(), request.getAuthor(),
+                        Book.FIRST_VERSION);
+                    checkBatchTitle(batchTitles, book);
+                    created.add(BatchResult.success(HttpStatus.CREATED, insert(book)));
+                    batchTitles.put(BookStore.getTitleKey(book.getTitle()), book.getId());
+                } catch (APIException e) {
+                    created.add(BatchResult.failure(e));
+                }
+            }
+            return created;
+        });
+    }
+
+    public Book read(UUID id) throws APIException {
+        Optional<Book> book = bookStore.get(id);
+        if (!book.isPresent()) {
+            throw bookNotFound(id);
+        }
+
+        LOGGER.info("event=book.read id={}", id);
+        return book.get();
+    }
+
+    /**
+     * @param cursor Cursor of the page, or null for the first page.
+     * @param limit  Maximum number of books of the page.
+     * @return A page of books sorted by ID, with the cursor of the next page if there is one.
+     * @throws APIException If the cursor or the limit are not valid.
+     */
+    public Page<Book> list(String cursor, int limit) throws APIException {
+        LOGGER.info("event=books.listed cursor={} limit={}", cursor, limit);
+        Cursors.checkLimit(limit);
+        return toPage(bookStore.list(Cursors.decode(cursor), limit + 1), limit);
+    }
+
+    /**
+     * @param author Author of the books, ignoring case.
+     * @param cursor Cursor of the page, or null for the first page.
+     * @param limit  Maximum number of books of the page.
+     * @return A page of the books of the author sorted by ID, with the cursor of the next page if
+     * there is one.
+     * @throws APIException If the cursor or the limit are not valid.
+     */
+    public Page<Book> listByAuthor(String author, String cursor, int limit) throws APIException {
+        LOGGER.info("event=books.listed_by_author author=\"{}\" cursor={} limit={}", author, cursor, limit);
+        Cursors.checkLimit(limit);
+        return toPage(bookStore.listByAuthor(author, Cursors.decode(cursor), limit + 1), limit);
+    }
+
+    /**
+     * @param query Text to search in the titles, ignoring case.
+     * @param match {@code prefix} or {@code substring}.
+     * @param limit Maximum number of books.
+     * @return The books whose title matches the query, sorted by title.
+     * @throws APIException If the query, the match or the limit are not valid.
+     */
+    public Page<Book> search(String query, String match, int limit) throws APIException {
+        LOGGER.info("event=books.searched query=\"{}\" match={} limit={}", query, match, limit);
+        TextMatch textMatch = SearchQueries.parseMatch(match);
+        SearchQueries.check(query, textMatch, limit);
+        return new Page<>(bookStore.searchTitles(query, textMatch, limit), null);
+    }
+
+    /**
+     * @param since Revision of the last change the client has, or 0 to read every book.
+     * @param limit Maximum number of books.
+     * @return The books changed since the revision, and tombstones of the deleted ones, in the
+     * order of their revisions.
+     * @throws APIException If the revisions are not kept, the revision or the limit are not
+     *                      valid, or the changes since the revision are no longer available.
+     */
+    public Delta<Book> changesSince(long since, int limit) throws APIException {
+        LOGGER.info("event=books.changes_read since={} limit={}", since, limit);
+        return Deltas.since(bookRevisions, since, limit);
+    }
+
+    /**
+     * Runs an action with every book while it iterates the store, without copying the books.
+     */
+    public void stream(Consumer<Book> action) {
+        LOGGER.info("event=books.streamed");
+        bookStore.forEach(action);
+    }
+
+    /**
+     * Reads the books with the given IDs.
+     *
+     * @param ids IDs of books. Repeated IDs are read once.
+     * @return The books that exist, in the order of their IDs, and the IDs that do not exist.
+     */
+    public LookupResult<Book> lookup(List<UUID> ids) {
+        LOGGER.info("event=books.looked_up count={}", ids.size());
+        Set<UUID> uniqueIds = new LinkedHashSet<>(ids);
+        uniqueIds.remove(null);
+        Map<UUID, Book> books = bookStore.getAll(uniqueIds);
+
+        List<Book> found = new ArrayList<>(books.size());
+        List<UUID> missing = new ArrayList<>(uniqueIds.size() - books.size());
+        for (UUID id : uniqueIds) {
+            Book book = books.get(id);
+            if (book == null) {
+                missing.add(id);
+            } else {
+                found.add(book);
+            }
+        }
+        return new LookupResult<>(found, missing);
+    }
+
+    public Book readByTitle(String title) throws APIException {
+        Optional<Book> book = bookStore.getByTitle(title);
+        if (!book.isPresent()) {
+            LOGGER.error("event=book.not_found title=\"{}\"", title);
+            String errorMessage = "The book with title '" + title + "' does not exist";
+            throw new APIException(HttpStatus.NOT_FOUND, errorMessage);
+        }
+
+        LOGGER.info("event=book.read id={}", book.get().getId());
+        return book.get();
+    }
+
+    /**
+     * @param id              ID of the book.
+     * @param expectedVersion Version the book must have, or {@link EntityTags#ANY_VERSION}.
+     * @param request         New title and author of the book.
+     * @return The updated book, with its new version.
+     * @throws APIException If the book does not exist, has another version, or another book
+     *                      already has the new title.
+     */
+    public Book update(UUID id, long expectedVersion, BookRequest request) throws APIException {
+        Book newBook = new Book(id, request.getTitle(), request.getAuthor(), Book.FIRST_VERSION);
+        Book updatedBook = replace(newBook, expectedVersion);
+        LOGGER.info("event=book.updated id={}", id);
+        return updatedBook;
+    }
+
+    public List<BatchResult<Book>> updateBatch(List<BookUpdateRequest> requests) throws APIException {
+        itemValidator.checkSize(requests);
+        LOGGER.info("event=books.batch_updated count={}", requests.size());
+        Map<String, UUID> batchTitles = new HashMap<>();
+        return bookStore.batch(() -> {
+            List<BatchResult<Book>> updated = new ArrayList<>(requests.size());
+            for (BookUpdateRequest request : requests) {
+                try {
+                    itemValidator.validate(request);
+                    Book newBook = new Book(request.getId(), request.getTitle(), request.getAuthor(),
+                        Book.FIRST_VERSION);
+                    checkBatchTitle(batchTitles, newBook);
+                    long expectedVersion = request.getVersion() == null ? EntityTags.ANY_VERSION : request.getVersion();
+                    updated.add(BatchResult.success(HttpStatus.OK, replace(newBook, expectedVersion)));
+                    batchTitles.put(BookStore.getTitleKey(newBook.getTitle()), newBook.getId());
+                } catch (APIException e) {
+                    updated.add(BatchResult.failure(e));
+                }
+            }
+            return updated;
+        });
+    }
+
+    public void delete(UUID id) {
+        Optional<Book> removedBook = bookStore.delete(id);
+        LOGGER.info("event=book.deleted id={} existed={}", id, removedBook.isPresent());
+    }
+
+    public List<BatchResult<Book>> deleteBatch(List<UUID> ids) throws APIException {
+        itemValidator.checkSize(ids);
+        LOGGER.info("event=books.batch_deleted count={}", ids.size());
+        return bookStore.batch(() -> {
+            List<BatchResult<Book>> deleted = new ArrayList<>(ids.size());
+            for (UUID id : ids) {
+                if (id == null) {
+                    deleted.add(BatchResult.failure(MISSING_ID));
+                    continue;
+                }
+                bookStore.delete(id);
+                deleted.add(BatchResult.success(HttpStatus.NO_CONTENT, null));
+            }
+            return deleted;
+        });
+    }
+
+    public void deleteAll() {
+        LOGGER.info("event=books.all_deleted");
+        bookStore.deleteAll();
+    }
+
+    /**
+     * Stores a new book.
+     *
+     * @param book Book to store.
+     * @return The stored book.
+     * @throws APIException If another book already has the same title.
+     */
+    private Book insert(Book book) throws APIException {
+        try {
+            bookStore.insert(book);
+        } catch (DuplicateKeyException e) {
+            throw bookAlreadyExists(book.getTitle());
+        }
+        return book;
+    }
+
+    /**
+     * Replaces an existing book.
+     *
+     * @param newBook         New version of the book. Its version is ignored.
+     * @param expectedVersion Version the book must have, or {@link EntityTags#ANY_VERSION}.
+     * @return The updated book, with its new version.
+     * @throws APIException If the book does not exist, has another version, or another book
+     *                      already has the new title.
+     */
+    private Book replace(Book newBook, long expectedVersion) throws APIException {
+        Optional<Book> updatedBook;
+        try {
+            updatedBook = bookStore.update(newBook, expectedVersion);
+        } catch (DuplicateKeyException e) {
+            throw bookAlreadyExists(newBook.getTitle());
+        } catch (VersionConflictException e) {
+            throw bookVersionConflict(e);
+        }
+
+        if (!updatedBook.isPresent()) {
+            throw bookNotFound(newBook.getId());
+        }
+        return updatedBook.get();
+    }
+
+    /**
+     * Checks that no other book of a batch took the title of a book, so a batch that repeats a
+     * title fails without going to the store. A book only takes its title once it is stored, so
+     * an item that fails does not fail the next items with its title.
+     *
+     * @param batchTitles IDs of the books stored by the batch, by title key.
+     * @param book        Book of the batch.
+     * @throws APIException If another book of the batch has the same title.
+     */
+    private static void checkBatchTitle(Map<String, UUID> batchTitles, Book book) throws APIException {
+        UUID holder = batchTitles.get(BookStore.getTitleKey(book.getTitle()));
+        if (holder != null && !holder.equals(book.getId())) {
+            throw bookAlreadyExists(book.getTitle());
+        }
+    }
+
+    private static APIException bookAlreadyExists(String title) {
+        LOGGER.error("event=book.conflict title=\"{}\"", title);
+        String errorMessage = "The book '" + title + "' already exists";
+        return new APIException(HttpStatus.CONFLICT, errorMessage);
+    }
+
+    private static APIException bookVersionConflict(VersionConflictException e) {
+        LOGGER.error("event=book.version_conflict id={} version={}", e.getId(), e.getCurrentVersion());
+        String errorMessage = "The book with ID '" + e.getId() + "' has changed, its version is "
+            + e.getCurrentVersion();
+        return new APIException(HttpStatus.PRECONDITION_FAILED, errorMessage);
+    }
+
+    private static APIException bookNotFound(UUID id) {
+        LOGGER.error("event=book.not_found id={}", id);
+        String errorMessage = "The book with ID '" + id + "' does not exist";
+        return new APIException(HttpStatus.NOT_FOUND, errorMessage);
+    }
+
+    /**
+     * Returns a page of at most {@code limit} books. The stores are asked for one more book than
+     * the limit, to know whether there is a next page.
+     */
+    private static Page<Book> toPage(List<Book> books, int limit) {
+        String nextCursor = null;
+        if (books.size() > limit) {
+            books = books.subList(0, limit);
+            nextCursor = Cursors.encode(books.get(limit - 1).getId());
+        }
+        return new Page<>(books, nextCursor);
+    }
+}
@@ -0,0 +1,187 @@
+package com.jespinel.terraform_provider_server.books;
+
+import com.jespinel.terraform_provider_server.exceptions.DuplicateKeyException;
+import com.jespinel.terraform_provider_server.exceptions.VersionConflictException;
+import com.jespinel.terraform_provider_server.search.TextMatch;
+import com.jespinel.terraform_provider_server.storage.StripedLocks;
+import com.jespinel.terraform_provider_server.versioning.EntityTags;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Repository of books. Titles are unique, ignoring case.
+ * <p>
+ * The stores that wrap another store, to append its changes to a log, publish them or record
+ * them, share one {@link StripedLocks} for the books. A write holds the lock of its book while
+ * it goes through all of them, so each of them gets the writes of a book in the order they were
+ * applied; the first store takes the lock and the others re-enter it. Only a durable store
+ * waits, for the disk, and it releases the lock first.
+ */
+public interface BookStore {
+
+    /**
+     * Returns the book with the given ID.
+     *
+     * @param id ID of a book.
+     * @return The book, or an empty optional if it does not exist.
+     */
+    Optional<Book> get(UUID id);
+
+    /**
+     * Returns the books with the given IDs, in a single pass over the IDs. By default, it reads
+     * them one by one with {@link #get(UUID)}.
+     *
+     * @param ids IDs of books.
+     * @return The books that exist, by ID.
+     */
+    default Map<UUID, Book> getAll(Collection<UUID> ids) {
+        Map<UUID, Book> books = new HashMap<>();
+        for (UUID id : ids) {
+            get(id).ifPresent(book -> books.put(id, book));
+        }
+        return books;
+    }
+
+    /**
+     * Returns a page of books sorted by ID.
+     *
+     * @param after ID the page starts after, or null for the first page.
+     * @param limit Maximum number of books of the page.
+     * @return The books with an ID greater than {@code after}, in ID order.
+     */
+    List<Book> list(UUID after, int limit);
+
+    /**
+     * Returns the book with the given title, ignoring case.
+     *
+     * @param title Title of a book.
+     * @return The book, or an empty optional if no book has the title.
+     */
+    Optional<Book> getByTitle(String title);
+
+    /**
+     * Returns a page of the books of an author, ignoring case, sorted by ID. Books without an
+     * author are never returned.
+     *
+     * @param author Author of the books.
+     * @param after  ID the page starts after, or null for the first page.
+     * @param limit  Maximum number of books of the page.
+     * @return The books of the author with an ID greater than {@code after}, in ID order.
+     */
+    List<Book> listByAuthor(String author, UUID after, int limit);
+
+    /**
+     * Returns the books whose title matches a query, ignoring case, sorted by title.
+     *
+     * @param query Text to search.
+     * @param match How titles must match the query.
+     * @param limit Maximum number of books to return.
+     * @return The matching books.
+     */
+    List<Book> searchTitles(String query, TextMatch match, int limit);
+
+    /**
+     * Stores a new book, with its version.
+     *
+     * @param book Book to store.
+     * @throws DuplicateKeyException If another book already has the same title.
+     */
+    void insert(Book book) throws DuplicateKeyException;
+
+    /**
+     * Stores the books of an empty store, such as the books recovered from a log. Stores with
+     * sorted indexes fill each of them in its own order, which is faster than inserting the
+     * books one at a time.
+     *
+     * @param books Books to store, with their versions.
+     * @throws DuplicateKeyException If two books have the same title.
+     */
+    default void load(Collection<Book> books) throws DuplicateKeyException {
+        for (Book book : books) {
+            insert(book);
+        }
+    }
+
+    /**
+     * Replaces an existing book if it has the expected version, and increases its version by
+     * one, or to the version of the given book if it is higher, as when a replica catches up with
+     * versions it missed.
+     *
+     * @param book            New version of the book.
+     * @param expectedVersion Version the book must have, or {@link EntityTags#ANY_VERSION}.
+     * @return The updated book, with its new version, or an empty optional if the book does
+     * not exist.
+     * @throws DuplicateKeyException    If another book already has the new title.
+     * @throws VersionConflictException If the book has another version.
+     */
+    Optional<Book> update(Book book, long expectedVersion) throws DuplicateKeyException, VersionConflictException;
+
+    /**
+     * Removes a book.
+     *
+     * @param id ID of a book.
+     * @return The removed book, or an empty optional if it did not exist.
+     */
+    Optional<Book> delete(UUID id);
+
+    /**
+     * Removes all the books. They are removed one by one, not atomically, so concurrent readers may
+     * see some of them removed before the others.
+     */
+    void deleteAll();
+
+    /**
+     * Returns the number of books.
+     *
+     * @return The number of books.
+     */
+    long size();
+
+    /**
+     * Calls the given action for every book. Books written during the iteration may or may
+     * not be visited.
+     *
+     * @param action Action to call for each book.
+     */
+    void forEach(Consumer<Book> action);
+
+    /**
+     * Runs several writes as a batch. Stores that acknowledge a write once it is durable wait
+     * once, at the end of the batch, instead of once per write.
+     *
+     * @param writes Writes to run.
+     * @param <T>    Type of the result of the writes.
+     * @return The result of the writes.
+     */
+    default <T> T batch(Supplier<T> writes) {
+        return writes.get();
+    }
+
+    /**
+     * Returns the key that makes titles unique.
+     *
+     * @param title Title of a book.
+     * @return The title in lower case.
+     */
+    static String getTitleKey(String title) {
+        return title.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Returns the key books are indexed by author with.
+     *
+     * @param author Author of a book.
+     * @return The author in lower case.
+     */
+    static String getAuthorKey(String author) {
+        return author.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,28 @@
+package com.jespinel.terraform_provider_server.books;
+
+import java.util.UUID;
+
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+
+import lombok.Value;
+
+/**
+ * Update of one book in a batch.
+ */
+@Value
+public class BookUpdateRequest {
+
+    @NotNull(message = "id is required")
+    private UUID id;
+
+    @NotBlank(message = "title is required")
+    private String title;
+
+    private String author;
+
+    /**
+     * Version the entity must have for the update to apply, or null to update any version.
+     */
+    private Long version;
+}
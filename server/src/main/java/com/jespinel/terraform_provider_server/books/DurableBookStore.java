@@ -0,0 +1,314 @@
+package com.jespinel.terraform_provider_server.books;
+
+import com.jespinel.terraform_provider_server.exceptions.DuplicateKeyException;
+import com.jespinel.terraform_provider_server.exceptions.VersionConflictException;
+import com.jespinel.terraform_provider_server.search.TextMatch;
+import com.jespinel.terraform_provider_server.storage.DeferredActions;
+import com.jespinel.terraform_provider_server.storage.Payloads;
+import com.jespinel.terraform_provider_server.storage.StripedLocks;
+import com.jespinel.terraform_provider_server.storage.WriteAheadLog;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Book store that appends every change of another store to a {@link WriteAheadLog}, and
+ * rebuilds that store from the log when it is opened.
+ * <p>
+ * A write releases the lock of its book before it waits until the log says its record is durable.
+ * The stores it wraps may defer actions, such as the publication of a change, to
+ * {@link DeferredActions}. They run once the record of their write is durable, before the write
+ * returns, so nothing outside of the store sees a change that a crash could lose.
+ */
+public class DurableBookStore implements BookStore, WriteAheadLog.StateMachine, Closeable {
+
+    /**
+     * Book written before books had versions, replayed with the first version.
+     */
+    private static final byte PUT_UNVERSIONED = 1;
+    private static final byte DELETE = 2;
+    private static final byte PUT = 3;
+
+    private final BookStore delegate;
+    private final WriteAheadLog log;
+    private final DeferredActions actions;
+    private final StripedLocks locks;
+
+    /**
+     * Sequence number of the last record of the batch run by the current thread, if any.
+     */
+    private final ThreadLocal<long[]> batchSequence = new ThreadLocal<>();
+
+    /**
+     * Books rebuilt from the log, only used while the log is opened.
+     */
+    private Map<UUID, Book> recoveredBooks = new HashMap<>();
+
+    private DurableBookStore(BookStore delegate, WriteAheadLog log, StripedLocks locks, DeferredActions actions) {
+        this.delegate = delegate;
+        this.log = log;
+        this.locks = locks;
+        this.actions = actions;
+    }
+
+    /**
+     * Replays the log into an empty store and returns a durable store on top of it.
+     *
+     * @param delegate Empty store that keeps the books.
+     * @param log      Log of the changes to the books.
+     * @return A durable store.
+     * @throws IOException If the log could not be opened.
+     */
+    public static DurableBookStore open(BookStore delegate, WriteAheadLog log) throws IOException {
+        return open(delegate, log, new StripedLocks(StripedLocks.DEFAULT_STRIPES), new DeferredActions());
+    }
+
+    /**
+     * Replays the log into an empty store and returns a durable store on top of it.
+     *
+     * @param delegate Empty store that keeps the books.
+     * @param log      Log of the changes to the books.
+     * @param locks    Locks of the books, shared with the stores that the delegate wraps.
+     * @param actions  Actions deferred by the stores that the delegate wraps.
+     * @return A durable store.
+     * @throws IOException If the log could not be opened.
+     */
+    public static DurableBookStore open(BookStore delegate, WriteAheadLog log, StripedLocks locks,
+                                        DeferredActions actions) throws IOException {
+
+        DurableBookStore store = new DurableBookStore(delegate, log, locks, actions);
+        log.open(store);
+        try {
+            delegate.load(store.recoveredBooks.values());
+        } catch (DuplicateKeyException e) {
+            throw new IllegalStateException("The log has more than one book with the title " + e.getKey(), e);
+        }
+        store.recoveredBooks = null;
+        return store;
+    }
+
+    @Override
+    public Optional<Book> get(UUID id) {
+        return delegate.get(id);
+    }
+
+    @Override
+    public Map<UUID, Book> getAll(Collection<UUID> ids) {
+        return delegate.getAll(ids);
+    }
+
+    @Override
+    public List<Book> list(UUID after, int limit) {
+        return delegate.list(after, limit);
+    }
+
+    @Override
+    public List<Book> listByAuthor(String author, UUID after, int limit) {
+        return delegate.listByAuthor(author, after, limit);
+    }
+
+    @Override
+    public List<Book> searchTitles(String query, TextMatch match, int limit) {
+        return delegate.searchTitles(query, match, limit);
+    }
+
+    @Override
+    public Optional<Book> getByTitle(String title) {
+        return delegate.getByTitle(title);
+    }
+
+    @Override
+    public void insert(Book book) throws DuplicateKeyException {
+        byte[] payload = encode(book);
+        long sequence = 0;
+        synchronized (locks.get(book.getId())) {
+            actions.begin();
+            try {
+                delegate.insert(book);
+                sequence = log.append(PUT, payload);
+            } finally {
+                actions.end(sequence);
+            }
+        }
+        awaitDurable(sequence);
+    }
+
+    @Override
+    public Optional<Book> update(Book book, long expectedVersion)
+        throws DuplicateKeyException, VersionConflictException {
+
+        Optional<Book> updatedBook;
+        long sequence = 0;
+        synchronized (locks.get(book.getId())) {
+            actions.begin();
+            try {
+                updatedBook = delegate.update(book, expectedVersion);
+                if (updatedBook.isPresent()) {
+                    sequence = log.append(PUT, encode(updatedBook.get()));
+                }
+            } finally {
+                actions.end(sequence);
+            }
+        }
+        awaitDurable(sequence);
+        return updatedBook;
+    }
+
+    @Override
+    public Optional<Book> delete(UUID id) {
+        Optional<Book> removedBook;
+        long sequence = 0;
+        synchronized (locks.get(id)) {
+            actions.begin();
+            try {
+                removedBook = delegate.delete(id);
+                if (removedBook.isPresent()) {
+                    sequence = log.append(DELETE, encode(id));
+                }
+            } finally {
+                actions.end(sequence);
+            }
+        }
+        awaitDurable(sequence);
+        return removedBook;
+    }
+
+    @Override
+    public void deleteAll() {
+        long[] lastSequence = new long[1];
+        delegate.forEach(book -> {
+            long sequence = 0;
+            synchronized (locks.get(book.getId())) {
+                actions.begin();
+                try {
+                    if (delegate.delete(book.getId()).isPresent()) {
+                        sequence = log.append(DELETE, encode(book.getId()));
+                        lastSequence[0] = sequence;
+                    }
+                } finally {
+                    actions.end(sequence);
+                }
+            }
+        });
+        awaitDurable(lastSequence[0]);
+    }
+
+    @Override
+    public long size() {
+        return delegate.size();
+    }
+
+    @Override
+    public void forEach(Consumer<Book> action) {
+        delegate.forEach(action);
+    }
+
+    @Override
+    public <T> T batch(Supplier<T> writes) {
+        if (batchSequence.get() != null) {
+            return writes.get();
+        }
+
+        long[] lastSequence = new long[1];
+        batchSequence.set(lastSequence);
+        try {
+            return writes.get();
+        } finally {
+            batchSequence.remove();
+            log.awaitDurable(lastSequence[0]);
+            actions.runUntil(lastSequence[0]);
+        }
+    }
+
+    @Override
+    public void replay(byte type, ByteBuffer payload) {
+        switch (type) {
+            case PUT_UNVERSIONED:
+                Book unversionedBook = decode(payload, Book.FIRST_VERSION);
+                recoveredBooks.put(unversionedBook.getId(), unversionedBook);
+                break;
+            case PUT:
+                Book book = decode(payload, payload.getLong());
+                recoveredBooks.put(book.getId(), book);
+                break;
+            case DELETE:
+                recoveredBooks.remove(Payloads.readUUID(payload));
+                break;
+            default:
+                throw new IllegalStateException("Unknown book record type: " + type);
+        }
+    }
+
+    @Override
+    public void snapshot(WriteAheadLog.RecordSink sink) throws IOException {
+        try {
+            delegate.forEach(book -> {
+                try {
+                    sink.write(PUT, encode(book));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        log.close();
+    }
+
+    /**
+     * Waits until the record is durable and runs its deferred actions or, inside a batch, does
+     * both when the batch ends.
+     */
+    private void awaitDurable(long sequence) {
+        long[] lastSequence = batchSequence.get();
+        if (lastSequence == null) {
+            log.awaitDurable(sequence);
+            actions.runUntil(sequence);
+        } else {
+            lastSequence[0] = Math.max(lastSequence[0], sequence);
+        }
+    }
+
+    private static byte[] encode(Book book) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeLong(book.getVersion());
+            Payloads.writeUUID(out, book.getId());
+            Payloads.writeString(out, book.getTitle());
+            Payloads.writeString(out, book.getAuthor());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] encode(UUID id) {
+        ByteBuffer buffer = ByteBuffer.allocate(16);
+        buffer.putLong(id.getMostSignificantBits());
+        buffer.putLong(id.getLeastSignificantBits());
+        return buffer.array();
+    }
+
+    private static Book decode(ByteBuffer payload, long version) {
+        UUID id = Payloads.readUUID(payload);
+        String title = Payloads.readString(payload);
+        String author = Payloads.readString(payload);
+        return new Book(id, title, author, version);
+    }
+}
@@ -0,0 +1,269 @@
+package com.jespinel.terraform_provider_server.books;
+
+import com.jespinel.terraform_provider_server.exceptions.DuplicateKeyException;
+import com.jespinel.terraform_provider_server.exceptions.VersionConflictException;
+import com.jespinel.terraform_provider_server.search.TextIndex;
+import com.jespinel.terraform_provider_server.search.TextMatch;
+import com.jespinel.terraform_provider_server.versioning.EntityTags;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Consumer;
+
+/**
+ * Book store backed by concurrent hash maps.
+ * <p>
+ * Writes to the same book are serialized by the lock {@link ConcurrentHashMap#compute}
+ * holds on its entry, so the title, author and search indexes are always updated together
+ * with the book.
+ */
+public class InMemoryBookStore implements BookStore {
+
+    /**
+     * Map to store books and its IDs.
+     */
+    private final ConcurrentMap<UUID, Book> books = new ConcurrentHashMap<>();
+
+    /**
+     * Index of book IDs by title. Keys are lower case titles, so lookups are case insensitive.
+     */
+    private final ConcurrentMap<String, UUID> titles = new ConcurrentHashMap<>();
+
+    /**
+     * IDs of the books in order, used to list books in pages. An ID is added before its book
+     * and removed after it, so it may briefly be here without a book, but never the opposite.
+     */
+    private final NavigableSet<UUID> sortedIds = new ConcurrentSkipListSet<>();
+
+    /**
+     * IDs of the books sorted by lower case author, then by ID, used to list the books of an
+     * author in pages without visiting the books of other authors. Like {@link #sortedIds}, an
+     * ID may briefly be under an author its book no longer has, so readers check the author of
+     * the books they find.
+     */
+    private final NavigableSet<AuthorEntry> authors = new ConcurrentSkipListSet<>();
+
+    /**
+     * Index of the titles, to search them by prefix or substring.
+     */
+    private final TextIndex titleIndex = new TextIndex();
+
+    @Override
+    public Optional<Book> get(UUID id) {
+        return Optional.ofNullable(books.get(id));
+    }
+
+    /**
+     * Reads the map directly, without an optional per book.
+     */
+    @Override
+    public Map<UUID, Book> getAll(Collection<UUID> ids) {
+        Map<UUID, Book> found = new HashMap<>(ids.size() * 4 / 3 + 1);
+        for (UUID id : ids) {
+            Book book = books.get(id);
+            if (book != null) {
+                found.put(id, book);
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public Optional<Book> getByTitle(String title) {
+        UUID id = titles.get(BookStore.getTitleKey(title));
+        if (id == null) {
+            return Optional.empty();
+        }
+        return get(id);
+    }
+
+    @Override
+    public List<Book> list(UUID after, int limit) {
+        NavigableSet<UUID> ids = after == null ? sortedIds : sortedIds.tailSet(after, false);
+        List<Book> page = new ArrayList<>(Math.min(limit, 1024));
+        for (UUID id : ids) {
+            if (page.size() == limit) {
+                break;
+            }
+            Book book = books.get(id);
+            if (book != null) {
+                page.add(book);
+            }
+        }
+        return page;
+    }
+
+    @Override
+    public List<Book> listByAuthor(String author, UUID after, int limit) {
+        String authorKey = BookStore.getAuthorKey(author);
+        NavigableSet<AuthorEntry> entries = after == null
+            ? authors.tailSet(new AuthorEntry(authorKey, AuthorEntry.MIN_ID), true)
+            : authors.tailSet(new AuthorEntry(authorKey, after), false);
+        List<Book> page = new ArrayList<>(Math.min(limit, 1024));
+        for (AuthorEntry entry : entries) {
+            if (page.size() == limit || !entry.author.equals(authorKey)) {
+                break;
+            }
+            Book book = books.get(entry.id);
+            if (book != null && book.getAuthor() != null
+                && authorKey.equals(BookStore.getAuthorKey(book.getAuthor()))) {
+                page.add(book);
+            }
+        }
+        return page;
+    }
+
+    @Override
+    public List<Book> searchTitles(String query, TextMatch match, int limit) {
+        return titleIndex.find(query, match, limit, books::get, Book::getTitle);
+    }
+
+    @Override
+    public void insert(Book book) throws DuplicateKeyException {
+        if (titles.putIfAbsent(BookStore.getTitleKey(book.getTitle()), book.getId()) != null) {
+            throw new DuplicateKeyException(book.getTitle());
+        }
+        sortedIds.add(book.getId());
+        addToAuthor(book.getAuthor(), book.getId());
+        titleIndex.add(book.getId(), book.getTitle());
+        books.put(book.getId(), book);
+    }
+
+    @Override
+    public void load(Collection<Book> loadedBooks) throws DuplicateKeyException {
+        List<UUID> ids = new ArrayList<>(loadedBooks.size());
+        List<AuthorEntry> authorEntries = new ArrayList<>(loadedBooks.size());
+        for (Book book : loadedBooks) {
+            if (titles.putIfAbsent(BookStore.getTitleKey(book.getTitle()), book.getId()) != null) {
+                releaseTitles(loadedBooks, ids.size());
+                throw new DuplicateKeyException(book.getTitle());
+            }
+            ids.add(book.getId());
+            if (book.getAuthor() != null) {
+                authorEntries.add(new AuthorEntry(BookStore.getAuthorKey(book.getAuthor()), book.getId()));
+            }
+        }
+        // Each insertion in order follows the previous one, so it walks nodes that are in cache
+        Collections.sort(ids);
+        sortedIds.addAll(ids);
+        Collections.sort(authorEntries);
+        authors.addAll(authorEntries);
+        titleIndex.addAll(loadedBooks, Book::getId, Book::getTitle);
+        for (Book book : loadedBooks) {
+            books.put(book.getId(), book);
+        }
+    }
+
+    /**
+     * Releases the titles claimed by the first books of a load that failed, so the store can be
+     * loaded again.
+     */
+    private void releaseTitles(Collection<Book> loadedBooks, int claimed) {
+        Iterator<Book> iterator = loadedBooks.iterator();
+        for (int i = 0; i < claimed; i++) {
+            Book book = iterator.next();
+            titles.remove(BookStore.getTitleKey(book.getTitle()), book.getId());
+        }
+    }
+
+    @Override
+    public Optional<Book> update(Book book, long expectedVersion)
+        throws DuplicateKeyException, VersionConflictException {
+
+        UUID id = book.getId();
+        String newTitleKey = BookStore.getTitleKey(book.getTitle());
+        Book[] updated = new Book[1];
+        Book[] stale = new Book[1];
+        boolean[] conflict = new boolean[1];
+        books.computeIfPresent(id, (key, oldBook) -> {
+            if (expectedVersion != EntityTags.ANY_VERSION && oldBook.getVersion() != expectedVersion) {
+                stale[0] = oldBook;
+                return oldBook;
+            }
+            String oldTitleKey = BookStore.getTitleKey(oldBook.getTitle());
+            if (!oldTitleKey.equals(newTitleKey)) {
+                UUID holder = titles.putIfAbsent(newTitleKey, id);
+                if (holder != null && !holder.equals(id)) {
+                    conflict[0] = true;
+                    return oldBook;
+                }
+                titles.remove(oldTitleKey, id);
+            }
+            titleIndex.replace(id, oldBook.getTitle(), book.getTitle());
+            if (!isSameAuthor(oldBook.getAuthor(), book.getAuthor())) {
+                addToAuthor(book.getAuthor(), id);
+                removeFromAuthor(oldBook.getAuthor(), id);
+            }
+            updated[0] = book.withVersion(Math.max(oldBook.getVersion() + 1, book.getVersion()));
+            return updated[0];
+        });
+
+        if (stale[0] != null) {
+            throw new VersionConflictException(id, stale[0].getVersion());
+        }
+        if (conflict[0]) {
+            throw new DuplicateKeyException(book.getTitle());
+        }
+        return Optional.ofNullable(updated[0]);
+    }
+
+    @Override
+    public Optional<Book> delete(UUID id) {
+        Book removedBook = books.remove(id);
+        if (removedBook == null) {
+            return Optional.empty();
+        }
+        titles.remove(BookStore.getTitleKey(removedBook.getTitle()), id);
+        removeFromAuthor(removedBook.getAuthor(), id);
+        titleIndex.remove(id, removedBook.getTitle());
+        sortedIds.remove(id);
+        return Optional.of(removedBook);
+    }
+
+    @Override
+    public void deleteAll() {
+        for (UUID id : books.keySet()) {
+            delete(id);
+        }
+    }
+
+    @Override
+    public long size() {
+        return books.size();
+    }
+
+    @Override
+    public void forEach(Consumer<Book> action) {
+        books.values().forEach(action);
+    }
+
+    private void addToAuthor(String author, UUID id) {
+        if (author != null) {
+            authors.add(new AuthorEntry(BookStore.getAuthorKey(author), id));
+        }
+    }
+
+    private void removeFromAuthor(String author, UUID id) {
+        if (author != null) {
+            authors.remove(new AuthorEntry(BookStore.getAuthorKey(author), id));
+        }
+    }
+
+    private static boolean isSameAuthor(String oldAuthor, String newAuthor) {
+        if (oldAuthor == null || newAuthor == null) {
+            return oldAuthor == newAuthor;
+        }
+        return BookStore.getAuthorKey(oldAuthor).equals(BookStore.getAuthorKey(newAuthor));
+    }
+}
@@ -0,0 +1,394 @@
+package com.jespinel.terraform_provider_server.books;
+
+import com.jespinel.terraform_provider_server.exceptions.DuplicateKeyException;
+import com.jespinel.terraform_provider_server.exceptions.VersionConflictException;
+import com.jespinel.terraform_provider_server.search.TextIndex;
+import com.jespinel.terraform_provider_server.search.TextMatch;
+import com.jespinel.terraform_provider_server.storage.Partitions;
+import com.jespinel.terraform_provider_server.storage.UniqueKeys;
+import com.jespinel.terraform_provider_server.versioning.EntityTags;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Book store split into partitions by the hash of the book IDs. Each partition keeps its books
+ * and its own ID and author indexes in plain maps and sorted sets, guarded by one read-write
+ * lock, along with its own search index, so writes of books in different partitions never
+ * contend.
+ * <p>
+ * Titles are unique across partitions, so they are claimed in a {@link UniqueKeys} table, which
+ * is partitioned by title instead. A write takes the lock of the book's partition, then the
+ * lock of the title's partition of the table, never the other way around. Lists, searches and
+ * pages by author read each partition in turn and merge their results.
+ */
+public class PartitionedBookStore implements BookStore {
+
+    private final Partition[] partitions;
+    private final UniqueKeys titles;
+
+    /**
+     * @param partitions Number of partitions, rounded up to a power of two. The table of titles
+     *                   has as many.
+     */
+    public PartitionedBookStore(int partitions) {
+        int size = Partitions.size(partitions);
+        this.partitions = new Partition[size];
+        for (int i = 0; i < size; i++) {
+            this.partitions[i] = new Partition();
+        }
+        this.titles = new UniqueKeys(size);
+    }
+
+    @Override
+    public Optional<Book> get(UUID id) {
+        return Optional.ofNullable(partition(id).get(id));
+    }
+
+    /**
+     * Groups the IDs by partition, and reads each partition with one acquisition of its lock.
+     */
+    @Override
+    public Map<UUID, Book> getAll(Collection<UUID> ids) {
+        List<List<UUID>> idsByPartition = new ArrayList<>(partitions.length);
+        for (int i = 0; i < partitions.length; i++) {
+            idsByPartition.add(new ArrayList<>());
+        }
+        for (UUID id : ids) {
+            idsByPartition.get(Partitions.of(id, partitions.length)).add(id);
+        }
+
+        Map<UUID, Book> found = new HashMap<>(ids.size() * 4 / 3 + 1);
+        for (int i = 0; i < partitions.length; i++) {
+            List<UUID> partitionIds = idsByPartition.get(i);
+            if (partitionIds.isEmpty()) {
+                continue;
+            }
+            Partition partition = partitions[i];
+            partition.lock.readLock().lock();
+            try {
+                for (UUID id : partitionIds) {
+                    Book book = partition.books.get(id);
+                    if (book != null) {
+                        found.put(id, book);
+                    }
+                }
+            } finally {
+                partition.lock.readLock().unlock();
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Returns the book that owns a title. A book claims its title just before it is stored, and
+     * frees it just after it is removed, so the owner is checked against the title.
+     */
+    @Override
+    public Optional<Book> getByTitle(String title) {
+        String titleKey = BookStore.getTitleKey(title);
+        UUID id = titles.getOwner(titleKey);
+        if (id == null) {
+            return Optional.empty();
+        }
+        return get(id).filter(book -> BookStore.getTitleKey(book.getTitle()).equals(titleKey));
+    }
+
+    @Override
+    public List<Book> list(UUID after, int limit) {
+        List<Book> books = new ArrayList<>();
+        for (Partition partition : partitions) {
+            partition.lock.readLock().lock();
+            try {
+                NavigableSet<UUID> ids = after == null ? partition.sortedIds : partition.sortedIds.tailSet(after, false);
+                int found = 0;
+                for (UUID id : ids) {
+                    if (found == limit) {
+                        break;
+                    }
+                    books.add(partition.books.get(id));
+                    found++;
+                }
+            } finally {
+                partition.lock.readLock().unlock();
+            }
+        }
+        return firstPage(books, Comparator.comparing(Book::getId), limit);
+    }
+
+    @Override
+    public List<Book> listByAuthor(String author, UUID after, int limit) {
+        String authorKey = BookStore.getAuthorKey(author);
+        AuthorEntry from = new AuthorEntry(authorKey, after == null ? AuthorEntry.MIN_ID : after);
+        List<Book> books = new ArrayList<>();
+        for (Partition partition : partitions) {
+            partition.lock.readLock().lock();
+            try {
+                int found = 0;
+                for (AuthorEntry entry : partition.authors.tailSet(from, after == null)) {
+                    if (found == limit || !entry.author.equals(authorKey)) {
+                        break;
+                    }
+                    books.add(partition.books.get(entry.id));
+                    found++;
+                }
+            } finally {
+                partition.lock.readLock().unlock();
+            }
+        }
+        return firstPage(books, Comparator.comparing(Book::getId), limit);
+    }
+
+    @Override
+    public List<Book> searchTitles(String query, TextMatch match, int limit) {
+        List<Book> books = new ArrayList<>();
+        for (Partition partition : partitions) {
+            books.addAll(partition.titleIndex.find(query, match, limit, partition::get, Book::getTitle));
+        }
+        return firstPage(books, Comparator.comparing(Book::getTitle, String.CASE_INSENSITIVE_ORDER), limit);
+    }
+
+    @Override
+    public void insert(Book book) throws DuplicateKeyException {
+        String titleKey = BookStore.getTitleKey(book.getTitle());
+        if (!titles.claim(titleKey, book.getId())) {
+            throw new DuplicateKeyException(book.getTitle());
+        }
+        Partition partition = partition(book.getId());
+        partition.lock.writeLock().lock();
+        try {
+            partition.add(book);
+        } finally {
+            partition.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Claims every title first, then fills each partition with its books, with one
+     * acquisition of its lock. If a title is taken, the titles already claimed are released, and
+     * nothing is added.
+     */
+    @Override
+    public void load(Collection<Book> loadedBooks) throws DuplicateKeyException {
+        List<List<Book>> booksByPartition = new ArrayList<>(partitions.length);
+        for (int i = 0; i < partitions.length; i++) {
+            booksByPartition.add(new ArrayList<>(loadedBooks.size() / partitions.length + 1));
+        }
+        int claimed = 0;
+        for (Book book : loadedBooks) {
+            if (!titles.claim(BookStore.getTitleKey(book.getTitle()), book.getId())) {
+                releaseTitles(loadedBooks, claimed);
+                throw new DuplicateKeyException(book.getTitle());
+            }
+            claimed++;
+            booksByPartition.get(Partitions.of(book.getId(), partitions.length)).add(book);
+        }
+
+        for (int i = 0; i < partitions.length; i++) {
+            Partition partition = partitions[i];
+            List<Book> books = booksByPartition.get(i);
+            partition.lock.writeLock().lock();
+            try {
+                partition.addAll(books);
+            } finally {
+                partition.lock.writeLock().unlock();
+            }
+        }
+    }
+
+    private void releaseTitles(Collection<Book> loadedBooks, int claimed) {
+        Iterator<Book> iterator = loadedBooks.iterator();
+        for (int i = 0; i < claimed; i++) {
+            Book book = iterator.next();
+            titles.release(BookStore.getTitleKey(book.getTitle()), book.getId());
+        }
+    }
+
+    @Override
+    public Optional<Book> update(Book book, long expectedVersion)
+        throws DuplicateKeyException, VersionConflictException {
+
+        UUID id = book.getId();
+        Partition partition = partition(id);
+        partition.lock.writeLock().lock();
+        try {
+            Book oldBook = partition.books.get(id);
+            if (oldBook == null) {
+                return Optional.empty();
+            }
+            if (expectedVersion != EntityTags.ANY_VERSION && oldBook.getVersion() != expectedVersion) {
+                throw new VersionConflictException(id, oldBook.getVersion());
+            }
+            String oldTitleKey = BookStore.getTitleKey(oldBook.getTitle());
+            String newTitleKey = BookStore.getTitleKey(book.getTitle());
+            if (!oldTitleKey.equals(newTitleKey)) {
+                if (!titles.claim(newTitleKey, id)) {
+                    throw new DuplicateKeyException(book.getTitle());
+                }
+                titles.release(oldTitleKey, id);
+            }
+            Book updatedBook = book.withVersion(Math.max(oldBook.getVersion() + 1, book.getVersion()));
+            partition.replace(oldBook, updatedBook);
+            return Optional.of(updatedBook);
+        } finally {
+            partition.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional<Book> delete(UUID id) {
+        Partition partition = partition(id);
+        Book removedBook;
+        partition.lock.writeLock().lock();
+        try {
+            removedBook = partition.remove(id);
+        } finally {
+            partition.lock.writeLock().unlock();
+        }
+        if (removedBook == null) {
+            return Optional.empty();
+        }
+        titles.release(BookStore.getTitleKey(removedBook.getTitle()), id);
+        return Optional.of(removedBook);
+    }
+
+    /**
+     * Deletes the books of each partition one by one, so readers may see some of them deleted
+     * before the others, as with the other stores.
+     */
+    @Override
+    public void deleteAll() {
+        for (Partition partition : partitions) {
+            for (Book book : partition.snapshot()) {
+                delete(book.getId());
+            }
+        }
+    }
+
+    @Override
+    public long size() {
+        long size = 0;
+        for (Partition partition : partitions) {
+            partition.lock.readLock().lock();
+            try {
+                size += partition.books.size();
+            } finally {
+                partition.lock.readLock().unlock();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Visits a copy of each partition in turn, so the action runs without holding its lock.
+     */
+    @Override
+    public void forEach(Consumer<Book> action) {
+        for (Partition partition : partitions) {
+            partition.snapshot().forEach(action);
+        }
+    }
+
+    private Partition partition(UUID id) {
+        return partitions[Partitions.of(id, partitions.length)];
+    }
+
+    /**
+     * Sorts the books merged from every partition, and returns the first page of them. Each
+     * partition gives at most {@code limit} books, since the page cannot have more of them.
+     */
+    private static List<Book> firstPage(List<Book> books, Comparator<Book> order, int limit) {
+        books.sort(order);
+        return books.size() <= limit ? books : new ArrayList<>(books.subList(0, limit));
+    }
+
+    /**
+     * Books of a partition and their ID and author indexes, guarded by its lock, and the search
+     * index of its titles, which is thread safe on its own.
+     */
+    private static final class Partition {
+
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+        private final Map<UUID, Book> books = new HashMap<>();
+        private final NavigableSet<UUID> sortedIds = new TreeSet<>();
+        private final NavigableSet<AuthorEntry> authors = new TreeSet<>();
+        private final TextIndex titleIndex = new TextIndex();
+
+        private Book get(UUID id) {
+            Lock readLock = lock.readLock();
+            readLock.lock();
+            try {
+                return books.get(id);
+            } finally {
+                readLock.unlock();
+            }
+        }
+
+        private List<Book> snapshot() {
+            Lock readLock = lock.readLock();
+            readLock.lock();
+            try {
+                return new ArrayList<>(books.values());
+            } finally {
+                readLock.unlock();
+            }
+        }
+
+        private void add(Book book) {
+            books.put(book.getId(), book);
+            sortedIds.add(book.getId());
+            if (book.getAuthor() != null) {
+                authors.add(new AuthorEntry(BookStore.getAuthorKey(book.getAuthor()), book.getId()));
+            }
+            titleIndex.add(book.getId(), book.getTitle());
+        }
+
+        private void addAll(List<Book> loadedBooks) {
+            for (Book book : loadedBooks) {
+                books.put(book.getId(), book);
+                sortedIds.add(book.getId());
+                if (book.getAuthor() != null) {
+                    authors.add(new AuthorEntry(BookStore.getAuthorKey(book.getAuthor()), book.getId()));
+                }
+            }
+            titleIndex.addAll(loadedBooks, Book::getId, Book::getTitle);
+        }
+
+        private void replace(Book oldBook, Book newBook) {
+            books.put(newBook.getId(), newBook);
+            titleIndex.replace(newBook.getId(), oldBook.getTitle(), newBook.getTitle());
+            if (oldBook.getAuthor() != null) {
+                authors.remove(new AuthorEntry(BookStore.getAuthorKey(oldBook.getAuthor()), oldBook.getId()));
+            }
+            if (newBook.getAuthor() != null) {
+                authors.add(new AuthorEntry(BookStore.getAuthorKey(newBook.getAuthor()), newBook.getId()));
+            }
+        }
+
+        private Book remove(UUID id) {
+            Book book = books.remove(id);
+            if (book == null) {
+                return null;
+            }
+            sortedIds.remove(id);
+            if (book.getAuthor() != null) {
+                authors.remove(new AuthorEntry(BookStore.getAuthorKey(book.getAuthor()), id));
+            }
+            titleIndex.remove(id, book.getTitle());
+            return book;
+        }
+    }
+}
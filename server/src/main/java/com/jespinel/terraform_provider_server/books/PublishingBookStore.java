@@ -0,0 +1,157 @@
+package com.jespinel.terraform_provider_server.books;
+
+import com.jespinel.terraform_provider_server.changes.ChangeFeed;
+import com.jespinel.terraform_provider_server.changes.ChangeType;
+import com.jespinel.terraform_provider_server.exceptions.DuplicateKeyException;
+import com.jespinel.terraform_provider_server.exceptions.VersionConflictException;
+import com.jespinel.terraform_provider_server.search.TextMatch;
+import com.jespinel.terraform_provider_server.storage.DeferredActions;
+import com.jespinel.terraform_provider_server.storage.StripedLocks;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Book store that publishes every change of another store to the {@link ChangeFeed}, once the
+ * other store has applied it, in the order the changes of each book were applied. Under a
+ * durable store, changes are only published once they are durable, see {@link DeferredActions}.
+ */
+public class PublishingBookStore implements BookStore, Closeable {
+
+    /**
+     * Kind of entity of the changes.
+     */
+    public static final String TYPE = "book";
+
+    private final BookStore delegate;
+    private final ChangeFeed feed;
+    private final DeferredActions actions;
+    private final StripedLocks locks;
+
+    /**
+     * @param locks   Locks of the books, shared with the other stores of the books.
+     * @param actions Actions of the durable store that wraps this one, if any.
+     */
+    public PublishingBookStore(BookStore delegate, ChangeFeed feed, StripedLocks locks, DeferredActions actions) {
+        this.delegate = delegate;
+        this.feed = feed;
+        this.locks = locks;
+        this.actions = actions;
+    }
+
+    @Override
+    public Optional<Book> get(UUID id) {
+        return delegate.get(id);
+    }
+
+    @Override
+    public Map<UUID, Book> getAll(Collection<UUID> ids) {
+        return delegate.getAll(ids);
+    }
+
+    @Override
+    public List<Book> list(UUID after, int limit) {
+        return delegate.list(after, limit);
+    }
+
+    @Override
+    public Optional<Book> getByTitle(String title) {
+        return delegate.getByTitle(title);
+    }
+
+    @Override
+    public List<Book> listByAuthor(String author, UUID after, int limit) {
+        return delegate.listByAuthor(author, after, limit);
+    }
+
+    @Override
+    public List<Book> searchTitles(String query, TextMatch match, int limit) {
+        return delegate.searchTitles(query, match, limit);
+    }
+
+    @Override
+    public void insert(Book book) throws DuplicateKeyException {
+        synchronized (locks.get(book.getId())) {
+            delegate.insert(book);
+            publish(ChangeType.CREATED, book.getId(), book);
+        }
+    }
+
+    /**
+     * Stores the books recovered when the server starts, or copied from a primary, without
+     * publishing them.
+     */
+    @Override
+    public void load(Collection<Book> books) throws DuplicateKeyException {
+        delegate.load(books);
+    }
+
+    @Override
+    public Optional<Book> update(Book book, long expectedVersion)
+        throws DuplicateKeyException, VersionConflictException {
+
+        synchronized (locks.get(book.getId())) {
+            Optional<Book> updatedBook = delegate.update(book, expectedVersion);
+            updatedBook.ifPresent(updated -> publish(ChangeType.UPDATED, updated.getId(), updated));
+            return updatedBook;
+        }
+    }
+
+    @Override
+    public Optional<Book> delete(UUID id) {
+        synchronized (locks.get(id)) {
+            Optional<Book> removedBook = delegate.delete(id);
+            if (removedBook.isPresent()) {
+                publish(ChangeType.DELETED, id, null);
+            }
+            return removedBook;
+        }
+    }
+
+    /**
+     * Deletes every book in a single batch, so a durable store below waits once.
+     */
+    @Override
+    public void deleteAll() {
+        delegate.batch(() -> {
+            delegate.forEach(book -> delete(book.getId()));
+            return null;
+        });
+    }
+
+    @Override
+    public long size() {
+        return delegate.size();
+    }
+
+    @Override
+    public void forEach(Consumer<Book> action) {
+        delegate.forEach(action);
+    }
+
+    @Override
+    public <T> T batch(Supplier<T> writes) {
+        return delegate.batch(writes);
+    }
+
+    private void publish(ChangeType change, UUID id, Object entity) {
+        actions.run(() -> feed.publish(TYPE, change, id, entity));
+    }
+
+    /**
+     * Closes the other store, if it has to be closed, such as a durable store.
+     */
+    @Override
+    public void close() throws IOException {
+        if (delegate instanceof Closeable) {
+            ((Closeable) delegate).close();
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.jespinel.terraform_provider_server.books;
+
+import com.jespinel.terraform_provider_server.exceptions.DuplicateKeyException;
+import com.jespinel.terraform_provider_server.exceptions.VersionConflictException;
+import com.jespinel.terraform_provider_server.replication.ChangeLog;
+import com.jespinel.terraform_provider_server.search.TextMatch;
+import com.jespinel.terraform_provider_server.storage.StripedLocks;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Book store of a primary, which appends every change of another store to a {@link ChangeLog}
+ * for the replicas, in the order the changes of each book were applied.
+ */
+public class ReplicatedBookStore implements BookStore {
+
+    private final BookStore delegate;
+    private final ChangeLog<Book> log;
+    private final StripedLocks locks;
+
+    /**
+     * @param locks Locks of the books, shared with the other stores of the books.
+     */
+    public ReplicatedBookStore(BookStore delegate, ChangeLog<Book> log, StripedLocks locks) {
+        this.delegate = delegate;
+        this.log = log;
+        this.locks = locks;
+    }
+
+    @Override
+    public Optional<Book> get(UUID id) {
+        return delegate.get(id);
+    }
+
+    @Override
+    public Map<UUID, Book> getAll(Collection<UUID> ids) {
+        return delegate.getAll(ids);
+    }
+
+    @Override
+    public List<Book> list(UUID after, int limit) {
+        return delegate.list(after, limit);
+    }
+
+    @Override
+    public Optional<Book> getByTitle(String title) {
+        return delegate.getByTitle(title);
+    }
+
+    @Override
+    public List<Book> listByAuthor(String author, UUID after, int limit) {
+        return delegate.listByAuthor(author, after, limit);
+    }
+
+    @Override
+    public List<Book> searchTitles(String query, TextMatch match, int limit) {
+        return delegate.searchTitles(query, match, limit);
+    }
+
+    @Override
+    public void insert(Book book) throws DuplicateKeyException {
+        synchronized (locks.get(book.getId())) {
+            delegate.insert(book);
+            log.append(book.getId(), book);
+        }
+    }
+
+    /**
+     * Stores the books recovered when the server starts, without logging them. Replicas copy
+     * them with the rest of the books when they start following the primary.
+     */
+    @Override
+    public void load(Collection<Book> books) throws DuplicateKeyException {
+        delegate.load(books);
+    }
+
+    @Override
+    public Optional<Book> update(Book book, long expectedVersion)
+        throws DuplicateKeyException, VersionConflictException {
+
+        synchronized (locks.get(book.getId())) {
+            Optional<Book> updatedBook = delegate.update(book, expectedVersion);
+            updatedBook.ifPresent(updated -> log.append(updated.getId(), updated));
+            return updatedBook;
+        }
+    }
+
+    @Override
+    public Optional<Book> delete(UUID id) {
+        synchronized (locks.get(id)) {
+            Optional<Book> removedBook = delegate.delete(id);
+            if (removedBook.isPresent()) {
+                log.append(id, null);
+            }
+            return removedBook;
+        }
+    }
+
+    @Override
+    public void deleteAll() {
+        delegate.forEach(book -> delete(book.getId()));
+    }
+
+    @Override
+    public long size() {
+        return delegate.size();
+    }
+
+    @Override
+    public void forEach(Consumer<Book> action) {
+        delegate.forEach(action);
+    }
+
+    @Override
+    public <T> T batch(Supplier<T> writes) {
+        return delegate.batch(writes);
+    }
+}
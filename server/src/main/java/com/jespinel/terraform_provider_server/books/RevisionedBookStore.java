@@ -0,0 +1,159 @@
+package com.jespinel.terraform_provider_server.books;
+
+import com.jespinel.terraform_provider_server.exceptions.DuplicateKeyException;
+import com.jespinel.terraform_provider_server.exceptions.VersionConflictException;
+import com.jespinel.terraform_provider_server.search.TextMatch;
+import com.jespinel.terraform_provider_server.storage.DeferredActions;
+import com.jespinel.terraform_provider_server.storage.StripedLocks;
+import com.jespinel.terraform_provider_server.sync.RevisionIndex;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Book store that records every change of another store in a {@link RevisionIndex}, once the
+ * other store has applied it. The books the other store already has are recorded when it is
+ * wrapped, and the ones loaded into it, such as the ones a durable store recovers, when they are
+ * loaded.
+ * <p>
+ * The index has the last change of each book. Under a durable store, changes are only recorded
+ * once they are durable, see {@link DeferredActions}.
+ */
+public class RevisionedBookStore implements BookStore, Closeable {
+
+    private final BookStore delegate;
+    private final RevisionIndex<Book> revisions;
+    private final DeferredActions actions;
+    private final StripedLocks locks;
+
+    /**
+     * @param locks   Locks of the books, shared with the other stores of the books.
+     * @param actions Actions of the durable store that wraps this one, if any.
+     */
+    public RevisionedBookStore(BookStore delegate, RevisionIndex<Book> revisions, StripedLocks locks,
+                               DeferredActions actions) {
+        this.delegate = delegate;
+        this.revisions = revisions;
+        this.locks = locks;
+        this.actions = actions;
+        delegate.forEach(book -> revisions.record(book.getId(), book));
+    }
+
+    @Override
+    public Optional<Book> get(UUID id) {
+        return delegate.get(id);
+    }
+
+    @Override
+    public Map<UUID, Book> getAll(Collection<UUID> ids) {
+        return delegate.getAll(ids);
+    }
+
+    @Override
+    public List<Book> list(UUID after, int limit) {
+        return delegate.list(after, limit);
+    }
+
+    @Override
+    public Optional<Book> getByTitle(String title) {
+        return delegate.getByTitle(title);
+    }
+
+    @Override
+    public List<Book> listByAuthor(String author, UUID after, int limit) {
+        return delegate.listByAuthor(author, after, limit);
+    }
+
+    @Override
+    public List<Book> searchTitles(String query, TextMatch match, int limit) {
+        return delegate.searchTitles(query, match, limit);
+    }
+
+    @Override
+    public void insert(Book book) throws DuplicateKeyException {
+        synchronized (locks.get(book.getId())) {
+            delegate.insert(book);
+            record(book.getId(), book);
+        }
+    }
+
+    /**
+     * Stores the books copied from a primary, and records them with new revisions.
+     */
+    @Override
+    public void load(Collection<Book> books) throws DuplicateKeyException {
+        delegate.load(books);
+        for (Book book : books) {
+            revisions.record(book.getId(), book);
+        }
+    }
+
+    @Override
+    public Optional<Book> update(Book book, long expectedVersion)
+        throws DuplicateKeyException, VersionConflictException {
+
+        synchronized (locks.get(book.getId())) {
+            Optional<Book> updatedBook = delegate.update(book, expectedVersion);
+            updatedBook.ifPresent(updated -> record(updated.getId(), updated));
+            return updatedBook;
+        }
+    }
+
+    @Override
+    public Optional<Book> delete(UUID id) {
+        synchronized (locks.get(id)) {
+            Optional<Book> removedBook = delegate.delete(id);
+            if (removedBook.isPresent()) {
+                record(id, null);
+            }
+            return removedBook;
+        }
+    }
+
+    /**
+     * Deletes every book in a single batch, so a durable store below waits once.
+     */
+    @Override
+    public void deleteAll() {
+        delegate.batch(() -> {
+            delegate.forEach(book -> delete(book.getId()));
+            return null;
+        });
+    }
+
+    @Override
+    public long size() {
+        return delegate.size();
+    }
+
+    @Override
+    public void forEach(Consumer<Book> action) {
+        delegate.forEach(action);
+    }
+
+    @Override
+    public <T> T batch(Supplier<T> writes) {
+        return delegate.batch(writes);
+    }
+
+    private void record(UUID id, Book entity) {
+        actions.run(() -> revisions.record(id, entity));
+    }
+
+    /**
+     * Closes the other store, if it has to be closed, such as a durable store.
+     */
+    @Override
+    public void close() throws IOException {
+        if (delegate instanceof Closeable) {
+            ((Closeable) delegate).close();
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.jespinel.terraform_provider_server.changes;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Creates the feed of the changes of the books and words, unless {@code changes.enabled} is
+ * false. The {@code StorageConfiguration} wraps the stores to publish their changes to it.
+ */
+@Configuration
+@EnableConfigurationProperties(ChangesProperties.class)
+@ConditionalOnProperty(name = "changes.enabled", havingValue = "true", matchIfMissing = true)
+public class ChangeConfiguration {
+
+    @Bean
+    public ChangeFeed changeFeed(ChangesProperties properties) {
+        return new ChangeFeed(properties.getHistorySize(), properties.getBufferSize(), properties.getMaxSubscribers());
+    }
+
+    @Bean
+    public ChangeService changeService(ChangeFeed changeFeed, ChangesProperties properties) {
+        return new ChangeService(changeFeed, properties);
+    }
+}
@@ -0,0 +1,114 @@
+package com.jespinel.terraform_provider_server.changes;
+
+import com.jespinel.terraform_provider_server.exceptions.APIException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+
+import javax.annotation.PreDestroy;
+
+/**
+ * Streams the changes of the books and words as server-sent events, in the servlet mode. See
+ * {@link ChangeHandler} for the reactive mode.
+ * <p>
+ * Each subscriber has its own thread, which waits for the changes of its subscription and
+ * writes them, so a slow client only slows down its own thread. The threads come from a pool
+ * with as many threads as there may be subscribers, which is shut down with the controller. The
+ * pool is not a bean, so the other asynchronous responses keep the executor of Spring Boot.
+ * <p>
+ * The stream has no timeout; a closed connection is noticed when a change or a heartbeat is
+ * written to it.
+ */
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnProperty(name = "changes.enabled", havingValue = "true", matchIfMissing = true)
+@RestController
+public class ChangeController {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ChangeController.class);
+
+    private final ChangeService changeService;
+    private final ThreadPoolTaskExecutor senders;
+
+    public ChangeController(ChangeService changeService, ChangesProperties properties) {
+        this.changeService = changeService;
+        this.senders = new ThreadPoolTaskExecutor();
+        this.senders.setCorePoolSize(properties.getMaxSubscribers());
+        this.senders.setMaxPoolSize(properties.getMaxSubscribers());
+        this.senders.setQueueCapacity(0);
+        this.senders.setAllowCoreThreadTimeOut(true);
+        this.senders.setDaemon(true);
+        this.senders.setThreadNamePrefix("changes-");
+        this.senders.initialize();
+    }
+
+    @GetMapping(path = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(@RequestParam(required = false) Long after,
+                             @RequestHeader(value = ChangeService.LAST_EVENT_ID, required = false) String lastEventId)
+        throws APIException {
+
+        Subscription subscription = changeService.subscribe(after, lastEventId, null);
+        SseEmitter emitter = new SseEmitter(0L);
+        emitter.onCompletion(subscription::close);
+        emitter.onError(error -> subscription.close());
+
+        try {
+            senders.execute(() -> send(subscription, emitter));
+        } catch (TaskRejectedException e) {
+            // The thread of a subscriber that just left may not be free yet
+            subscription.close();
+            throw ChangeService.TOO_MANY_SUBSCRIBERS;
+        }
+        return emitter;
+    }
+
+    /**
+     * Stops the threads of the subscribers, which complete their streams.
+     */
+    @PreDestroy
+    public void close() {
+        senders.shutdown();
+    }
+
+    /**
+     * Writes the changes of a subscription until it is dropped or the client goes away.
+     */
+    private void send(Subscription subscription, SseEmitter emitter) {
+        long heartbeatMillis = changeService.getHeartbeatMillis();
+        try {
+            // Starts the response right away, so the client knows it is subscribed
+            emitter.send(SseEmitter.event().comment("subscribed"));
+            while (true) {
+                ChangeEvent event = subscription.poll(heartbeatMillis);
+                if (event != null) {
+                    emitter.send(SseEmitter.event()
+                        .id(Long.toString(event.getSequence()))
+                        .name(event.getName())
+                        .data(event, MediaType.APPLICATION_JSON));
+                } else if (subscription.isDropped()) {
+                    emitter.complete();
+                    return;
+                } else {
+                    emitter.send(SseEmitter.event().comment("heartbeat"));
+                }
+            }
+        } catch (IOException | IllegalStateException e) {
+            LOGGER.info("event=changes.unsubscribed sequence={}", subscription.getSequence());
+        } catch (InterruptedException e) {
+            emitter.complete();
+        } finally {
+            subscription.close();
+        }
+    }
+}
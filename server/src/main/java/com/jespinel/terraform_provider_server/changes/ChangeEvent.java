@@ -0,0 +1,47 @@
+package com.jespinel.terraform_provider_server.changes;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.UUID;
+
+import lombok.Value;
+
+/**
+ * Change of a book or a word, as sent to the subscribers of the {@link ChangeFeed}.
+ */
+@Value
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ChangeEvent {
+
+    /**
+     * Position of the change in the feed. Every change has a greater sequence number than the
+     * ones before it.
+     */
+    private long sequence;
+
+    /**
+     * Kind of entity, such as {@code book}.
+     */
+    private String type;
+
+    private ChangeType change;
+
+    /**
+     * ID of the entity.
+     */
+    private UUID id;
+
+    /**
+     * The entity after the change, as the API returns it, or null if it was deleted.
+     */
+    private Object entity;
+
+    /**
+     * Returns the name of the event, such as {@code book.created}.
+     */
+    @JsonIgnore
+    public String getName() {
+        return type + "." + change.getName();
+    }
+}
@@ -0,0 +1,179 @@
+package com.jespinel.terraform_provider_server.changes;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Changes of the books and words, numbered in the order they are published, and pushed to the
+ * {@link Subscription}s of the clients that follow them.
+ * <p>
+ * The feed keeps the most recent changes, so a subscriber can start from any of them, such as
+ * the last one it got before it was disconnected. Publishing never waits for the subscribers:
+ * each one has a bounded buffer, and a subscriber whose buffer is full is dropped instead, so a
+ * slow or stuck client never slows down the writes.
+ * <p>
+ * Writes of the same entity publish while they hold the lock of that entity, so the feed has the
+ * changes of each entity in the order they were applied.
+ * <p>
+ * Changes are kept in memory. Their sequence numbers start from the time the feed was created,
+ * in microseconds, like the revisions of the {@code RevisionClock}, so the sequence numbers of a
+ * previous run are lower than the first one of this run, and a client that resumes from one of
+ * them is told to read every entity again instead of missing changes.
+ */
+public class ChangeFeed {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ChangeFeed.class);
+    private static final Subscription[] NO_SUBSCRIPTIONS = new Subscription[0];
+
+    private final ChangeEvent[] history;
+    private final int bufferSize;
+    private final int maxSubscribers;
+
+    /**
+     * Sequence number before the first change.
+     */
+    private final long start;
+
+    /**
+     * Sequence number of the last change. Guarded by this, like the history.
+     */
+    private long sequence;
+
+    /**
+     * Current subscriptions, replaced on every subscription and cancellation, so they can be
+     * signalled without holding the lock of the feed.
+     */
+    private volatile Subscription[] subscriptions = NO_SUBSCRIPTIONS;
+
+    /**
+     * @param historySize    Number of recent changes kept.
+     * @param bufferSize     Number of changes each subscriber may have waiting.
+     * @param maxSubscribers Maximum number of subscribers at once.
+     */
+    public ChangeFeed(int historySize, int bufferSize, int maxSubscribers) {
+        this(TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis()), historySize, bufferSize, maxSubscribers);
+    }
+
+    /**
+     * @param start          Sequence number before the first change.
+     * @param historySize    Number of recent changes kept.
+     * @param bufferSize     Number of changes each subscriber may have waiting.
+     * @param maxSubscribers Maximum number of subscribers at once.
+     */
+    public ChangeFeed(long start, int historySize, int bufferSize, int maxSubscribers) {
+        this.history = new ChangeEvent[historySize];
+        this.bufferSize = bufferSize;
+        this.maxSubscribers = maxSubscribers;
+        this.start = start;
+        this.sequence = start;
+    }
+
+    /**
+     * Publishes a change to every subscriber.
+     *
+     * @param type   Kind of entity, such as {@code book}.
+     * @param change Kind of change.
+     * @param id     ID of the entity.
+     * @param entity The entity after the change, as the API returns it, or null if it was deleted.
+     * @return The sequence number of the change.
+     */
+    public long publish(String type, ChangeType change, UUID id, Object entity) {
+        Subscription[] signalled;
+        long published;
+        synchronized (this) {
+            sequence++;
+            ChangeEvent event = new ChangeEvent(sequence, type, change, id, entity);
+            history[index(sequence)] = event;
+            signalled = subscriptions;
+            for (Subscription subscription : signalled) {
+                if (!subscription.offer(event)) {
+                    LOGGER.warn("event=changes.subscriber_overflow sequence={}", subscription.getSequence());
+                    remove(subscription);
+                }
+            }
+            published = sequence;
+        }
+        for (Subscription subscription : signalled) {
+            subscription.signal();
+        }
+        return published;
+    }
+
+    /**
+     * Returns the sequence number of the last change, or the one before the first change if there
+     * are none.
+     */
+    public synchronized long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Subscribes to the changes after the given one.
+     *
+     * @param after    Sequence number of the last change the subscriber has, or null to only
+     *                 get the changes published from now on.
+     * @param listener Called after every change pushed to the subscription, and when it is
+     *                 dropped, on the thread that publishes, or null to poll the subscription.
+     * @return The subscription, or null if {@code after} is older than the oldest change kept, such
+     * as a sequence number of a previous run, or newer than the last change.
+     * @throws IllegalStateException If there are already as many subscribers as allowed.
+     */
+    public synchronized Subscription subscribe(Long after, Runnable listener) {
+        long from = after == null ? sequence : after;
+        if (from < Math.max(start, sequence - history.length) || from > sequence) {
+            return null;
+        }
+        if (subscriptions.length >= maxSubscribers) {
+            throw new IllegalStateException("There are already " + maxSubscribers + " subscribers");
+        }
+
+        List<ChangeEvent> backlog = new ArrayList<>((int) (sequence - from));
+        for (long next = from + 1; next <= sequence; next++) {
+            backlog.add(history[index(next)]);
+        }
+        Subscription subscription = new Subscription(this, backlog, from, bufferSize, listener);
+        Subscription[] added = Arrays.copyOf(subscriptions, subscriptions.length + 1);
+        added[subscriptions.length] = subscription;
+        subscriptions = added;
+        LOGGER.info("event=changes.subscribed after={} subscribers={}", from, added.length);
+        return subscription;
+    }
+
+    /**
+     * Returns the number of subscribers.
+     */
+    public int getSubscribers() {
+        return subscriptions.length;
+    }
+
+    /**
+     * Removes a subscription, which gets no more changes.
+     */
+    synchronized void cancel(Subscription subscription) {
+        remove(subscription);
+    }
+
+    private void remove(Subscription subscription) {
+        Subscription[] current = subscriptions;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == subscription) {
+                Subscription[] removed = new Subscription[current.length - 1];
+                System.arraycopy(current, 0, removed, 0, i);
+                System.arraycopy(current, i + 1, removed, i, current.length - i - 1);
+                subscriptions = removed;
+                subscription.drop();
+                return;
+            }
+        }
+    }
+
+    private int index(long sequence) {
+        return (int) ((sequence - start - 1) % history.length);
+    }
+}
@@ -0,0 +1,130 @@
+package com.jespinel.terraform_provider_server.changes;
+
+import com.jespinel.terraform_provider_server.exceptions.APIException;
+import com.jespinel.terraform_provider_server.reactive.ReactiveRequests;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Streams the changes of the books and words as server-sent events, in the reactive mode. It
+ * answers like {@link ChangeController} does in the servlet mode.
+ * <p>
+ * No thread waits for the changes: the thread that publishes a change, or the one that reads
+ * the response when the client asks for more, moves the changes of the subscription to the
+ * response, as long as the client keeps up with them.
+ */
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@ConditionalOnProperty(name = "changes.enabled", havingValue = "true", matchIfMissing = true)
+@Component
+public class ChangeHandler {
+
+    private final ChangeService changeService;
+
+    public ChangeHandler(ChangeService changeService) {
+        this.changeService = changeService;
+    }
+
+    public RouterFunction<ServerResponse> routes() {
+        return RouterFunctions.route()
+            .GET("/changes", this::stream)
+            .build();
+    }
+
+    public Mono<ServerResponse> stream(ServerRequest request) {
+        return Mono.fromCallable(() -> {
+                EventSource source = new EventSource(changeService.getHeartbeatMillis());
+                source.subscription = changeService.subscribe(afterParam(request),
+                    request.headers().firstHeader(ChangeService.LAST_EVENT_ID), source);
+                return source;
+            })
+            .flatMap(source -> ServerResponse.ok()
+                .contentType(MediaType.TEXT_EVENT_STREAM)
+                .body(BodyInserters.fromServerSentEvents(Flux.create(source::start))));
+    }
+
+    private static Long afterParam(ServerRequest request) throws APIException {
+        return request.queryParam("after").isPresent() ? ReactiveRequests.longParam(request, "after", "0") : null;
+    }
+
+    /**
+     * Moves the changes of a subscription to a response, when the client asks for them. Only
+     * one thread moves them at a time, so they stay in order; the others leave their work to it.
+     */
+    private static final class EventSource implements Runnable {
+
+        private final AtomicInteger pending = new AtomicInteger();
+        private final long heartbeatMillis;
+        private volatile Subscription subscription;
+        private volatile FluxSink<ServerSentEvent<ChangeEvent>> sink;
+        private volatile long lastSentMillis = System.currentTimeMillis();
+
+        private EventSource(long heartbeatMillis) {
+            this.heartbeatMillis = heartbeatMillis;
+        }
+
+        private void start(FluxSink<ServerSentEvent<ChangeEvent>> sink) {
+            Disposable heartbeats = Schedulers.parallel()
+                .schedulePeriodically(this, heartbeatMillis, heartbeatMillis, TimeUnit.MILLISECONDS);
+            sink.onRequest(requested -> run());
+            sink.onDispose(() -> {
+                heartbeats.dispose();
+                subscription.close();
+            });
+            // Starts the response right away, so the client knows it is subscribed
+            sink.next(ServerSentEvent.<ChangeEvent>builder().comment("subscribed").build());
+            this.sink = sink;
+            run();
+        }
+
+        @Override
+        public void run() {
+            FluxSink<ServerSentEvent<ChangeEvent>> currentSink = sink;
+            if (currentSink == null || pending.getAndIncrement() != 0) {
+                return;
+            }
+            do {
+                send(currentSink);
+            } while (pending.decrementAndGet() != 0);
+        }
+
+        private void send(FluxSink<ServerSentEvent<ChangeEvent>> currentSink) {
+            while (currentSink.requestedFromDownstream() > 0 && !currentSink.isCancelled()) {
+                ChangeEvent event = subscription.poll();
+                if (event != null) {
+                    currentSink.next(ServerSentEvent.builder(event)
+                        .id(Long.toString(event.getSequence()))
+                        .event(event.getName())
+                        .build());
+                    lastSentMillis = System.currentTimeMillis();
+                } else if (subscription.isDropped()) {
+                    currentSink.complete();
+                    return;
+                } else {
+                    if (System.currentTimeMillis() - lastSentMillis >= heartbeatMillis) {
+                        currentSink.next(ServerSentEvent.<ChangeEvent>builder().comment("heartbeat").build());
+                        lastSentMillis = System.currentTimeMillis();
+                    }
+                    return;
+                }
+            }
+        }
+    }
+}
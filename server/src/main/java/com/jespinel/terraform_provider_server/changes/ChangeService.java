@@ -0,0 +1,72 @@
+package com.jespinel.terraform_provider_server.changes;
+
+import com.jespinel.terraform_provider_server.exceptions.APIException;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * Subscribes clients to the {@link ChangeFeed}, for both the servlet controller and the reactive
+ * routes.
+ */
+public class ChangeService {
+
+    /**
+     * Header an SSE client sends when it reconnects, with the sequence number of the last change
+     * it got.
+     */
+    public static final String LAST_EVENT_ID = "Last-Event-ID";
+
+    static final APIException TOO_MANY_SUBSCRIBERS =
+        new APIException(HttpStatus.SERVICE_UNAVAILABLE, "There are too many subscribers to the changes");
+
+    private final ChangeFeed feed;
+    private final ChangesProperties properties;
+
+    public ChangeService(ChangeFeed feed, ChangesProperties properties) {
+        this.feed = feed;
+        this.properties = properties;
+    }
+
+    /**
+     * @param after       Sequence number of the last change the client has, or null.
+     * @param lastEventId Value of the {@code Last-Event-ID} header, used when {@code after} is
+     *                    null, or null.
+     * @param listener    Listener of the subscription, or null to poll it.
+     * @return A subscription to the changes after the given one, or to the changes from now on
+     * without one.
+     * @throws APIException If the sequence number is not valid, or the feed no longer has the
+     *                      changes after it, with a 410, or there are too many subscribers.
+     */
+    public Subscription subscribe(Long after, String lastEventId, Runnable listener) throws APIException {
+        Long from = after != null ? after : parseSequence(lastEventId);
+        Subscription subscription;
+        try {
+            subscription = feed.subscribe(from, listener);
+        } catch (IllegalStateException e) {
+            throw TOO_MANY_SUBSCRIBERS;
+        }
+        if (subscription == null) {
+            throw new APIException(HttpStatus.GONE, "The changes after " + from
+                + " are no longer available, read every entity again");
+        }
+        return subscription;
+    }
+
+    /**
+     * Returns the time without changes after which a heartbeat is sent.
+     */
+    public long getHeartbeatMillis() {
+        return properties.getHeartbeat().toMillis();
+    }
+
+    private static Long parseSequence(String lastEventId) throws APIException {
+        if (lastEventId == null || lastEventId.isEmpty()) {
+            return null;
+        }
+        try {
+            return Long.parseLong(lastEventId);
+        } catch (NumberFormatException e) {
+            throw new APIException(HttpStatus.BAD_REQUEST, LAST_EVENT_ID + " must be an integer");
+        }
+    }
+}
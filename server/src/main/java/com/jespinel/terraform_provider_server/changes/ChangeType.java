@@ -0,0 +1,23 @@
+package com.jespinel.terraform_provider_server.changes;
+
+import com.fasterxml.jackson.annotation.JsonValue;
+
+import java.util.Locale;
+
+/**
+ * Kinds of changes of an entity.
+ */
+public enum ChangeType {
+
+    CREATED,
+    UPDATED,
+    DELETED;
+
+    /**
+     * Returns the name of the change in lower case, as it is written in the events.
+     */
+    @JsonValue
+    public String getName() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,43 @@
+package com.jespinel.terraform_provider_server.changes;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+import lombok.Data;
+
+/**
+ * Settings of the change feed, under the {@code changes} prefix.
+ */
+@Data
+@ConfigurationProperties(prefix = "changes")
+public class ChangesProperties {
+
+    /**
+     * Whether the changes of books and words are streamed at {@code /changes}.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Number of recent changes kept, so subscribers that reconnect can resume from the last
+     * change they got.
+     */
+    private int historySize = 10_000;
+
+    /**
+     * Number of changes a subscriber may have waiting to be sent. A subscriber that falls
+     * further behind is disconnected, and may resume from the last change it got.
+     */
+    private int bufferSize = 1000;
+
+    /**
+     * Maximum number of subscribers at once.
+     */
+    private int maxSubscribers = 256;
+
+    /**
+     * Time without changes after which a comment is sent to the subscribers, to keep idle
+     * connections open and to notice the closed ones.
+     */
+    private Duration heartbeat = Duration.ofSeconds(15);
+}
@@ -0,0 +1,119 @@
+package com.jespinel.terraform_provider_server.changes;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.List;
+
+/**
+ * Changes of a {@link ChangeFeed} waiting to be sent to one subscriber: first the backlog of the
+ * changes the feed had when it subscribed, then the changes published since, in a bounded
+ * buffer.
+ * <p>
+ * Once it is dropped, because its buffer was full or it was closed, a subscription gets no more
+ * changes, but still returns the ones it has.
+ */
+public class Subscription implements Closeable {
+
+    private final ChangeFeed feed;
+    private final List<ChangeEvent> backlog;
+    private final ArrayDeque<ChangeEvent> buffer;
+    private final int bufferSize;
+    private final Runnable listener;
+
+    /**
+     * Position of the next change of the backlog, guarded by this, like the buffer.
+     */
+    private int next;
+    private long sequence;
+    private boolean dropped;
+
+    Subscription(ChangeFeed feed, List<ChangeEvent> backlog, long sequence, int bufferSize, Runnable listener) {
+        this.feed = feed;
+        this.backlog = backlog;
+        this.buffer = new ArrayDeque<>(Math.min(bufferSize, 1024));
+        this.bufferSize = bufferSize;
+        this.sequence = sequence;
+        this.listener = listener;
+    }
+
+    /**
+     * Returns the next change, or null if there is none yet.
+     */
+    public synchronized ChangeEvent poll() {
+        ChangeEvent event = next < backlog.size() ? backlog.get(next++) : buffer.poll();
+        if (event != null) {
+            sequence = event.getSequence();
+        }
+        return event;
+    }
+
+    /**
+     * Returns the next change, waiting for one if there is none yet.
+     *
+     * @param timeoutMillis Maximum time to wait.
+     * @return The change, or null if none arrived in time or the subscription was dropped.
+     * @throws InterruptedException If the thread is interrupted while it waits.
+     */
+    public synchronized ChangeEvent poll(long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        long remaining = timeoutMillis;
+        while (next == backlog.size() && buffer.isEmpty() && !dropped && remaining > 0) {
+            wait(remaining);
+            remaining = deadline - System.currentTimeMillis();
+        }
+        return poll();
+    }
+
+    /**
+     * Returns the sequence number of the last change returned, from which the subscriber can
+     * resume.
+     */
+    public synchronized long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Whether the subscription gets no more changes, because its buffer was full or it was
+     * closed.
+     */
+    public synchronized boolean isDropped() {
+        return dropped;
+    }
+
+    /**
+     * Stops getting changes.
+     */
+    @Override
+    public void close() {
+        feed.cancel(this);
+        drop();
+    }
+
+    /**
+     * Adds a change to the buffer.
+     *
+     * @return Whether it fit in the buffer.
+     */
+    synchronized boolean offer(ChangeEvent event) {
+        if (buffer.size() >= bufferSize) {
+            return false;
+        }
+        buffer.add(event);
+        notifyAll();
+        return true;
+    }
+
+    synchronized void drop() {
+        dropped = true;
+        notifyAll();
+    }
+
+    /**
+     * Tells the listener there is a new change, or that the subscription was dropped.
+     */
+    void signal() {
+        if (listener != null) {
+            listener.run();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.jespinel.terraform_provider_server.connector;
+
+import org.apache.coyote.ProtocolHandler;
+import org.apache.coyote.http11.AbstractHttp11Protocol;
+import org.apache.coyote.http2.Http2Protocol;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.embedded.netty.NettyServerCustomizer;
+import org.springframework.boot.web.embedded.tomcat.TomcatConnectorCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import reactor.netty.http.HttpProtocol;
+
+/**
+ * Applies the {@code connector} settings to the connector of Tomcat or to the Netty server.
+ * Spring Boot only enables HTTP/2 with TLS, so h2c is enabled here.
+ */
+@Configuration
+@EnableConfigurationProperties(ConnectorProperties.class)
+public class ConnectorConfiguration {
+
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    @Configuration
+    static class TomcatConnector {
+
+        /**
+         * Runs after Spring Boot configured the connector, so the HTTP/2 protocol copies the
+         * compression of the HTTP/1.1 one.
+         */
+        @Bean
+        public TomcatConnectorCustomizer tomcatConnectorCustomizer(ConnectorProperties properties) {
+            return connector -> {
+                ProtocolHandler protocolHandler = connector.getProtocolHandler();
+                if (!(protocolHandler instanceof AbstractHttp11Protocol)) {
+                    return;
+                }
+                AbstractHttp11Protocol<?> http11 = (AbstractHttp11Protocol<?>) protocolHandler;
+                if (properties.getKeepAliveTimeout() != null) {
+                    http11.setKeepAliveTimeout((int) properties.getKeepAliveTimeout().toMillis());
+                }
+                if (properties.getMaxKeepAliveRequests() != null) {
+                    http11.setMaxKeepAliveRequests(properties.getMaxKeepAliveRequests());
+                }
+                if (properties.isH2c()) {
+                    connector.addUpgradeProtocol(http2(http11, properties));
+                }
+            };
+        }
+
+        private static Http2Protocol http2(AbstractHttp11Protocol<?> http11, ConnectorProperties properties) {
+            Http2Protocol http2 = new Http2Protocol();
+            http2.setCompression(http11.getCompression());
+            http2.setCompressionMinSize(http11.getCompressionMinSize());
+            http2.setCompressibleMimeType(http11.getCompressibleMimeType());
+            http2.setNoCompressionUserAgents(http11.getNoCompressionUserAgents());
+            if (properties.getKeepAliveTimeout() != null) {
+                http2.setKeepAliveTimeout(properties.getKeepAliveTimeout().toMillis());
+            }
+            return http2;
+        }
+    }
+
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+    @ConditionalOnProperty(name = "connector.h2c", havingValue = "true")
+    @Configuration
+    static class NettyConnector {
+
+        @Bean
+        public NettyServerCustomizer h2cServerCustomizer() {
+            return server -> server.protocol(HttpProtocol.HTTP11, HttpProtocol.H2C);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.jespinel.terraform_provider_server.connector;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+import lombok.Data;
+
+/**
+ * Connection settings of the embedded server that Spring Boot does not expose, under the
+ * {@code connector} prefix. Unset settings keep the defaults of the server.
+ */
+@Data
+@ConfigurationProperties(prefix = "connector")
+public class ConnectorProperties {
+
+    /**
+     * Whether clients can speak HTTP/2 without TLS, by upgrading an HTTP/1.1 connection or
+     * with prior knowledge.
+     */
+    private boolean h2c = false;
+
+    /**
+     * Time an idle connection is kept open for its next request. Only applies to Tomcat.
+     */
+    private Duration keepAliveTimeout;
+
+    /**
+     * Number of requests after which an HTTP/1.1 connection is closed, or -1 for no limit. Only
+     * applies to Tomcat, Netty never closes a connection for its number of requests.
+     */
+    private Integer maxKeepAliveRequests;
+}
@@ -5,10 +5,25 @@ import org.springframework.http.HttpStatus;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 
+/**
+ * Failure with the status and message of its response, such as a 404 for an entity that does
+ * not exist.
+ * <p>
+ * These are expected responses rather than bugs, and clients that check for drift get many of
+ * them, so they do not capture a stack trace, which would cost more than the rest of the
+ * response. Without a stack trace, a cause or suppressed exceptions they are immutable, so the
+ * ones with a constant message can be created once and thrown by every request.
+ */
 @EqualsAndHashCode(callSuper = true)
 @Data
 public class APIException extends Exception {
 
     private final HttpStatus statusCode;
     private final String message;
+
+    public APIException(HttpStatus statusCode, String message) {
+        super(message, null, false, false);
+        this.statusCode = statusCode;
+        this.message = message;
+    }
 }
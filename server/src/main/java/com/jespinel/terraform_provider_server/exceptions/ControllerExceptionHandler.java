@@ -7,6 +7,7 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.validation.Errors;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -14,42 +15,77 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExceptionHandler;
 
-import java.time.LocalDateTime;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 
 @ControllerAdvice
 public class ControllerExceptionHandler extends ResponseEntityExceptionHandler {
 
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Counters of {@link APIException}s by status, registered on the first error of each status
+     * instead of being looked up in the registry on every error.
+     */
+    private final ConcurrentMap<HttpStatus, Counter> errorCounters = new ConcurrentHashMap<>();
+
+    public ControllerExceptionHandler(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
     @Override
     protected ResponseEntity<Object> handleMethodArgumentNotValid(
         MethodArgumentNotValidException ex, HttpHeaders headers, HttpStatus status,
         WebRequest request) {
 
+        return new ResponseEntity<>(getValidationErrors(ex.getBindingResult()), headers, status);
+    }
+
+    /**
+     * Same as {@link #handleMethodArgumentNotValid}, for requests validated outside of a
+     * controller, such as the ones of the reactive routes.
+     */
+    public ResponseEntity<Object> handleValidationErrors(Errors errors) {
+        return new ResponseEntity<>(getValidationErrors(errors), HttpStatus.BAD_REQUEST);
+    }
+
+    private Map<String, Object> getValidationErrors(Errors errors) {
         Map<String, Object> body = new LinkedHashMap<>();
-        body.put("timestamp", LocalDateTime.now());
-        body.put("errors", getErrors(ex));
-        return new ResponseEntity<>(body, headers, status);
+        body.put("timestamp", Timestamps.now());
+        body.put("errors", getErrors(errors));
+        return body;
     }
 
-    private ArrayNode getErrors(MethodArgumentNotValidException ex) {
-        ArrayNode errors = JsonNodeFactory.instance.arrayNode();
-        List<FieldError> fieldErrors = ex.getBindingResult().getFieldErrors();
+    private ArrayNode getErrors(Errors errors) {
+        ArrayNode json = JsonNodeFactory.instance.arrayNode();
+        List<FieldError> fieldErrors = errors.getFieldErrors();
         for (FieldError fieldError : fieldErrors) {
-            ObjectNode json = JsonNodeFactory.instance.objectNode();
-            json.put(fieldError.getField(), fieldError.getDefaultMessage());
-            errors.add(json);
+            ObjectNode error = JsonNodeFactory.instance.objectNode();
+            error.put(fieldError.getField(), fieldError.getDefaultMessage());
+            json.add(error);
         }
-        return errors;
+        return json;
     }
 
     @ExceptionHandler(APIException.class)
     public final ResponseEntity<ExceptionResponse> handleAPIException(
         APIException ex) {
 
-        ExceptionResponse exception = new ExceptionResponse(
-            LocalDateTime.now(), ex.getMessage());
+        errorCounters.computeIfAbsent(ex.getStatusCode(), this::registerErrorCounter).increment();
+        ExceptionResponse exception = new ExceptionResponse(ex.getMessage());
         return new ResponseEntity<>(exception, ex.getStatusCode());
     }
+
+    private Counter registerErrorCounter(HttpStatus status) {
+        return Counter.builder("api.errors")
+            .description("Requests that failed with an APIException")
+            .tag("status", String.valueOf(status.value()))
+            .register(meterRegistry);
+    }
 }
@@ -0,0 +1,23 @@
+package com.jespinel.terraform_provider_server.exceptions;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+/**
+ * Thrown by a store when a write would break a uniqueness constraint. It is turned into a
+ * response, so it does not capture a stack trace.
+ */
+@EqualsAndHashCode(callSuper = true)
+@Data
+public class DuplicateKeyException extends Exception {
+
+    /**
+     * The value that is already taken.
+     */
+    private final String key;
+
+    public DuplicateKeyException(String key) {
+        super(null, null, false, false);
+        this.key = key;
+    }
+}
@@ -13,7 +13,7 @@ public class ExceptionResponse {
     }
 
     public ExceptionResponse(String message) {
-        this.timestamp = LocalDateTime.now();
+        this.timestamp = Timestamps.now();
         this.message = message;
     }
 
@@ -0,0 +1,44 @@
+package com.jespinel.terraform_provider_server.exceptions;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * Timestamps of the error responses, in the default time zone of the server, to the
+ * millisecond.
+ * <p>
+ * {@link LocalDateTime#now()} looks the default time zone up, copying it, on every call. The
+ * zone is looked up once instead, and the timestamp is reused by the errors of the same
+ * millisecond, which is common when a client gets many 404s.
+ */
+final class Timestamps {
+
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+
+    private static volatile Timestamp last = new Timestamp(Long.MIN_VALUE, null);
+
+    private Timestamps() {
+    }
+
+    static LocalDateTime now() {
+        long millis = System.currentTimeMillis();
+        Timestamp timestamp = last;
+        if (timestamp.millis != millis) {
+            timestamp = new Timestamp(millis, LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZONE));
+            last = timestamp;
+        }
+        return timestamp.dateTime;
+    }
+
+    private static final class Timestamp {
+
+        private final long millis;
+        private final LocalDateTime dateTime;
+
+        private Timestamp(long millis, LocalDateTime dateTime) {
+            this.millis = millis;
+            this.dateTime = dateTime;
+        }
+    }
+}
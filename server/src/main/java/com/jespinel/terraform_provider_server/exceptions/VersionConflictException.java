@@ -0,0 +1,31 @@
+package com.jespinel.terraform_provider_server.exceptions;
+
+import java.util.UUID;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+/**
+ * Thrown by a store when a conditional write expects another version than the current one. It
+ * is turned into a response, so it does not capture a stack trace.
+ */
+@EqualsAndHashCode(callSuper = true)
+@Data
+public class VersionConflictException extends Exception {
+
+    /**
+     * ID of the entity that was written.
+     */
+    private final UUID id;
+
+    /**
+     * Version the entity has.
+     */
+    private final long currentVersion;
+
+    public VersionConflictException(UUID id, long currentVersion) {
+        super(null, null, false, false);
+        this.id = id;
+        this.currentVersion = currentVersion;
+    }
+}
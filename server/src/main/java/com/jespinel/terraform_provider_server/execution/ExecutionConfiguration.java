@@ -0,0 +1,50 @@
+package com.jespinel.terraform_provider_server.execution;
+
+import org.apache.coyote.ProtocolHandler;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ConcurrentTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Selects the threads that handle the requests of the servlet mode with
+ * {@code execution.mode}. By default Tomcat keeps its own pool of platform threads.
+ */
+@Configuration
+@EnableConfigurationProperties(ExecutionProperties.class)
+public class ExecutionConfiguration {
+
+    /**
+     * Handles every request, and every asynchronous response such as the JSON lines ones, on a
+     * new virtual thread.
+     */
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    @ConditionalOnProperty(name = "execution.mode", havingValue = "virtual")
+    @Configuration
+    static class VirtualThreadExecution implements WebMvcConfigurer {
+
+        private final ExecutorService requestExecutor = VirtualThreads.newThreadPerTaskExecutor("request-");
+
+        @Bean(destroyMethod = "shutdown")
+        public ExecutorService requestExecutor() {
+            return requestExecutor;
+        }
+
+        @Bean
+        public TomcatProtocolHandlerCustomizer<ProtocolHandler> virtualThreadProtocolHandlerCustomizer() {
+            return protocolHandler -> protocolHandler.setExecutor(requestExecutor);
+        }
+
+        @Override
+        public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+            configurer.setTaskExecutor(new ConcurrentTaskExecutor(requestExecutor));
+        }
+    }
+}
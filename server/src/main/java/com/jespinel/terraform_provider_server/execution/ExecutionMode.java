@@ -0,0 +1,20 @@
+package com.jespinel.terraform_provider_server.execution;
+
+/**
+ * Threads that handle the requests of the servlet mode.
+ */
+public enum ExecutionMode {
+
+    /**
+     * Tomcat's pool of platform threads, bounded by {@code server.tomcat.max-threads}. A
+     * request that waits, for instance for the write-ahead log, holds its thread meanwhile.
+     */
+    PLATFORM,
+
+    /**
+     * A new virtual thread per request. A request that waits releases its carrier thread, so
+     * the number of concurrent requests is only bounded by {@code server.tomcat.max-connections}.
+     * Needs Java 21 or later.
+     */
+    VIRTUAL
+}
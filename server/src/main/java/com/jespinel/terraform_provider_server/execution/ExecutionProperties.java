@@ -0,0 +1,18 @@
+package com.jespinel.terraform_provider_server.execution;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Request execution settings, under the {@code execution} prefix.
+ */
+@Data
+@ConfigurationProperties(prefix = "execution")
+public class ExecutionProperties {
+
+    /**
+     * Threads that handle the requests.
+     */
+    private ExecutionMode mode = ExecutionMode.PLATFORM;
+}
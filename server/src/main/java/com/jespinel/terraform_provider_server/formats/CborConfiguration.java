@@ -0,0 +1,131 @@
+package com.jespinel.terraform_provider_server.formats;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.codec.CodecCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Lets clients send and receive CBOR ({@code application/cbor}) instead of JSON, with the
+ * {@code Content-Type} and {@code Accept} headers, on every endpoint. JSON stays the default.
+ * <p>
+ * CBOR is a standard binary encoding of the same data model as JSON, so the entities need no
+ * schema. It is smaller and cheaper to parse: numbers and lengths are binary, nothing is
+ * escaped, and UUIDs are written as 16 bytes instead of 36 characters.
+ * <p>
+ * The CBOR mapper is built with the same Spring Boot settings as the JSON one, so both write
+ * the same fields and timestamps.
+ * <p>
+ * Since the format of a response depends on the {@code Accept} header, responses have a
+ * {@code Vary: Accept} header, so caches keep the JSON and the CBOR ones apart, and entity tags
+ * depend on the format too, see {@link com.jespinel.terraform_provider_server.versioning.EntityTags}.
+ */
+@Configuration
+public class CborConfiguration {
+
+    /**
+     * Returns whether a client prefers CBOR to JSON, that is, whether its {@code Accept} header
+     * names CBOR before, or with a higher quality than, any type that JSON matches. Clients that
+     * accept any type get JSON.
+     *
+     * @param accept Media types of the {@code Accept} header of a request.
+     * @return Whether the response should be CBOR.
+     */
+    public static boolean prefersCbor(List<MediaType> accept) {
+        List<MediaType> sorted = new ArrayList<>(accept);
+        MediaType.sortBySpecificityAndQuality(sorted);
+        for (MediaType mediaType : sorted) {
+            if (!mediaType.isWildcardSubtype() && mediaType.isCompatibleWith(MediaType.APPLICATION_CBOR)) {
+                return true;
+            }
+            if (mediaType.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Same as {@link #prefersCbor(List)}, for the value of an {@code Accept} header.
+     *
+     * @param accept Value of the header, or null if the request does not have it.
+     * @return Whether the response should be CBOR. Invalid headers get JSON.
+     */
+    public static boolean prefersCbor(String accept) {
+        try {
+            return prefersCbor(MediaType.parseMediaTypes(accept));
+        } catch (InvalidMediaTypeException e) {
+            return false;
+        }
+    }
+
+    private static ObjectMapper cborMapper(Jackson2ObjectMapperBuilder builder) {
+        return builder.factory(new CBORFactory()).build();
+    }
+
+    /**
+     * Replaces the CBOR converter Spring MVC adds by default, whose mapper does not have the
+     * Spring Boot settings. It stays after the JSON converter, so requests that accept any type
+     * get JSON.
+     * <p>
+     * The {@code Vary} header is added before the controller runs, so the 304 responses and the
+     * errors have it too.
+     */
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    @Configuration
+    static class ServletCbor implements WebMvcConfigurer {
+
+        @Bean
+        public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+            return new MappingJackson2CborHttpMessageConverter(cborMapper(builder));
+        }
+
+        @Override
+        public void addInterceptors(InterceptorRegistry registry) {
+            registry.addInterceptor(new HandlerInterceptor() {
+                @Override
+                public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+                    response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+                    return true;
+                }
+            });
+        }
+    }
+
+    /**
+     * WebFlux has no CBOR codecs by default. Functional routes do not negotiate the format of
+     * their responses, so the reactive routes set CBOR as the content type of the responses of
+     * the clients that {@link #prefersCbor prefer it}, and add the {@code Vary} header, see
+     * {@link com.jespinel.terraform_provider_server.reactive.ReactiveResponses#negotiateFormat}.
+     */
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+    @Configuration
+    static class ReactiveCbor {
+
+        @Bean
+        public CodecCustomizer cborCodecCustomizer(Jackson2ObjectMapperBuilder builder) {
+            ObjectMapper mapper = cborMapper(builder);
+            return configurer -> {
+                configurer.customCodecs().register(new ReactiveCborEncoder(mapper));
+                configurer.customCodecs().register(new ReactiveCborDecoder(mapper));
+            };
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.jespinel.terraform_provider_server.formats;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.springframework.core.ResolvableType;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.cbor.Jackson2CborDecoder;
+import org.springframework.util.MimeType;
+
+/**
+ * CBOR decoder of the reactive mode. It only reads bodies sent as CBOR, so bodies without a
+ * content type are still read as JSON, and leaves bytes and buffers to their own decoders.
+ */
+class ReactiveCborDecoder extends Jackson2CborDecoder {
+
+    ReactiveCborDecoder(ObjectMapper mapper) {
+        super(mapper, MediaType.APPLICATION_CBOR);
+    }
+
+    @Override
+    public boolean canDecode(ResolvableType elementType, MimeType mimeType) {
+        return mimeType != null && !ReactiveCborEncoder.isRaw(elementType) && super.canDecode(elementType, mimeType);
+    }
+}
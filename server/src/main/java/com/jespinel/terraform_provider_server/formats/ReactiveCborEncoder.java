@@ -0,0 +1,60 @@
+package com.jespinel.terraform_provider_server.formats;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.cbor.Jackson2CborEncoder;
+import org.springframework.util.MimeType;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * CBOR encoder of the reactive mode.
+ * <p>
+ * WebFlux writes a functional response with the first encoder that accepts its content type,
+ * and any encoder accepts a response without one. This encoder only accepts CBOR responses, so
+ * it never takes the place of JSON. Custom encoders also come before the ones of bytes and
+ * buffers, so it leaves those alone. Spring's encoder does not encode streams, so single values
+ * are encoded one by one.
+ */
+class ReactiveCborEncoder extends Jackson2CborEncoder {
+
+    ReactiveCborEncoder(ObjectMapper mapper) {
+        super(mapper, MediaType.APPLICATION_CBOR);
+    }
+
+    @Override
+    public boolean canEncode(ResolvableType elementType, MimeType mimeType) {
+        return mimeType != null && !isRaw(elementType) && super.canEncode(elementType, mimeType);
+    }
+
+    @Override
+    public Flux<DataBuffer> encode(Publisher<?> inputStream, DataBufferFactory bufferFactory,
+                                   ResolvableType elementType, MimeType mimeType, Map<String, Object> hints) {
+
+        if (inputStream instanceof Mono) {
+            return Mono.from(inputStream)
+                .map(value -> encodeValue(value, bufferFactory, elementType, mimeType, hints))
+                .flux();
+        }
+        return super.encode(inputStream, bufferFactory, elementType, mimeType, hints);
+    }
+
+    /**
+     * Returns whether values of a type are sent as they are, such as bytes and buffers.
+     */
+    static boolean isRaw(ResolvableType type) {
+        Class<?> clazz = type.toClass();
+        return byte[].class == clazz || ByteBuffer.class.isAssignableFrom(clazz)
+            || DataBuffer.class.isAssignableFrom(clazz) || Resource.class.isAssignableFrom(clazz);
+    }
+}
@@ -0,0 +1,244 @@
+package com.jespinel.terraform_provider_server.idempotency;
+
+import com.jespinel.terraform_provider_server.exceptions.APIException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Responses to the creations sent with an {@code Idempotency-Key} header, so a client that
+ * retries a creation, for example after a timeout, gets the response of its first request
+ * instead of a conflict or a second entity.
+ * <p>
+ * The keys are split into segments by their hash, each guarded by its own monitor. A segment
+ * keeps its keys in the order they were first used, which is also the order they expire in, so
+ * expired keys, and the oldest keys of a full segment, are always at its head. A creation runs
+ * outside the monitor; concurrent requests with its key wait for its response.
+ *
+ * @param <T> Type of the responses.
+ */
+public class IdempotencyCache<T> {
+
+    /**
+     * Header with the key a client picks for a creation, such as a random UUID.
+     */
+    public static final String HEADER = "Idempotency-Key";
+
+    /**
+     * Maximum length of a key.
+     */
+    public static final int MAX_KEY_LENGTH = 255;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(IdempotencyCache.class);
+    private static final int SEGMENTS = 16;
+    private static final APIException INVALID_KEY = new APIException(HttpStatus.BAD_REQUEST,
+        HEADER + " must have between 1 and " + MAX_KEY_LENGTH + " characters");
+
+    private final Segment<T>[] segments;
+    private final int maxKeysPerSegment;
+    private final long ttlNanos;
+
+    /**
+     * @param maxKeys Maximum number of keys. Keys are split into segments, so a segment may
+     *                forget its oldest key a bit before the cache is full.
+     * @param ttl     Time a key is kept after its first request.
+     */
+    @SuppressWarnings("unchecked")
+    public IdempotencyCache(int maxKeys, Duration ttl) {
+        this.segments = new Segment[SEGMENTS];
+        for (int i = 0; i < SEGMENTS; i++) {
+            this.segments[i] = new Segment<>();
+        }
+        this.maxKeysPerSegment = Math.max(1, (maxKeys + SEGMENTS - 1) / SEGMENTS);
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    /**
+     * Runs a creation once per key. Later requests with the key get the response of the first
+     * one, be it the created entity or the {@link APIException} it failed with, until the key
+     * expires. Other exceptions are not kept, so a retry runs the creation again.
+     *
+     * @param key      Key sent by the client, or null to run the creation without one.
+     * @param request  Body of the request, compared with the body of the first request.
+     * @param creation Creation to run the first time.
+     * @return The response of the first request with the key.
+     * @throws APIException If the key is not valid, was used with another request, or the first
+     *                      request failed.
+     */
+    public T execute(String key, Object request, Creation<T> creation) throws APIException {
+        if (key == null) {
+            return creation.create();
+        }
+        if (key.isEmpty() || key.length() > MAX_KEY_LENGTH) {
+            throw INVALID_KEY;
+        }
+
+        Segment<T> segment = segment(key);
+        while (true) {
+            Entry<T> entry;
+            boolean first;
+            synchronized (segment) {
+                long now = System.nanoTime();
+                segment.evictExpired(now);
+                entry = segment.entries.get(key);
+                first = entry == null;
+                if (first) {
+                    entry = new Entry<>(request, now + ttlNanos);
+                    segment.entries.put(key, entry);
+                    segment.evictOldest(maxKeysPerSegment);
+                }
+            }
+
+            if (!entry.request.equals(request)) {
+                LOGGER.error("event=idempotency.key_reused key=\"{}\"", key);
+                throw new APIException(HttpStatus.UNPROCESSABLE_ENTITY,
+                    "The " + HEADER + " '" + key + "' was already used with another request");
+            }
+            if (first) {
+                return run(segment, key, entry, creation);
+            }
+            if (entry.await()) {
+                LOGGER.info("event=idempotency.replayed key=\"{}\"", key);
+                return entry.getResponse();
+            }
+            // The first request failed without a response, so this one runs the creation
+        }
+    }
+
+    /**
+     * Returns the number of keys, including the expired ones not evicted yet.
+     */
+    public int size() {
+        int size = 0;
+        for (Segment<T> segment : segments) {
+            synchronized (segment) {
+                size += segment.entries.size();
+            }
+        }
+        return size;
+    }
+
+    private T run(Segment<T> segment, String key, Entry<T> entry, Creation<T> creation) throws APIException {
+        try {
+            T response = creation.create();
+            entry.complete(response, null);
+            return response;
+        } catch (APIException e) {
+            entry.complete(null, e);
+            throw e;
+        } catch (RuntimeException | Error e) {
+            synchronized (segment) {
+                segment.entries.remove(key, entry);
+            }
+            entry.abandon();
+            throw e;
+        }
+    }
+
+    private Segment<T> segment(String key) {
+        int hash = key.hashCode();
+        return segments[(hash ^ (hash >>> 16)) & (SEGMENTS - 1)];
+    }
+
+    /**
+     * Creation of an entity.
+     *
+     * @param <T> Type of the response.
+     */
+    @FunctionalInterface
+    public interface Creation<T> {
+
+        T create() throws APIException;
+    }
+
+    /**
+     * Keys of a segment, in the order they were first used. Guarded by the segment.
+     */
+    private static final class Segment<T> {
+
+        private final LinkedHashMap<String, Entry<T>> entries = new LinkedHashMap<>();
+
+        private void evictExpired(long now) {
+            Iterator<Entry<T>> iterator = entries.values().iterator();
+            while (iterator.hasNext() && iterator.next().expiresAt - now <= 0) {
+                iterator.remove();
+            }
+        }
+
+        private void evictOldest(int maxKeys) {
+            Iterator<Map.Entry<String, Entry<T>>> iterator = entries.entrySet().iterator();
+            while (entries.size() > maxKeys) {
+                iterator.next();
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Request of a key and its response, once the first request with the key completes.
+     */
+    private static final class Entry<T> {
+
+        private final Object request;
+        private final long expiresAt;
+
+        /**
+         * Whether the first request completed with a response, or failed without one. Guarded by
+         * this, like the response.
+         */
+        private boolean completed;
+        private boolean abandoned;
+        private T response;
+        private APIException failure;
+
+        private Entry(Object request, long expiresAt) {
+            this.request = request;
+            this.expiresAt = expiresAt;
+        }
+
+        private synchronized void complete(T response, APIException failure) {
+            this.response = response;
+            this.failure = failure;
+            this.completed = true;
+            notifyAll();
+        }
+
+        private synchronized void abandon() {
+            this.abandoned = true;
+            notifyAll();
+        }
+
+        /**
+         * Waits until the first request completes.
+         *
+         * @return Whether it completed with a response, or false if it failed without one.
+         */
+        private synchronized boolean await() {
+            boolean interrupted = false;
+            while (!completed && !abandoned) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            return completed;
+        }
+
+        private synchronized T getResponse() throws APIException {
+            if (failure != null) {
+                throw failure;
+            }
+            return response;
+        }
+    }
+}
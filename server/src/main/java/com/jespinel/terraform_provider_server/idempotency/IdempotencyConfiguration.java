@@ -0,0 +1,27 @@
+package com.jespinel.terraform_provider_server.idempotency;
+
+import com.jespinel.terraform_provider_server.books.Book;
+import com.jespinel.terraform_provider_server.words.WordResponse;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Creates the caches of the responses to the creations of books and words with an
+ * {@code Idempotency-Key} header. Books and words have their own keys.
+ */
+@Configuration
+@EnableConfigurationProperties(IdempotencyProperties.class)
+public class IdempotencyConfiguration {
+
+    @Bean
+    public IdempotencyCache<Book> bookCreations(IdempotencyProperties properties) {
+        return new IdempotencyCache<>(properties.getMaxKeys(), properties.getTtl());
+    }
+
+    @Bean
+    public IdempotencyCache<WordResponse> wordCreations(IdempotencyProperties properties) {
+        return new IdempotencyCache<>(properties.getMaxKeys(), properties.getTtl());
+    }
+}
@@ -0,0 +1,26 @@
+package com.jespinel.terraform_provider_server.idempotency;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+import lombok.Data;
+
+/**
+ * Settings of the {@code Idempotency-Key} header, under the {@code idempotency} prefix.
+ */
+@Data
+@ConfigurationProperties(prefix = "idempotency")
+public class IdempotencyProperties {
+
+    /**
+     * Maximum number of keys kept for books, and for words. When it is reached, the oldest keys
+     * are forgotten first.
+     */
+    private int maxKeys = 100_000;
+
+    /**
+     * Time a key and its response are kept after the first request with it.
+     */
+    private Duration ttl = Duration.ofHours(1);
+}
@@ -0,0 +1,21 @@
+package com.jespinel.terraform_provider_server.logging;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+
+/**
+ * Asynchronous appender that leaves the formatting of the messages to its worker thread.
+ * <p>
+ * {@link AsyncAppender} formats every message on the thread that logs it, in case its
+ * arguments change before the worker writes it. The arguments of the application logs are IDs,
+ * numbers and strings, which do not change, so only the thread name and the MDC, which belong
+ * to the logging thread, are captured here.
+ */
+public class DeferredFormattingAsyncAppender extends AsyncAppender {
+
+    @Override
+    protected void preprocess(ILoggingEvent eventObject) {
+        eventObject.getThreadName();
+        eventObject.getMDCPropertyMap();
+    }
+}
@@ -0,0 +1,52 @@
+package com.jespinel.terraform_provider_server.logging;
+
+import org.slf4j.Marker;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+
+/**
+ * Logs only a sample of the events below {@code WARN} of the loggers of the requests, such as
+ * the ones of the services. They log successful requests at {@code INFO} and failed ones at
+ * {@code ERROR}, so errors are always logged. The other loggers, such as the ones of the storage
+ * and of the replication, are not sampled.
+ * <p>
+ * Turbo filters run before the event is created, so the dropped events cost neither their
+ * message nor their place in the queue of the asynchronous appender.
+ */
+public class SuccessSamplingFilter extends TurboFilter {
+
+    private final Set<String> loggerNames = new HashSet<>();
+    private double sampleRate = 1;
+
+    /**
+     * @param loggerName Name of a logger of the requests, whose events are sampled.
+     */
+    public void addLoggerName(String loggerName) {
+        this.loggerNames.add(loggerName);
+    }
+
+    /**
+     * @param sampleRate Fraction of the events that are logged, between 0 and 1.
+     */
+    public void setSampleRate(double sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params,
+                              Throwable t) {
+
+        if (sampleRate >= 1 || level == null || level.isGreaterOrEqual(Level.WARN)
+            || !loggerNames.contains(logger.getName())) {
+            return FilterReply.NEUTRAL;
+        }
+        return ThreadLocalRandom.current().nextDouble() < sampleRate ? FilterReply.NEUTRAL : FilterReply.DENY;
+    }
+}
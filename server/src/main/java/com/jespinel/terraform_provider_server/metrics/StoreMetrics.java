@@ -0,0 +1,36 @@
+package com.jespinel.terraform_provider_server.metrics;
+
+import com.jespinel.terraform_provider_server.books.BookStore;
+import com.jespinel.terraform_provider_server.words.WordStore;
+
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Gauges of the number of books and words. The stores are only asked for their size when the
+ * metrics are read.
+ */
+@Component
+public class StoreMetrics implements MeterBinder {
+
+    private final BookStore bookStore;
+    private final WordStore wordStore;
+
+    public StoreMetrics(BookStore bookStore, WordStore wordStore) {
+        this.bookStore = bookStore;
+        this.wordStore = wordStore;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("books.count", bookStore, BookStore::size)
+            .description("Number of books")
+            .register(registry);
+        Gauge.builder("words.count", wordStore, WordStore::size)
+            .description("Number of words")
+            .register(registry);
+    }
+}
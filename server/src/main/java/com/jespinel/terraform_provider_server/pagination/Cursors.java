@@ -0,0 +1,80 @@
+package com.jespinel.terraform_provider_server.pagination;
+
+import com.jespinel.terraform_provider_server.exceptions.APIException;
+
+import org.springframework.http.HttpStatus;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Opaque cursors of paginated lists. Lists are sorted by ID, and a cursor is the last ID of a
+ * page, encoded so clients do not depend on its format.
+ */
+public final class Cursors {
+
+    public static final String DEFAULT_LIMIT = "100";
+    public static final int MAX_LIMIT = 1000;
+
+    private static final int UUID_BYTES = 16;
+    private static final APIException INVALID_LIMIT =
+        new APIException(HttpStatus.BAD_REQUEST, "limit must be between 1 and " + MAX_LIMIT);
+
+    private Cursors() {
+    }
+
+    /**
+     * Returns the cursor of the page that starts after the given ID.
+     *
+     * @param lastId Last ID of a page.
+     * @return The cursor of the next page.
+     */
+    public static String encode(UUID lastId) {
+        ByteBuffer bytes = ByteBuffer.allocate(UUID_BYTES);
+        bytes.putLong(lastId.getMostSignificantBits());
+        bytes.putLong(lastId.getLeastSignificantBits());
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.array());
+    }
+
+    /**
+     * Returns the ID a page starts after.
+     *
+     * @param cursor Cursor returned with the previous page, or null for the first page.
+     * @return The last ID of the previous page, or null for the first page.
+     * @throws APIException If the cursor is not valid.
+     */
+    public static UUID decode(String cursor) throws APIException {
+        if (cursor == null) {
+            return null;
+        }
+
+        byte[] bytes;
+        try {
+            bytes = Base64.getUrlDecoder().decode(cursor);
+        } catch (IllegalArgumentException e) {
+            throw invalidCursor(cursor);
+        }
+        if (bytes.length != UUID_BYTES) {
+            throw invalidCursor(cursor);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+
+    /**
+     * Checks the number of entities a page asks for.
+     *
+     * @param limit Maximum number of entities of a page.
+     * @throws APIException If the limit is not between 1 and {@link #MAX_LIMIT}.
+     */
+    public static void checkLimit(int limit) throws APIException {
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw INVALID_LIMIT;
+        }
+    }
+
+    private static APIException invalidCursor(String cursor) {
+        return new APIException(HttpStatus.BAD_REQUEST, "The cursor '" + cursor + "' is not valid");
+    }
+}
@@ -0,0 +1,55 @@
+package com.jespinel.terraform_provider_server.pagination;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/**
+ * Writes entities as newline delimited JSON, one entity per line, while a store iterates them.
+ * Only the entity being written is held in memory, however big the store is.
+ */
+public final class JsonLines {
+
+    public static final String MEDIA_TYPE = "application/x-ndjson";
+
+    private JsonLines() {
+    }
+
+    /**
+     * Returns a response body that writes every entity the given iteration visits.
+     *
+     * @param mapper  Mapper that writes the entities.
+     * @param type    Type of the entities.
+     * @param forEach Iteration that calls its action for every entity.
+     * @param <T>     Type of the entities.
+     * @return The response body.
+     */
+    public static <T> StreamingResponseBody body(ObjectMapper mapper, Class<T> type,
+                                                 Consumer<Consumer<T>> forEach) {
+        // The servlet response buffers the output, flushing every entity would send tiny chunks
+        ObjectWriter writer = mapper.writerFor(type).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        return outputStream -> {
+            try (JsonGenerator generator = mapper.getFactory().createGenerator(outputStream)) {
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                generator.setRootValueSeparator(null);
+                forEach.accept(entity -> {
+                    try {
+                        writer.writeValue(generator, entity);
+                        generator.writeRaw('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        };
+    }
+}
@@ -0,0 +1,24 @@
+package com.jespinel.terraform_provider_server.pagination;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+import lombok.Value;
+
+/**
+ * One page of a list of entities, and the cursor of the next page.
+ *
+ * @param <T> Type of the entities.
+ */
+@Value
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class Page<T> {
+
+    private List<T> items;
+
+    /**
+     * Opaque cursor of the next page, or null if this is the last page.
+     */
+    private String nextCursor;
+}
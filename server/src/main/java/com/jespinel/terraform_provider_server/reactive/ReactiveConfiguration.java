@@ -0,0 +1,128 @@
+package com.jespinel.terraform_provider_server.reactive;
+
+import com.jespinel.terraform_provider_server.books.BookHandler;
+import com.jespinel.terraform_provider_server.changes.ChangeHandler;
+import com.jespinel.terraform_provider_server.exceptions.APIException;
+import com.jespinel.terraform_provider_server.exceptions.ControllerExceptionHandler;
+import com.jespinel.terraform_provider_server.replication.Replica;
+import com.jespinel.terraform_provider_server.replication.ReplicaRouting;
+import com.jespinel.terraform_provider_server.replication.ReplicationHandler;
+import com.jespinel.terraform_provider_server.storage.StorageProperties;
+import com.jespinel.terraform_provider_server.words.WordHandler;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.boot.web.embedded.netty.NettyServerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpStatus;
+import org.springframework.validation.BindException;
+import org.springframework.web.reactive.function.server.HandlerFunction;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ServerWebInputException;
+
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Serves the books and words with functional routes on Netty, when the server runs with
+ * {@code spring.main.web-application-type=reactive}.
+ * <p>
+ * The routes call the same services and stores as the servlet controllers, and their errors go
+ * through {@link ControllerExceptionHandler}, so both modes answer with the same bodies.
+ */
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@Configuration
+public class ReactiveConfiguration {
+
+    /**
+     * Netty server. Tomcat is also on the classpath for the servlet mode, and would be picked
+     * otherwise. It is configured by the {@link NettyServerCustomizer} beans, as the one of
+     * Spring Boot would be.
+     */
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory(ObjectProvider<NettyServerCustomizer> serverCustomizers) {
+        NettyReactiveWebServerFactory factory = new NettyReactiveWebServerFactory();
+        serverCustomizers.orderedStream().forEach(factory::addServerCustomizers);
+        return factory;
+    }
+
+    /**
+     * Scheduler of the calls to the stores. The in-memory stores never wait, so they are called
+     * on the event loop; durable stores wait for their log, so they are called on a bounded pool
+     * of worker threads.
+     */
+    @Bean
+    public Scheduler storeScheduler(StorageProperties properties) {
+        return properties.getPersistence().isEnabled() ? Schedulers.boundedElastic() : Schedulers.immediate();
+    }
+
+    /**
+     * Routes of the books and words, of their change feed, and of the changes of a primary. On a replica, requests
+     * go through the {@link ReplicaRouting} first, inside the error handling.
+     */
+    @Bean
+    public RouterFunction<ServerResponse> routes(BookHandler bookHandler, WordHandler wordHandler,
+                                                 ObjectProvider<ChangeHandler> changeHandler,
+                                                 ObjectProvider<ReplicationHandler> replicationHandler,
+                                                 ObjectProvider<ReplicaRouting> replicaRouting,
+                                                 ControllerExceptionHandler exceptionHandler) {
+        RouterFunction<ServerResponse> routes = bookHandler.routes().and(wordHandler.routes());
+        ChangeHandler feed = changeHandler.getIfAvailable();
+        if (feed != null) {
+            routes = routes.and(feed.routes());
+        }
+        ReplicationHandler changes = replicationHandler.getIfAvailable();
+        if (changes != null) {
+            routes = routes.and(changes.routes());
+        }
+        ReplicaRouting routing = replicaRouting.getIfAvailable();
+        if (routing != null) {
+            routes = routes.filter((request, next) -> routeToReplica(request, next, routing));
+        }
+        return routes
+            .filter((request, next) -> handleErrors(request, next, exceptionHandler))
+            .filter((request, next) -> next.handle(request)
+                .map(response -> ReactiveResponses.negotiateFormat(request, response)));
+    }
+
+    /**
+     * Answers eventually consistent reads right away, and waits for the replica to catch up
+     * with the primary on a worker thread for strongly consistent ones.
+     */
+    private static Mono<ServerResponse> routeToReplica(ServerRequest request, HandlerFunction<ServerResponse> next,
+                                                       ReplicaRouting routing) {
+        Replica<?> replica;
+        try {
+            replica = routing.route(request.methodName(), request.path(),
+                request.headers().firstHeader(ReplicaRouting.READ_CONSISTENCY));
+        } catch (APIException e) {
+            return Mono.error(e);
+        }
+        if (replica == null) {
+            return next.handle(request);
+        }
+        return Mono.fromCallable(() -> {
+                routing.sync(replica);
+                return replica;
+            })
+            .subscribeOn(Schedulers.boundedElastic())
+            .then(Mono.defer(() -> next.handle(request)));
+    }
+
+    private static Mono<ServerResponse> handleErrors(ServerRequest request, HandlerFunction<ServerResponse> next,
+                                                     ControllerExceptionHandler exceptionHandler) {
+        return next.handle(request)
+            .onErrorResume(APIException.class,
+                e -> ReactiveResponses.of(exceptionHandler.handleAPIException(e)))
+            .onErrorResume(BindException.class,
+                e -> ReactiveResponses.of(exceptionHandler.handleValidationErrors(e)))
+            .onErrorResume(ServerWebInputException.class,
+                e -> ReactiveResponses.of(exceptionHandler.handleAPIException(
+                    new APIException(HttpStatus.BAD_REQUEST, e.getReason()))));
+    }
+}
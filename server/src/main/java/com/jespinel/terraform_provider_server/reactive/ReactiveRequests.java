@@ -0,0 +1,159 @@
+package com.jespinel.terraform_provider_server.reactive;
+
+import com.jespinel.terraform_provider_server.exceptions.APIException;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.BindException;
+import org.springframework.validation.beanvalidation.SpringValidatorAdapter;
+import org.springframework.web.reactive.function.server.ServerRequest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+
+import javax.validation.Validator;
+
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Reads the parameters and bodies of the requests of the reactive routes, and calls the services
+ * on the scheduler of the stores.
+ */
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@Component
+public class ReactiveRequests {
+
+    private static final APIException MISSING_BODY =
+        new APIException(HttpStatus.BAD_REQUEST, "request body is required");
+
+    private final SpringValidatorAdapter validator;
+    private final Scheduler storeScheduler;
+
+    public ReactiveRequests(Validator validator, Scheduler storeScheduler) {
+        this.validator = new SpringValidatorAdapter(validator);
+        this.storeScheduler = storeScheduler;
+    }
+
+    /**
+     * Reads and validates the body of a request.
+     *
+     * @return The body, or a {@link BindException} with the violated constraints if it is not
+     * valid, or an {@link APIException} if there is no body.
+     */
+    public <T> Mono<T> body(ServerRequest request, Class<T> type) {
+        return request.bodyToMono(type)
+            .switchIfEmpty(Mono.error(MISSING_BODY))
+            .flatMap(body -> {
+                BeanPropertyBindingResult errors = new BeanPropertyBindingResult(body, "request");
+                validator.validate(body, errors);
+                return errors.hasErrors() ? Mono.error(new BindException(errors)) : Mono.just(body);
+            });
+    }
+
+    /**
+     * Reads the array body of a batch request. Its items are validated one by one by the batch.
+     */
+    public <T> Mono<List<T>> bodyList(ServerRequest request, ParameterizedTypeReference<List<T>> type) {
+        return request.bodyToMono(type)
+            .switchIfEmpty(Mono.error(MISSING_BODY));
+    }
+
+    /**
+     * Calls a service on the scheduler of the stores, which is a worker pool when the stores
+     * wait for their disk, so the event loop never blocks.
+     *
+     * @return The result of the call, or empty if it returns null.
+     */
+    public <T> Mono<T> call(Callable<T> call) {
+        return Mono.fromCallable(call).subscribeOn(storeScheduler);
+    }
+
+    /**
+     * Calls a service that may wait for another request, such as a creation with an
+     * {@code Idempotency-Key} that waits for the first creation with its key. It is always called
+     * on a bounded pool of worker threads, even when the stores are called on the event loop.
+     *
+     * @return The result of the call, or empty if it returns null.
+     */
+    public <T> Mono<T> callWaiting(Callable<T> call) {
+        return Mono.fromCallable(call).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * @throws APIException If the {@code id} path variable is not a UUID.
+     */
+    public static UUID pathId(ServerRequest request) throws APIException {
+        return parseId(request.pathVariable("id"));
+    }
+
+    /**
+     * @param name         Name of an integer query parameter.
+     * @param defaultValue Value of the parameter when the request does not have it.
+     * @throws APIException If the parameter is not an integer.
+     */
+    public static int intParam(ServerRequest request, String name, String defaultValue) throws APIException {
+        String value = request.queryParam(name).orElse(defaultValue);
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new APIException(HttpStatus.BAD_REQUEST, name + " must be an integer");
+        }
+    }
+
+    /**
+     * @param name         Name of a long integer query parameter.
+     * @param defaultValue Value of the parameter when the request does not have it.
+     * @throws APIException If the parameter is not an integer.
+     */
+    public static long longParam(ServerRequest request, String name, String defaultValue) throws APIException {
+        String value = request.queryParam(name).orElse(defaultValue);
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new APIException(HttpStatus.BAD_REQUEST, name + " must be an integer");
+        }
+    }
+
+    /**
+     * @param name Name of an optional ID query parameter.
+     * @return The ID, or null if the request does not have the parameter.
+     * @throws APIException If the parameter is not a UUID.
+     */
+    public static UUID idParam(ServerRequest request, String name) throws APIException {
+        String value = request.queryParam(name).orElse(null);
+        return value == null ? null : parseId(value);
+    }
+
+    /**
+     * Reads a query parameter with a comma separated list of IDs, such as {@code ?ids=a,b}.
+     *
+     * @throws APIException If an ID is not a UUID.
+     */
+    public static List<UUID> idsParam(ServerRequest request, String name) throws APIException {
+        List<UUID> ids = new ArrayList<>();
+        for (String value : request.queryParams().getOrDefault(name, Collections.emptyList())) {
+            for (String id : value.split(",")) {
+                if (!id.trim().isEmpty()) {
+                    ids.add(parseId(id.trim()));
+                }
+            }
+        }
+        return ids;
+    }
+
+    private static UUID parseId(String id) throws APIException {
+        try {
+            return UUID.fromString(id);
+        } catch (IllegalArgumentException e) {
+            throw new APIException(HttpStatus.BAD_REQUEST, "The ID '" + id + "' is not valid");
+        }
+    }
+}
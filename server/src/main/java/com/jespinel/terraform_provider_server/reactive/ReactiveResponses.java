@@ -0,0 +1,151 @@
+package com.jespinel.terraform_provider_server.reactive;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.jespinel.terraform_provider_server.formats.CborConfiguration;
+import com.jespinel.terraform_provider_server.pagination.JsonLines;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseCookie;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ServerWebExchange;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Builds the responses of the reactive routes.
+ */
+public final class ReactiveResponses {
+
+    public static final MediaType JSON_LINES = MediaType.parseMediaType(JsonLines.MEDIA_TYPE);
+
+    private ReactiveResponses() {
+    }
+
+    /**
+     * Returns a response with the status, headers and body of a servlet response, such as the
+     * ones of {@link com.jespinel.terraform_provider_server.exceptions.ControllerExceptionHandler}.
+     */
+    public static Mono<ServerResponse> of(ResponseEntity<?> entity) {
+        ServerResponse.BodyBuilder builder = ServerResponse.status(entity.getStatusCode())
+            .headers(headers -> headers.addAll(entity.getHeaders()));
+        return entity.getBody() == null ? builder.build() : builder.bodyValue(entity.getBody());
+    }
+
+    /**
+     * Returns a response that is written as CBOR if the client prefers it to JSON, see
+     * {@link CborConfiguration#prefersCbor}. Responses that set their own content type, such as
+     * the JSON lines ones, and responses without body keep their content type. Every response
+     * gets a {@code Vary: Accept} header, as in the servlet mode, so caches keep the JSON and the
+     * CBOR ones apart.
+     * <p>
+     * Functional routes do not negotiate the format of their responses: they are written by the
+     * first encoder that accepts their content type, which is JSON when they have none.
+     */
+    public static ServerResponse negotiateFormat(ServerRequest request, ServerResponse response) {
+        boolean cbor = response.headers().getContentType() == null && response.statusCode() != HttpStatus.NO_CONTENT
+            && CborConfiguration.prefersCbor(request.headers().accept());
+        return new NegotiatedResponse(response, cbor);
+    }
+
+    /**
+     * Whether the request explicitly accepts newline delimited JSON, as {@code *}{@code /*}
+     * gets a JSON page.
+     */
+    public static boolean acceptsJsonLines(ServerRequest request) {
+        return request.headers().accept().stream().anyMatch(JSON_LINES::equalsTypeAndSubtype);
+    }
+
+    /**
+     * Returns a response that writes every entity of the given pages as newline delimited JSON.
+     * The pages are read as the client reads the response, so a slow client holds a single page
+     * in memory instead of the whole store.
+     *
+     * @param mapper Mapper that writes the entities.
+     * @param pages  Pages of entities.
+     * @return The response.
+     */
+    public static Mono<ServerResponse> jsonLines(ObjectMapper mapper, Flux<? extends List<?>> pages) {
+        return ServerResponse.ok()
+            .contentType(JSON_LINES)
+            .body((message, context) -> {
+                DataBufferFactory bufferFactory = message.bufferFactory();
+                ObjectWriter writer = mapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                Flux<DataBuffer> buffers = pages.map(page -> {
+                    DataBuffer buffer = bufferFactory.allocateBuffer();
+                    try (OutputStream out = buffer.asOutputStream()) {
+                        for (Object entity : page) {
+                            writer.writeValue(out, entity);
+                            out.write('\n');
+                        }
+                    } catch (IOException e) {
+                        DataBufferUtils.release(buffer);
+                        throw new IllegalStateException("Could not write a page of JSON lines", e);
+                    }
+                    return buffer;
+                });
+                return BodyInserters.fromDataBuffers(buffers).insert(message, context);
+            });
+    }
+
+    /**
+     * Response that adds the {@code Vary} header to the exchange, and sets CBOR as its content
+     * type, before it is written. The headers of a response are read only, and do not replace
+     * the ones already in the exchange.
+     */
+    private static final class NegotiatedResponse implements ServerResponse {
+
+        private final ServerResponse response;
+        private final boolean cbor;
+
+        private NegotiatedResponse(ServerResponse response, boolean cbor) {
+            this.response = response;
+            this.cbor = cbor;
+        }
+
+        @Override
+        public HttpStatus statusCode() {
+            return response.statusCode();
+        }
+
+        @Override
+        public int rawStatusCode() {
+            return response.rawStatusCode();
+        }
+
+        @Override
+        public HttpHeaders headers() {
+            return response.headers();
+        }
+
+        @Override
+        public MultiValueMap<String, ResponseCookie> cookies() {
+            return response.cookies();
+        }
+
+        @Override
+        public Mono<Void> writeTo(ServerWebExchange exchange, Context context) {
+            HttpHeaders headers = exchange.getResponse().getHeaders();
+            headers.add(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+            if (cbor) {
+                headers.setContentType(MediaType.APPLICATION_CBOR);
+            }
+            return response.writeTo(exchange, context);
+        }
+    }
+}
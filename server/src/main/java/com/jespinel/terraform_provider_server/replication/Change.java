@@ -0,0 +1,29 @@
+package com.jespinel.terraform_provider_server.replication;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.UUID;
+
+import lombok.Value;
+
+/**
+ * Write of an entity on the primary, as replicas copy it.
+ *
+ * @param <T> Type of the entity.
+ */
+@Value
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class Change<T> {
+
+    /**
+     * Position of the change in the log of the primary, from 1.
+     */
+    private long sequence;
+
+    private UUID id;
+
+    /**
+     * The entity after the write, with its version, or null if the write deleted it.
+     */
+    private T entity;
+}
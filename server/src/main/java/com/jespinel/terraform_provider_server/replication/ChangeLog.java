@@ -0,0 +1,96 @@
+package com.jespinel.terraform_provider_server.replication;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * The most recent changes of the entities of a store, in the order they were applied, kept in
+ * memory for the replicas of a primary. Older changes are overwritten by new ones.
+ * <p>
+ * Writes of the same entity append while they hold the lock of that entity, so the log has the
+ * writes of each entity in the order they were applied. Writes of different entities may be
+ * appended in another order than the one they were applied in, which only matters to writes
+ * that free and take the same title or word; replicas apply such a take once the free arrives.
+ *
+ * @param <T> Type of the entities.
+ */
+public class ChangeLog<T> {
+
+    private final UUID id = UUID.randomUUID();
+    private final Change<T>[] changes;
+
+    /**
+     * Sequence number of the last change.
+     */
+    private long sequence;
+
+    /**
+     * @param capacity Number of changes kept.
+     */
+    @SuppressWarnings("unchecked")
+    public ChangeLog(int capacity) {
+        changes = (Change<T>[]) new Change<?>[capacity];
+    }
+
+    /**
+     * Returns the ID of the log, which is new every time the server starts.
+     */
+    public UUID getId() {
+        return id;
+    }
+
+    /**
+     * Appends a change, and wakes up the readers waiting for one.
+     *
+     * @param id     ID of the entity.
+     * @param entity The entity after the change, or null if it was deleted.
+     * @return The sequence number of the change.
+     */
+    public synchronized long append(UUID id, T entity) {
+        sequence++;
+        changes[index(sequence)] = new Change<>(sequence, id, entity);
+        notifyAll();
+        return sequence;
+    }
+
+    /**
+     * Returns the sequence number of the last change, or 0 if there are none.
+     */
+    public synchronized long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Returns the changes after the given one, waiting for one if there are none yet.
+     *
+     * @param after         Sequence number of the last change the reader has.
+     * @param limit         Maximum number of changes to return.
+     * @param timeoutMillis Time to wait for a change, if there are none after {@code after}.
+     * @return The changes, in order, which are empty if none arrived in time, or null if
+     * {@code after} is older than the oldest change kept, or newer than the last change.
+     * @throws InterruptedException If the thread is interrupted while it waits.
+     */
+    public synchronized List<Change<T>> read(long after, int limit, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        long remaining = timeoutMillis;
+        while (after == sequence && limit > 0 && remaining > 0) {
+            wait(remaining);
+            remaining = deadline - System.currentTimeMillis();
+        }
+
+        if (after < sequence - changes.length || after > sequence) {
+            return null;
+        }
+        long last = Math.min(sequence, after + limit);
+        List<Change<T>> read = new ArrayList<>((int) (last - after));
+        for (long next = after + 1; next <= last; next++) {
+            read.add(changes[index(next)]);
+        }
+        return read;
+    }
+
+    private int index(long sequence) {
+        return (int) ((sequence - 1) % changes.length);
+    }
+}
@@ -0,0 +1,31 @@
+package com.jespinel.terraform_provider_server.replication;
+
+import java.util.List;
+import java.util.UUID;
+
+import lombok.Value;
+
+/**
+ * Changes a replica asked its primary for.
+ *
+ * @param <T> Type of the entities.
+ */
+@Value
+public class Changes<T> {
+
+    /**
+     * ID of the log of the primary. A primary that restarts starts a new log, whose sequence
+     * numbers have nothing to do with the ones of the previous log.
+     */
+    private UUID log;
+
+    /**
+     * Sequence number of the last change of the log.
+     */
+    private long sequence;
+
+    /**
+     * Changes after the one the replica asked from, in order.
+     */
+    private List<Change<T>> changes;
+}
@@ -0,0 +1,20 @@
+package com.jespinel.terraform_provider_server.replication;
+
+/**
+ * Consistency of a read served by a replica, asked for with the {@code Read-Consistency} header.
+ */
+public enum ReadConsistency {
+
+    /**
+     * The replica answers with what it has copied so far, which may miss the latest writes of
+     * the primary.
+     */
+    EVENTUAL,
+
+    /**
+     * The replica first asks the primary for the sequence number of its last change, and
+     * answers once it has copied that change. The read sees every write acknowledged before it
+     * started, at the cost of a round trip to the primary.
+     */
+    STRONG
+}
@@ -0,0 +1,312 @@
+package com.jespinel.terraform_provider_server.replication;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jespinel.terraform_provider_server.exceptions.DuplicateKeyException;
+import com.jespinel.terraform_provider_server.pagination.Cursors;
+import com.jespinel.terraform_provider_server.pagination.Page;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Copies the entities of one store of a primary, such as its books, into a store of this
+ * server, and keeps copying their changes while the server runs.
+ * <p>
+ * A replica first copies every entity, with the pages of the public API, from the sequence
+ * number the primary had before the first page. Entities written meanwhile may be copied in
+ * any version, so the replica then reads the changes after that sequence number until it has
+ * them all, and keeps the last version of each entity. From then on, a thread waits for the
+ * next changes of the primary and applies them in order, as long polls over HTTP.
+ * <p>
+ * A change that takes a title or word the replica still has on another entity waits until the
+ * change that frees it arrives, as do the later changes of its entity. If the primary no longer
+ * has the changes the replica needs, because the replica fell too far behind or the primary
+ * restarted, the replica copies every entity again.
+ *
+ * @param <T> Type of the entities.
+ */
+public class Replica<T> implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(Replica.class);
+
+    private final String name;
+    private final ReplicaStore<T> store;
+    private final RestTemplate client;
+    private final ObjectMapper mapper;
+    private final JavaType changesType;
+    private final JavaType pageType;
+    private final ReplicationProperties properties;
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    /**
+     * Changes that wait for a change that frees their title or word, in order.
+     */
+    private final List<Change<T>> pendingChanges = new ArrayList<>();
+
+    /**
+     * Log of the primary the replica follows, or null until it has copied every entity.
+     * Guarded by this.
+     */
+    private UUID log;
+
+    /**
+     * Sequence number of the last change the replica has applied, along with all the ones
+     * before it. Guarded by this.
+     */
+    private long sequence;
+
+    /**
+     * @param name       Name of the entities, which is also the path of their API, such as
+     *                   {@code books}.
+     * @param type       Type of the entities.
+     * @param store      Store the entities are copied into.
+     * @param client     Client with the URL of the primary as root URI.
+     * @param mapper     Mapper of the responses of the primary.
+     * @param properties Replication settings.
+     */
+    public Replica(String name, Class<T> type, ReplicaStore<T> store, RestTemplate client, ObjectMapper mapper,
+                   ReplicationProperties properties) {
+        this.name = name;
+        this.store = store;
+        this.client = client;
+        this.mapper = mapper;
+        this.changesType = mapper.getTypeFactory().constructParametricType(Changes.class, type);
+        this.pageType = mapper.getTypeFactory().constructParametricType(Page.class, type);
+        this.properties = properties;
+        this.thread = new Thread(this::run, "replica-" + name);
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * Starts copying the entities of the primary, in the background.
+     */
+    public void start() {
+        thread.start();
+    }
+
+    /**
+     * Returns the name of the entities, such as {@code books}.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the sequence number of the last change the replica has applied, or 0 until it
+     * has copied every entity.
+     */
+    public synchronized long getSequence() {
+        return log == null ? 0 : sequence;
+    }
+
+    /**
+     * Waits until the replica has applied the last change the primary had when this method
+     * was called.
+     *
+     * @param timeout Maximum time to wait.
+     * @return Whether the replica applied the change in time.
+     * @throws RestClientException  If the primary could not be reached.
+     * @throws InterruptedException If the thread is interrupted while it waits.
+     */
+    public boolean sync(Duration timeout) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeout.toMillis();
+        Changes<T> position = readChanges(null, 0, 0, 0);
+        synchronized (this) {
+            long remaining = timeout.toMillis();
+            while (!(position.getLog().equals(log) && sequence >= position.getSequence()) && remaining > 0) {
+                wait(remaining);
+                remaining = deadline - System.currentTimeMillis();
+            }
+            return position.getLog().equals(log) && sequence >= position.getSequence();
+        }
+    }
+
+    /**
+     * Stops copying the changes of the primary.
+     */
+    @Override
+    public void close() {
+        running = false;
+        thread.interrupt();
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                if (getLog() == null) {
+                    copyAll();
+                } else {
+                    copyChanges();
+                }
+            } catch (HttpClientErrorException.Gone e) {
+                LOGGER.warn("event=replica.behind entities={} sequence={}", name, getSequence());
+                setPosition(null, 0);
+            } catch (RestClientException e) {
+                if (!running) {
+                    return;
+                }
+                LOGGER.warn("event=replica.primary_unavailable entities={} error=\"{}\"", name, e.getMessage());
+                try {
+                    Thread.sleep(properties.getRetryDelay().toMillis());
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Copies every entity of the primary, then the changes written while they were copied.
+     */
+    private void copyAll() {
+        Changes<T> position = readChanges(null, 0, 0, 0);
+        Map<UUID, T> entities = new HashMap<>();
+        String cursor = null;
+        do {
+            Page<T> page = readPage(cursor);
+            for (T entity : page.getItems()) {
+                entities.put(store.getId(entity), entity);
+            }
+            cursor = page.getNextCursor();
+        } while (cursor != null && running);
+
+        long after = position.getSequence();
+        long timeout = 0;
+        while (running) {
+            Changes<T> changes = readChanges(position.getLog(), after, properties.getBatchSize(), timeout);
+            for (Change<T> change : changes.getChanges()) {
+                if (change.getEntity() == null) {
+                    entities.remove(change.getId());
+                } else {
+                    entities.put(change.getId(), change.getEntity());
+                }
+                after = change.getSequence();
+            }
+            if (after < changes.getSequence()) {
+                continue;
+            }
+
+            try {
+                store.reset(entities.values());
+            } catch (DuplicateKeyException e) {
+                // The change that frees the key is not in the log yet
+                timeout = properties.getPollTimeout().toMillis();
+                continue;
+            }
+            pendingChanges.clear();
+            setPosition(position.getLog(), after);
+            LOGGER.info("event=replica.copied entities={} count={} sequence={}", name, entities.size(), after);
+            return;
+        }
+    }
+
+    /**
+     * Waits for the next changes of the primary and applies them.
+     */
+    private void copyChanges() {
+        UUID currentLog = getLog();
+        long after = pendingChanges.isEmpty() ? getSequence() : last(pendingChanges).getSequence();
+        Changes<T> changes = readChanges(currentLog, after, properties.getBatchSize(),
+            properties.getPollTimeout().toMillis());
+        if (changes.getChanges().isEmpty()) {
+            return;
+        }
+
+        pendingChanges.addAll(changes.getChanges());
+        applyPendingChanges();
+        long applied = pendingChanges.isEmpty()
+            ? last(changes.getChanges()).getSequence()
+            : pendingChanges.get(0).getSequence() - 1;
+        setPosition(currentLog, applied);
+    }
+
+    /**
+     * Applies the pending changes in order, except the ones whose title or word is still
+     * taken, and the later changes of their entities, until no more can be applied.
+     */
+    private void applyPendingChanges() {
+        boolean applied = true;
+        while (applied) {
+            applied = false;
+            Set<UUID> blockedIds = new HashSet<>();
+            Iterator<Change<T>> iterator = pendingChanges.iterator();
+            while (iterator.hasNext()) {
+                Change<T> change = iterator.next();
+                if (blockedIds.contains(change.getId())) {
+                    continue;
+                }
+                try {
+                    if (change.getEntity() == null) {
+                        store.remove(change.getId());
+                    } else {
+                        store.put(change.getEntity());
+                    }
+                    iterator.remove();
+                    applied = true;
+                } catch (DuplicateKeyException e) {
+                    blockedIds.add(change.getId());
+                }
+            }
+        }
+    }
+
+    private Changes<T> readChanges(UUID log, long after, int limit, long timeoutMillis) {
+        UriComponentsBuilder uri = UriComponentsBuilder.fromPath("/replication/" + name)
+            .queryParam("after", after)
+            .queryParam("limit", limit)
+            .queryParam("timeout", timeoutMillis);
+        if (log != null) {
+            uri.queryParam("log", log);
+        }
+        return get(uri.toUriString(), changesType);
+    }
+
+    private Page<T> readPage(String cursor) {
+        UriComponentsBuilder uri = UriComponentsBuilder.fromPath("/" + name)
+            .queryParam("limit", Math.min(properties.getBatchSize(), Cursors.MAX_LIMIT));
+        if (cursor != null) {
+            uri.queryParam("cursor", cursor);
+        }
+        return get(uri.toUriString(), pageType);
+    }
+
+    private <R> R get(String uri, JavaType type) {
+        return client.execute(uri, HttpMethod.GET,
+            request -> request.getHeaders().setAccept(Collections.singletonList(MediaType.APPLICATION_JSON)),
+            response -> mapper.readValue(response.getBody(), type));
+    }
+
+    private synchronized UUID getLog() {
+        return log;
+    }
+
+    private synchronized void setPosition(UUID log, long sequence) {
+        this.log = log;
+        this.sequence = sequence;
+        notifyAll();
+    }
+
+    private static <E> E last(List<E> list) {
+        return list.get(list.size() - 1);
+    }
+}
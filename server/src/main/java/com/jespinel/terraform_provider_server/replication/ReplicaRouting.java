@@ -0,0 +1,110 @@
+package com.jespinel.terraform_provider_server.replication;
+
+import com.jespinel.terraform_provider_server.exceptions.APIException;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.RestClientException;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Decides how a replica answers a request, for both the servlet interceptor and the reactive
+ * filter. Writes are rejected, since only the primary takes them, and reads are answered right
+ * away or once the replica has caught up with the primary, depending on the
+ * {@value #READ_CONSISTENCY} header.
+ */
+public class ReplicaRouting {
+
+    public static final String READ_CONSISTENCY = "Read-Consistency";
+
+    private final Map<String, Replica<?>> replicas;
+    private final APIException writeRejected;
+    private final Duration readTimeout;
+
+    /**
+     * @param replicas   Replicas by the name of their entities, which is the first segment of
+     *                   the paths of their API.
+     * @param properties Replication settings.
+     */
+    public ReplicaRouting(Map<String, Replica<?>> replicas, ReplicationProperties properties) {
+        this.replicas = replicas;
+        this.writeRejected = new APIException(HttpStatus.METHOD_NOT_ALLOWED,
+            "This server is a read-only replica, send writes to the primary at " + properties.getPrimaryUrl());
+        this.readTimeout = properties.getReadTimeout();
+    }
+
+    /**
+     * Checks a request to the replica.
+     *
+     * @param method      Method of the request.
+     * @param path        Path of the request.
+     * @param consistency Value of the {@value #READ_CONSISTENCY} header, or null.
+     * @return The replica a strongly consistent read must {@link #sync(Replica) sync} before it
+     * is answered, or null if it can be answered right away.
+     * @throws APIException If the request is a write, or asks for an unknown consistency.
+     */
+    public Replica<?> route(String method, String path, String consistency) throws APIException {
+        if (!isRead(method, path)) {
+            throw writeRejected;
+        }
+        if (parseConsistency(consistency) == ReadConsistency.EVENTUAL) {
+            return null;
+        }
+        int end = path.indexOf('/', 1);
+        return replicas.get(path.substring(1, end < 0 ? path.length() : end));
+    }
+
+    /**
+     * Waits until a replica has copied the changes the primary had when the read arrived.
+     *
+     * @throws APIException If the primary could not be reached, or the replica did not catch up
+     *                      in time, with a 503.
+     */
+    public void sync(Replica<?> replica) throws APIException {
+        boolean synced;
+        try {
+            synced = replica.sync(readTimeout);
+        } catch (RestClientException e) {
+            throw new APIException(HttpStatus.SERVICE_UNAVAILABLE,
+                "The primary could not be reached for a strongly consistent read: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            synced = false;
+        }
+        if (!synced) {
+            throw new APIException(HttpStatus.SERVICE_UNAVAILABLE,
+                "The replica did not catch up with the primary in " + readTimeout.toMillis() + "ms");
+        }
+    }
+
+    /**
+     * Returns whether a request only reads, which includes the lookups of many IDs sent with a
+     * POST because the IDs may not fit in a URL.
+     */
+    private static boolean isRead(String method, String path) {
+        switch (method) {
+            case "GET":
+            case "HEAD":
+            case "OPTIONS":
+                return true;
+            case "POST":
+                return path.endsWith("/lookup");
+            default:
+                return false;
+        }
+    }
+
+    private static ReadConsistency parseConsistency(String consistency) throws APIException {
+        if (consistency == null) {
+            return ReadConsistency.EVENTUAL;
+        }
+        try {
+            return ReadConsistency.valueOf(consistency.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new APIException(HttpStatus.BAD_REQUEST,
+                READ_CONSISTENCY + " must be eventual or strong, not '" + consistency + "'");
+        }
+    }
+}
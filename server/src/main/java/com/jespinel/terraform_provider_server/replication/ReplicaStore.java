@@ -0,0 +1,45 @@
+package com.jespinel.terraform_provider_server.replication;
+
+import com.jespinel.terraform_provider_server.exceptions.DuplicateKeyException;
+
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * Store a {@link Replica} copies the entities of its primary into. Only the replica writes it.
+ *
+ * @param <T> Type of the entities.
+ */
+public interface ReplicaStore<T> {
+
+    /**
+     * Returns the ID of an entity.
+     */
+    UUID getId(T entity);
+
+    /**
+     * Stores an entity with its version, unless the store already has that version or a newer
+     * one.
+     *
+     * @param entity Entity copied from the primary.
+     * @throws DuplicateKeyException If another entity has its unique key. The primary has
+     *                               freed the key, but the replica has not copied that yet.
+     */
+    void put(T entity) throws DuplicateKeyException;
+
+    /**
+     * Removes an entity, if it exists.
+     */
+    void remove(UUID id);
+
+    /**
+     * Replaces all the entities of the store. It is not atomic: readers of the replica may see
+     * the old entities removed one by one before the new ones are added, while the replica
+     * copies every entity of the primary. If it fails, no new entity is added, and it can be
+     * called again.
+     *
+     * @param entities Entities copied from the primary.
+     * @throws DuplicateKeyException If two entities have the same unique key.
+     */
+    void reset(Collection<T> entities) throws DuplicateKeyException;
+}
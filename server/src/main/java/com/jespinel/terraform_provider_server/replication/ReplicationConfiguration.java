@@ -0,0 +1,145 @@
+package com.jespinel.terraform_provider_server.replication;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jespinel.terraform_provider_server.books.Book;
+import com.jespinel.terraform_provider_server.books.BookReplicaStore;
+import com.jespinel.terraform_provider_server.books.BookStore;
+import com.jespinel.terraform_provider_server.words.Word;
+import com.jespinel.terraform_provider_server.words.WordReplicaStore;
+import com.jespinel.terraform_provider_server.words.WordStore;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Makes the server a primary or a replica with {@code replication.role}. By default it is a
+ * single server that keeps no changes.
+ * <p>
+ * A primary keeps the recent changes of its stores in order, and serves them at
+ * {@code /replication/books} and {@code /replication/words}. A replica keeps its own copy of
+ * the books and words, which it copies from the primary at {@code replication.primary-url},
+ * and serves reads from it.
+ */
+@Configuration
+@EnableConfigurationProperties(ReplicationProperties.class)
+public class ReplicationConfiguration {
+
+    /**
+     * The change logs are wrapped around the stores by the {@code StorageConfiguration}.
+     */
+    @ConditionalOnProperty(name = "replication.role", havingValue = "primary")
+    @Configuration
+    static class Primary {
+
+        @Bean
+        public ChangeLog<Book> bookChangeLog(ReplicationProperties properties) {
+            return new ChangeLog<>(properties.getLogSize());
+        }
+
+        @Bean
+        public ChangeLog<Word> wordChangeLog(ReplicationProperties properties) {
+            return new ChangeLog<>(properties.getLogSize());
+        }
+
+        @Bean
+        public ReplicationService replicationService(ChangeLog<Book> bookChangeLog, ChangeLog<Word> wordChangeLog) {
+            Map<String, ChangeLog<?>> logs = new HashMap<>();
+            logs.put("books", bookChangeLog);
+            logs.put("words", wordChangeLog);
+            return new ReplicationService(logs);
+        }
+    }
+
+    @ConditionalOnProperty(name = "replication.role", havingValue = "replica")
+    @Configuration
+    static class Replicas {
+
+        /**
+         * Client of the primary. Its reads time out a while after the primary answers a long
+         * poll without changes.
+         */
+        @Bean
+        public RestTemplate primaryClient(ReplicationProperties properties) {
+            if (properties.getPrimaryUrl() == null) {
+                throw new IllegalStateException("replication.primary-url is required for a replica");
+            }
+            return new RestTemplateBuilder()
+                .rootUri(properties.getPrimaryUrl())
+                .setConnectTimeout(Duration.ofSeconds(5))
+                .setReadTimeout(properties.getPollTimeout().plusSeconds(30))
+                .build();
+        }
+
+        @Bean(initMethod = "start", destroyMethod = "close")
+        public Replica<Book> bookReplica(BookStore bookStore, RestTemplate primaryClient, ObjectMapper objectMapper,
+                                         ReplicationProperties properties) {
+            return new Replica<>("books", Book.class, new BookReplicaStore(bookStore), primaryClient, objectMapper,
+                properties);
+        }
+
+        @Bean(initMethod = "start", destroyMethod = "close")
+        public Replica<Word> wordReplica(WordStore wordStore, RestTemplate primaryClient, ObjectMapper objectMapper,
+                                         ReplicationProperties properties) {
+            return new Replica<>("words", Word.class, new WordReplicaStore(wordStore), primaryClient, objectMapper,
+                properties);
+        }
+
+        @Bean
+        public ReplicaRouting replicaRouting(Replica<Book> bookReplica, Replica<Word> wordReplica,
+                                             ReplicationProperties properties) {
+            Map<String, Replica<?>> replicas = new HashMap<>();
+            replicas.put(bookReplica.getName(), bookReplica);
+            replicas.put(wordReplica.getName(), wordReplica);
+            return new ReplicaRouting(replicas, properties);
+        }
+    }
+
+    /**
+     * Routes the requests of the servlet mode before their controller runs, so rejected
+     * writes and failed reads answer like the controllers' errors do. The reactive mode
+     * routes them in a filter of its routes.
+     */
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    @ConditionalOnProperty(name = "replication.role", havingValue = "replica")
+    @Configuration
+    static class ServletRouting implements WebMvcConfigurer {
+
+        private final ReplicaRouting replicaRouting;
+
+        ServletRouting(ReplicaRouting replicaRouting) {
+            this.replicaRouting = replicaRouting;
+        }
+
+        @Override
+        public void addInterceptors(InterceptorRegistry registry) {
+            registry.addInterceptor(new HandlerInterceptor() {
+                @Override
+                public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+                    throws Exception {
+
+                    Replica<?> replica = replicaRouting.route(request.getMethod(), request.getRequestURI(),
+                        request.getHeader(ReplicaRouting.READ_CONSISTENCY));
+                    if (replica != null) {
+                        replicaRouting.sync(replica);
+                    }
+                    return true;
+                }
+            });
+        }
+    }
+}
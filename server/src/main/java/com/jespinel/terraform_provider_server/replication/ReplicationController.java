@@ -0,0 +1,42 @@
+package com.jespinel.terraform_provider_server.replication;
+
+import com.jespinel.terraform_provider_server.exceptions.APIException;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.UUID;
+
+/**
+ * Serves the changes of a primary to its replicas, in the servlet mode. See
+ * {@link ReplicationHandler} for the reactive mode.
+ * <p>
+ * A replica that is up to date holds a request thread while it waits for the next change,
+ * which is one thread per replica and store.
+ */
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnProperty(name = "replication.role", havingValue = "primary")
+@RestController
+public class ReplicationController {
+
+    private final ReplicationService replicationService;
+
+    public ReplicationController(ReplicationService replicationService) {
+        this.replicationService = replicationService;
+    }
+
+    @GetMapping("/replication/{name}")
+    public ResponseEntity<Changes<?>> read(@PathVariable String name,
+                                           @RequestParam(required = false) UUID log,
+                                           @RequestParam(defaultValue = "0") long after,
+                                           @RequestParam(defaultValue = "1000") int limit,
+                                           @RequestParam(defaultValue = "0") long timeout) throws APIException {
+
+        return ResponseEntity.ok(replicationService.read(name, log, after, limit, timeout));
+    }
+}
@@ -0,0 +1,49 @@
+package com.jespinel.terraform_provider_server.replication;
+
+import com.jespinel.terraform_provider_server.reactive.ReactiveRequests;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Functional routes of the changes of a primary, in the reactive mode. They answer like
+ * {@link ReplicationController} does in the servlet mode.
+ * <p>
+ * A replica that is up to date waits for the next change on a worker thread, never on the
+ * event loop, even with the in-memory stores.
+ */
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@ConditionalOnProperty(name = "replication.role", havingValue = "primary")
+@Component
+public class ReplicationHandler {
+
+    private final ReplicationService replicationService;
+
+    public ReplicationHandler(ReplicationService replicationService) {
+        this.replicationService = replicationService;
+    }
+
+    public RouterFunction<ServerResponse> routes() {
+        return RouterFunctions.route()
+            .GET("/replication/{name}", this::read)
+            .build();
+    }
+
+    public Mono<ServerResponse> read(ServerRequest request) {
+        return Mono.fromCallable(() -> replicationService.read(request.pathVariable("name"),
+                ReactiveRequests.idParam(request, "log"),
+                ReactiveRequests.longParam(request, "after", "0"),
+                ReactiveRequests.intParam(request, "limit", "1000"),
+                ReactiveRequests.longParam(request, "timeout", "0")))
+            .subscribeOn(Schedulers.boundedElastic())
+            .flatMap(changes -> ServerResponse.ok().bodyValue(changes));
+    }
+}
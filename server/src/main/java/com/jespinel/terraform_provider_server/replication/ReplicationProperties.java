@@ -0,0 +1,53 @@
+package com.jespinel.terraform_provider_server.replication;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+import lombok.Data;
+
+/**
+ * Replication settings, under the {@code replication} prefix.
+ */
+@Data
+@ConfigurationProperties(prefix = "replication")
+public class ReplicationProperties {
+
+    /**
+     * Role of this server.
+     */
+    private ReplicationRole role = ReplicationRole.STANDALONE;
+
+    /**
+     * Number of recent changes of books, and of words, the primary keeps for its replicas. A
+     * replica that falls further behind copies all the entities again.
+     */
+    private int logSize = 100_000;
+
+    /**
+     * URL of the primary, such as {@code http://localhost:8080}, for replicas.
+     */
+    private String primaryUrl;
+
+    /**
+     * Maximum number of changes, or of entities while a replica copies them all, of each
+     * request of a replica to its primary.
+     */
+    private int batchSize = 1000;
+
+    /**
+     * Time the primary holds a request of an up to date replica, waiting for a new change.
+     */
+    private Duration pollTimeout = Duration.ofSeconds(10);
+
+    /**
+     * Time a replica waits before it asks its primary again after a failure.
+     */
+    private Duration retryDelay = Duration.ofSeconds(1);
+
+    /**
+     * Time a strongly consistent read waits for the replica to copy the latest change of the
+     * primary, before it fails with a 503.
+     */
+    private Duration readTimeout = Duration.ofSeconds(5);
+}
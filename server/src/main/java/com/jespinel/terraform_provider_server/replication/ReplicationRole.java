@@ -0,0 +1,22 @@
+package com.jespinel.terraform_provider_server.replication;
+
+/**
+ * Role of a server in a group of servers that share their books and words.
+ */
+public enum ReplicationRole {
+
+    /**
+     * A single server, which does not keep its changes for replicas.
+     */
+    STANDALONE,
+
+    /**
+     * Takes every write, and keeps its recent changes in order for the replicas.
+     */
+    PRIMARY,
+
+    /**
+     * Copies the changes of a primary and serves reads. Writes are rejected.
+     */
+    REPLICA
+}
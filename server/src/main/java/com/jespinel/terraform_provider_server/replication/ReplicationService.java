@@ -0,0 +1,85 @@
+package com.jespinel.terraform_provider_server.replication;
+
+import com.jespinel.terraform_provider_server.exceptions.APIException;
+
+import org.springframework.http.HttpStatus;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Answers the replicas of a primary with the changes of its stores, for both the servlet
+ * controller and the reactive routes.
+ */
+public class ReplicationService {
+
+    public static final int MAX_LIMIT = 10_000;
+    public static final long MAX_TIMEOUT_MILLIS = 60_000;
+
+    private static final APIException INVALID_LIMIT =
+        new APIException(HttpStatus.BAD_REQUEST, "limit must be between 0 and " + MAX_LIMIT);
+    private static final APIException INVALID_TIMEOUT =
+        new APIException(HttpStatus.BAD_REQUEST, "timeout must be between 0 and " + MAX_TIMEOUT_MILLIS);
+
+    private final Map<String, ChangeLog<?>> logs;
+
+    /**
+     * @param logs Change logs by the name of their entities, such as {@code books}.
+     */
+    public ReplicationService(Map<String, ChangeLog<?>> logs) {
+        this.logs = logs;
+    }
+
+    /**
+     * Returns the changes after the one a replica has, waiting for one if there are none yet.
+     *
+     * @param name          Name of the entities.
+     * @param log           ID of the log the replica follows, or null to only get the position
+     *                      of the log.
+     * @param after         Sequence number of the last change the replica has.
+     * @param limit         Maximum number of changes to return, or 0 to only get the position
+     *                      of the log.
+     * @param timeoutMillis Time to wait for a change.
+     * @return The changes, which are empty if none arrived in time.
+     * @throws APIException If there are no such entities, the limit or timeout are not valid,
+     *                      or the log no longer has the changes after {@code after}, with a 410.
+     */
+    public Changes<?> read(String name, UUID log, long after, int limit, long timeoutMillis) throws APIException {
+        ChangeLog<?> changeLog = logs.get(name);
+        if (changeLog == null) {
+            throw new APIException(HttpStatus.NOT_FOUND, "There are no entities named '" + name + "'");
+        }
+        if (limit < 0 || limit > MAX_LIMIT) {
+            throw INVALID_LIMIT;
+        }
+        if (timeoutMillis < 0 || timeoutMillis > MAX_TIMEOUT_MILLIS) {
+            throw INVALID_TIMEOUT;
+        }
+        if (log == null || limit == 0) {
+            return new Changes<>(changeLog.getId(), changeLog.getSequence(), Collections.emptyList());
+        }
+        if (!log.equals(changeLog.getId())) {
+            throw new APIException(HttpStatus.GONE, "The log " + log + " no longer exists, copy every entity again");
+        }
+        return read(changeLog, after, limit, timeoutMillis);
+    }
+
+    private static <T> Changes<T> read(ChangeLog<T> changeLog, long after, int limit, long timeoutMillis)
+        throws APIException {
+
+        List<Change<T>> changes;
+        try {
+            changes = changeLog.read(after, limit, timeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            changes = Collections.emptyList();
+        }
+        if (changes == null) {
+            throw new APIException(HttpStatus.GONE, "The log no longer has the changes after " + after
+                + ", copy every entity again");
+        }
+        return new Changes<>(changeLog.getId(), changeLog.getSequence(), changes);
+    }
+}
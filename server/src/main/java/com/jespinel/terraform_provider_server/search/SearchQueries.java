@@ -0,0 +1,59 @@
+package com.jespinel.terraform_provider_server.search;
+
+import com.jespinel.terraform_provider_server.exceptions.APIException;
+
+import org.springframework.http.HttpStatus;
+
+import java.util.Locale;
+
+/**
+ * Parameters of the search endpoints. Searches answer as the user types, so they return a
+ * single short page of matches instead of a cursor.
+ */
+public final class SearchQueries {
+
+    public static final String DEFAULT_MATCH = "prefix";
+    public static final String DEFAULT_LIMIT = "10";
+    public static final int MAX_LIMIT = 100;
+
+    private static final APIException INVALID_LIMIT =
+        new APIException(HttpStatus.BAD_REQUEST, "limit must be between 1 and " + MAX_LIMIT);
+
+    private SearchQueries() {
+    }
+
+    /**
+     * Parses how texts must match a query.
+     *
+     * @param match {@code prefix} or {@code substring}, ignoring case.
+     * @return The match.
+     * @throws APIException If the match is not known.
+     */
+    public static TextMatch parseMatch(String match) throws APIException {
+        try {
+            return TextMatch.valueOf(match.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new APIException(HttpStatus.BAD_REQUEST, "match must be prefix or substring, not '" + match + "'");
+        }
+    }
+
+    /**
+     * Checks a search query and the number of matches it asks for.
+     *
+     * @param query Text to search.
+     * @param match How texts must match the query.
+     * @param limit Maximum number of matches.
+     * @throws APIException If the query is too short for the match, or the limit is not between
+     *                      1 and {@link #MAX_LIMIT}.
+     */
+    public static void check(String query, TextMatch match, int limit) throws APIException {
+        if (query == null || query.length() < match.getMinQueryLength()) {
+            String errorMessage = "q must have at least " + match.getMinQueryLength() + " characters for a "
+                + match.name().toLowerCase(Locale.ROOT) + " search";
+            throw new APIException(HttpStatus.BAD_REQUEST, errorMessage);
+        }
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw INVALID_LIMIT;
+        }
+    }
+}
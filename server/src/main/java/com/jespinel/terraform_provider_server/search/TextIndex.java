@@ -0,0 +1,476 @@
+package com.jespinel.terraform_provider_server.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Function;
+
+/**
+ * Index of the texts of entities, such as words or book titles, to find the ones that start with
+ * or contain a query, ignoring case.
+ * <p>
+ * Texts are kept in a set sorted ignoring case, so the texts that start with a query are a range
+ * of the set. Every text is also indexed by its trigrams, its substrings of {@value #GRAM_LENGTH}
+ * characters: a text that contains a query contains all its trigrams, so a search only walks the
+ * texts of the rarest trigram of the query. Both searches stop once they have enough matches, so
+ * they take time in the size of the result rather than in the size of the index.
+ * <p>
+ * A text has a trigram per character, so the trigrams hold most of the memory of the index. Each
+ * text is numbered with a slot, and the texts of a trigram are a hash set of slots in an
+ * {@code int} array, instead of a set of objects.
+ * <p>
+ * The index holds IDs and texts, not entities. Searches look each match up and check its current
+ * text, so stores update the index next to their entities, without a lock around both, and
+ * searches read the sets of slots without a lock.
+ */
+public class TextIndex {
+
+    public static final int GRAM_LENGTH = 3;
+
+    /**
+     * Lowest UUID in {@link UUID#compareTo} order, to start a range of the texts.
+     */
+    private static final UUID MIN_ID = new UUID(Long.MIN_VALUE, Long.MIN_VALUE);
+
+    /**
+     * Every text, sorted.
+     */
+    private final NavigableSet<Entry> texts = new ConcurrentSkipListSet<>();
+
+    /**
+     * Slots of the texts by trigram, with the characters of each trigram packed in a long. A
+     * trigram is removed with its last text.
+     */
+    private final ConcurrentMap<Long, SlotSet> grams = new ConcurrentHashMap<>();
+
+    /**
+     * Texts by slot. Slots are reused once their text is removed.
+     */
+    private final SlotTable slotTable = new SlotTable();
+
+    /**
+     * Adds the text of an entity.
+     *
+     * @param id   ID of the entity.
+     * @param text Text of the entity.
+     */
+    public void add(UUID id, String text) {
+        Entry entry = new Entry(text, id);
+        slotTable.allocate(entry);
+        if (!texts.add(entry)) {
+            slotTable.free(entry.slot);
+            return;
+        }
+        for (long gram : getGrams(entry.text)) {
+            grams.compute(gram, (key, gramSlots) -> {
+                SlotSet newSlots = gramSlots == null ? new SlotSet() : gramSlots;
+                newSlots.add(entry.slot);
+                return newSlots;
+            });
+        }
+    }
+
+    /**
+     * Adds the texts of entities to an empty index, such as when a store is recovered. The texts
+     * are added in order, and each trigram is written once, instead of once per text.
+     *
+     * @param entities Entities to add.
+     * @param id       Function that returns the ID of an entity.
+     * @param text     Function that returns the text of an entity.
+     * @param <T>      Type of the entities.
+     */
+    public <T> void addAll(Collection<T> entities, Function<T, UUID> id, Function<T, String> text) {
+        List<Entry> entries = new ArrayList<>(entities.size());
+        for (T entity : entities) {
+            Entry entry = new Entry(text.apply(entity), id.apply(entity));
+            slotTable.allocate(entry);
+            entries.add(entry);
+        }
+        // Appends the slots of each trigram to a list, then builds each set at its final size
+        Map<Long, SlotList> newGrams = new HashMap<>();
+        for (Entry entry : entries) {
+            for (long gram : getGrams(entry.text)) {
+                newGrams.computeIfAbsent(gram, key -> new SlotList()).add(entry.slot);
+            }
+        }
+        for (Map.Entry<Long, SlotList> gram : newGrams.entrySet()) {
+            grams.put(gram.getKey(), new SlotSet(gram.getValue()));
+        }
+        // Each insertion in order follows the previous one, so it walks nodes that are in cache
+        Collections.sort(entries);
+        texts.addAll(entries);
+    }
+
+    /**
+     * Removes the text of an entity.
+     *
+     * @param id   ID of the entity.
+     * @param text Text the entity was added with.
+     */
+    public void remove(UUID id, String text) {
+        Entry probe = new Entry(text, id);
+        Entry entry = texts.ceiling(probe);
+        if (entry == null || entry.compareTo(probe) != 0) {
+            return;
+        }
+        for (long gram : getGrams(entry.text)) {
+            grams.computeIfPresent(gram, (key, gramSlots) -> gramSlots.remove(entry.slot) ? null : gramSlots);
+        }
+        texts.remove(entry);
+        slotTable.free(entry.slot);
+    }
+
+    /**
+     * Replaces the text of an entity. The new text is added before the old one is removed, so
+     * the entity can always be found by one of them.
+     *
+     * @param id      ID of the entity.
+     * @param oldText Text the entity was added with.
+     * @param newText New text of the entity.
+     */
+    public void replace(UUID id, String oldText, String newText) {
+        if (!oldText.equalsIgnoreCase(newText)) {
+            add(id, newText);
+            remove(id, oldText);
+        }
+    }
+
+    /**
+     * Returns the entities whose text matches a query, ignoring case, sorted by text. Prefix
+     * searches return the first matches by text; substring searches return the first matches
+     * they find, as the texts of a trigram are not sorted.
+     *
+     * @param query  Text to search. It must have at least {@link TextMatch#getMinQueryLength()}
+     *               characters.
+     * @param match  How texts must match the query.
+     * @param limit  Maximum number of entities to return.
+     * @param lookup Function that returns the entity of an ID, or null if it no longer exists.
+     * @param text   Function that returns the current text of an entity.
+     * @param <T>    Type of the entities.
+     * @return The matching entities.
+     */
+    public <T> List<T> find(String query, TextMatch match, int limit,
+                            Function<UUID, T> lookup, Function<T, String> text) {
+
+        Iterable<Entry> candidates = match == TextMatch.PREFIX
+            ? texts.tailSet(new Entry(query, MIN_ID))
+            : getRarestGramTexts(query);
+
+        List<T> found = new ArrayList<>(Math.min(limit, 16));
+        Set<UUID> foundIds = new HashSet<>();
+        for (Entry candidate : candidates) {
+            if (found.size() == limit) {
+                break;
+            }
+            if (!match.matches(candidate.text, query)) {
+                if (match == TextMatch.PREFIX) {
+                    // The texts are sorted, so no later text starts with the query
+                    break;
+                }
+                continue;
+            }
+            T entity = lookup.apply(candidate.id);
+            // A slot reused during the search may give the same entity twice
+            if (entity != null && isMatch(text.apply(entity), query, match) && foundIds.add(candidate.id)) {
+                found.add(entity);
+            }
+        }
+        if (match == TextMatch.SUBSTRING) {
+            found.sort(Comparator.comparing(text, String.CASE_INSENSITIVE_ORDER));
+        }
+        return found;
+    }
+
+    private Iterable<Entry> getRarestGramTexts(String query) {
+        SlotSet rarest = null;
+        for (long gram : getGrams(query)) {
+            SlotSet gramSlots = grams.get(gram);
+            if (gramSlots == null) {
+                return Collections.emptyList();
+            }
+            if (rarest == null || gramSlots.size() < rarest.size()) {
+                rarest = gramSlots;
+            }
+        }
+        if (rarest == null) {
+            return Collections.emptyList();
+        }
+        return slotTable.resolve(rarest.snapshot());
+    }
+
+    /**
+     * Checks the current text of an entity, which may have changed since it was indexed.
+     */
+    private static boolean isMatch(String text, String query, TextMatch match) {
+        return text != null && match.matches(text, query);
+    }
+
+    /**
+     * Returns the distinct trigrams of a text ignoring case, each with its three characters
+     * packed in a long.
+     */
+    private static long[] getGrams(String text) {
+        int count = Math.max(0, text.length() - GRAM_LENGTH + 1);
+        long[] textGrams = new long[count];
+        for (int i = 0; i < count; i++) {
+            textGrams[i] = (long) fold(text.charAt(i)) << 32
+                | (long) fold(text.charAt(i + 1)) << 16
+                | fold(text.charAt(i + 2));
+        }
+        Arrays.sort(textGrams);
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (i == 0 || textGrams[i] != textGrams[i - 1]) {
+                textGrams[distinct++] = textGrams[i];
+            }
+        }
+        return distinct == count ? textGrams : Arrays.copyOf(textGrams, distinct);
+    }
+
+    /**
+     * Folds the case of a character the way {@link String#regionMatches(boolean, int, String, int, int)}
+     * and {@link String#CASE_INSENSITIVE_ORDER} compare it.
+     */
+    private static char fold(char character) {
+        return Character.toLowerCase(Character.toUpperCase(character));
+    }
+
+    /**
+     * Text of an entity and its slot. Entries are sorted by text ignoring case, then by ID.
+     */
+    private static final class Entry implements Comparable<Entry> {
+
+        private final String text;
+        private final UUID id;
+        /**
+         * Slot of the text, written before the entry is added to the sorted set of texts.
+         */
+        private int slot;
+
+        private Entry(String text, UUID id) {
+            this.text = text;
+            this.id = id;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            int byText = String.CASE_INSENSITIVE_ORDER.compare(text, other.text);
+            return byText != 0 ? byText : id.compareTo(other.id);
+        }
+    }
+
+    /**
+     * Texts by slot, in an array that grows as needed. Writes take the lock of the table; reads
+     * take the current array without it.
+     */
+    private static final class SlotTable {
+
+        private volatile Entry[] entries = new Entry[1024];
+        private int[] freeSlots = new int[64];
+        private int freeCount;
+        private int nextSlot;
+
+        private synchronized void allocate(Entry entry) {
+            int slot;
+            if (freeCount > 0) {
+                slot = freeSlots[--freeCount];
+            } else {
+                slot = nextSlot++;
+                if (slot == entries.length) {
+                    entries = Arrays.copyOf(entries, entries.length * 2);
+                }
+            }
+            entry.slot = slot;
+            entries[slot] = entry;
+            // Publishes the entry to readers that read the array afterwards
+            entries = entries;
+        }
+
+        private synchronized void free(int slot) {
+            entries[slot] = null;
+            if (freeCount == freeSlots.length) {
+                freeSlots = Arrays.copyOf(freeSlots, freeSlots.length * 2);
+            }
+            freeSlots[freeCount++] = slot;
+        }
+
+        /**
+         * Returns the texts of the given slots, as they are while they are iterated. A slot freed
+         * and reused since it was read gives another text, which searches check like any other.
+         */
+        private Iterable<Entry> resolve(int[] slotTable) {
+            return () -> new Iterator<Entry>() {
+
+                private final Entry[] current = entries;
+                private int index = -1;
+                private Entry next = advance();
+
+                private Entry advance() {
+                    while (++index < slotTable.length) {
+                        int slot = slotTable[index];
+                        if (slot >= 0 && slot < current.length && current[slot] != null) {
+                            return current[slot];
+                        }
+                    }
+                    return null;
+                }
+
+                @Override
+                public boolean hasNext() {
+                    return next != null;
+                }
+
+                @Override
+                public Entry next() {
+                    Entry entry = next;
+                    next = advance();
+                    return entry;
+                }
+            };
+        }
+    }
+
+    /**
+     * Hash set of slots with open addressing. Writes are serialized by the
+     * {@link ConcurrentHashMap#compute} calls on the trigram; reads iterate the array without a
+     * lock, and may miss the slots written during the iteration.
+     */
+    private static final class SlotSet {
+
+        private static final int FREE = -1;
+        private static final int REMOVED = -2;
+
+        private volatile int[] table;
+        private volatile int size;
+        /**
+         * Number of cells that are not {@link #FREE}, which bounds the length of the probes.
+         */
+        private int used;
+
+        private SlotSet() {
+            table = newTable(8);
+        }
+
+        /**
+         * Creates a set with the slots of a list, half full.
+         */
+        private SlotSet(SlotList slots) {
+            table = newTable(Math.max(8, Integer.highestOneBit(slots.size * 4)));
+            for (int i = 0; i < slots.size; i++) {
+                add(slots.slots[i]);
+            }
+        }
+
+        private void add(int slot) {
+            // Grows at three quarters full, to half full
+            if ((used + 1) * 4 > table.length * 3) {
+                rehash(Math.max(8, Integer.highestOneBit(Math.max(1, size) * 4)));
+            }
+            int[] cells = table;
+            int mask = cells.length - 1;
+            int insertAt = -1;
+            for (int i = hash(slot) & mask; ; i = (i + 1) & mask) {
+                if (cells[i] == slot) {
+                    return;
+                }
+                if (cells[i] == REMOVED && insertAt < 0) {
+                    insertAt = i;
+                } else if (cells[i] == FREE) {
+                    if (insertAt < 0) {
+                        insertAt = i;
+                        used++;
+                    }
+                    break;
+                }
+            }
+            cells[insertAt] = slot;
+            size++;
+            // Publishes the cell to readers that read the table afterwards
+            table = cells;
+        }
+
+        /**
+         * Removes a slot, and returns whether the set has no slots left.
+         */
+        private boolean remove(int slot) {
+            int[] cells = table;
+            int mask = cells.length - 1;
+            for (int i = hash(slot) & mask; cells[i] != FREE; i = (i + 1) & mask) {
+                if (cells[i] == slot) {
+                    cells[i] = REMOVED;
+                    size--;
+                    break;
+                }
+            }
+            return size == 0;
+        }
+
+        private int size() {
+            return size;
+        }
+
+        private int[] snapshot() {
+            return table;
+        }
+
+        private void rehash(int capacity) {
+            int[] cells = newTable(capacity);
+            int mask = capacity - 1;
+            for (int slot : table) {
+                if (slot >= 0) {
+                    int i = hash(slot) & mask;
+                    while (cells[i] != FREE) {
+                        i = (i + 1) & mask;
+                    }
+                    cells[i] = slot;
+                }
+            }
+            used = size;
+            table = cells;
+        }
+
+        private static int[] newTable(int capacity) {
+            int[] cells = new int[capacity];
+            Arrays.fill(cells, FREE);
+            return cells;
+        }
+
+        /**
+         * Spreads the slots over the table. Slots of a trigram often follow a pattern, such as
+         * the slots of texts that end in the same digits, which would share the low bits.
+         */
+        private static int hash(int slot) {
+            int hash = slot * 0x9E3779B9;
+            return hash ^ (hash >>> 16);
+        }
+    }
+
+    /**
+     * Growable list of slots, to collect the slots of a trigram before building its set.
+     */
+    private static final class SlotList {
+
+        private int[] slots = new int[4];
+        private int size;
+
+        private void add(int slot) {
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size * 2);
+            }
+            slots[size++] = slot;
+        }
+    }
+}
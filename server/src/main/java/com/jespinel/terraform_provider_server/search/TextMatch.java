@@ -0,0 +1,50 @@
+package com.jespinel.terraform_provider_server.search;
+
+/**
+ * How a text must match a search query. Texts and queries are compared ignoring case.
+ */
+public enum TextMatch {
+
+    /**
+     * The text starts with the query.
+     */
+    PREFIX(1) {
+        @Override
+        boolean matches(String text, String query) {
+            return text.regionMatches(true, 0, query, 0, query.length());
+        }
+    },
+
+    /**
+     * The text contains the query. Queries need at least {@link TextIndex#GRAM_LENGTH}
+     * characters, to be looked up by trigram.
+     */
+    SUBSTRING(TextIndex.GRAM_LENGTH) {
+        @Override
+        boolean matches(String text, String query) {
+            for (int i = 0; i <= text.length() - query.length(); i++) {
+                if (text.regionMatches(true, i, query, 0, query.length())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    };
+
+    private final int minQueryLength;
+
+    TextMatch(int minQueryLength) {
+        this.minQueryLength = minQueryLength;
+    }
+
+    /**
+     * Returns the minimum number of characters of a query.
+     *
+     * @return The minimum length of a query.
+     */
+    public int getMinQueryLength() {
+        return minQueryLength;
+    }
+
+    abstract boolean matches(String text, String query);
+}
@@ -0,0 +1,98 @@
+package com.jespinel.terraform_provider_server.storage;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Actions that must not run before the write that caused them is durable, such as the
+ * publication of a change.
+ * <p>
+ * A durable store applies each write to the stores it wraps between {@link #begin()} and
+ * {@link #end(long)}, which attaches the actions they defer to the record of the write in the
+ * {@link WriteAheadLog}. Once the record is durable, the store calls {@link #runUntil(long)},
+ * which runs the actions in the order of their records, so the actions of the writes of an
+ * entity run in the order the writes were applied. Outside of a durable write, actions run
+ * right away.
+ */
+public class DeferredActions {
+
+    /**
+     * Actions deferred by the write the current thread applies, or null if it applies none.
+     */
+    private final ThreadLocal<List<Runnable>> deferred = new ThreadLocal<>();
+
+    /**
+     * Actions waiting for their record, in the order of the records of the same entity.
+     */
+    private final Queue<Pending> pending = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Runs an action once the write the current thread applies is durable, or right away if it
+     * does not apply a durable write.
+     */
+    public void run(Runnable action) {
+        List<Runnable> actions = deferred.get();
+        if (actions == null) {
+            action.run();
+        } else {
+            actions.add(action);
+        }
+    }
+
+    /**
+     * Starts deferring the actions of the current thread.
+     */
+    public void begin() {
+        deferred.set(new ArrayList<>());
+    }
+
+    /**
+     * Stops deferring the actions of the current thread, and attaches the ones it deferred to a
+     * record. Must be called while the entity of the write is locked, right after the record is
+     * appended.
+     *
+     * @param sequence Sequence number of the record, or zero if the write failed or changed
+     *                 nothing, to drop the actions.
+     */
+    public void end(long sequence) {
+        List<Runnable> actions = deferred.get();
+        deferred.remove();
+        if (sequence > 0 && actions != null && !actions.isEmpty()) {
+            pending.add(new Pending(sequence, actions));
+        }
+    }
+
+    /**
+     * Runs the actions of the records up to the given one, which must be durable, as must every
+     * record before it.
+     */
+    public void runUntil(long sequence) {
+        if (pending.isEmpty()) {
+            return;
+        }
+        synchronized (pending) {
+            Iterator<Pending> iterator = pending.iterator();
+            while (iterator.hasNext()) {
+                Pending next = iterator.next();
+                if (next.sequence <= sequence) {
+                    iterator.remove();
+                    next.actions.forEach(Runnable::run);
+                }
+            }
+        }
+    }
+
+    private static final class Pending {
+
+        private final long sequence;
+        private final List<Runnable> actions;
+
+        private Pending(long sequence, List<Runnable> actions) {
+            this.sequence = sequence;
+            this.actions = actions;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.jespinel.terraform_provider_server.storage;
+
+/**
+ * When a write to the {@link WriteAheadLog} is acknowledged.
+ */
+public enum Durability {
+
+    /**
+     * After the record is synced to disk on its own. Throughput is bounded by the sync rate
+     * of the disk.
+     */
+    SYNC,
+
+    /**
+     * After the record is synced to disk together with the other records written in the same
+     * group commit window.
+     */
+    GROUP,
+
+    /**
+     * As soon as the record is written to the memory-mapped segment. The operating system
+     * syncs it later, so a machine crash may lose the latest writes.
+     */
+    ASYNC
+}
@@ -0,0 +1,31 @@
+package com.jespinel.terraform_provider_server.storage;
+
+import java.util.UUID;
+
+/**
+ * Picks the partition of an entity from the hash of its ID.
+ */
+public final class Partitions {
+
+    private Partitions() {
+    }
+
+    /**
+     * Rounds a number of partitions up to a power of two, so a partition is picked with a mask.
+     */
+    public static int size(int partitions) {
+        return partitions <= 1 ? 1 : Integer.highestOneBit(partitions - 1) << 1;
+    }
+
+    /**
+     * Returns the partition of an ID.
+     *
+     * @param id   ID of an entity.
+     * @param size Number of partitions, a power of two.
+     * @return The index of the partition.
+     */
+    public static int of(UUID id, int size) {
+        int hash = id.hashCode();
+        return (hash ^ (hash >>> 16)) & (size - 1);
+    }
+}
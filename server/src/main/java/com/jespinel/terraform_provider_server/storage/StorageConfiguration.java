@@ -0,0 +1,132 @@
+package com.jespinel.terraform_provider_server.storage;
+
+import com.jespinel.terraform_provider_server.books.Book;
+import com.jespinel.terraform_provider_server.books.BookStore;
+import com.jespinel.terraform_provider_server.books.DurableBookStore;
+import com.jespinel.terraform_provider_server.books.InMemoryBookStore;
+import com.jespinel.terraform_provider_server.books.PartitionedBookStore;
+import com.jespinel.terraform_provider_server.books.PublishingBookStore;
+import com.jespinel.terraform_provider_server.books.ReplicatedBookStore;
+import com.jespinel.terraform_provider_server.books.RevisionedBookStore;
+import com.jespinel.terraform_provider_server.changes.ChangeFeed;
+import com.jespinel.terraform_provider_server.replication.ChangeLog;
+import com.jespinel.terraform_provider_server.sync.RevisionIndex;
+import com.jespinel.terraform_provider_server.words.DurableWordStore;
+import com.jespinel.terraform_provider_server.words.InMemoryWordStore;
+import com.jespinel.terraform_provider_server.words.PartitionedWordStore;
+import com.jespinel.terraform_provider_server.words.PublishingWordStore;
+import com.jespinel.terraform_provider_server.words.ReplicatedWordStore;
+import com.jespinel.terraform_provider_server.words.RevisionedWordStore;
+import com.jespinel.terraform_provider_server.words.Word;
+import com.jespinel.terraform_provider_server.words.WordResponse;
+import com.jespinel.terraform_provider_server.words.WordStore;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * Creates the book and word stores of the engine selected by {@code storage.engine}, and makes
+ * them durable when {@code storage.persistence.enabled} is set. On a primary, the changes the
+ * stores apply are also appended to the change logs of the replicas. The changes are published
+ * to the change feed, unless {@code changes.enabled} is false, and recorded with their
+ * revisions, unless {@code sync.enabled} is false. The stores of each kind of entity share one
+ * {@link StripedLocks} and one {@link DeferredActions}, so the durable store, which wraps the
+ * others, publishes and records the changes once they are durable.
+ */
+@Configuration
+@EnableConfigurationProperties(StorageProperties.class)
+public class StorageConfiguration {
+
+    @Bean
+    public BookStore bookStore(StorageProperties properties, ObjectProvider<ChangeLog<Book>> bookChangeLog,
+                               ObjectProvider<ChangeFeed> changeFeed,
+                               ObjectProvider<RevisionIndex<Book>> bookRevisions) throws IOException {
+
+        BookStore store = createBookStore(properties);
+        StripedLocks locks = new StripedLocks(StripedLocks.DEFAULT_STRIPES);
+        DeferredActions actions = new DeferredActions();
+        ChangeLog<Book> changeLog = bookChangeLog.getIfAvailable();
+        if (changeLog != null) {
+            store = new ReplicatedBookStore(store, changeLog, locks);
+        }
+        ChangeFeed feed = changeFeed.getIfAvailable();
+        if (feed != null) {
+            store = new PublishingBookStore(store, feed, locks, actions);
+        }
+        RevisionIndex<Book> revisions = bookRevisions.getIfAvailable();
+        if (revisions != null) {
+            store = new RevisionedBookStore(store, revisions, locks, actions);
+        }
+        StorageProperties.Persistence persistence = properties.getPersistence();
+        if (!persistence.isEnabled()) {
+            return store;
+        }
+        return DurableBookStore.open(store, createLog(persistence, "books"), locks, actions);
+    }
+
+    @Bean
+    public WordStore wordStore(StorageProperties properties, ObjectProvider<ChangeLog<Word>> wordChangeLog,
+                               ObjectProvider<ChangeFeed> changeFeed,
+                               ObjectProvider<RevisionIndex<WordResponse>> wordRevisions) throws IOException {
+
+        WordStore store = createWordStore(properties);
+        StripedLocks locks = new StripedLocks(StripedLocks.DEFAULT_STRIPES);
+        DeferredActions actions = new DeferredActions();
+        ChangeLog<Word> changeLog = wordChangeLog.getIfAvailable();
+        if (changeLog != null) {
+            store = new ReplicatedWordStore(store, changeLog, locks);
+        }
+        ChangeFeed feed = changeFeed.getIfAvailable();
+        if (feed != null) {
+            store = new PublishingWordStore(store, feed, locks, actions);
+        }
+        RevisionIndex<WordResponse> revisions = wordRevisions.getIfAvailable();
+        if (revisions != null) {
+            store = new RevisionedWordStore(store, revisions, locks, actions);
+        }
+        StorageProperties.Persistence persistence = properties.getPersistence();
+        if (!persistence.isEnabled()) {
+            return store;
+        }
+        return DurableWordStore.open(store, createLog(persistence, "words"), locks, actions);
+    }
+
+    private static BookStore createBookStore(StorageProperties properties) {
+        StorageEngine engine = properties.getEngine();
+        switch (engine) {
+            case MEMORY:
+                return new InMemoryBookStore();
+            case PARTITIONED:
+                return new PartitionedBookStore(properties.getPartitions());
+            default:
+                throw new IllegalStateException("Unsupported storage engine: " + engine);
+        }
+    }
+
+    private static WordStore createWordStore(StorageProperties properties) {
+        StorageEngine engine = properties.getEngine();
+        switch (engine) {
+            case MEMORY:
+                return new InMemoryWordStore();
+            case PARTITIONED:
+                return new PartitionedWordStore(properties.getPartitions());
+            default:
+                throw new IllegalStateException("Unsupported storage engine: " + engine);
+        }
+    }
+
+    private static WriteAheadLog createLog(StorageProperties.Persistence persistence, String name) {
+        return new WriteAheadLog(
+            Paths.get(persistence.getDirectory(), name),
+            (int) persistence.getSegmentSize().toBytes(),
+            persistence.getCompactionSegments(),
+            persistence.getDurability(),
+            persistence.getGroupCommitWindow(),
+            persistence.getGroupCommitSize());
+    }
+}
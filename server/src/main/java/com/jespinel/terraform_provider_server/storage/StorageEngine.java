@@ -0,0 +1,17 @@
+package com.jespinel.terraform_provider_server.storage;
+
+/**
+ * Engines available to store books and words.
+ */
+public enum StorageEngine {
+
+    /**
+     * Concurrent hash maps on the heap.
+     */
+    MEMORY,
+
+    /**
+     * Hash maps on the heap, split into partitions by ID, each with its own indexes and lock.
+     */
+    PARTITIONED
+}
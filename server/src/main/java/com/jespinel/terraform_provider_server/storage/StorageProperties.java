@@ -0,0 +1,72 @@
+package com.jespinel.terraform_provider_server.storage;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+import lombok.Data;
+
+/**
+ * Storage settings, under the {@code storage} prefix.
+ */
+@Data
+@ConfigurationProperties(prefix = "storage")
+public class StorageProperties {
+
+    /**
+     * Engine used to store books and words.
+     */
+    private StorageEngine engine = StorageEngine.MEMORY;
+
+    /**
+     * Number of partitions of the partitioned engine, rounded up to a power of two.
+     */
+    private int partitions = 16;
+
+    private final Persistence persistence = new Persistence();
+
+    /**
+     * Settings of the write-ahead log, under the {@code storage.persistence} prefix.
+     */
+    @Data
+    public static class Persistence {
+
+        /**
+         * Whether changes are written to a log and replayed on startup.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Directory of the logs. Books and words are logged in subdirectories.
+         */
+        private String directory = "data";
+
+        /**
+         * Size of each log segment file.
+         */
+        private DataSize segmentSize = DataSize.ofMegabytes(64);
+
+        /**
+         * Number of segments written since the last snapshot that triggers a compaction.
+         */
+        private int compactionSegments = 4;
+
+        /**
+         * When writes are acknowledged: after their own sync, after the sync of their group
+         * commit, or without waiting for a sync.
+         */
+        private Durability durability = Durability.GROUP;
+
+        /**
+         * Time a group commit waits for more writes before it syncs. With zero, a sync starts
+         * as soon as the previous one ends, and groups the writes that arrived meanwhile.
+         */
+        private Duration groupCommitWindow = Duration.ZERO;
+
+        /**
+         * Number of waiting writes that triggers a group commit before the window ends.
+         */
+        private int groupCommitSize = 256;
+    }
+}
@@ -0,0 +1,34 @@
+package com.jespinel.terraform_provider_server.storage;
+
+/**
+ * Fixed set of monitors, picked by the hash of a key. Two writes of the same key always use
+ * the same monitor, while writes of different keys rarely contend.
+ */
+public class StripedLocks {
+
+    /**
+     * Number of monitors of the locks of the books, and of the words.
+     */
+    public static final int DEFAULT_STRIPES = 1024;
+
+    private final Object[] locks;
+
+    /**
+     * @param stripes Number of monitors, rounded up to a power of two.
+     */
+    public StripedLocks(int stripes) {
+        int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        locks = new Object[size];
+        for (int i = 0; i < size; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * Returns the monitor of the given key.
+     */
+    public Object get(Object key) {
+        int hash = key.hashCode();
+        return locks[(hash ^ (hash >>> 16)) & (locks.length - 1)];
+    }
+}
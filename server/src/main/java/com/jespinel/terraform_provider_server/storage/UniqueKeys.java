@@ -0,0 +1,75 @@
+package com.jespinel.terraform_provider_server.storage;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Constraint table of a partitioned store: the owner of every unique key, such as the ID of the
+ * book with a title. Entities are partitioned by ID, so two entities with the same key are
+ * usually in different partitions; the table is partitioned by key instead, so the check and
+ * the claim of a key take the lock of a single partition of the table.
+ */
+public class UniqueKeys {
+
+    private final Partition[] partitions;
+
+    /**
+     * @param partitions Number of partitions, rounded up to a power of two.
+     */
+    public UniqueKeys(int partitions) {
+        int size = Partitions.size(partitions);
+        this.partitions = new Partition[size];
+        for (int i = 0; i < size; i++) {
+            this.partitions[i] = new Partition();
+        }
+    }
+
+    /**
+     * Claims a key for an entity.
+     *
+     * @param key   Unique key.
+     * @param owner ID of the entity.
+     * @return Whether the entity owns the key, because it was free or already owned by it.
+     */
+    public boolean claim(String key, UUID owner) {
+        Partition partition = partition(key);
+        synchronized (partition) {
+            UUID holder = partition.owners.putIfAbsent(key, owner);
+            return holder == null || holder.equals(owner);
+        }
+    }
+
+    /**
+     * Frees a key, if the entity owns it.
+     *
+     * @param key   Unique key.
+     * @param owner ID of the entity.
+     */
+    public void release(String key, UUID owner) {
+        Partition partition = partition(key);
+        synchronized (partition) {
+            partition.owners.remove(key, owner);
+        }
+    }
+
+    /**
+     * Returns the ID of the entity that owns a key, or null if it is free.
+     */
+    public UUID getOwner(String key) {
+        Partition partition = partition(key);
+        synchronized (partition) {
+            return partition.owners.get(key);
+        }
+    }
+
+    private Partition partition(String key) {
+        int hash = key.hashCode();
+        return partitions[(hash ^ (hash >>> 16)) & (partitions.length - 1)];
+    }
+
+    private static final class Partition {
+
+        private final Map<String, UUID> owners = new HashMap<>();
+    }
+}
@@ -0,0 +1,530 @@
+package com.jespinel.terraform_provider_server.storage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of records, stored in memory-mapped segment files.
+ * <p>
+ * Each record is framed as {@code [length][crc32][type][payload]}, where the length covers
+ * the type and the payload. A zero length marks the end of a segment. Once enough segments
+ * pile up, the log is compacted in the background: a new segment is started, the state
+ * machine writes every live entry to a snapshot, and the segments before the new one are
+ * deleted. The snapshot is fuzzy (writes keep going while it is taken), which is fine because
+ * every write that could be missing from it is also in the segments that are kept.
+ * <p>
+ * On {@link #open(StateMachine)} the latest snapshot and the segments after it are replayed,
+ * and a new segment is started for the writes of this process.
+ * <p>
+ * {@link #append} returns the sequence number of the record, and {@link #awaitDurable} blocks
+ * until that record is on disk, as defined by the {@link Durability} of the log. With
+ * {@link Durability#GROUP} a committer thread syncs every record appended since its previous
+ * sync, so concurrent writers share a single sync. It can wait for a window before each sync,
+ * cut short when enough records are waiting, to build larger groups.
+ */
+public class WriteAheadLog implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(WriteAheadLog.class);
+
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String SNAPSHOT_SUFFIX = ".snapshot";
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+
+    /**
+     * Length and CRC of a record.
+     */
+    private static final int HEADER_SIZE = 8;
+
+    /**
+     * Receives the records of the log and writes snapshots of its state.
+     */
+    public interface StateMachine {
+
+        /**
+         * Applies a record read from a snapshot or a segment.
+         *
+         * @param type    Type of the record.
+         * @param payload Payload of the record.
+         */
+        void replay(byte type, ByteBuffer payload);
+
+        /**
+         * Writes the current state as a sequence of records that rebuild it when replayed.
+         *
+         * @param sink Destination of the records.
+         * @throws IOException If the snapshot could not be written.
+         */
+        void snapshot(RecordSink sink) throws IOException;
+    }
+
+    /**
+     * Destination of snapshot records.
+     */
+    @FunctionalInterface
+    public interface RecordSink {
+
+        void write(byte type, byte[] payload) throws IOException;
+    }
+
+    private final Path directory;
+    private final int segmentSize;
+    private final int compactionSegments;
+    private final Durability durability;
+    private final long groupCommitWindowNanos;
+    private final int groupCommitSize;
+    private final ExecutorService compactor;
+    private final AtomicBoolean compacting = new AtomicBoolean();
+    private final CRC32 crc = new CRC32();
+
+    /**
+     * Wakes the committer up when records are waiting to be synced.
+     */
+    private final ReentrantLock committerLock = new ReentrantLock();
+    private final Condition committerSignal = committerLock.newCondition();
+
+    /**
+     * Whether the committer waits for a first record. Writers only wake it up then, not while
+     * it waits for the end of its window.
+     */
+    private volatile boolean committerIdle;
+
+    /**
+     * Wakes writers up when their records are synced. Writers wait on a lock rather than a
+     * monitor, so a virtual thread that waits releases its carrier thread.
+     */
+    private final ReentrantLock durableLock = new ReentrantLock();
+    private final Condition durableSignal = durableLock.newCondition();
+
+    private StateMachine stateMachine;
+    private MappedByteBuffer segment;
+    private long segmentIndex;
+    private volatile long snapshotIndex;
+    private Thread committer;
+    private volatile boolean closed;
+
+    /**
+     * Sequence number of the last appended record.
+     */
+    private volatile long appended;
+
+    /**
+     * Sequence number of the last record synced to disk.
+     */
+    private volatile long durable;
+
+    /**
+     * @param directory          Directory of the segments and snapshots.
+     * @param segmentSize        Size in bytes of each segment file.
+     * @param compactionSegments Number of segments written since the last snapshot that
+     *                           triggers a compaction.
+     * @param durability         When appended records are acknowledged.
+     * @param groupCommitWindow  Time a group commit waits for more records before it syncs.
+     * @param groupCommitSize    Number of waiting records that triggers a group commit before
+     *                           the window ends.
+     */
+    public WriteAheadLog(Path directory, int segmentSize, int compactionSegments, Durability durability,
+                         Duration groupCommitWindow, int groupCommitSize) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.compactionSegments = compactionSegments;
+        this.durability = durability;
+        this.groupCommitWindowNanos = groupCommitWindow.toNanos();
+        this.groupCommitSize = groupCommitSize;
+        this.compactor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "wal-compactor-" + directory.getFileName());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Replays the latest snapshot and the segments written after it, then starts a new
+     * segment. Must be called once, before any append.
+     *
+     * @param stateMachine Receives the replayed records and writes the snapshots.
+     * @throws IOException If the log could not be read or the new segment created.
+     */
+    public synchronized void open(StateMachine stateMachine) throws IOException {
+        this.stateMachine = stateMachine;
+        Files.createDirectories(directory);
+
+        List<Long> snapshots = list(SNAPSHOT_SUFFIX);
+        List<Long> segments = list(SEGMENT_SUFFIX);
+        snapshotIndex = snapshots.isEmpty() ? 0 : snapshots.get(snapshots.size() - 1);
+        if (snapshotIndex > 0) {
+            replaySnapshot(path(snapshotIndex, SNAPSHOT_SUFFIX));
+        }
+
+        long lastIndex = snapshotIndex;
+        for (long index : segments) {
+            if (index >= snapshotIndex) {
+                replaySegment(path(index, SEGMENT_SUFFIX));
+            }
+            lastIndex = Math.max(lastIndex, index);
+        }
+        deleteBefore(snapshotIndex);
+        for (Path temporary : listFiles(TEMPORARY_SUFFIX)) {
+            Files.delete(temporary);
+        }
+
+        segmentIndex = lastIndex + 1;
+        startSegment();
+        if (durability == Durability.GROUP) {
+            committer = new Thread(this::runCommitter, "wal-committer-" + directory.getFileName());
+            committer.setDaemon(true);
+            committer.start();
+        }
+        LOGGER.info("Opened write-ahead log {} at segment {}", directory, segmentIndex);
+    }
+
+    /**
+     * Appends a record to the current segment, starting a new segment if it is full.
+     * With {@link Durability#SYNC} the segment is synced before returning.
+     *
+     * @param type    Type of the record.
+     * @param payload Payload of the record.
+     * @return The sequence number of the record, to pass to {@link #awaitDurable}.
+     */
+    public synchronized long append(byte type, byte[] payload) {
+        int recordSize = HEADER_SIZE + 1 + payload.length;
+        if (recordSize + Integer.BYTES > segmentSize) {
+            throw new IllegalArgumentException("Record of " + recordSize + " bytes does not fit in a segment");
+        }
+        if (segment.remaining() < recordSize + Integer.BYTES) {
+            rollSegment();
+        }
+
+        crc.reset();
+        crc.update(type);
+        crc.update(payload);
+        segment.putInt(1 + payload.length);
+        segment.putInt((int) crc.getValue());
+        segment.put(type);
+        segment.put(payload);
+
+        long sequence = ++appended;
+        if (durability == Durability.SYNC) {
+            segment.force();
+            durable = sequence;
+        } else if (durability == Durability.GROUP && sequence - durable >= groupCommitSize) {
+            wakeCommitter();
+        }
+        return sequence;
+    }
+
+    /**
+     * Waits until the record with the given sequence number is on disk. Returns immediately
+     * unless the durability of the log is {@link Durability#GROUP}.
+     *
+     * @param sequence Sequence number returned by {@link #append}, or zero.
+     * @throws UncheckedIOException If the thread is interrupted, or the log closed, while it
+     *                              waits.
+     */
+    public void awaitDurable(long sequence) {
+        if (durability != Durability.GROUP || durable >= sequence) {
+            return;
+        }
+
+        // The committer reads appended after it sets committerIdle, and this writer reads
+        // committerIdle after it appended, so either of them sees the other
+        if (committerIdle) {
+            wakeCommitter();
+        }
+        durableLock.lock();
+        try {
+            while (durable < sequence) {
+                if (closed) {
+                    throw new UncheckedIOException(new IOException("The write-ahead log is closed"));
+                }
+                try {
+                    durableSignal.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new UncheckedIOException(new InterruptedIOException("Interrupted waiting for the log"));
+                }
+            }
+        } finally {
+            durableLock.unlock();
+        }
+    }
+
+    /**
+     * Writes the current segment to disk and stops the compactor.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        compactor.shutdown();
+        try {
+            compactor.awaitTermination(1, TimeUnit.MINUTES);
+            if (committer != null) {
+                wakeCommitter();
+                committer.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (segment != null) {
+            commit();
+        }
+    }
+
+    private void wakeCommitter() {
+        committerLock.lock();
+        try {
+            committerSignal.signal();
+        } finally {
+            committerLock.unlock();
+        }
+    }
+
+    /**
+     * Syncs the records appended so far and wakes up the writers waiting for them.
+     */
+    private void commit() {
+        MappedByteBuffer current;
+        long sequence;
+        synchronized (this) {
+            current = segment;
+            sequence = appended;
+        }
+        // Full segments are synced when they are rolled, so only the current one is left
+        current.force();
+
+        durableLock.lock();
+        try {
+            durable = sequence;
+            durableSignal.signalAll();
+        } finally {
+            durableLock.unlock();
+        }
+    }
+
+    /**
+     * Loop of the committer thread: waits for a record, then for the end of the window or
+     * for enough records, and syncs them all at once.
+     */
+    private void runCommitter() {
+        try {
+            while (!closed) {
+                committerLock.lock();
+                try {
+                    committerIdle = true;
+                    while (!closed && appended == durable) {
+                        committerSignal.await();
+                    }
+                    committerIdle = false;
+                    long remaining = groupCommitWindowNanos;
+                    while (!closed && appended - durable < groupCommitSize && remaining > 0) {
+                        remaining = committerSignal.awaitNanos(remaining);
+                    }
+                } finally {
+                    committerLock.unlock();
+                }
+                commit();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            LOGGER.error("Group commit of write-ahead log {} failed", directory, e);
+            closed = true;
+            durableLock.lock();
+            try {
+                durableSignal.signalAll();
+            } finally {
+                durableLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Writes a snapshot of the state machine and deletes the segments it replaces.
+     */
+    void compact() throws IOException {
+        long newSnapshotIndex;
+        synchronized (this) {
+            rollSegment();
+            newSnapshotIndex = segmentIndex;
+        }
+
+        Path temporary = path(newSnapshotIndex, SNAPSHOT_SUFFIX + TEMPORARY_SUFFIX);
+        try (FileOutputStream file = new FileOutputStream(temporary.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+            CRC32 snapshotCrc = new CRC32();
+            stateMachine.snapshot((type, payload) -> {
+                snapshotCrc.reset();
+                snapshotCrc.update(type);
+                snapshotCrc.update(payload);
+                out.writeInt(1 + payload.length);
+                out.writeInt((int) snapshotCrc.getValue());
+                out.writeByte(type);
+                out.write(payload);
+            });
+            out.writeInt(0);
+            out.flush();
+            file.getFD().sync();
+        }
+        Files.move(temporary, path(newSnapshotIndex, SNAPSHOT_SUFFIX), StandardCopyOption.ATOMIC_MOVE);
+
+        snapshotIndex = newSnapshotIndex;
+        deleteBefore(newSnapshotIndex);
+        LOGGER.info("Compacted write-ahead log {} into snapshot {}", directory, newSnapshotIndex);
+    }
+
+    private void rollSegment() {
+        segment.force();
+        segmentIndex++;
+        try {
+            startSegment();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        if (segmentIndex - snapshotIndex >= compactionSegments && compacting.compareAndSet(false, true)) {
+            compactor.execute(() -> {
+                try {
+                    compact();
+                } catch (IOException | RuntimeException e) {
+                    LOGGER.error("Could not compact write-ahead log {}", directory, e);
+                } finally {
+                    compacting.set(false);
+                }
+            });
+        }
+    }
+
+    private void startSegment() throws IOException {
+        Path path = path(segmentIndex, SEGMENT_SUFFIX);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+            StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+    }
+
+    private void replaySegment(Path path) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        CRC32 segmentCrc = new CRC32();
+        while (buffer.remaining() >= HEADER_SIZE) {
+            int length = buffer.getInt();
+            int checksum = buffer.getInt();
+            if (length <= 0 || length > buffer.remaining()) {
+                break;
+            }
+
+            ByteBuffer record = buffer.slice();
+            record.limit(length);
+            segmentCrc.reset();
+            segmentCrc.update(record.duplicate());
+            if ((int) segmentCrc.getValue() != checksum) {
+                LOGGER.warn("Ignoring torn record at the end of {}", path);
+                break;
+            }
+            buffer.position(buffer.position() + length);
+
+            byte type = record.get();
+            stateMachine.replay(type, record.slice());
+        }
+    }
+
+    private void replaySnapshot(Path path) throws IOException {
+        try (InputStream file = Files.newInputStream(path);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(file))) {
+            CRC32 snapshotCrc = new CRC32();
+            while (true) {
+                int length = in.readInt();
+                if (length == 0) {
+                    return;
+                }
+                int checksum = in.readInt();
+                byte type = in.readByte();
+                byte[] payload = new byte[length - 1];
+                in.readFully(payload);
+
+                snapshotCrc.reset();
+                snapshotCrc.update(type);
+                snapshotCrc.update(payload);
+                if ((int) snapshotCrc.getValue() != checksum) {
+                    throw new IOException("Snapshot " + path + " is corrupted");
+                }
+                stateMachine.replay(type, ByteBuffer.wrap(payload));
+            }
+        } catch (EOFException e) {
+            throw new IOException("Snapshot " + path + " is truncated", e);
+        }
+    }
+
+    private void deleteBefore(long index) throws IOException {
+        for (long segmentNumber : list(SEGMENT_SUFFIX)) {
+            if (segmentNumber < index) {
+                Files.delete(path(segmentNumber, SEGMENT_SUFFIX));
+            }
+        }
+        for (long snapshotNumber : list(SNAPSHOT_SUFFIX)) {
+            if (snapshotNumber < index) {
+                Files.delete(path(snapshotNumber, SNAPSHOT_SUFFIX));
+            }
+        }
+    }
+
+    /**
+     * Returns the sorted indexes of the files with the given suffix.
+     */
+    private List<Long> list(String suffix) throws IOException {
+        List<Long> indexes = new ArrayList<>();
+        for (Path path : listFiles(suffix)) {
+            String name = path.getFileName().toString();
+            indexes.add(Long.parseLong(name.substring(0, name.length() - suffix.length())));
+        }
+        Collections.sort(indexes);
+        return indexes;
+    }
+
+    private List<Path> listFiles(String suffix) throws IOException {
+        List<Path> paths = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + suffix)) {
+            for (Path path : stream) {
+                paths.add(path);
+            }
+        }
+        return paths;
+    }
+
+    private Path path(long index, String suffix) {
+        return directory.resolve(String.format("%020d%s", index, suffix));
+    }
+}
@@ -0,0 +1,30 @@
+package com.jespinel.terraform_provider_server.sync;
+
+import java.util.List;
+
+import lombok.Value;
+
+/**
+ * Entities changed since a revision, and the revision to read the next changes from.
+ *
+ * @param <T> Type of the entities.
+ */
+@Value
+public class Delta<T> {
+
+    /**
+     * Last change of each entity changed since the revision, in the order of their revisions.
+     */
+    private List<DeltaItem<T>> items;
+
+    /**
+     * Revision to send as {@code since} to read the next changes. When there are no more
+     * changes, it is the current revision, so it may be greater than the revision of every item.
+     */
+    private long revision;
+
+    /**
+     * Whether there are more changes after this revision, to read right away.
+     */
+    private boolean more;
+}
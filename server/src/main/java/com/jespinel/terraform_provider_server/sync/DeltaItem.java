@@ -0,0 +1,39 @@
+package com.jespinel.terraform_provider_server.sync;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.UUID;
+
+import lombok.Value;
+
+/**
+ * Last change of an entity: the entity as the API returns it, or a tombstone if it was deleted.
+ *
+ * @param <T> Type of the entities.
+ */
+@Value
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class DeltaItem<T> {
+
+    /**
+     * Revision of the change.
+     */
+    private long revision;
+
+    /**
+     * ID of the entity.
+     */
+    private UUID id;
+
+    /**
+     * The entity after the change, or null if it was deleted.
+     */
+    private T entity;
+
+    /**
+     * Whether the entity was deleted.
+     */
+    public boolean isDeleted() {
+        return entity == null;
+    }
+}
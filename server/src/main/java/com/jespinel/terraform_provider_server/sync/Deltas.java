@@ -0,0 +1,48 @@
+package com.jespinel.terraform_provider_server.sync;
+
+import com.jespinel.terraform_provider_server.exceptions.APIException;
+import com.jespinel.terraform_provider_server.pagination.Cursors;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * Reads the changes since a revision for the services of the books and words, and answers their
+ * errors.
+ */
+public final class Deltas {
+
+    private static final APIException DISABLED =
+        new APIException(HttpStatus.NOT_FOUND, "The changes since a revision are not kept, sync.enabled is false");
+    private static final APIException INVALID_SINCE =
+        new APIException(HttpStatus.BAD_REQUEST, "since must not be negative");
+
+    private Deltas() {
+    }
+
+    /**
+     * @param index Revisions of the entities, or null if they are not kept.
+     * @param since Revision of the last change the client has, or 0 if it has none.
+     * @param limit Maximum number of entities, see {@link Cursors#checkLimit(int)}.
+     * @param <T>   Type of the entities.
+     * @return The changes after the revision.
+     * @throws APIException If the revisions are not kept, the revision or the limit are not
+     *                      valid, or the changes after the revision are no longer available,
+     *                      with a 410.
+     */
+    public static <T> Delta<T> since(RevisionIndex<T> index, long since, int limit) throws APIException {
+        if (index == null) {
+            throw DISABLED;
+        }
+        if (since < 0) {
+            throw INVALID_SINCE;
+        }
+        Cursors.checkLimit(limit);
+
+        Delta<T> delta = index.since(since, limit);
+        if (delta == null) {
+            throw new APIException(HttpStatus.GONE, "The changes since revision " + since
+                + " are no longer available, read every entity again");
+        }
+        return delta;
+    }
+}
@@ -0,0 +1,41 @@
+package com.jespinel.terraform_provider_server.sync;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Global revision of the books and words, which every change of either of them increments.
+ * <p>
+ * Revisions are kept in memory. They start from the time the server started, in microseconds,
+ * so the revisions of a previous run are lower than the first revision of this one, and a client
+ * that syncs from one of them is told to read every entity again instead of missing changes.
+ */
+public class RevisionClock {
+
+    private final AtomicLong revision;
+
+    public RevisionClock() {
+        this(TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis()));
+    }
+
+    /**
+     * @param start Revision before the first change.
+     */
+    public RevisionClock(long start) {
+        this.revision = new AtomicLong(start);
+    }
+
+    /**
+     * Returns the revision of a new change.
+     */
+    public long next() {
+        return revision.incrementAndGet();
+    }
+
+    /**
+     * Returns the revision of the last change, or the start revision if there are none.
+     */
+    public long current() {
+        return revision.get();
+    }
+}
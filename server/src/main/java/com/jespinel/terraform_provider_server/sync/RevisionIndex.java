@@ -0,0 +1,180 @@
+package com.jespinel.terraform_provider_server.sync;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Last change of each entity of one kind, sorted by revision, so the entities changed since a
+ * revision are read without visiting the others. Deleted entities are kept as tombstones, so
+ * clients learn about the deletions too.
+ * <p>
+ * Tombstones are compacted once there are more than a maximum, oldest first, or once they are
+ * older than their time to live. A client that syncs from a revision before a compacted
+ * tombstone could miss its deletion, so it is told to read every entity again instead.
+ * <p>
+ * Revisions are taken from the {@link RevisionClock} while the index is locked, so the changes
+ * of this kind are added in the order of their revisions, and a reader never sees a revision
+ * before an earlier one of the same kind is added. The lock is shared by every write of this
+ * kind, so it is only held to take the revision and update the maps; see the
+ * {@code BookStoreCreateBenchmark} for its cost.
+ *
+ * @param <T> Type of the entities.
+ */
+public class RevisionIndex<T> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RevisionIndex.class);
+
+    private final String type;
+    private final RevisionClock clock;
+    private final int maxTombstones;
+    private final long tombstoneTtlNanos;
+
+    /**
+     * Last change of each entity, and the same changes by revision. Guarded by this, like the
+     * tombstones.
+     */
+    private final Map<UUID, Entry<T>> entries = new HashMap<>();
+    private final NavigableMap<Long, Entry<T>> revisions = new TreeMap<>();
+
+    /**
+     * Tombstones in the order of their revisions. A tombstone of an entity that was stored again
+     * stays here until it is compacted, but is no longer counted.
+     */
+    private final ArrayDeque<Entry<T>> tombstones = new ArrayDeque<>();
+    private int tombstoneCount;
+
+    /**
+     * Revisions up to this one may have compacted tombstones.
+     */
+    private long horizon;
+
+    /**
+     * @param type          Kind of entity, such as {@code book}, for the logs.
+     * @param clock         Clock shared by every kind of entity.
+     * @param maxTombstones Maximum number of tombstones.
+     * @param tombstoneTtl  Time a tombstone is kept.
+     */
+    public RevisionIndex(String type, RevisionClock clock, int maxTombstones, Duration tombstoneTtl) {
+        this.type = type;
+        this.clock = clock;
+        this.maxTombstones = maxTombstones;
+        this.tombstoneTtlNanos = tombstoneTtl.toNanos();
+        this.horizon = clock.current();
+    }
+
+    /**
+     * Records the change of an entity with a new revision. Changes of the same entity must be
+     * recorded in the order they were applied.
+     *
+     * @param id     ID of the entity.
+     * @param entity The entity after the change, as the API returns it, or null if it was deleted.
+     * @return The revision of the change.
+     */
+    public long record(UUID id, T entity) {
+        long now = System.nanoTime();
+        synchronized (this) {
+            Entry<T> entry = new Entry<>(clock.next(), id, entity, now);
+            Entry<T> previous = entries.put(id, entry);
+            if (previous != null) {
+                revisions.remove(previous.revision);
+                if (previous.isTombstone()) {
+                    tombstoneCount--;
+                }
+            }
+            revisions.put(entry.revision, entry);
+            if (entry.isTombstone()) {
+                tombstones.add(entry);
+                tombstoneCount++;
+                // Only a new tombstone can take the count over the maximum, and expired ones are
+                // also compacted by the reads, so other changes do not pay for the compaction
+                compact(now);
+            }
+            return entry.revision;
+        }
+    }
+
+    /**
+     * Returns the entities changed since a revision.
+     *
+     * @param since Revision of the last change the client has, or 0 if it has none.
+     * @param limit Maximum number of entities.
+     * @return The changes after the revision, or null if tombstones after it were compacted, or
+     * it is not a revision of this server.
+     */
+    public synchronized Delta<T> since(long since, int limit) {
+        compact(System.nanoTime());
+        long current = clock.current();
+        if (since != 0 && (since < horizon || since > current)) {
+            return null;
+        }
+
+        List<DeltaItem<T>> items = new ArrayList<>(Math.min(limit, revisions.size()));
+        for (Entry<T> entry : revisions.tailMap(since, false).values()) {
+            if (items.size() == limit) {
+                return new Delta<>(items, items.get(limit - 1).getRevision(), true);
+            }
+            items.add(new DeltaItem<>(entry.revision, entry.id, entry.entity));
+        }
+        // Revisions of this kind up to the current one are all in the index, since they are
+        // taken while it is locked
+        return new Delta<>(items, current, false);
+    }
+
+    /**
+     * Returns the number of tombstones.
+     */
+    public synchronized int getTombstones() {
+        return tombstoneCount;
+    }
+
+    /**
+     * Removes the tombstones over the maximum, and the expired ones.
+     */
+    private void compact(long now) {
+        Entry<T> oldest;
+        while ((oldest = tombstones.peek()) != null
+            && (tombstoneCount > maxTombstones || now - oldest.time >= tombstoneTtlNanos
+            || entries.get(oldest.id) != oldest)) {
+
+            tombstones.poll();
+            if (entries.get(oldest.id) != oldest) {
+                // The entity was stored again, its tombstone was already replaced
+                continue;
+            }
+            entries.remove(oldest.id);
+            revisions.remove(oldest.revision);
+            tombstoneCount--;
+            horizon = oldest.revision;
+            LOGGER.debug("event={}.tombstone_compacted id={} revision={}", type, oldest.id, oldest.revision);
+        }
+    }
+
+    private static final class Entry<T> {
+
+        private final long revision;
+        private final UUID id;
+        private final T entity;
+        private final long time;
+
+        private Entry(long revision, UUID id, T entity, long time) {
+            this.revision = revision;
+            this.id = id;
+            this.entity = entity;
+            this.time = time;
+        }
+
+        private boolean isTombstone() {
+            return entity == null;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.jespinel.terraform_provider_server.sync;
+
+import com.jespinel.terraform_provider_server.books.Book;
+import com.jespinel.terraform_provider_server.words.WordResponse;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Creates the revision clock shared by books and words, and the revisions of each kind, unless
+ * {@code sync.enabled} is false. The {@code StorageConfiguration} wraps the stores to record
+ * their changes in them.
+ */
+@Configuration
+@EnableConfigurationProperties(SyncProperties.class)
+@ConditionalOnProperty(name = "sync.enabled", havingValue = "true", matchIfMissing = true)
+public class SyncConfiguration {
+
+    @Bean
+    public RevisionClock revisionClock() {
+        return new RevisionClock();
+    }
+
+    @Bean
+    public RevisionIndex<Book> bookRevisions(RevisionClock revisionClock, SyncProperties properties) {
+        return new RevisionIndex<>("book", revisionClock, properties.getMaxTombstones(), properties.getTombstoneTtl());
+    }
+
+    @Bean
+    public RevisionIndex<WordResponse> wordRevisions(RevisionClock revisionClock, SyncProperties properties) {
+        return new RevisionIndex<>("word", revisionClock, properties.getMaxTombstones(), properties.getTombstoneTtl());
+    }
+}
@@ -0,0 +1,32 @@
+package com.jespinel.terraform_provider_server.sync;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+import lombok.Data;
+
+/**
+ * Settings of the delta sync of books and words, under the {@code sync} prefix.
+ */
+@Data
+@ConfigurationProperties(prefix = "sync")
+public class SyncProperties {
+
+    /**
+     * Whether the books and words changed since a revision can be read at
+     * {@code /books/changes} and {@code /words/changes}.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Maximum number of tombstones of deleted books, and of deleted words. When it is reached,
+     * the oldest tombstones are compacted first.
+     */
+    private int maxTombstones = 100_000;
+
+    /**
+     * Time a tombstone is kept after its deletion.
+     */
+    private Duration tombstoneTtl = Duration.ofHours(24);
+}
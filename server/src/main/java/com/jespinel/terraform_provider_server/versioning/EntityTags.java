@@ -0,0 +1,80 @@
+package com.jespinel.terraform_provider_server.versioning;
+
+import java.util.UUID;
+
+/**
+ * Entity tags of versioned entities. The tag of an entity is its ID and its version, quoted, so
+ * an entity deleted and created again with the same title or word, which starts again at
+ * version 1, never has the tag of the old one.
+ * <p>
+ * The JSON and the CBOR representations of an entity are different bytes, so they have
+ * different strong tags: the tag of the CBOR one ends with {@value #CBOR_SUFFIX}.
+ */
+public final class EntityTags {
+
+    /**
+     * Expected version of unconditional writes, which apply to any version.
+     */
+    public static final long ANY_VERSION = 0;
+
+    /**
+     * Expected version of writes whose precondition cannot hold. Versions start at 1, so no
+     * entity has it.
+     */
+    public static final long NO_VERSION = -1;
+
+    /**
+     * Suffix of the tags of the CBOR representations.
+     */
+    public static final String CBOR_SUFFIX = "-cbor";
+
+    private EntityTags() {
+    }
+
+    /**
+     * Returns the entity tag of the given version of an entity.
+     *
+     * @param id      ID of the entity.
+     * @param version Version of the entity.
+     * @param cbor    Whether the tag is the one of the CBOR representation.
+     * @return The tag, such as {@code b23591f9-e5ba-4070-b458-8ca47c87b722-2}, without quotes, as
+     * {@code ResponseEntity} adds them.
+     */
+    public static String of(UUID id, long version, boolean cbor) {
+        return cbor ? id + "-" + version + CBOR_SUFFIX : id + "-" + version;
+    }
+
+    /**
+     * Returns the version an {@code If-Match} header expects.
+     *
+     * @param id      ID of the entity to update.
+     * @param ifMatch Value of the header, or null if the request does not have it.
+     * @return {@link #ANY_VERSION} if there is no header or it is {@code *}, the version of the
+     * tag if it is a single strong tag of the entity, in any representation, or
+     * {@link #NO_VERSION} otherwise.
+     */
+    public static long parseIfMatch(UUID id, String ifMatch) {
+        if (ifMatch == null) {
+            return ANY_VERSION;
+        }
+
+        String tag = ifMatch.trim();
+        if (tag.equals("*")) {
+            return ANY_VERSION;
+        }
+        String prefix = "\"" + id + "-";
+        if (!tag.startsWith(prefix) || tag.length() < prefix.length() + 2 || tag.charAt(tag.length() - 1) != '"') {
+            return NO_VERSION;
+        }
+        int end = tag.length() - 1;
+        if (tag.endsWith(CBOR_SUFFIX + "\"")) {
+            end -= CBOR_SUFFIX.length();
+        }
+        try {
+            long version = Long.parseLong(tag.substring(prefix.length(), end));
+            return version > 0 ? version : NO_VERSION;
+        } catch (NumberFormatException e) {
+            return NO_VERSION;
+        }
+    }
+}
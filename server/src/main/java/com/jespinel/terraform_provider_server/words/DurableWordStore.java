@@ -0,0 +1,302 @@
+package com.jespinel.terraform_provider_server.words;
+
+import com.jespinel.terraform_provider_server.exceptions.DuplicateKeyException;
+import com.jespinel.terraform_provider_server.exceptions.VersionConflictException;
+import com.jespinel.terraform_provider_server.search.TextMatch;
+import com.jespinel.terraform_provider_server.storage.DeferredActions;
+import com.jespinel.terraform_provider_server.storage.Payloads;
+import com.jespinel.terraform_provider_server.storage.StripedLocks;
+import com.jespinel.terraform_provider_server.storage.WriteAheadLog;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Word store that appends every change of another store to a {@link WriteAheadLog}, and
+ * rebuilds that store from the log when it is opened.
+ * <p>
+ * A write releases the lock of its word before it waits until the log says its record is durable.
+ * The stores it wraps may defer actions, such as the publication of a change, to
+ * {@link DeferredActions}. They run once the record of their write is durable, before the write
+ * returns, so nothing outside of the store sees a change that a crash could lose.
+ */
+public class DurableWordStore implements WordStore, WriteAheadLog.StateMachine, Closeable {
+
+    /**
+     * Word written before words had versions, replayed with the first version.
+     */
+    private static final byte PUT_UNVERSIONED = 1;
+    private static final byte DELETE = 2;
+    private static final byte PUT = 3;
+
+    private final WordStore delegate;
+    private final WriteAheadLog log;
+    private final DeferredActions actions;
+    private final StripedLocks locks;
+
+    /**
+     * Sequence number of the last record of the batch run by the current thread, if any.
+     */
+    private final ThreadLocal<long[]> batchSequence = new ThreadLocal<>();
+
+    /**
+     * Words rebuilt from the log, only used while the log is opened.
+     */
+    private Map<UUID, Word> recoveredWords = new HashMap<>();
+
+    private DurableWordStore(WordStore delegate, WriteAheadLog log, StripedLocks locks, DeferredActions actions) {
+        this.delegate = delegate;
+        this.log = log;
+        this.locks = locks;
+        this.actions = actions;
+    }
+
+    /**
+     * Replays the log into an empty store and returns a durable store on top of it.
+     *
+     * @param delegate Empty store that keeps the words.
+     * @param log      Log of the changes to the words.
+     * @return A durable store.
+     * @throws IOException If the log could not be opened.
+     */
+    public static DurableWordStore open(WordStore delegate, WriteAheadLog log) throws IOException {
+        return open(delegate, log, new StripedLocks(StripedLocks.DEFAULT_STRIPES), new DeferredActions());
+    }
+
+    /**
+     * Replays the log into an empty store and returns a durable store on top of it.
+     *
+     * @param delegate Empty store that keeps the words.
+     * @param log      Log of the changes to the words.
+     * @param locks    Locks of the words, shared with the stores that the delegate wraps.
+     * @param actions  Actions deferred by the stores that the delegate wraps.
+     * @return A durable store.
+     * @throws IOException If the log could not be opened.
+     */
+    public static DurableWordStore open(WordStore delegate, WriteAheadLog log, StripedLocks locks,
+                                        DeferredActions actions) throws IOException {
+
+        DurableWordStore store = new DurableWordStore(delegate, log, locks, actions);
+        log.open(store);
+        try {
+            delegate.load(store.recoveredWords.values());
+        } catch (DuplicateKeyException e) {
+            throw new IllegalStateException("The log has more than one entry with the word " + e.getKey(), e);
+        }
+        store.recoveredWords = null;
+        return store;
+    }
+
+    @Override
+    public Optional<Word> get(UUID id) {
+        return delegate.get(id);
+    }
+
+    @Override
+    public Map<UUID, Word> getAll(Collection<UUID> ids) {
+        return delegate.getAll(ids);
+    }
+
+    @Override
+    public List<Word> list(UUID after, int limit) {
+        return delegate.list(after, limit);
+    }
+
+    @Override
+    public List<Word> search(String query, TextMatch match, int limit) {
+        return delegate.search(query, match, limit);
+    }
+
+    @Override
+    public void insert(Word word) throws DuplicateKeyException {
+        byte[] payload = encode(word);
+        long sequence = 0;
+        synchronized (locks.get(word.getId())) {
+            actions.begin();
+            try {
+                delegate.insert(word);
+                sequence = log.append(PUT, payload);
+            } finally {
+                actions.end(sequence);
+            }
+        }
+        awaitDurable(sequence);
+    }
+
+    @Override
+    public Optional<Word> update(Word word, long expectedVersion)
+        throws DuplicateKeyException, VersionConflictException {
+
+        Optional<Word> updatedWord;
+        long sequence = 0;
+        synchronized (locks.get(word.getId())) {
+            actions.begin();
+            try {
+                updatedWord = delegate.update(word, expectedVersion);
+                if (updatedWord.isPresent()) {
+                    sequence = log.append(PUT, encode(updatedWord.get()));
+                }
+            } finally {
+                actions.end(sequence);
+            }
+        }
+        awaitDurable(sequence);
+        return updatedWord;
+    }
+
+    @Override
+    public Optional<Word> delete(UUID id) {
+        Optional<Word> removedWord;
+        long sequence = 0;
+        synchronized (locks.get(id)) {
+            actions.begin();
+            try {
+                removedWord = delegate.delete(id);
+                if (removedWord.isPresent()) {
+                    sequence = log.append(DELETE, encode(id));
+                }
+            } finally {
+                actions.end(sequence);
+            }
+        }
+        awaitDurable(sequence);
+        return removedWord;
+    }
+
+    @Override
+    public void deleteAll() {
+        long[] lastSequence = new long[1];
+        delegate.forEach(word -> {
+            long sequence = 0;
+            synchronized (locks.get(word.getId())) {
+                actions.begin();
+                try {
+                    if (delegate.delete(word.getId()).isPresent()) {
+                        sequence = log.append(DELETE, encode(word.getId()));
+                        lastSequence[0] = sequence;
+                    }
+                } finally {
+                    actions.end(sequence);
+                }
+            }
+        });
+        awaitDurable(lastSequence[0]);
+    }
+
+    @Override
+    public long size() {
+        return delegate.size();
+    }
+
+    @Override
+    public void forEach(Consumer<Word> action) {
+        delegate.forEach(action);
+    }
+
+    @Override
+    public <T> T batch(Supplier<T> writes) {
+        if (batchSequence.get() != null) {
+            return writes.get();
+        }
+
+        long[] lastSequence = new long[1];
+        batchSequence.set(lastSequence);
+        try {
+            return writes.get();
+        } finally {
+            batchSequence.remove();
+            log.awaitDurable(lastSequence[0]);
+            actions.runUntil(lastSequence[0]);
+        }
+    }
+
+    @Override
+    public void replay(byte type, ByteBuffer payload) {
+        switch (type) {
+            case PUT_UNVERSIONED:
+                Word unversionedWord = decode(payload, Word.FIRST_VERSION);
+                recoveredWords.put(unversionedWord.getId(), unversionedWord);
+                break;
+            case PUT:
+                Word word = decode(payload, payload.getLong());
+                recoveredWords.put(word.getId(), word);
+                break;
+            case DELETE:
+                recoveredWords.remove(Payloads.readUUID(payload));
+                break;
+            default:
+                throw new IllegalStateException("Unknown word record type: " + type);
+        }
+    }
+
+    @Override
+    public void snapshot(WriteAheadLog.RecordSink sink) throws IOException {
+        try {
+            delegate.forEach(word -> {
+                try {
+                    sink.write(PUT, encode(word));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        log.close();
+    }
+
+    /**
+     * Waits until the record is durable and runs its deferred actions or, inside a batch, does
+     * both when the batch ends.
+     */
+    private void awaitDurable(long sequence) {
+        long[] lastSequence = batchSequence.get();
+        if (lastSequence == null) {
+            log.awaitDurable(sequence);
+            actions.runUntil(sequence);
+        } else {
+            lastSequence[0] = Math.max(lastSequence[0], sequence);
+        }
+    }
+
+    private static byte[] encode(Word word) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeLong(word.getVersion());
+            Payloads.writeUUID(out, word.getId());
+            Payloads.writeString(out, word.getWord());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] encode(UUID id) {
+        ByteBuffer buffer = ByteBuffer.allocate(16);
+        buffer.putLong(id.getMostSignificantBits());
+        buffer.putLong(id.getLeastSignificantBits());
+        return buffer.array();
+    }
+
+    private static Word decode(ByteBuffer payload, long version) {
+        UUID id = Payloads.readUUID(payload);
+        String word = Payloads.readString(payload);
+        return new Word(id, word, version);
+    }
+}
@@ -0,0 +1,199 @@
+package com.jespinel.terraform_provider_server.words;
+
+import com.jespinel.terraform_provider_server.exceptions.DuplicateKeyException;
+import com.jespinel.terraform_provider_server.exceptions.VersionConflictException;
+import com.jespinel.terraform_provider_server.search.TextIndex;
+import com.jespinel.terraform_provider_server.search.TextMatch;
+import com.jespinel.terraform_provider_server.versioning.EntityTags;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Consumer;
+
+/**
+ * Word store backed by concurrent hash maps.
+ * <p>
+ * Writes to the same word are serialized by the lock {@link ConcurrentHashMap#compute}
+ * holds on its entry, so the reverse and search indexes are always updated together with the
+ * word.
+ */
+public class InMemoryWordStore implements WordStore {
+
+    /**
+     * Map to store words and its IDs.
+     */
+    private final ConcurrentMap<UUID, Word> words = new ConcurrentHashMap<>();
+
+    /**
+     * Reverse index of word IDs by word, used to keep words unique.
+     */
+    private final ConcurrentMap<String, UUID> ids = new ConcurrentHashMap<>();
+
+    /**
+     * IDs of the words in order, used to list words in pages. An ID is added before its word
+     * and removed after it, so it may briefly be here without a word, but never the opposite.
+     */
+    private final NavigableSet<UUID> sortedIds = new ConcurrentSkipListSet<>();
+
+    /**
+     * Index of the words, to search them by prefix or substring.
+     */
+    private final TextIndex wordIndex = new TextIndex();
+
+    @Override
+    public Optional<Word> get(UUID id) {
+        return Optional.ofNullable(words.get(id));
+    }
+
+    /**
+     * Reads the map directly, without an optional per word.
+     */
+    @Override
+    public Map<UUID, Word> getAll(Collection<UUID> ids) {
+        Map<UUID, Word> found = new HashMap<>(ids.size() * 4 / 3 + 1);
+        for (UUID id : ids) {
+            Word word = words.get(id);
+            if (word != null) {
+                found.put(id, word);
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public List<Word> list(UUID after, int limit) {
+        NavigableSet<UUID> pageIds = after == null ? sortedIds : sortedIds.tailSet(after, false);
+        List<Word> page = new ArrayList<>(Math.min(limit, 1024));
+        for (UUID id : pageIds) {
+            if (page.size() == limit) {
+                break;
+            }
+            Word word = words.get(id);
+            if (word != null) {
+                page.add(word);
+            }
+        }
+        return page;
+    }
+
+    @Override
+    public List<Word> search(String query, TextMatch match, int limit) {
+        return wordIndex.find(query, match, limit, words::get, Word::getWord);
+    }
+
+    @Override
+    public void insert(Word word) throws DuplicateKeyException {
+        if (ids.putIfAbsent(word.getWord(), word.getId()) != null) {
+            throw new DuplicateKeyException(word.getWord());
+        }
+        sortedIds.add(word.getId());
+        wordIndex.add(word.getId(), word.getWord());
+        words.put(word.getId(), word);
+    }
+
+    @Override
+    public void load(Collection<Word> loadedWords) throws DuplicateKeyException {
+        List<UUID> loadedIds = new ArrayList<>(loadedWords.size());
+        for (Word word : loadedWords) {
+            if (ids.putIfAbsent(word.getWord(), word.getId()) != null) {
+                releaseWords(loadedWords, loadedIds.size());
+                throw new DuplicateKeyException(word.getWord());
+            }
+            loadedIds.add(word.getId());
+        }
+        // Each insertion in order follows the previous one, so it walks nodes that are in cache
+        Collections.sort(loadedIds);
+        sortedIds.addAll(loadedIds);
+        wordIndex.addAll(loadedWords, Word::getId, Word::getWord);
+        for (Word word : loadedWords) {
+            words.put(word.getId(), word);
+        }
+    }
+
+    /**
+     * Releases the words claimed by the first words of a load that failed, so the store can be
+     * loaded again.
+     */
+    private void releaseWords(Collection<Word> loadedWords, int claimed) {
+        Iterator<Word> iterator = loadedWords.iterator();
+        for (int i = 0; i < claimed; i++) {
+            Word word = iterator.next();
+            ids.remove(word.getWord(), word.getId());
+        }
+    }
+
+    @Override
+    public Optional<Word> update(Word word, long expectedVersion)
+        throws DuplicateKeyException, VersionConflictException {
+
+        UUID id = word.getId();
+        Word[] updated = new Word[1];
+        Word[] stale = new Word[1];
+        boolean[] conflict = new boolean[1];
+        words.computeIfPresent(id, (key, oldWord) -> {
+            if (expectedVersion != EntityTags.ANY_VERSION && oldWord.getVersion() != expectedVersion) {
+                stale[0] = oldWord;
+                return oldWord;
+            }
+            if (!oldWord.getWord().equals(word.getWord())) {
+                UUID holder = ids.putIfAbsent(word.getWord(), id);
+                if (holder != null && !holder.equals(id)) {
+                    conflict[0] = true;
+                    return oldWord;
+                }
+                ids.remove(oldWord.getWord(), id);
+            }
+            wordIndex.replace(id, oldWord.getWord(), word.getWord());
+            updated[0] = word.withVersion(Math.max(oldWord.getVersion() + 1, word.getVersion()));
+            return updated[0];
+        });
+
+        if (stale[0] != null) {
+            throw new VersionConflictException(id, stale[0].getVersion());
+        }
+        if (conflict[0]) {
+            throw new DuplicateKeyException(word.getWord());
+        }
+        return Optional.ofNullable(updated[0]);
+    }
+
+    @Override
+    public Optional<Word> delete(UUID id) {
+        Word removedWord = words.remove(id);
+        if (removedWord == null) {
+            return Optional.empty();
+        }
+        ids.remove(removedWord.getWord(), id);
+        wordIndex.remove(id, removedWord.getWord());
+        sortedIds.remove(id);
+        return Optional.of(removedWord);
+    }
+
+    @Override
+    public void deleteAll() {
+        for (UUID id : words.keySet()) {
+            delete(id);
+        }
+    }
+
+    @Override
+    public long size() {
+        return words.size();
+    }
+
+    @Override
+    public void forEach(Consumer<Word> action) {
+        words.values().forEach(action);
+    }
+}
@@ -0,0 +1,332 @@
+package com.jespinel.terraform_provider_server.words;
+
+import com.jespinel.terraform_provider_server.exceptions.DuplicateKeyException;
+import com.jespinel.terraform_provider_server.exceptions.VersionConflictException;
+import com.jespinel.terraform_provider_server.search.TextIndex;
+import com.jespinel.terraform_provider_server.search.TextMatch;
+import com.jespinel.terraform_provider_server.storage.Partitions;
+import com.jespinel.terraform_provider_server.storage.UniqueKeys;
+import com.jespinel.terraform_provider_server.versioning.EntityTags;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Word store split into partitions by the hash of the word IDs, like
+ * {@link com.jespinel.terraform_provider_server.books.PartitionedBookStore}. Words are unique
+ * across partitions, so they are claimed in a {@link UniqueKeys} table partitioned by word.
+ */
+public class PartitionedWordStore implements WordStore {
+
+    private final Partition[] partitions;
+    private final UniqueKeys keys;
+
+    /**
+     * @param partitions Number of partitions, rounded up to a power of two. The table of words
+     *                   has as many.
+     */
+    public PartitionedWordStore(int partitions) {
+        int size = Partitions.size(partitions);
+        this.partitions = new Partition[size];
+        for (int i = 0; i < size; i++) {
+            this.partitions[i] = new Partition();
+        }
+        this.keys = new UniqueKeys(size);
+    }
+
+    @Override
+    public Optional<Word> get(UUID id) {
+        return Optional.ofNullable(partition(id).get(id));
+    }
+
+    /**
+     * Groups the IDs by partition, and reads each partition with one acquisition of its lock.
+     */
+    @Override
+    public Map<UUID, Word> getAll(Collection<UUID> ids) {
+        List<List<UUID>> idsByPartition = new ArrayList<>(partitions.length);
+        for (int i = 0; i < partitions.length; i++) {
+            idsByPartition.add(new ArrayList<>());
+        }
+        for (UUID id : ids) {
+            idsByPartition.get(Partitions.of(id, partitions.length)).add(id);
+        }
+
+        Map<UUID, Word> found = new HashMap<>(ids.size() * 4 / 3 + 1);
+        for (int i = 0; i < partitions.length; i++) {
+            List<UUID> partitionIds = idsByPartition.get(i);
+            if (partitionIds.isEmpty()) {
+                continue;
+            }
+            Partition partition = partitions[i];
+            partition.lock.readLock().lock();
+            try {
+                for (UUID id : partitionIds) {
+                    Word word = partition.words.get(id);
+                    if (word != null) {
+                        found.put(id, word);
+                    }
+                }
+            } finally {
+                partition.lock.readLock().unlock();
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public List<Word> list(UUID after, int limit) {
+        List<Word> words = new ArrayList<>();
+        for (Partition partition : partitions) {
+            partition.lock.readLock().lock();
+            try {
+                NavigableSet<UUID> ids = after == null ? partition.sortedIds : partition.sortedIds.tailSet(after, false);
+                int found = 0;
+                for (UUID id : ids) {
+                    if (found == limit) {
+                        break;
+                    }
+                    words.add(partition.words.get(id));
+                    found++;
+                }
+            } finally {
+                partition.lock.readLock().unlock();
+            }
+        }
+        return firstPage(words, Comparator.comparing(Word::getId), limit);
+    }
+
+    @Override
+    public List<Word> search(String query, TextMatch match, int limit) {
+        List<Word> words = new ArrayList<>();
+        for (Partition partition : partitions) {
+            words.addAll(partition.wordIndex.find(query, match, limit, partition::get, Word::getWord));
+        }
+        return firstPage(words, Comparator.comparing(Word::getWord, String.CASE_INSENSITIVE_ORDER), limit);
+    }
+
+    @Override
+    public void insert(Word word) throws DuplicateKeyException {
+        if (!keys.claim(word.getWord(), word.getId())) {
+            throw new DuplicateKeyException(word.getWord());
+        }
+        Partition partition = partition(word.getId());
+        partition.lock.writeLock().lock();
+        try {
+            partition.add(word);
+        } finally {
+            partition.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Claims every word first, then fills each partition with its words, with one
+     * acquisition of its lock. If a word is taken, the words already claimed are released, and
+     * nothing is added.
+     */
+    @Override
+    public void load(Collection<Word> loadedWords) throws DuplicateKeyException {
+        List<List<Word>> wordsByPartition = new ArrayList<>(partitions.length);
+        for (int i = 0; i < partitions.length; i++) {
+            wordsByPartition.add(new ArrayList<>(loadedWords.size() / partitions.length + 1));
+        }
+        int claimed = 0;
+        for (Word word : loadedWords) {
+            if (!keys.claim(word.getWord(), word.getId())) {
+                releaseWords(loadedWords, claimed);
+                throw new DuplicateKeyException(word.getWord());
+            }
+            claimed++;
+            wordsByPartition.get(Partitions.of(word.getId(), partitions.length)).add(word);
+        }
+
+        for (int i = 0; i < partitions.length; i++) {
+            Partition partition = partitions[i];
+            List<Word> words = wordsByPartition.get(i);
+            partition.lock.writeLock().lock();
+            try {
+                partition.addAll(words);
+            } finally {
+                partition.lock.writeLock().unlock();
+            }
+        }
+    }
+
+    private void releaseWords(Collection<Word> loadedWords, int claimed) {
+        Iterator<Word> iterator = loadedWords.iterator();
+        for (int i = 0; i < claimed; i++) {
+            Word word = iterator.next();
+            keys.release(word.getWord(), word.getId());
+        }
+    }
+
+    @Override
+    public Optional<Word> update(Word word, long expectedVersion)
+        throws DuplicateKeyException, VersionConflictException {
+
+        UUID id = word.getId();
+        Partition partition = partition(id);
+        partition.lock.writeLock().lock();
+        try {
+            Word oldWord = partition.words.get(id);
+            if (oldWord == null) {
+                return Optional.empty();
+            }
+            if (expectedVersion != EntityTags.ANY_VERSION && oldWord.getVersion() != expectedVersion) {
+                throw new VersionConflictException(id, oldWord.getVersion());
+            }
+            if (!oldWord.getWord().equals(word.getWord())) {
+                if (!keys.claim(word.getWord(), id)) {
+                    throw new DuplicateKeyException(word.getWord());
+                }
+                keys.release(oldWord.getWord(), id);
+            }
+            Word updatedWord = word.withVersion(Math.max(oldWord.getVersion() + 1, word.getVersion()));
+            partition.replace(oldWord, updatedWord);
+            return Optional.of(updatedWord);
+        } finally {
+            partition.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional<Word> delete(UUID id) {
+        Partition partition = partition(id);
+        Word removedWord;
+        partition.lock.writeLock().lock();
+        try {
+            removedWord = partition.remove(id);
+        } finally {
+            partition.lock.writeLock().unlock();
+        }
+        if (removedWord == null) {
+            return Optional.empty();
+        }
+        keys.release(removedWord.getWord(), id);
+        return Optional.of(removedWord);
+    }
+
+    /**
+     * Deletes the words of each partition one by one, so readers may see some of them deleted
+     * before the others, as with the other stores.
+     */
+    @Override
+    public void deleteAll() {
+        for (Partition partition : partitions) {
+            for (Word word : partition.snapshot()) {
+                delete(word.getId());
+            }
+        }
+    }
+
+    @Override
+    public long size() {
+        long size = 0;
+        for (Partition partition : partitions) {
+            partition.lock.readLock().lock();
+            try {
+                size += partition.words.size();
+            } finally {
+                partition.lock.readLock().unlock();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Visits a copy of each partition in turn, so the action runs without holding its lock.
+     */
+    @Override
+    public void forEach(Consumer<Word> action) {
+        for (Partition partition : partitions) {
+            partition.snapshot().forEach(action);
+        }
+    }
+
+    private Partition partition(UUID id) {
+        return partitions[Partitions.of(id, partitions.length)];
+    }
+
+    /**
+     * Sorts the words merged from every partition, and returns the first page of them. Each
+     * partition gives at most {@code limit} words, since the page cannot have more of them.
+     */
+    private static List<Word> firstPage(List<Word> words, Comparator<Word> order, int limit) {
+        words.sort(order);
+        return words.size() <= limit ? words : new ArrayList<>(words.subList(0, limit));
+    }
+
+    /**
+     * Words of a partition and their IDs in order, guarded by its lock, and the search index of
+     * its words, which is thread safe on its own.
+     */
+    private static final class Partition {
+
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+        private final Map<UUID, Word> words = new HashMap<>();
+        private final NavigableSet<UUID> sortedIds = new TreeSet<>();
+        private final TextIndex wordIndex = new TextIndex();
+
+        private Word get(UUID id) {
+            Lock readLock = lock.readLock();
+            readLock.lock();
+            try {
+                return words.get(id);
+            } finally {
+                readLock.unlock();
+            }
+        }
+
+        private List<Word> snapshot() {
+            Lock readLock = lock.readLock();
+            readLock.lock();
+            try {
+                return new ArrayList<>(words.values());
+            } finally {
+                readLock.unlock();
+            }
+        }
+
+        private void add(Word word) {
+            words.put(word.getId(), word);
+            sortedIds.add(word.getId());
+            wordIndex.add(word.getId(), word.getWord());
+        }
+
+        private void addAll(List<Word> loadedWords) {
+            for (Word word : loadedWords) {
+                words.put(word.getId(), word);
+                sortedIds.add(word.getId());
+            }
+            wordIndex.addAll(loadedWords, Word::getId, Word::getWord);
+        }
+
+        private void replace(Word oldWord, Word newWord) {
+            words.put(newWord.getId(), newWord);
+            wordIndex.replace(newWord.getId(), oldWord.getWord(), newWord.getWord());
+        }
+
+        private Word remove(UUID id) {
+            Word word = words.remove(id);
+            if (word == null) {
+                return null;
+            }
+            sortedIds.remove(id);
+            wordIndex.remove(id, word.getWord());
+            return word;
+        }
+    }
+}
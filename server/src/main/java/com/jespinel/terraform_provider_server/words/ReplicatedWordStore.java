@@ -0,0 +1,114 @@
+package com.jespinel.terraform_provider_server.words;
+
+import com.jespinel.terraform_provider_server.exceptions.DuplicateKeyException;
+import com.jespinel.terraform_provider_server.exceptions.VersionConflictException;
+import com.jespinel.terraform_provider_server.replication.ChangeLog;
+import com.jespinel.terraform_provider_server.search.TextMatch;
+import com.jespinel.terraform_provider_server.storage.StripedLocks;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Word store of a primary, which appends every change of another store to a {@link ChangeLog}
+ * for the replicas, in the order the changes of each word were applied.
+ */
+public class ReplicatedWordStore implements WordStore {
+
+    private final WordStore delegate;
+    private final ChangeLog<Word> log;
+    private final StripedLocks locks;
+
+    /**
+     * @param locks Locks of the words, shared with the other stores of the words.
+     */
+    public ReplicatedWordStore(WordStore delegate, ChangeLog<Word> log, StripedLocks locks) {
+        this.delegate = delegate;
+        this.log = log;
+        this.locks = locks;
+    }
+
+    @Override
+    public Optional<Word> get(UUID id) {
+        return delegate.get(id);
+    }
+
+    @Override
+    public Map<UUID, Word> getAll(Collection<UUID> ids) {
+        return delegate.getAll(ids);
+    }
+
+    @Override
+    public List<Word> list(UUID after, int limit) {
+        return delegate.list(after, limit);
+    }
+
+    @Override
+    public List<Word> search(String query, TextMatch match, int limit) {
+        return delegate.search(query, match, limit);
+    }
+
+    @Override
+    public void insert(Word word) throws DuplicateKeyException {
+        synchronized (locks.get(word.getId())) {
+            delegate.insert(word);
+            log.append(word.getId(), word);
+        }
+    }
+
+    /**
+     * Stores the words recovered when the server starts, without logging them. Replicas copy
+     * them with the rest of the words when they start following the primary.
+     */
+    @Override
+    public void load(Collection<Word> words) throws DuplicateKeyException {
+        delegate.load(words);
+    }
+
+    @Override
+    public Optional<Word> update(Word word, long expectedVersion)
+        throws DuplicateKeyException, VersionConflictException {
+
+        synchronized (locks.get(word.getId())) {
+            Optional<Word> updatedWord = delegate.update(word, expectedVersion);
+            updatedWord.ifPresent(updated -> log.append(updated.getId(), updated));
+            return updatedWord;
+        }
+    }
+
+    @Override
+    public Optional<Word> delete(UUID id) {
+        synchronized (locks.get(id)) {
+            Optional<Word> removedWord = delegate.delete(id);
+            if (removedWord.isPresent()) {
+                log.append(id, null);
+            }
+            return removedWord;
+        }
+    }
+
+    @Override
+    public void deleteAll() {
+        delegate.forEach(word -> delete(word.getId()));
+    }
+
+    @Override
+    public long size() {
+        return delegate.size();
+    }
+
+    @Override
+    public void forEach(Consumer<Word> action) {
+        delegate.forEach(action);
+    }
+
+    @Override
+    public <T> T batch(Supplier<T> writes) {
+        return delegate.batch(writes);
+    }
+}
@@ -0,0 +1,149 @@
+package com.jespinel.terraform_provider_server.words;
+
+import com.jespinel.terraform_provider_server.exceptions.DuplicateKeyException;
+import com.jespinel.terraform_provider_server.exceptions.VersionConflictException;
+import com.jespinel.terraform_provider_server.search.TextMatch;
+import com.jespinel.terraform_provider_server.storage.DeferredActions;
+import com.jespinel.terraform_provider_server.storage.StripedLocks;
+import com.jespinel.terraform_provider_server.sync.RevisionIndex;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Word store that records every change of another store in a {@link RevisionIndex}, once the
+ * other store has applied it. Words are recorded as the API returns them. The words the other
+ * store already has are recorded when it is wrapped, and the ones loaded into it, such as the
+ * ones a durable store recovers, when they are loaded.
+ * <p>
+ * The index has the last change of each word. Under a durable store, changes are only recorded
+ * once they are durable, see {@link DeferredActions}.
+ */
+public class RevisionedWordStore implements WordStore, Closeable {
+
+    private final WordStore delegate;
+    private final RevisionIndex<WordResponse> revisions;
+    private final DeferredActions actions;
+    private final StripedLocks locks;
+
+    /**
+     * @param locks   Locks of the words, shared with the other stores of the words.
+     * @param actions Actions of the durable store that wraps this one, if any.
+     */
+    public RevisionedWordStore(WordStore delegate, RevisionIndex<WordResponse> revisions, StripedLocks locks,
+                               DeferredActions actions) {
+        this.delegate = delegate;
+        this.revisions = revisions;
+        this.locks = locks;
+        this.actions = actions;
+        delegate.forEach(word -> revisions.record(word.getId(), WordResponse.of(word)));
+    }
+
+    @Override
+    public Optional<Word> get(UUID id) {
+        return delegate.get(id);
+    }
+
+    @Override
+    public Map<UUID, Word> getAll(Collection<UUID> ids) {
+        return delegate.getAll(ids);
+    }
+
+    @Override
+    public List<Word> list(UUID after, int limit) {
+        return delegate.list(after, limit);
+    }
+
+    @Override
+    public List<Word> search(String query, TextMatch match, int limit) {
+        return delegate.search(query, match, limit);
+    }
+
+    @Override
+    public void insert(Word word) throws DuplicateKeyException {
+        synchronized (locks.get(word.getId())) {
+            delegate.insert(word);
+            record(word.getId(), WordResponse.of(word));
+        }
+    }
+
+    /**
+     * Stores the words copied from a primary, and records them with new revisions.
+     */
+    @Override
+    public void load(Collection<Word> words) throws DuplicateKeyException {
+        delegate.load(words);
+        for (Word word : words) {
+            revisions.record(word.getId(), WordResponse.of(word));
+        }
+    }
+
+    @Override
+    public Optional<Word> update(Word word, long expectedVersion)
+        throws DuplicateKeyException, VersionConflictException {
+
+        synchronized (locks.get(word.getId())) {
+            Optional<Word> updatedWord = delegate.update(word, expectedVersion);
+            updatedWord.ifPresent(updated -> record(updated.getId(), WordResponse.of(updated)));
+            return updatedWord;
+        }
+    }
+
+    @Override
+    public Optional<Word> delete(UUID id) {
+        synchronized (locks.get(id)) {
+            Optional<Word> removedWord = delegate.delete(id);
+            if (removedWord.isPresent()) {
+                record(id, null);
+            }
+            return removedWord;
+        }
+    }
+
+    /**
+     * Deletes every word in a single batch, so a durable store below waits once.
+     */
+    @Override
+    public void deleteAll() {
+        delegate.batch(() -> {
+            delegate.forEach(word -> delete(word.getId()));
+            return null;
+        });
+    }
+
+    @Override
+    public long size() {
+        return delegate.size();
+    }
+
+    @Override
+    public void forEach(Consumer<Word> action) {
+        delegate.forEach(action);
+    }
+
+    @Override
+    public <T> T batch(Supplier<T> writes) {
+        return delegate.batch(writes);
+    }
+
+    private void record(UUID id, WordResponse entity) {
+        actions.run(() -> revisions.record(id, entity));
+    }
+
+    /**
+     * Closes the other store, if it has to be closed, such as a durable store.
+     */
+    @Override
+    public void close() throws IOException {
+        if (delegate instanceof Closeable) {
+            ((Closeable) delegate).close();
+        }
+    }
+}
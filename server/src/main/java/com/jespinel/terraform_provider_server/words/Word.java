@@ -0,0 +1,24 @@
+package com.jespinel.terraform_provider_server.words;
+
+import java.util.UUID;
+
+import lombok.Value;
+import lombok.With;
+
+@Value
+public class Word {
+
+    /**
+     * Version of a word when it is created.
+     */
+    public static final long FIRST_VERSION = 1;
+
+    private final UUID id;
+    private final String word;
+
+    /**
+     * Version of the word, increased by every update.
+     */
+    @With
+    private final long version;
+}
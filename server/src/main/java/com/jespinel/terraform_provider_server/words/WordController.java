@@ -1,10 +1,22 @@
 package com.jespinel.terraform_provider_server.words;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jespinel.terraform_provider_server.batch.BatchResult;
+import com.jespinel.terraform_provider_server.batch.LookupResult;
 import com.jespinel.terraform_provider_server.exceptions.APIException;
-
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import com.jespinel.terraform_provider_server.formats.CborConfiguration;
+import com.jespinel.terraform_provider_server.idempotency.IdempotencyCache;
+import com.jespinel.terraform_provider_server.pagination.Cursors;
+import com.jespinel.terraform_provider_server.pagination.JsonLines;
+import com.jespinel.terraform_provider_server.pagination.Page;
+import com.jespinel.terraform_provider_server.search.SearchQueries;
+import com.jespinel.terraform_provider_server.sync.Delta;
+import com.jespinel.terraform_provider_server.versioning.EntityTags;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -12,90 +24,156 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.util.List;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
 
 import javax.validation.Valid;
 
 /**
- * Controller responsible for Create, Read, Update and Delete words.
+ * Controller responsible for Create, Read, Update and Delete words, in the servlet mode. See
+ * {@link WordHandler} for the reactive mode.
  */
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RestController
 @RequestMapping("/words")
 public class WordController {
 
-    private static final Logger LOGGER = LoggerFactory.getLogger(WordController.class);
+    private final WordService wordService;
+    private final ObjectMapper objectMapper;
 
-    /**
-     * Map to store words and its IDs.
-     */
-    private static final ConcurrentMap<UUID, String> words = new ConcurrentHashMap<>();
+    public WordController(WordService wordService, ObjectMapper objectMapper) {
+        this.wordService = wordService;
+        this.objectMapper = objectMapper;
+    }
 
     @PostMapping
-    public ResponseEntity<WordResponse> create(@Valid @RequestBody WordRequest request) throws APIException {
-        String word = request.getWord();
-        LOGGER.info("Create word: {}", word);
+    public ResponseEntity<WordResponse> create(
+        @RequestHeader(value = IdempotencyCache.HEADER, required = false) String idempotencyKey,
+        @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+        @Valid @RequestBody WordRequest request) throws APIException {
+
+        WordResponse wordResponse = wordService.create(request, idempotencyKey);
+        return ResponseEntity.status(HttpStatus.CREATED).eTag(getETag(wordResponse, accept)).body(wordResponse);
+    }
+
+    @PostMapping("/batch")
+    public ResponseEntity<List<BatchResult<WordResponse>>> createBatch(@RequestBody List<WordRequest> requests)
+        throws APIException {
+
+        return ResponseEntity.ok(wordService.createBatch(requests));
+    }
 
-        if (words.containsValue(word)) {
-            String errorMessage = String.format("The word '%s' already exists", word);
-            LOGGER.error(errorMessage);
-            throw new APIException(HttpStatus.CONFLICT, errorMessage);
-        }
+    @GetMapping("/search")
+    public ResponseEntity<Page<WordResponse>> search(
+        @RequestParam(required = false) String q,
+        @RequestParam(defaultValue = SearchQueries.DEFAULT_MATCH) String match,
+        @RequestParam(defaultValue = SearchQueries.DEFAULT_LIMIT) int limit) throws APIException {
 
-        UUID id = UUID.randomUUID();
-        words.put(id, word);
-        WordResponse wordResponse = new WordResponse(id, word);
-        return ResponseEntity.status(HttpStatus.CREATED).body(wordResponse);
+        return ResponseEntity.ok(wordService.search(q, match, limit));
+    }
+
+    /**
+     * Returns the words changed since a revision, so a client that keeps a copy of them only
+     * reads what changed.
+     */
+    @GetMapping("/changes")
+    public ResponseEntity<Delta<WordResponse>> changes(@RequestParam(defaultValue = "0") long since,
+                                                       @RequestParam(defaultValue = Cursors.DEFAULT_LIMIT) int limit)
+        throws APIException {
+
+        return ResponseEntity.ok(wordService.changesSince(since, limit));
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<WordResponse> read(@PathVariable UUID id) throws APIException {
-        LOGGER.info("Read word with ID: {}", id);
-        if (!words.containsKey(id)) {
-            String errorMessage = String.format("The word with ID '%s' does not exist", id);
-            LOGGER.error(errorMessage);
-            throw new APIException(HttpStatus.NOT_FOUND, errorMessage);
-        }
+    public ResponseEntity<WordResponse> read(@PathVariable UUID id,
+                                             @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept)
+        throws APIException {
 
-        String word = words.get(id);
-        LOGGER.info("Read word with ID: {}, value: {}", id, word);
-        return ResponseEntity.ok(new WordResponse(id, word));
+        WordResponse wordResponse = wordService.read(id);
+        return ResponseEntity.ok().eTag(getETag(wordResponse, accept)).body(wordResponse);
     }
 
-    @PutMapping("/{id}")
-    public ResponseEntity<WordResponse> update(@PathVariable UUID id,
-                                               @Valid @RequestBody WordRequest request) throws APIException {
+    @GetMapping
+    public ResponseEntity<Page<WordResponse>> list(@RequestParam(required = false) String cursor,
+                                                   @RequestParam(defaultValue = Cursors.DEFAULT_LIMIT) int limit)
+        throws APIException {
+
+        return ResponseEntity.ok(wordService.list(cursor, limit));
+    }
+
+    /**
+     * Writes every word as newline delimited JSON while it iterates the store, so the response
+     * does not have to fit in memory.
+     */
+    @GetMapping(produces = JsonLines.MEDIA_TYPE)
+    public ResponseEntity<StreamingResponseBody> stream() {
+        return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType(JsonLines.MEDIA_TYPE))
+            .body(JsonLines.body(objectMapper, WordResponse.class, wordService::stream));
+    }
+
+    @GetMapping(params = "ids")
+    public ResponseEntity<LookupResult<WordResponse>> readAll(@RequestParam List<UUID> ids) {
+        return ResponseEntity.ok(wordService.lookup(ids));
+    }
+
+    /**
+     * Same as {@link #readAll(List)}, for lists of IDs too long for a URL.
+     */
+    @PostMapping("/lookup")
+    public ResponseEntity<LookupResult<WordResponse>> lookupAll(@RequestBody List<UUID> ids) {
+        return ResponseEntity.ok(wordService.lookup(ids));
+    }
 
-        LOGGER.info("Update word with ID: {}", id);
-        if (!words.containsKey(id)) {
-            String errorMessage = String.format("The word with ID '%s' does not exist", id);
-            LOGGER.error(errorMessage);
-            throw new APIException(HttpStatus.NOT_FOUND, errorMessage);
-        }
+    @PutMapping("/{id}")
+    public ResponseEntity<WordResponse> update(
+        @PathVariable UUID id,
+        @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+        @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+        @Valid @RequestBody WordRequest request) throws APIException {
+
+        WordResponse updatedWord = wordService.update(id, EntityTags.parseIfMatch(id, ifMatch), request);
+        return ResponseEntity.ok().eTag(getETag(updatedWord, accept)).body(updatedWord);
+    }
 
-        String oldWord = words.get(id);
-        String newWord = request.getWord();
-        LOGGER.info("Updating '{}' by '{}'", oldWord, newWord);
+    @PutMapping("/batch")
+    public ResponseEntity<List<BatchResult<WordResponse>>> updateBatch(
+        @RequestBody List<WordUpdateRequest> requests) throws APIException {
 
-        words.put(id, newWord);
-        return ResponseEntity.ok(new WordResponse(id, newWord));
+        return ResponseEntity.ok(wordService.updateBatch(requests));
     }
 
     @DeleteMapping("/{id}")
     public ResponseEntity<WordResponse> delete(@PathVariable UUID id) {
-        LOGGER.info("Delete word with ID: {}", id);
-        words.remove(id);
+        wordService.delete(id);
         return ResponseEntity.noContent().build();
     }
 
+    @DeleteMapping("/batch")
+    public ResponseEntity<List<BatchResult<WordResponse>>> deleteBatch(@RequestBody List<UUID> ids)
+        throws APIException {
+
+        return ResponseEntity.ok(wordService.deleteBatch(ids));
+    }
+
     @DeleteMapping()
     public ResponseEntity<WordResponse> deleteAll() {
-        LOGGER.info("Delete all words");
-        words.clear();
+        wordService.deleteAll();
         return ResponseEntity.noContent().build();
     }
+
+    /**
+     * Returns the entity tag of a word, derived from its ID, its version and the
+     * representation the client prefers. Reads with a matching {@code If-None-Match} header get
+     * a 304 response without body.
+     */
+    private static String getETag(WordResponse word, String accept) {
+        return EntityTags.of(word.getId(), word.getVersion(), CborConfiguration.prefersCbor(accept));
+    }
 }
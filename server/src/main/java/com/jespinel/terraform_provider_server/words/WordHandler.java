@@ -0,0 +1,191 @@
+package com.jespinel.terraform_provider_server.words;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jespinel.terraform_provider_server.formats.CborConfiguration;
+import com.jespinel.terraform_provider_server.idempotency.IdempotencyCache;
+import com.jespinel.terraform_provider_server.pagination.Cursors;
+import com.jespinel.terraform_provider_server.pagination.Page;
+import com.jespinel.terraform_provider_server.reactive.ReactiveRequests;
+import com.jespinel.terraform_provider_server.reactive.ReactiveResponses;
+import com.jespinel.terraform_provider_server.search.SearchQueries;
+import com.jespinel.terraform_provider_server.versioning.EntityTags;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.RequestPredicates;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import java.util.List;
+import java.util.UUID;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Functional routes of the words, in the reactive mode. They answer like {@link WordController}
+ * does in the servlet mode.
+ */
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@Component
+public class WordHandler {
+
+    private static final ParameterizedTypeReference<List<WordRequest>> WORD_REQUESTS =
+        new ParameterizedTypeReference<List<WordRequest>>() {
+        };
+    private static final ParameterizedTypeReference<List<WordUpdateRequest>> WORD_UPDATE_REQUESTS =
+        new ParameterizedTypeReference<List<WordUpdateRequest>>() {
+        };
+    private static final ParameterizedTypeReference<List<UUID>> IDS =
+        new ParameterizedTypeReference<List<UUID>>() {
+        };
+
+    private final WordService wordService;
+    private final ReactiveRequests requests;
+    private final ObjectMapper objectMapper;
+
+    public WordHandler(WordService wordService, ReactiveRequests requests, ObjectMapper objectMapper) {
+        this.wordService = wordService;
+        this.requests = requests;
+        this.objectMapper = objectMapper;
+    }
+
+    public RouterFunction<ServerResponse> routes() {
+        return RouterFunctions.route()
+            .path("/words", words -> words
+                .POST("/batch", this::createBatch)
+                .PUT("/batch", this::updateBatch)
+                .DELETE("/batch", this::deleteBatch)
+                .POST("/lookup", this::lookupAll)
+                .GET("/search", this::search)
+                .GET("/changes", this::changes)
+                .GET("/{id}", this::read)
+                .PUT("/{id}", this::update)
+                .DELETE("/{id}", this::delete)
+                .POST("", this::create)
+                .GET("", ReactiveResponses::acceptsJsonLines, this::stream)
+                .GET("", RequestPredicates.queryParam("ids", ids -> true), this::readAll)
+                .GET("", this::list)
+                .DELETE("", this::deleteAll))
+            .build();
+    }
+
+    public Mono<ServerResponse> create(ServerRequest request) {
+        String idempotencyKey = request.headers().firstHeader(IdempotencyCache.HEADER);
+        return requests.body(request, WordRequest.class)
+            .flatMap(body -> idempotencyKey == null
+                ? requests.call(() -> wordService.create(body, null))
+                : requests.callWaiting(() -> wordService.create(body, idempotencyKey)))
+            .flatMap(word -> ServerResponse.status(HttpStatus.CREATED).eTag(getETag(request, word)).bodyValue(word));
+    }
+
+    public Mono<ServerResponse> createBatch(ServerRequest request) {
+        return requests.bodyList(request, WORD_REQUESTS)
+            .flatMap(words -> requests.call(() -> wordService.createBatch(words)))
+            .flatMap(results -> ServerResponse.ok().bodyValue(results));
+    }
+
+    public Mono<ServerResponse> read(ServerRequest request) {
+        return requests.call(() -> wordService.read(ReactiveRequests.pathId(request)))
+            .flatMap(word -> withETag(request, word));
+    }
+
+    public Mono<ServerResponse> list(ServerRequest request) {
+        return requests.call(() -> wordService.list(request.queryParam("cursor").orElse(null),
+                ReactiveRequests.intParam(request, "limit", Cursors.DEFAULT_LIMIT)))
+            .flatMap(page -> ServerResponse.ok().bodyValue(page));
+    }
+
+    public Mono<ServerResponse> search(ServerRequest request) {
+        return requests.call(() -> wordService.search(request.queryParam("q").orElse(null),
+                request.queryParam("match").orElse(SearchQueries.DEFAULT_MATCH),
+                ReactiveRequests.intParam(request, "limit", SearchQueries.DEFAULT_LIMIT)))
+            .flatMap(page -> ServerResponse.ok().bodyValue(page));
+    }
+
+    public Mono<ServerResponse> changes(ServerRequest request) {
+        return requests.call(() -> wordService.changesSince(ReactiveRequests.longParam(request, "since", "0"),
+                ReactiveRequests.intParam(request, "limit", Cursors.DEFAULT_LIMIT)))
+            .flatMap(delta -> ServerResponse.ok().bodyValue(delta));
+    }
+
+    /**
+     * Writes every word as newline delimited JSON, reading the store a page at a time as the
+     * client reads the response.
+     */
+    public Mono<ServerResponse> stream(ServerRequest request) {
+        Flux<List<WordResponse>> pages = requests.call(() -> wordService.list(null, Cursors.MAX_LIMIT))
+            .expand(page -> page.getNextCursor() == null
+                ? Mono.empty()
+                : requests.call(() -> wordService.list(page.getNextCursor(), Cursors.MAX_LIMIT)))
+            .map(Page::getItems);
+        return ReactiveResponses.jsonLines(objectMapper, pages);
+    }
+
+    public Mono<ServerResponse> readAll(ServerRequest request) {
+        return requests.call(() -> wordService.lookup(ReactiveRequests.idsParam(request, "ids")))
+            .flatMap(result -> ServerResponse.ok().bodyValue(result));
+    }
+
+    public Mono<ServerResponse> lookupAll(ServerRequest request) {
+        return requests.bodyList(request, IDS)
+            .flatMap(ids -> requests.call(() -> wordService.lookup(ids)))
+            .flatMap(result -> ServerResponse.ok().bodyValue(result));
+    }
+
+    public Mono<ServerResponse> update(ServerRequest request) {
+        String ifMatch = request.headers().asHttpHeaders().getFirst(HttpHeaders.IF_MATCH);
+        return requests.body(request, WordRequest.class)
+            .flatMap(body -> requests.call(() -> {
+                UUID id = ReactiveRequests.pathId(request);
+                return wordService.update(id, EntityTags.parseIfMatch(id, ifMatch), body);
+            }))
+            .flatMap(word -> ServerResponse.ok().eTag(getETag(request, word)).bodyValue(word));
+    }
+
+    public Mono<ServerResponse> updateBatch(ServerRequest request) {
+        return requests.bodyList(request, WORD_UPDATE_REQUESTS)
+            .flatMap(words -> requests.call(() -> wordService.updateBatch(words)))
+            .flatMap(results -> ServerResponse.ok().bodyValue(results));
+    }
+
+    public Mono<ServerResponse> delete(ServerRequest request) {
+        return requests.call(() -> {
+            wordService.delete(ReactiveRequests.pathId(request));
+            return true;
+        }).then(ServerResponse.noContent().build());
+    }
+
+    public Mono<ServerResponse> deleteBatch(ServerRequest request) {
+        return requests.bodyList(request, IDS)
+            .flatMap(ids -> requests.call(() -> wordService.deleteBatch(ids)))
+            .flatMap(results -> ServerResponse.ok().bodyValue(results));
+    }
+
+    public Mono<ServerResponse> deleteAll(ServerRequest request) {
+        return requests.call(() -> {
+            wordService.deleteAll();
+            return true;
+        }).then(ServerResponse.noContent().build());
+    }
+
+    /**
+     * Answers with a word and its entity tag, or with 304 and no body if the request has a
+     * matching {@code If-None-Match} header.
+     */
+    private static Mono<ServerResponse> withETag(ServerRequest request, WordResponse word) {
+        String eTag = getETag(request, word);
+        return request.checkNotModified(eTag)
+            .switchIfEmpty(Mono.defer(() -> ServerResponse.ok().eTag(eTag).bodyValue(word)));
+    }
+
+    private static String getETag(ServerRequest request, WordResponse word) {
+        boolean cbor = CborConfiguration.prefersCbor(request.headers().accept());
+        return EntityTags.of(word.getId(), word.getVersion(), cbor);
+    }
+}
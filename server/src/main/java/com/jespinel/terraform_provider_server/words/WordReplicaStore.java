@@ -0,0 +1,60 @@
+package com.jespinel.terraform_provider_server.words;
+
+import com.jespinel.terraform_provider_server.exceptions.DuplicateKeyException;
+import com.jespinel.terraform_provider_server.exceptions.VersionConflictException;
+import com.jespinel.terraform_provider_server.replication.ReplicaStore;
+
+import java.util.Collection;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Copies the words of a primary into the word store of a replica.
+ * <p>
+ * The replica gets the writes of each word in order, and replaces the word it has with a single
+ * update, which takes the version of the primary even if the replica missed some versions.
+ * Readers never see the word missing.
+ */
+public class WordReplicaStore implements ReplicaStore<Word> {
+
+    private final WordStore store;
+
+    public WordReplicaStore(WordStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public UUID getId(Word word) {
+        return word.getId();
+    }
+
+    @Override
+    public void put(Word word) throws DuplicateKeyException {
+        Optional<Word> currentWord = store.get(word.getId());
+        if (!currentWord.isPresent()) {
+            store.insert(word);
+            return;
+        }
+
+        long currentVersion = currentWord.get().getVersion();
+        if (currentVersion >= word.getVersion()) {
+            return;
+        }
+        try {
+            store.update(word, currentVersion);
+        } catch (VersionConflictException e) {
+            throw new IllegalStateException("The word " + word.getId() + " changed outside of replication", e);
+        }
+    }
+
+    @Override
+    public void remove(UUID id) {
+        store.delete(id);
+    }
+
+    @Override
+    public void reset(Collection<Word> words) throws DuplicateKeyException {
+        store.deleteAll();
+        store.load(words);
+    }
+}
@@ -9,4 +9,9 @@ public class WordResponse {
 
     private UUID id;
     private String word;
+    private long version;
+
+    public static WordResponse of(Word word) {
+        return new WordResponse(word.getId(), word.getWord(), word.getVersion());
+    }
 }
@@ -0,0 +1,338 @@
+package com.jespinel.terraform_provider_server.words;
+
+import com.jespinel.terraform_provider_server.batch.BatchResult;
+import com.jespinel.terraform_provider_server.batch.ItemValidator;
+import com.jespinel.terraform_provider_server.batch.LookupResult;
+import com.jespinel.terraform_provider_server.exceptions.APIException;
+import com.jespinel.terraform_provider_server.exceptions.DuplicateKeyException;
+import com.jespinel.terraform_provider_server.exceptions.VersionConflictException;
+import com.jespinel.terraform_provider_server.idempotency.IdempotencyCache;
+import com.jespinel.terraform_provider_server.pagination.Cursors;
+import com.jespinel.terraform_provider_server.pagination.Page;
+import com.jespinel.terraform_provider_server.search.SearchQueries;
+import com.jespinel.terraform_provider_server.search.TextMatch;
+import com.jespinel.terraform_provider_server.sync.Delta;
+import com.jespinel.terraform_provider_server.sync.Deltas;
+import com.jespinel.terraform_provider_server.sync.RevisionIndex;
+import com.jespinel.terraform_provider_server.versioning.EntityTags;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Creates, reads, updates and deletes words, for both the servlet controller and the reactive
+ * routes. Failures are thrown as {@link APIException}s with the status of the response.
+ */
+@Service
+public class WordService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(WordService.class);
+    private static final APIException MISSING_ID = new APIException(HttpStatus.BAD_REQUEST, "id is required");
+
+    private final WordStore wordStore;
+    private final ItemValidator itemValidator;
+    private final IdempotencyCache<WordResponse> wordCreations;
+    private final RevisionIndex<WordResponse> wordRevisions;
+
+    public WordService(WordStore wordStore, ItemValidator itemValidator, IdempotencyCache<WordResponse> wordCreations,
+                       ObjectProvider<RevisionIndex<WordResponse>> wordRevisions) {
+        this.wordStore = wordStore;
+        this.itemValidator = itemValidator;
+        this.wordCreations = wordCreations;
+        this.wordRevisions = wordRevisions.getIfAvailable();
+    }
+
+    public WordResponse create(WordRequest request) throws APIException {
+        WordResponse wordResponse = insert(UUID.randomUUID(), request.getWord());
+        LOGGER.info("event=word.created id={}", wordResponse.getId());
+        return wordResponse;
+    }
+
+    /**
+     * Creates a word once per idempotency key, see {@link IdempotencyCache}.
+     *
+     * @param request        The word.
+     * @param idempotencyKey Key of the creation, or null to always create a word.
+     * @return The word created by the first request with the key.
+     * @throws APIException If the key is not valid or was used with another request, or the
+     *                      first request with the key failed.
+     */
+    public WordResponse create(WordRequest request, String idempotencyKey) throws APIException {
+        return wordCreations.execute(idempotencyKey, request, () -> create(request));
+    }
+
+    public List<BatchResult<WordResponse>> createBatch(List<WordRequest> requests) throws APIException {
+        itemValidator.checkSize(requests);
+        LOGGER.info("event=words.batch_created count={}", requests.size());
+        Map<String, UUID> batchWords = new HashMap<>();
+        return wordStore.batch(() -> {
+            List<BatchResult<WordResponse>> created = new ArrayList<>(requests.size());
+            for (WordRequest request : requests) {
+                try {
+                    itemValidator.validate(request);
+                    UUID id = UUID.randomUUID();
+                    checkBatchWord(batchWords, id, request.getWord());
+                    created.add(BatchResult.success(HttpStatus.CREATED, insert(id, request.getWord())));
+                    batchWords.put(request.getWord(), id);
+                } catch (APIException e) {
+                    created.add(BatchResult.failure(e));
+                }
+            }
+            return created;
+        });
+    }
+
+    public WordResponse read(UUID id) throws APIException {
+        Optional<Word> word = wordStore.get(id);
+        if (!word.isPresent()) {
+            throw wordNotFound(id);
+        }
+
+        LOGGER.info("event=word.read id={}", id);
+        return WordResponse.of(word.get());
+    }
+
+    /**
+     * @param cursor Cursor of the page, or null for the first page.
+     * @param limit  Maximum number of words of the page.
+     * @return A page of words sorted by ID, with the cursor of the next page if there is one.
+     * @throws APIException If the cursor or the limit are not valid.
+     */
+    public Page<WordResponse> list(String cursor, int limit) throws APIException {
+        LOGGER.info("event=words.listed cursor={} limit={}", cursor, limit);
+        Cursors.checkLimit(limit);
+        // Ask for one more word to know whether there is a next page
+        List<Word> words = wordStore.list(Cursors.decode(cursor), limit + 1);
+        List<WordResponse> items = new ArrayList<>(Math.min(words.size(), limit));
+        String nextCursor = null;
+        for (Word word : words) {
+            if (items.size() == limit) {
+                nextCursor = Cursors.encode(items.get(limit - 1).getId());
+                break;
+            }
+            items.add(WordResponse.of(word));
+        }
+        return new Page<>(items, nextCursor);
+    }
+
+    /**
+     * @param query Text to search in the words, ignoring case.
+     * @param match {@code prefix} or {@code substring}.
+     * @param limit Maximum number of words.
+     * @return The words that match the query, sorted by word.
+     * @throws APIException If the query, the match or the limit are not valid.
+     */
+    public Page<WordResponse> search(String query, String match, int limit) throws APIException {
+        LOGGER.info("event=words.searched query=\"{}\" match={} limit={}", query, match, limit);
+        TextMatch textMatch = SearchQueries.parseMatch(match);
+        SearchQueries.check(query, textMatch, limit);
+        List<Word> words = wordStore.search(query, textMatch, limit);
+        List<WordResponse> items = new ArrayList<>(words.size());
+        for (Word word : words) {
+            items.add(WordResponse.of(word));
+        }
+        return new Page<>(items, null);
+    }
+
+    /**
+     * @param since Revision of the last change the client has, or 0 to read every word.
+     * @param limit Maximum number of words.
+     * @return The words changed since the revision, and tombstones of the deleted ones, in the
+     * order of their revisions.
+     * @throws APIException If the revisions are not kept, the revision or the limit are not
+     *                      valid, or the changes since the revision are no longer available.
+     */
+    public Delta<WordResponse> changesSince(long since, int limit) throws APIException {
+        LOGGER.info("event=words.changes_read since={} limit={}", since, limit);
+        return Deltas.since(wordRevisions, since, limit);
+    }
+
+    /**
+     * Runs an action with every word while it iterates the store, without copying the words.
+     */
+    public void stream(Consumer<WordResponse> action) {
+        LOGGER.info("event=words.streamed");
+        wordStore.forEach(word -> action.accept(WordResponse.of(word)));
+    }
+
+    /**
+     * Reads the words with the given IDs.
+     *
+     * @param ids IDs of words. Repeated IDs are read once.
+     * @return The words that exist, in the order of their IDs, and the IDs that do not exist.
+     */
+    public LookupResult<WordResponse> lookup(List<UUID> ids) {
+        LOGGER.info("event=words.looked_up count={}", ids.size());
+        Set<UUID> uniqueIds = new LinkedHashSet<>(ids);
+        uniqueIds.remove(null);
+        Map<UUID, Word> words = wordStore.getAll(uniqueIds);
+
+        List<WordResponse> found = new ArrayList<>(words.size());
+        List<UUID> missing = new ArrayList<>(uniqueIds.size() - words.size());
+        for (UUID id : uniqueIds) {
+            Word word = words.get(id);
+            if (word == null) {
+                missing.add(id);
+            } else {
+                found.add(WordResponse.of(word));
+            }
+        }
+        return new LookupResult<>(found, missing);
+    }
+
+    /**
+     * @param id              ID of the word.
+     * @param expectedVersion Version the word must have, or {@link EntityTags#ANY_VERSION}.
+     * @param request         New value of the word.
+     * @return The updated word, with its new version.
+     * @throws APIException If the word does not exist, has another version, or another entry
+     *                      already has the new word.
+     */
+    public WordResponse update(UUID id, long expectedVersion, WordRequest request) throws APIException {
+        WordResponse updatedWord = replace(id, request.getWord(), expectedVersion);
+        LOGGER.info("event=word.updated id={}", id);
+        return updatedWord;
+    }
+
+    public List<BatchResult<WordResponse>> updateBatch(List<WordUpdateRequest> requests) throws APIException {
+        itemValidator.checkSize(requests);
+        LOGGER.info("event=words.batch_updated count={}", requests.size());
+        Map<String, UUID> batchWords = new HashMap<>();
+        return wordStore.batch(() -> {
+            List<BatchResult<WordResponse>> updated = new ArrayList<>(requests.size());
+            for (WordUpdateRequest request : requests) {
+                try {
+                    itemValidator.validate(request);
+                    checkBatchWord(batchWords, request.getId(), request.getWord());
+                    long expectedVersion = request.getVersion() == null ? EntityTags.ANY_VERSION : request.getVersion();
+                    updated.add(BatchResult.success(HttpStatus.OK,
+                        replace(request.getId(), request.getWord(), expectedVersion)));
+                    batchWords.put(request.getWord(), request.getId());
+                } catch (APIException e) {
+                    updated.add(BatchResult.failure(e));
+                }
+            }
+            return updated;
+        });
+    }
+
+    public void delete(UUID id) {
+        Optional<Word> removedWord = wordStore.delete(id);
+        LOGGER.info("event=word.deleted id={} existed={}", id, removedWord.isPresent());
+    }
+
+    public List<BatchResult<WordResponse>> deleteBatch(List<UUID> ids) throws APIException {
+        itemValidator.checkSize(ids);
+        LOGGER.info("event=words.batch_deleted count={}", ids.size());
+        return wordStore.batch(() -> {
+            List<BatchResult<WordResponse>> deleted = new ArrayList<>(ids.size());
+            for (UUID id : ids) {
+                if (id == null) {
+                    deleted.add(BatchResult.failure(MISSING_ID));
+                    continue;
+                }
+                wordStore.delete(id);
+                deleted.add(BatchResult.success(HttpStatus.NO_CONTENT, null));
+            }
+            return deleted;
+        });
+    }
+
+    public void deleteAll() {
+        LOGGER.info("event=words.all_deleted");
+        wordStore.deleteAll();
+    }
+
+    /**
+     * Stores a new word.
+     *
+     * @param id   ID of the word.
+     * @param word Word to store.
+     * @return The stored word.
+     * @throws APIException If the word already exists.
+     */
+    private WordResponse insert(UUID id, String word) throws APIException {
+        Word newWord = new Word(id, word, Word.FIRST_VERSION);
+        try {
+            wordStore.insert(newWord);
+        } catch (DuplicateKeyException e) {
+            throw wordAlreadyExists(word);
+        }
+        return WordResponse.of(newWord);
+    }
+
+    /**
+     * Replaces an existing word.
+     *
+     * @param id              ID of the word.
+     * @param newWord         New value of the word.
+     * @param expectedVersion Version the word must have, or {@link EntityTags#ANY_VERSION}.
+     * @return The updated word, with its new version.
+     * @throws APIException If the word does not exist, has another version, or another entry
+     *                      already has the new word.
+     */
+    private WordResponse replace(UUID id, String newWord, long expectedVersion) throws APIException {
+        Optional<Word> updatedWord;
+        try {
+            updatedWord = wordStore.update(new Word(id, newWord, Word.FIRST_VERSION), expectedVersion);
+        } catch (DuplicateKeyException e) {
+            throw wordAlreadyExists(newWord);
+        } catch (VersionConflictException e) {
+            throw wordVersionConflict(e);
+        }
+
+        if (!updatedWord.isPresent()) {
+            throw wordNotFound(id);
+        }
+        return WordResponse.of(updatedWord.get());
+    }
+
+    /**
+     * Checks that no other entry of a batch took a word, so a batch that repeats a word fails
+     * without going to the store. An entry only takes its word once it is stored, so an item
+     * that fails does not fail the next items with its word.
+     *
+     * @param batchWords IDs of the words stored by the batch, by word.
+     * @param id         ID of the word.
+     * @param word       Word of the batch.
+     * @throws APIException If another entry of the batch has the same word.
+     */
+    private static void checkBatchWord(Map<String, UUID> batchWords, UUID id, String word) throws APIException {
+        UUID holder = batchWords.get(word);
+        if (holder != null && !holder.equals(id)) {
+            throw wordAlreadyExists(word);
+        }
+    }
+
+    private static APIException wordAlreadyExists(String word) {
+        LOGGER.error("event=word.conflict word=\"{}\"", word);
+        String errorMessage = "The word '" + word + "' already exists";
+        return new APIException(HttpStatus.CONFLICT, errorMessage);
+    }
+
+    private static APIException wordVersionConflict(VersionConflictException e) {
+        LOGGER.error("event=word.version_conflict id={} version={}", e.getId(), e.getCurrentVersion());
+        String errorMessage = "The word with ID '" + e.getId() + "' has changed, its version is "
+            + e.getCurrentVersion();
+        return new APIException(HttpStatus.PRECONDITION_FAILED, errorMessage);
+    }
+
+    private static APIException wordNotFound(UUID id) {
+        LOGGER.error("event=word.not_found id={}", id);
+        String errorMessage = "The word with ID '" + id + "' does not exist";
+        return new APIException(HttpStatus.NOT_FOUND, errorMessage);
+    }
+}
@@ -0,0 +1,147 @@
+package com.jespinel.terraform_provider_server.words;
+
+import com.jespinel.terraform_provider_server.exceptions.DuplicateKeyException;
+import com.jespinel.terraform_provider_server.exceptions.VersionConflictException;
+import com.jespinel.terraform_provider_server.search.TextMatch;
+import com.jespinel.terraform_provider_server.storage.StripedLocks;
+import com.jespinel.terraform_provider_server.versioning.EntityTags;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Repository of words. Words are unique.
+ * <p>
+ * The stores that wrap another store, to append its changes to a log, publish them or record
+ * them, share one {@link StripedLocks} for the words. A write holds the lock of its word while
+ * it goes through all of them, so each of them gets the writes of a word in the order they were
+ * applied; the first store takes the lock and the others re-enter it. Only a durable store
+ * waits, for the disk, and it releases the lock first.
+ */
+public interface WordStore {
+
+    /**
+     * Returns the word with the given ID.
+     *
+     * @param id ID of a word.
+     * @return The word, or an empty optional if it does not exist.
+     */
+    Optional<Word> get(UUID id);
+
+    /**
+     * Returns the words with the given IDs, in a single pass over the IDs. By default, it reads
+     * them one by one with {@link #get(UUID)}.
+     *
+     * @param ids IDs of words.
+     * @return The words that exist, by ID.
+     */
+    default Map<UUID, Word> getAll(Collection<UUID> ids) {
+        Map<UUID, Word> words = new HashMap<>();
+        for (UUID id : ids) {
+            get(id).ifPresent(word -> words.put(id, word));
+        }
+        return words;
+    }
+
+    /**
+     * Returns a page of words sorted by ID.
+     *
+     * @param after ID the page starts after, or null for the first page.
+     * @param limit Maximum number of words of the page.
+     * @return The words with an ID greater than {@code after}, in ID order.
+     */
+    List<Word> list(UUID after, int limit);
+
+    /**
+     * Returns the words that match a query, ignoring case, sorted by word.
+     *
+     * @param query Text to search.
+     * @param match How words must match the query.
+     * @param limit Maximum number of words to return.
+     * @return The matching words.
+     */
+    List<Word> search(String query, TextMatch match, int limit);
+
+    /**
+     * Stores a new word, with its version.
+     *
+     * @param word Word to store.
+     * @throws DuplicateKeyException If the word already exists.
+     */
+    void insert(Word word) throws DuplicateKeyException;
+
+    /**
+     * Stores the words of an empty store, such as the words recovered from a log. Stores with
+     * sorted indexes fill each of them in its own order, which is faster than inserting the
+     * words one at a time.
+     *
+     * @param words Words to store, with their versions.
+     * @throws DuplicateKeyException If a word is repeated.
+     */
+    default void load(Collection<Word> words) throws DuplicateKeyException {
+        for (Word word : words) {
+            insert(word);
+        }
+    }
+
+    /**
+     * Replaces an existing word if it has the expected version, and increases its version by
+     * one, or to the version of the given word if it is higher, as when a replica catches up with
+     * versions it missed.
+     *
+     * @param word            New version of the word.
+     * @param expectedVersion Version the word must have, or {@link EntityTags#ANY_VERSION}.
+     * @return The updated word, with its new version, or an empty optional if the word does
+     * not exist.
+     * @throws DuplicateKeyException    If another entry already has the new word.
+     * @throws VersionConflictException If the word has another version.
+     */
+    Optional<Word> update(Word word, long expectedVersion) throws DuplicateKeyException, VersionConflictException;
+
+    /**
+     * Removes a word.
+     *
+     * @param id ID of a word.
+     * @return The removed word, or an empty optional if it did not exist.
+     */
+    Optional<Word> delete(UUID id);
+
+    /**
+     * Removes all the words. They are removed one by one, not atomically, so concurrent readers may
+     * see some of them removed before the others.
+     */
+    void deleteAll();
+
+    /**
+     * Returns the number of words.
+     *
+     * @return The number of words.
+     */
+    long size();
+
+    /**
+     * Calls the given action for every word. Words written during the iteration may or may
+     * not be visited.
+     *
+     * @param action Action to call for each word.
+     */
+    void forEach(Consumer<Word> action);
+
+    /**
+     * Runs several writes as a batch. Stores that acknowledge a write once it is durable wait
+     * once, at the end of the batch, instead of once per write.
+     *
+     * @param writes Writes to run.
+     * @param <T>    Type of the result of the writes.
+     * @return The result of the writes.
+     */
+    default <T> T batch(Supplier<T> writes) {
+        return writes.get();
+    }
+}
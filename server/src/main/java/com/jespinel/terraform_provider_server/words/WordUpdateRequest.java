@@ -0,0 +1,26 @@
+package com.jespinel.terraform_provider_server.words;
+
+import java.util.UUID;
+
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+
+import lombok.Value;
+
+/**
+ * Update of one word in a batch.
+ */
+@Value
+public class WordUpdateRequest {
+
+    @NotNull(message = "id is required")
+    private UUID id;
+
+    @NotBlank(message = "word is required")
+    private String word;
+
+    /**
+     * Version the entity must have for the update to apply, or null to update any version.
+     */
+    private Long version;
+}
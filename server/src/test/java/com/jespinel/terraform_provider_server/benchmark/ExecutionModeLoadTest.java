@@ -0,0 +1,86 @@
+package com.jespinel.terraform_provider_server.benchmark;
+
+import com.jespinel.terraform_provider_server.TerraformProviderServerApplication;
+import com.jespinel.terraform_provider_server.execution.ExecutionMode;
+import com.jespinel.terraform_provider_server.execution.VirtualThreads;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.netty.buffer.Unpooled;
+import reactor.core.publisher.Mono;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Compares the platform thread pool of Tomcat with a virtual thread per request, with thousands
+ * of concurrent clients creating words. Each create waits for the group commit of the
+ * write-ahead log, which is given a window to stand for a slow disk, so requests spend most of
+ * their time waiting, as they do in production.
+ * <p>
+ * With platform threads, at most {@code server.tomcat.max-threads} requests wait at once and the
+ * others queue in front of the pool; with virtual threads every connection has a request in the
+ * same group commit. The {@code concurrency} of the results is the mean number of requests being
+ * handled at once.
+ * <p>
+ * Run with {@code mvn test -Pbenchmark -Dtest=ExecutionModeLoadTest}. The virtual mode needs
+ * Java 21 and is skipped on older JVMs.
+ */
+@Tag("benchmark")
+class ExecutionModeLoadTest {
+
+    private static final int[] CONNECTIONS = {200, 1000, 4000};
+    private static final long WARMUP_NANOS = TimeUnit.SECONDS.toNanos(3);
+    private static final long DURATION_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    @TempDir
+    Path directory;
+
+    @ParameterizedTest
+    @EnumSource(ExecutionMode.class)
+    void measureThroughputAndLatency(ExecutionMode mode) {
+        assumeTrue(mode != ExecutionMode.VIRTUAL || VirtualThreads.isSupported(), "Virtual threads need Java 21");
+
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(TerraformProviderServerApplication.class)
+            .web(WebApplicationType.SERVLET)
+            .run("--server.port=0",
+                "--execution.mode=" + mode,
+                "--logging.requests.success-sample-rate=0",
+                "--storage.persistence.enabled=true",
+                "--storage.persistence.directory=" + directory,
+                "--storage.persistence.group-commit-window=5ms",
+                "--storage.persistence.group-commit-size=100000");
+        try {
+            int port = context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+            AtomicLong words = new AtomicLong();
+            for (int connections : CONNECTIONS) {
+                LoadGenerator.Result result = LoadGenerator.run(port, connections, WARMUP_NANOS, DURATION_NANOS,
+                    client -> client
+                        .headers(headers -> headers.set(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE))
+                        .post()
+                        .uri("/words")
+                        .send(Mono.fromSupplier(() -> Unpooled.wrappedBuffer(
+                            ("{\"word\":\"word-" + words.incrementAndGet() + "\"}").getBytes(StandardCharsets.UTF_8))))
+                        .responseSingle((response, body) -> body.asByteArray().thenReturn(response.status().code())));
+                System.out.printf("execution=%s connections=%d %s%n", mode, connections, result);
+                assertThat(result.errors, is(0L));
+            }
+        } finally {
+            context.close();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.jespinel.terraform_provider_server.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jespinel.terraform_provider_server.books.Book;
+import com.jespinel.terraform_provider_server.books.BookRequest;
+import com.jespinel.terraform_provider_server.pagination.Page;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Compares the formats of the API, JSON and CBOR, on a book, a page of books and a request. The
+ * sizes of the payloads of each format are printed when the benchmark starts.
+ */
+@State(Scope.Benchmark)
+public class FormatBenchmark {
+
+    private static final int PAGE_SIZE = 100;
+
+    @Param({"json", "cbor"})
+    public String format;
+
+    private ObjectMapper mapper;
+    private Book book;
+    private Page<Book> page;
+    private byte[] bookRequest;
+    private byte[] bookIds;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        mapper = "cbor".equals(format)
+            ? Jackson2ObjectMapperBuilder.cbor().build()
+            : Jackson2ObjectMapperBuilder.json().build();
+        book = new Book(UUID.randomUUID(), "Brave new world", "Aldous Huxley", Book.FIRST_VERSION);
+        List<Book> books = new ArrayList<>(PAGE_SIZE);
+        List<UUID> ids = new ArrayList<>(PAGE_SIZE);
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            books.add(new Book(UUID.randomUUID(), "Title " + i, "Author " + i, Book.FIRST_VERSION));
+            ids.add(books.get(i).getId());
+        }
+        page = new Page<>(books, null);
+        bookRequest = mapper.writeValueAsBytes(new BookRequest("Brave new world", "Aldous Huxley"));
+        bookIds = mapper.writeValueAsBytes(ids);
+
+        System.out.printf("%n%s bytes: book %d, page of %d books %d, request %d, %d IDs %d%n", format,
+            mapper.writeValueAsBytes(book).length, PAGE_SIZE, mapper.writeValueAsBytes(page).length,
+            bookRequest.length, PAGE_SIZE, bookIds.length);
+    }
+
+    @Benchmark
+    public byte[] writeBook() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(book);
+    }
+
+    @Benchmark
+    public byte[] writePage() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public BookRequest readBookRequest() throws IOException {
+        return mapper.readValue(bookRequest, BookRequest.class);
+    }
+
+    @Benchmark
+    public UUID[] readBookIds() throws IOException {
+        return mapper.readValue(bookIds, UUID[].class);
+    }
+}
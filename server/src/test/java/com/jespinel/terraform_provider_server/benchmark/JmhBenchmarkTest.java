@@ -0,0 +1,94 @@
+package com.jespinel.terraform_provider_server.benchmark;
+
+import com.jespinel.terraform_provider_server.books.BookStoreBenchmark;
+import com.jespinel.terraform_provider_server.books.BookStoreCreateBenchmark;
+import com.jespinel.terraform_provider_server.search.TextIndexBenchmark;
+import com.jespinel.terraform_provider_server.words.WordStoreBenchmark;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the JMH benchmarks and writes their results as JSON to {@code target/jmh}, one file per
+ * run, so runs can be compared. Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+class JmhBenchmarkTest {
+
+    private static final File RESULTS_DIRECTORY = new File("target/jmh");
+
+    /**
+     * Runs the store benchmarks with several threads, to measure them under contention.
+     */
+    @ParameterizedTest
+    @ValueSource(ints = {1, 4, 16})
+    void runStoreBenchmarks(int threads) throws Exception {
+        run(options("stores-" + threads + "-threads")
+            .include(BookStoreBenchmark.class.getName())
+            .include(WordStoreBenchmark.class.getName())
+            .threads(threads));
+    }
+
+    /**
+     * Runs the creation of books in each storage engine with more and more threads, to compare
+     * how their throughput scales with the cores of the machine.
+     */
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 4, 8})
+    void runCreateBenchmarks(int threads) throws Exception {
+        run(options("create-" + threads + "-threads")
+            .include(BookStoreCreateBenchmark.class.getName())
+            .threads(threads)
+            .jvmArgsAppend("-Xmx3g"));
+    }
+
+    /**
+     * Runs the search benchmarks, with a heap large enough for an index of a million texts.
+     */
+    @Test
+    void runSearchBenchmarks() throws Exception {
+        run(options("search").include(TextIndexBenchmark.class.getName()).jvmArgsAppend("-Xmx3g"));
+    }
+
+    @Test
+    void runMvcBenchmarks() throws Exception {
+        run(options("mvc").include(MvcBenchmark.class.getName()));
+    }
+
+    @Test
+    void runJsonBenchmarks() throws Exception {
+        run(options("json").include(JsonBenchmark.class.getName()));
+    }
+
+    @Test
+    void runFormatBenchmarks() throws Exception {
+        run(options("formats").include(FormatBenchmark.class.getName()));
+    }
+
+    private static ChainedOptionsBuilder options(String name) {
+        RESULTS_DIRECTORY.mkdirs();
+        return new OptionsBuilder()
+            .forks(1)
+            .warmupIterations(3)
+            .warmupTime(TimeValue.seconds(1))
+            .measurementIterations(5)
+            .measurementTime(TimeValue.seconds(1))
+            .timeUnit(TimeUnit.MICROSECONDS)
+            .resultFormat(ResultFormatType.JSON)
+            .result(new File(RESULTS_DIRECTORY, name + ".json").getPath());
+    }
+
+    private static void run(ChainedOptionsBuilder options) throws Exception {
+        new Runner(options.build()).run();
+    }
+}
@@ -0,0 +1,61 @@
+package com.jespinel.terraform_provider_server.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jespinel.terraform_provider_server.books.Book;
+import com.jespinel.terraform_provider_server.books.BookRequest;
+import com.jespinel.terraform_provider_server.words.Word;
+import com.jespinel.terraform_provider_server.words.WordRequest;
+import com.jespinel.terraform_provider_server.words.WordResponse;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.UUID;
+
+/**
+ * Measures the serialization of the responses, and the deserialization of the requests, with
+ * a mapper configured like the one of the server.
+ */
+@State(Scope.Benchmark)
+public class JsonBenchmark {
+
+    private ObjectMapper mapper;
+    private Book book;
+    private WordResponse word;
+    private String bookRequest;
+    private String wordRequest;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        mapper = Jackson2ObjectMapperBuilder.json().build();
+        book = new Book(UUID.randomUUID(), "Brave new world", "Aldous Huxley", Book.FIRST_VERSION);
+        word = new WordResponse(UUID.randomUUID(), "hello", Word.FIRST_VERSION);
+        bookRequest = mapper.writeValueAsString(new BookRequest("Brave new world", "Aldous Huxley"));
+        wordRequest = mapper.writeValueAsString(new WordRequest("hello"));
+    }
+
+    @Benchmark
+    public byte[] writeBook() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(book);
+    }
+
+    @Benchmark
+    public byte[] writeWord() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(word);
+    }
+
+    @Benchmark
+    public BookRequest readBookRequest() throws IOException {
+        return mapper.readValue(bookRequest, BookRequest.class);
+    }
+
+    @Benchmark
+    public WordRequest readWordRequest() throws IOException {
+        return mapper.readValue(wordRequest, WordRequest.class);
+    }
+}
@@ -0,0 +1,110 @@
+package com.jespinel.terraform_provider_server.benchmark;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+/**
+ * Closed-loop HTTP load: each connection sends its next request as soon as the response to its
+ * previous one arrives. The client is non-blocking, so thousands of connections only need a few
+ * threads.
+ */
+final class LoadGenerator {
+
+    private LoadGenerator() {
+    }
+
+    /**
+     * Sends requests on the given number of connections, first for a warmup, then for the
+     * measured duration.
+     *
+     * @param port          Port of the server.
+     * @param connections   Number of connections, each with one request in flight.
+     * @param warmupNanos   Duration of the warmup, whose requests are not measured.
+     * @param durationNanos Duration of the measurement.
+     * @param request       Sends a request and returns the status of its response.
+     * @return The latencies and errors of the measured requests.
+     */
+    static Result run(int port, int connections, long warmupNanos, long durationNanos,
+                      Function<HttpClient, Mono<Integer>> request) {
+        ConnectionProvider pool = ConnectionProvider.create("load-test", connections);
+        HttpClient client = HttpClient.create(pool).baseUrl("http://localhost:" + port);
+        try {
+            Recorder recorder = new Recorder(3);
+            AtomicLong errors = new AtomicLong();
+
+            send(client, connections, recorder, errors, warmupNanos, request);
+            recorder.reset();
+            errors.set(0);
+            send(client, connections, recorder, errors, durationNanos, request);
+
+            return new Result(recorder.getIntervalHistogram(), errors.get(), durationNanos / 1e9);
+        } finally {
+            pool.dispose();
+        }
+    }
+
+    private static void send(HttpClient client, int connections, Recorder recorder, AtomicLong errors,
+                             long durationNanos, Function<HttpClient, Mono<Integer>> request) {
+        long deadline = System.nanoTime() + durationNanos;
+        Flux.range(0, connections)
+            .flatMap(connection -> Mono.defer(() -> {
+                long start = System.nanoTime();
+                return request.apply(client)
+                    .doOnNext(status -> {
+                        recorder.recordValue(System.nanoTime() - start);
+                        if (status >= 400) {
+                            errors.incrementAndGet();
+                        }
+                    });
+            }).repeat(() -> System.nanoTime() < deadline), connections)
+            .blockLast();
+    }
+
+    /**
+     * Latencies, in nanoseconds, and errors of the measured requests.
+     */
+    static final class Result {
+
+        final Histogram latencies;
+        final long errors;
+        final double seconds;
+
+        Result(Histogram latencies, long errors, double seconds) {
+            this.latencies = latencies;
+            this.errors = errors;
+            this.seconds = seconds;
+        }
+
+        double throughput() {
+            return latencies.getTotalCount() / seconds;
+        }
+
+        /**
+         * Mean number of requests the server was handling at once, by Little's law.
+         */
+        double concurrency() {
+            return throughput() * latencies.getMean() / 1e9;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                "requests/s=%.0f concurrency=%.0f p50=%.2fms p99=%.2fms p99.9=%.2fms max=%.2fms errors=%d",
+                throughput(), concurrency(), millis(latencies.getValueAtPercentile(50)),
+                millis(latencies.getValueAtPercentile(99)), millis(latencies.getValueAtPercentile(99.9)),
+                millis(latencies.getMaxValue()), errors);
+        }
+
+        private static double millis(long nanos) {
+            return nanos / 1e6;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.jespinel.terraform_provider_server.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jespinel.terraform_provider_server.TerraformProviderServerApplication;
+import com.jespinel.terraform_provider_server.idempotency.IdempotencyCache;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+
+/**
+ * Measures whole requests through the Spring MVC stack: dispatching, argument resolution,
+ * validation, controllers, stores and message conversion. Only the network is left out.
+ * <p>
+ * {@link #getBookById()} and {@link #getMissingBookById()} read the same route, so they compare
+ * a 200 with the error path of a 404. {@link #retryBookCreation()} repeats the creations of the
+ * books with their {@code Idempotency-Key}, so it compares a replayed response with a read.
+ * {@link #listEveryBook()} and {@link #readChangedBooks()} compare the two ways of refreshing a
+ * copy of the books after {@value #CHANGED_BOOKS} of them changed: reading every book, a page at
+ * a time, or only the changed ones since a revision.
+ * Results are the average time of a request.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@State(Scope.Benchmark)
+public class MvcBenchmark {
+
+    private static final int BOOKS = 10_000;
+    private static final int CHANGED_BOOKS = 10;
+
+    private ConfigurableApplicationContext context;
+    private MockMvc mockMvc;
+    private final String[] bookIds = new String[BOOKS];
+    private final AtomicLong createdWords = new AtomicLong();
+    private long revision;
+
+    @Setup
+    public void setUp() throws Exception {
+        context = new SpringApplicationBuilder(TerraformProviderServerApplication.class)
+            .properties("server.port=0", "logging.level.com.jespinel.terraform_provider_server=WARN")
+            .run();
+        mockMvc = MockMvcBuilders.webAppContextSetup((WebApplicationContext) context).build();
+        ObjectMapper mapper = new ObjectMapper();
+        for (int i = 0; i < BOOKS; i++) {
+            MockHttpServletResponse response = mockMvc.perform(post("/books")
+                .header(IdempotencyCache.HEADER, "key " + i)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(bookJson(i)))
+                .andReturn()
+                .getResponse();
+            bookIds[i] = mapper.readTree(response.getContentAsString()).get("id").asText();
+        }
+
+        JsonNode changes = mapper.readTree(mockMvc.perform(get("/books/changes").param("limit", "1000"))
+            .andReturn().getResponse().getContentAsString());
+        while (changes.get("more").asBoolean()) {
+            changes = mapper.readTree(mockMvc.perform(get("/books/changes")
+                .param("since", changes.get("revision").asText()).param("limit", "1000"))
+                .andReturn().getResponse().getContentAsString());
+        }
+        revision = changes.get("revision").asLong();
+        for (int i = 0; i < CHANGED_BOOKS; i++) {
+            mockMvc.perform(put("/books/{id}", bookIds[i])
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"title\": \"Title " + i + "\", \"author\": \"Another author " + i + "\"}"));
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void deleteWords() throws Exception {
+        mockMvc.perform(delete("/words"));
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public MockHttpServletResponse getBookByTitle() throws Exception {
+        String title = "Title " + ThreadLocalRandom.current().nextInt(BOOKS);
+        return mockMvc.perform(get("/books").param("title", title).accept(MediaType.APPLICATION_JSON))
+            .andReturn()
+            .getResponse();
+    }
+
+    @Benchmark
+    public MockHttpServletResponse getBookById() throws Exception {
+        String id = bookIds[ThreadLocalRandom.current().nextInt(BOOKS)];
+        return mockMvc.perform(get("/books/{id}", id).accept(MediaType.APPLICATION_JSON))
+            .andReturn()
+            .getResponse();
+    }
+
+    @Benchmark
+    public MockHttpServletResponse getMissingBookById() throws Exception {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        UUID id = new UUID(random.nextLong(), random.nextLong());
+        return mockMvc.perform(get("/books/{id}", id).accept(MediaType.APPLICATION_JSON))
+            .andReturn()
+            .getResponse();
+    }
+
+    @Benchmark
+    public MockHttpServletResponse retryBookCreation() throws Exception {
+        int book = ThreadLocalRandom.current().nextInt(BOOKS);
+        return mockMvc.perform(post("/books")
+            .header(IdempotencyCache.HEADER, "key " + book)
+            .contentType(MediaType.APPLICATION_JSON)
+            .accept(MediaType.APPLICATION_JSON)
+            .content(bookJson(book)))
+            .andReturn()
+            .getResponse();
+    }
+
+    @Benchmark
+    public int listEveryBook() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        int books = 0;
+        String cursor = null;
+        do {
+            MockHttpServletRequestBuilder list = get("/books").param("limit", "1000").accept(MediaType.APPLICATION_JSON);
+            if (cursor != null) {
+                list.param("cursor", cursor);
+            }
+            JsonNode page = mapper.readTree(mockMvc.perform(list).andReturn().getResponse().getContentAsString());
+            books += page.get("items").size();
+            cursor = page.has("nextCursor") ? page.get("nextCursor").asText() : null;
+        } while (cursor != null);
+        return books;
+    }
+
+    @Benchmark
+    public MockHttpServletResponse readChangedBooks() throws Exception {
+        return mockMvc.perform(get("/books/changes")
+            .param("since", Long.toString(revision))
+            .accept(MediaType.APPLICATION_JSON))
+            .andReturn()
+            .getResponse();
+    }
+
+    @Benchmark
+    public MockHttpServletResponse createWord() throws Exception {
+        String word = "word " + createdWords.incrementAndGet();
+        return mockMvc.perform(post("/words")
+            .contentType(MediaType.APPLICATION_JSON)
+            .accept(MediaType.APPLICATION_JSON)
+            .content("{\"word\": \"" + word + "\"}"))
+            .andReturn()
+            .getResponse();
+    }
+
+    private static String bookJson(int book) {
+        return "{\"title\": \"Title " + book + "\", \"author\": \"Author " + book + "\"}";
+    }
+}
@@ -0,0 +1,97 @@
+package com.jespinel.terraform_provider_server.benchmark;
+
+import com.jespinel.terraform_provider_server.pagination.Cursors;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.logging.LogLevel;
+import org.springframework.boot.logging.LoggingSystem;
+import org.springframework.http.HttpHeaders;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+/**
+ * Compares the default settings of the server with the {@code production} profile, in both
+ * modes, on reads of single books and of pages of 100 books. Every request accepts gzip, which
+ * only the production profile uses, for the pages. Run with
+ * {@code mvn test -Pbenchmark -Dtest=ProductionProfileLoadTest}.
+ * <p>
+ * Each configuration runs in its own {@link ServerProcess}, with the same heap, so the JIT
+ * compilation and the garbage of one do not favour the next.
+ * <p>
+ * The client does not decompress the pages: it stands for remote clients, which do it on their
+ * own CPUs. The {@code bytes} of the results is the mean size of the bodies it received, which
+ * is what a network between them would carry.
+ */
+@Tag("benchmark")
+class ProductionProfileLoadTest {
+
+    private static final String[] PROFILES = {"default", "production"};
+    private static final int[] CONNECTIONS = {64, 1024};
+    private static final int BOOKS = 10_000;
+    private static final int PAGE_SIZE = 100;
+    private static final long WARMUP_NANOS = TimeUnit.SECONDS.toNanos(10);
+    private static final long DURATION_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    /**
+     * Without a Spring context in this JVM, the client would log every connection at debug level.
+     */
+    @BeforeAll
+    static void configureClientLogs() {
+        LoggingSystem.get(ProductionProfileLoadTest.class.getClassLoader())
+            .setLogLevel(LoggingSystem.ROOT_LOGGER_NAME, LogLevel.INFO);
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = WebApplicationType.class, names = {"SERVLET", "REACTIVE"})
+    void measureThroughputAndLatency(WebApplicationType mode) throws Exception {
+        for (String profile : PROFILES) {
+            try (ServerProcess server = ServerProcess.start(mode.name().toLowerCase() + "-" + profile, "1g",
+                "--spring.main.web-application-type=" + mode,
+                "--spring.profiles.active=" + profile)) {
+
+                List<UUID> ids = server.createBooks(BOOKS);
+                Supplier<String> bookPaths = () -> "/books/" + random(ids);
+                Supplier<String> pagePaths = () -> "/books?limit=" + PAGE_SIZE + "&cursor=" + Cursors.encode(random(ids));
+                for (int connections : CONNECTIONS) {
+                    measure(mode + " profile=" + profile + " request=book", server.port, connections, bookPaths);
+                    measure(mode + " profile=" + profile + " request=page", server.port, connections, pagePaths);
+                }
+            }
+        }
+    }
+
+    private static UUID random(List<UUID> ids) {
+        return ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+    }
+
+    private static void measure(String name, int port, int connections, Supplier<String> paths) {
+        LongAdder bytes = new LongAdder();
+        LongAdder responses = new LongAdder();
+        LoadGenerator.Result result = LoadGenerator.run(port, connections, WARMUP_NANOS, DURATION_NANOS,
+            client -> client
+                .headers(headers -> headers.set(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+                .get()
+                .uri(paths.get())
+                .responseSingle((response, body) -> body.asByteArray()
+                    .doOnNext(content -> {
+                        bytes.add(content.length);
+                        responses.increment();
+                    })
+                    .thenReturn(response.status().code())));
+        System.out.printf("mode=%s connections=%d bytes=%d %s%n",
+            name, connections, bytes.sum() / Math.max(1, responses.sum()), result);
+        assertThat(result.errors, is(0L));
+    }
+}
@@ -0,0 +1,119 @@
+package com.jespinel.terraform_provider_server.benchmark;
+
+import com.jespinel.terraform_provider_server.replication.ReplicaRouting;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.logging.LogLevel;
+import org.springframework.boot.logging.LoggingSystem;
+
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+/**
+ * Measures how the reads of single books scale with the number of replicas. A primary and
+ * {@value #REPLICAS} replicas run in their own {@link ServerProcess}es; the reads go to the
+ * primary alone, then round-robin to one, two and three replicas, which answer with what they
+ * have copied. The last run asks the replicas for strongly consistent reads, which each wait
+ * for a round trip to the primary. Run with
+ * {@code mvn test -Pbenchmark -Dtest=ReplicationLoadTest}.
+ * <p>
+ * The servers share the CPUs of the machine with each other and with the client, so reads only
+ * scale while there are idle CPUs; the {@code cpus} of the results is their number.
+ */
+@Tag("benchmark")
+class ReplicationLoadTest {
+
+    private static final int REPLICAS = 3;
+    private static final int CONNECTIONS = 256;
+    private static final int BOOKS = 10_000;
+    private static final long COPY_NANOS = TimeUnit.SECONDS.toNanos(60);
+    private static final long WARMUP_NANOS = TimeUnit.SECONDS.toNanos(10);
+    private static final long DURATION_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    /**
+     * Without a Spring context in this JVM, the client would log every connection at debug level.
+     */
+    @BeforeAll
+    static void configureClientLogs() {
+        LoggingSystem.get(ReplicationLoadTest.class.getClassLoader())
+            .setLogLevel(LoggingSystem.ROOT_LOGGER_NAME, LogLevel.INFO);
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = WebApplicationType.class, names = {"SERVLET", "REACTIVE"})
+    void measureReadThroughput(WebApplicationType mode) throws Exception {
+        String name = mode.name().toLowerCase();
+        List<ServerProcess> replicas = new ArrayList<>();
+        try (ServerProcess primary = ServerProcess.start(name + "-primary", "512m",
+            "--spring.main.web-application-type=" + mode,
+            "--replication.role=primary")) {
+
+            List<UUID> ids = primary.createBooks(BOOKS);
+            for (int i = 0; i < REPLICAS; i++) {
+                replicas.add(ServerProcess.start(name + "-replica-" + i, "512m",
+                    "--spring.main.web-application-type=" + mode,
+                    "--replication.role=replica",
+                    "--replication.primary-url=http://localhost:" + primary.port));
+            }
+            for (ServerProcess replica : replicas) {
+                awaitCopy(replica, ids.get(ids.size() - 1));
+            }
+
+            measure(mode, "primary", 0, false, ids, primary);
+            for (int count = 1; count <= REPLICAS; count++) {
+                measure(mode, "replicas", count, false, ids, replicas.subList(0, count).toArray(new ServerProcess[0]));
+            }
+            measure(mode, "replicas", REPLICAS, true, ids, replicas.toArray(new ServerProcess[0]));
+        } finally {
+            for (ServerProcess replica : replicas) {
+                replica.close();
+            }
+        }
+    }
+
+    /**
+     * Waits until a replica has copied a book.
+     */
+    private static void awaitCopy(ServerProcess replica, UUID id) throws Exception {
+        long deadline = System.nanoTime() + COPY_NANOS;
+        while (System.nanoTime() < deadline) {
+            HttpURLConnection connection = replica.open("/books/" + id);
+            if (connection.getResponseCode() == 200) {
+                return;
+            }
+            Thread.sleep(200);
+        }
+        throw new IllegalStateException("The replica did not copy the books, see its log in "
+            + ServerProcess.LOG_DIRECTORY);
+    }
+
+    private static void measure(WebApplicationType mode, String servers, int replicas, boolean strong,
+                                List<UUID> ids, ServerProcess... targets) {
+        AtomicInteger next = new AtomicInteger();
+        LoadGenerator.Result result = LoadGenerator.run(targets[0].port, CONNECTIONS, WARMUP_NANOS, DURATION_NANOS,
+            client -> {
+                ServerProcess target = targets[Math.floorMod(next.getAndIncrement(), targets.length)];
+                UUID id = ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+                return client
+                    .headers(headers -> headers.set(ReplicaRouting.READ_CONSISTENCY, strong ? "strong" : "eventual"))
+                    .get()
+                    .uri("http://localhost:" + target.port + "/books/" + id)
+                    .responseSingle((response, body) -> body.then().thenReturn(response.status().code()));
+            });
+        System.out.printf("mode=%s servers=%s replicas=%d consistency=%s cpus=%d %s%n",
+            mode, servers, replicas, strong ? "strong" : "eventual", Runtime.getRuntime().availableProcessors(), result);
+        assertThat(result.errors, is(0L));
+    }
+}
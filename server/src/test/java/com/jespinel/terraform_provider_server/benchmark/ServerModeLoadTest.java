@@ -0,0 +1,74 @@
+package com.jespinel.terraform_provider_server.benchmark;
+
+import com.jespinel.terraform_provider_server.TerraformProviderServerApplication;
+import com.jespinel.terraform_provider_server.books.Book;
+import com.jespinel.terraform_provider_server.books.BookRequest;
+import com.jespinel.terraform_provider_server.books.BookService;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+/**
+ * Compares the throughput and the tail latency of the servlet mode, on Tomcat, and the reactive
+ * mode, on Netty, under a growing number of concurrent connections. Each connection reads random
+ * books in a loop, as soon as its previous response arrives. Run with
+ * {@code mvn test -Pbenchmark -Dtest=ServerModeLoadTest}.
+ * <p>
+ * The client runs in the same JVM as the server, so it competes with it for the CPUs: compare
+ * the modes with each other, on the same machine, rather than with absolute numbers.
+ */
+@Tag("benchmark")
+class ServerModeLoadTest {
+
+    private static final int[] CONNECTIONS = {16, 256, 1024};
+    private static final int BOOKS = 10_000;
+    private static final long WARMUP_NANOS = TimeUnit.SECONDS.toNanos(3);
+    private static final long DURATION_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    @ParameterizedTest
+    @EnumSource(value = WebApplicationType.class, names = {"SERVLET", "REACTIVE"})
+    void measureThroughputAndLatency(WebApplicationType mode) throws Exception {
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(TerraformProviderServerApplication.class)
+            .web(mode)
+            .run("--server.port=0", "--logging.requests.success-sample-rate=0");
+        try {
+            int port = context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+            List<String> paths = createBooks(context.getBean(BookService.class));
+            for (int connections : CONNECTIONS) {
+                measure(mode, port, connections, paths);
+            }
+        } finally {
+            context.close();
+        }
+    }
+
+    private static List<String> createBooks(BookService bookService) throws Exception {
+        List<String> paths = new ArrayList<>(BOOKS);
+        for (int i = 0; i < BOOKS; i++) {
+            Book book = bookService.create(new BookRequest("Title " + i, "Author " + i));
+            paths.add("/books/" + book.getId());
+        }
+        return paths;
+    }
+
+    private static void measure(WebApplicationType mode, int port, int connections, List<String> paths) {
+        LoadGenerator.Result result = LoadGenerator.run(port, connections, WARMUP_NANOS, DURATION_NANOS,
+            client -> client.get()
+                .uri(paths.get(ThreadLocalRandom.current().nextInt(paths.size())))
+                .responseSingle((response, body) -> body.asByteArray().thenReturn(response.status().code())));
+        System.out.printf("mode=%s connections=%d %s%n", mode, connections, result);
+        assertThat(result.errors, is(0L));
+    }
+}
@@ -0,0 +1,142 @@
+package com.jespinel.terraform_provider_server.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.jespinel.terraform_provider_server.TerraformProviderServerApplication;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Server running in its own JVM, so the load tests can compare configurations without the JIT
+ * compilation and the garbage of one favouring the next, or run several servers that talk to
+ * each other. The logs of the servers are written to {@code target/load-tests}.
+ */
+final class ServerProcess implements AutoCloseable {
+
+    static final File LOG_DIRECTORY = new File("target/load-tests");
+
+    private static final long STARTUP_NANOS = TimeUnit.SECONDS.toNanos(60);
+    private static final int BATCH_SIZE = 1000;
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    final int port;
+    private final Process process;
+
+    private ServerProcess(int port, Process process) {
+        this.port = port;
+        this.process = process;
+    }
+
+    /**
+     * Starts a server on a free port, and waits until it answers.
+     *
+     * @param name Name of the log of the server.
+     * @param heap Size of the heap of the server, such as {@code 1g}.
+     * @param args Arguments of the server, such as {@code --spring.profiles.active=production}.
+     * @return The server.
+     */
+    static ServerProcess start(String name, String heap, String... args) throws Exception {
+        LOG_DIRECTORY.mkdirs();
+        int port = freePort();
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        // Devtools is on the test classpath, but not in the packaged server
+        List<String> command = new ArrayList<>(Arrays.asList(java, "-Xms" + heap, "-Xmx" + heap,
+            "-Dspring.devtools.restart.enabled=false",
+            "-cp", System.getProperty("java.class.path"),
+            TerraformProviderServerApplication.class.getName(),
+            "--server.port=" + port,
+            "--logging.requests.success-sample-rate=0"));
+        command.addAll(Arrays.asList(args));
+        Process process = new ProcessBuilder(command)
+            .redirectErrorStream(true)
+            .redirectOutput(new File(LOG_DIRECTORY, name + ".log"))
+            .start();
+
+        ServerProcess server = new ServerProcess(port, process);
+        try {
+            server.awaitStartup();
+        } catch (Exception e) {
+            server.close();
+            throw e;
+        }
+        return server;
+    }
+
+    /**
+     * Creates books with batches of {@code POST /books/batch}.
+     *
+     * @return The IDs of the books.
+     */
+    List<UUID> createBooks(int books) throws IOException {
+        List<UUID> ids = new ArrayList<>(books);
+        for (int batch = 0; batch < books; batch += BATCH_SIZE) {
+            ArrayNode requests = MAPPER.createArrayNode();
+            for (int i = batch; i < Math.min(books, batch + BATCH_SIZE); i++) {
+                requests.addObject().put("title", "Title " + i).put("author", "Author " + i);
+            }
+            HttpURLConnection connection = open("/books/batch");
+            connection.setRequestMethod("POST");
+            connection.setRequestProperty(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE);
+            connection.setDoOutput(true);
+            try (OutputStream output = connection.getOutputStream()) {
+                MAPPER.writeValue(output, requests);
+            }
+            try (InputStream input = connection.getInputStream()) {
+                for (JsonNode result : MAPPER.readTree(input)) {
+                    ids.add(UUID.fromString(result.path("body").path("id").asText()));
+                }
+            }
+        }
+        return ids;
+    }
+
+    HttpURLConnection open(String path) throws IOException {
+        return (HttpURLConnection) new URL("http://localhost:" + port + path).openConnection();
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        process.destroy();
+        process.waitFor();
+    }
+
+    private void awaitStartup() throws Exception {
+        long deadline = System.nanoTime() + STARTUP_NANOS;
+        while (System.nanoTime() < deadline) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException("The server stopped, see its log in " + LOG_DIRECTORY);
+            }
+            try {
+                if (open("/books?limit=1").getResponseCode() == 200) {
+                    return;
+                }
+            } catch (IOException e) {
+                // Not listening yet
+            }
+            Thread.sleep(200);
+        }
+        throw new IllegalStateException("The server did not start, see its log in " + LOG_DIRECTORY);
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.jespinel.terraform_provider_server.books;
+
+import com.jespinel.terraform_provider_server.TerraformProviderServerApplicationTests;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThan;
+
+/**
+ * Compares the time to read books by title in a small and a large store. It measures wall-clock
+ * time, so it only runs with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@TestPropertySource(properties = "logging.level.com.jespinel.terraform_provider_server.books=WARN")
+class BookControllerScalabilityTest extends TerraformProviderServerApplicationTests {
+
+    private static final int SMALL_STORE_SIZE = 1_000;
+    private static final int LARGE_STORE_SIZE = 50_000;
+    private static final int LOOKUPS = 20_000;
+    private static final int ROUNDS = 5;
+
+    @Autowired
+    private BookController bookController;
+
+    @AfterEach
+    void tearDown() {
+        bookController.deleteAll();
+    }
+
+    @Test
+    void whenTheStoreGrows_readByTitleLatencyStaysFlat() throws Exception {
+        List<String> titles = createBooks(SMALL_STORE_SIZE, 0);
+        long smallStoreNanos = measureReadByTitle(titles);
+
+        titles.addAll(createBooks(LARGE_STORE_SIZE - SMALL_STORE_SIZE, SMALL_STORE_SIZE));
+        long largeStoreNanos = measureReadByTitle(titles);
+
+        // A full scan would be ~50 times slower on the large store
+        assertThat(largeStoreNanos, lessThan(smallStoreNanos * 10));
+    }
+
+    private List<String> createBooks(int count, int offset) throws Exception {
+        List<String> titles = new ArrayList<>(count);
+        for (int i = offset; i < offset + count; i++) {
+            String title = "Title " + i;
+            bookController.create(null, null, new BookRequest(title, "Author " + i));
+            titles.add(title);
+        }
+        return titles;
+    }
+
+    /**
+     * Returns the best time, among several rounds, to read random books by title.
+     */
+    private long measureReadByTitle(List<String> titles) throws Exception {
+        Random random = new Random(42);
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < LOOKUPS; i++) {
+                bookController.readByTitle(titles.get(random.nextInt(titles.size())), null);
+            }
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+}
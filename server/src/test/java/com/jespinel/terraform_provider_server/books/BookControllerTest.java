@@ -2,26 +2,37 @@ package com.jespinel.terraform_provider_server.books;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
 import com.jespinel.terraform_provider_server.TerraformProviderServerApplicationTests;
 import com.jespinel.terraform_provider_server.commons.JsonHelpers;
+import com.jespinel.terraform_provider_server.idempotency.IdempotencyCache;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.emptyOrNullString;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.not;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 
 @AutoConfigureMockMvc
 class BookControllerTest extends TerraformProviderServerApplicationTests {
@@ -125,6 +136,48 @@ class BookControllerTest extends TerraformProviderServerApplicationTests {
         assertThat(errorMessage, is("The book 'Brave new world' already exists"));
     }
 
+    @Test
+    void whenRetryingACreationWithTheSameIdempotencyKey_returnTheFirstResponse() throws Exception {
+        String key = UUID.randomUUID().toString();
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+            .post("/books")
+            .header(IdempotencyCache.HEADER, key)
+            .accept(MediaType.APPLICATION_JSON)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(MAPPER.writeValueAsString(new BookRequest("Brave new world", "Aldous Huxley")));
+
+        MockHttpServletResponse first = mockMvc.perform(request).andReturn().getResponse();
+        MockHttpServletResponse retry = mockMvc.perform(request).andReturn().getResponse();
+        assertThat(first.getStatus(), is(HttpStatus.CREATED.value()));
+        assertThat(retry.getStatus(), is(HttpStatus.CREATED.value()));
+        assertThat(retry.getHeader(HttpHeaders.ETAG), is(first.getHeader(HttpHeaders.ETAG)));
+        assertThat(JsonHelpers.getResponseBody(retry), is(JsonHelpers.getResponseBody(first)));
+
+        MockHttpServletResponse list = mockMvc.perform(MockMvcRequestBuilders.get("/books")).andReturn().getResponse();
+        assertThat(JsonHelpers.getResponseBody(list).get("items").size(), is(1));
+    }
+
+    @Test
+    void whenReusingAnIdempotencyKeyForAnotherBook_return422() throws Exception {
+        String key = UUID.randomUUID().toString();
+        MockHttpServletRequestBuilder first = MockMvcRequestBuilders
+            .post("/books")
+            .header(IdempotencyCache.HEADER, key)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(MAPPER.writeValueAsString(new BookRequest("Dune", "Frank Herbert")));
+        MockHttpServletRequestBuilder other = MockMvcRequestBuilders
+            .post("/books")
+            .header(IdempotencyCache.HEADER, key)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(MAPPER.writeValueAsString(new BookRequest("Dune messiah", "Frank Herbert")));
+
+        assertThat(mockMvc.perform(first).andReturn().getResponse().getStatus(), is(HttpStatus.CREATED.value()));
+        MockHttpServletResponse response = mockMvc.perform(other).andReturn().getResponse();
+        assertThat(response.getStatus(), is(HttpStatus.UNPROCESSABLE_ENTITY.value()));
+        assertThat(JsonHelpers.getResponseBody(response).get("message").asText(),
+            is("The Idempotency-Key '" + key + "' was already used with another request"));
+    }
+
     @Test
     void whenReadingAnExistingBook_return200() throws Exception {
         String title = "Brave new world";
@@ -225,6 +278,115 @@ class BookControllerTest extends TerraformProviderServerApplicationTests {
         assertThat(errorMessage, is(String.format("The book with title '%s' does not exist", title)));
     }
 
+    @Test
+    void whenReadingAnExistingBookByTitleWithDifferentCase_return200() throws Exception {
+        String title = "Brave new world";
+        String author = "Aldous Huxley";
+        String bookId = createBook(title, author);
+
+        MockHttpServletRequestBuilder get = MockMvcRequestBuilders
+            .get("/books")
+            .param("title", "BRAVE NEW WORLD")
+            .accept(MediaType.APPLICATION_JSON)
+            .contentType(MediaType.APPLICATION_JSON);
+
+        MockHttpServletResponse getResponse = mockMvc.perform(get).andReturn().getResponse();
+        assertThat(getResponse.getStatus(), is(HttpStatus.OK.value()));
+
+        JsonNode getResponseBody = JsonHelpers.getResponseBody(getResponse);
+        assertThat(getResponseBody.get("id").asText(), is(bookId));
+        assertThat(getResponseBody.get("title").asText(), is(title));
+    }
+
+    @Test
+    void whenReadingADeletedBookByTitle_return404() throws Exception {
+        String title = "Brave new world";
+        String bookId = createBook(title, "Aldous Huxley");
+
+        MockHttpServletRequestBuilder delete = MockMvcRequestBuilders
+            .delete(String.format("/books/%s", bookId))
+            .accept(MediaType.APPLICATION_JSON)
+            .contentType(MediaType.APPLICATION_JSON);
+        mockMvc.perform(delete);
+
+        MockHttpServletRequestBuilder get = MockMvcRequestBuilders
+            .get("/books")
+            .param("title", title)
+            .accept(MediaType.APPLICATION_JSON)
+            .contentType(MediaType.APPLICATION_JSON);
+
+        MockHttpServletResponse getResponse = mockMvc.perform(get).andReturn().getResponse();
+        assertThat(getResponse.getStatus(), is(HttpStatus.NOT_FOUND.value()));
+    }
+
+    @Test
+    void whenReadingAnUpdatedBookByItsOldTitle_return404() throws Exception {
+        String title = "Brave new world";
+        String bookId = createBook(title, "Aldous Huxley");
+
+        BookRequest updatedBook = new BookRequest("1984", "George Orwell");
+        MockHttpServletRequestBuilder put = MockMvcRequestBuilders
+            .put(String.format("/books/%s", bookId))
+            .accept(MediaType.APPLICATION_JSON)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(MAPPER.writeValueAsString(updatedBook));
+        mockMvc.perform(put);
+
+        MockHttpServletRequestBuilder get = MockMvcRequestBuilders
+            .get("/books")
+            .param("title", title)
+            .accept(MediaType.APPLICATION_JSON)
+            .contentType(MediaType.APPLICATION_JSON);
+
+        MockHttpServletResponse getResponse = mockMvc.perform(get).andReturn().getResponse();
+        assertThat(getResponse.getStatus(), is(HttpStatus.NOT_FOUND.value()));
+
+        // The old title is free again
+        createBook(title, "Aldous Huxley");
+    }
+
+    @Test
+    void whenReadingSeveralBooksByIds_returnFoundAndMissing() throws Exception {
+        String firstId = createBook("Brave new world", "Aldous Huxley");
+        String secondId = createBook("1984", "George Orwell");
+        String missingId = UUID.randomUUID().toString();
+
+        MockHttpServletRequestBuilder get = MockMvcRequestBuilders
+            .get("/books")
+            .param("ids", secondId, missingId, firstId)
+            .accept(MediaType.APPLICATION_JSON);
+
+        MockHttpServletResponse response = mockMvc.perform(get).andReturn().getResponse();
+        assertThat(response.getStatus(), is(HttpStatus.OK.value()));
+
+        JsonNode body = JsonHelpers.getResponseBody(response);
+        assertThat(body.get("found").size(), is(2));
+        assertThat(body.get("found").get(0).get("id").asText(), is(secondId));
+        assertThat(body.get("found").get(1).get("title").asText(), is("Brave new world"));
+        assertThat(body.get("missing").size(), is(1));
+        assertThat(body.get("missing").get(0).asText(), is(missingId));
+    }
+
+    @Test
+    void whenLookingUpSeveralBooksInTheBody_returnFoundAndMissing() throws Exception {
+        String bookId = createBook("Brave new world", "Aldous Huxley");
+        String missingId = UUID.randomUUID().toString();
+
+        MockHttpServletRequestBuilder post = MockMvcRequestBuilders
+            .post("/books/lookup")
+            .accept(MediaType.APPLICATION_JSON)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(MAPPER.writeValueAsString(Arrays.asList(bookId, missingId, bookId)));
+
+        MockHttpServletResponse response = mockMvc.perform(post).andReturn().getResponse();
+        assertThat(response.getStatus(), is(HttpStatus.OK.value()));
+
+        JsonNode body = JsonHelpers.getResponseBody(response);
+        assertThat(body.get("found").size(), is(1));
+        assertThat(body.get("found").get(0).get("id").asText(), is(bookId));
+        assertThat(body.get("missing").get(0).asText(), is(missingId));
+    }
+
     @Test
     void whenUpdatingAnExistingWord_return200() throws Exception {
         String title = "Brave new world";
@@ -264,6 +426,26 @@ class BookControllerTest extends TerraformProviderServerApplicationTests {
         assertThat(getResponseBody.get("author").asText(), is(updatedAuthor));
     }
 
+    @Test
+    void whenUpdatingABookWithTheTitleOfAnotherBook_return409() throws Exception {
+        createBook("Brave new world", "Aldous Huxley");
+        String bookId = createBook("1984", "George Orwell");
+
+        BookRequest updatedBook = new BookRequest("BRAVE NEW WORLD", "George Orwell");
+        MockHttpServletRequestBuilder put = MockMvcRequestBuilders
+            .put(String.format("/books/%s", bookId))
+            .accept(MediaType.APPLICATION_JSON)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(MAPPER.writeValueAsString(updatedBook));
+
+        MockHttpServletResponse response = mockMvc.perform(put).andReturn().getResponse();
+        assertThat(response.getStatus(), is(HttpStatus.CONFLICT.value()));
+
+        JsonNode responseBody = JsonHelpers.getResponseBody(response);
+        String errorMessage = responseBody.get("message").asText();
+        assertThat(errorMessage, is("The book 'BRAVE NEW WORLD' already exists"));
+    }
+
     @Test
     void whenUpdatingANonExistingWord_return404() throws Exception {
         String title = "Brave new world";
@@ -327,12 +509,552 @@ class BookControllerTest extends TerraformProviderServerApplicationTests {
         assertThat(response.getStatus(), is(HttpStatus.NO_CONTENT.value()));
     }
 
+    @Test
+    void whenCreatingABatchOfBooks_returnAResultPerBook() throws Exception {
+        createBook("Dune", "Frank Herbert");
+        List<BookRequest> books = Arrays.asList(
+            new BookRequest("Brave new world", "Aldous Huxley"),
+            new BookRequest("BRAVE NEW WORLD", "Aldous Huxley"),
+            new BookRequest("", "Nobody"),
+            new BookRequest("Dune", "Frank Herbert"));
+
+        MockHttpServletRequestBuilder post = MockMvcRequestBuilders
+            .post("/books/batch")
+            .accept(MediaType.APPLICATION_JSON)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(MAPPER.writeValueAsString(books));
+
+        MockHttpServletResponse response = mockMvc.perform(post).andReturn().getResponse();
+        assertThat(response.getStatus(), is(HttpStatus.OK.value()));
+
+        JsonNode results = JsonHelpers.getResponseBody(response);
+        assertThat(results.size(), is(4));
+        assertThat(results.get(0).get("status").asInt(), is(HttpStatus.CREATED.value()));
+        assertThat(results.get(0).get("body").get("title").asText(), is("Brave new world"));
+        assertThat(results.get(1).get("status").asInt(), is(HttpStatus.CONFLICT.value()));
+        assertThat(results.get(1).get("message").asText(), is("The book 'BRAVE NEW WORLD' already exists"));
+        assertThat(results.get(2).get("status").asInt(), is(HttpStatus.BAD_REQUEST.value()));
+        assertThat(results.get(2).get("message").asText(), is("title is required"));
+        assertThat(results.get(3).get("status").asInt(), is(HttpStatus.CONFLICT.value()));
+
+        String bookId = results.get(0).get("body").get("id").asText();
+        MockHttpServletRequestBuilder get = MockMvcRequestBuilders
+            .get(String.format("/books/%s", bookId))
+            .accept(MediaType.APPLICATION_JSON);
+        assertThat(mockMvc.perform(get).andReturn().getResponse().getStatus(), is(HttpStatus.OK.value()));
+    }
+
+    @Test
+    void whenUpdatingABatchOfBooks_returnAResultPerBook() throws Exception {
+        String bookId = createBook("Brave new world", "Aldous Huxley");
+        String missingId = UUID.randomUUID().toString();
+        List<BookUpdateRequest> books = Arrays.asList(
+            new BookUpdateRequest(UUID.fromString(bookId), "1984", "George Orwell", null),
+            new BookUpdateRequest(UUID.fromString(missingId), "Dune", "Frank Herbert", null));
+
+        MockHttpServletRequestBuilder put = MockMvcRequestBuilders
+            .put("/books/batch")
+            .accept(MediaType.APPLICATION_JSON)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(MAPPER.writeValueAsString(books));
+
+        MockHttpServletResponse response = mockMvc.perform(put).andReturn().getResponse();
+        assertThat(response.getStatus(), is(HttpStatus.OK.value()));
+
+        JsonNode results = JsonHelpers.getResponseBody(response);
+        assertThat(results.get(0).get("status").asInt(), is(HttpStatus.OK.value()));
+        assertThat(results.get(0).get("body").get("title").asText(), is("1984"));
+        assertThat(results.get(1).get("status").asInt(), is(HttpStatus.NOT_FOUND.value()));
+        assertThat(results.get(1).get("message").asText(),
+            is(String.format("The book with ID '%s' does not exist", missingId)));
+    }
+
+    @Test
+    void whenDeletingABatchOfBooks_theyAreDeleted() throws Exception {
+        String bookId = createBook("Brave new world", "Aldous Huxley");
+        List<String> ids = Arrays.asList(bookId, UUID.randomUUID().toString());
+
+        MockHttpServletRequestBuilder delete = MockMvcRequestBuilders
+            .delete("/books/batch")
+            .accept(MediaType.APPLICATION_JSON)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(MAPPER.writeValueAsString(ids));
+
+        MockHttpServletResponse response = mockMvc.perform(delete).andReturn().getResponse();
+        assertThat(response.getStatus(), is(HttpStatus.OK.value()));
+
+        JsonNode results = JsonHelpers.getResponseBody(response);
+        assertThat(results.size(), is(2));
+        assertThat(results.get(0).get("status").asInt(), is(HttpStatus.NO_CONTENT.value()));
+        assertThat(results.get(1).get("status").asInt(), is(HttpStatus.NO_CONTENT.value()));
+
+        MockHttpServletRequestBuilder get = MockMvcRequestBuilders
+            .get(String.format("/books/%s", bookId))
+            .accept(MediaType.APPLICATION_JSON);
+        assertThat(mockMvc.perform(get).andReturn().getResponse().getStatus(), is(HttpStatus.NOT_FOUND.value()));
+    }
+
     @Test
     void whenDeletingAll_return204() throws Exception {
         MockHttpServletResponse response = deleteAll();
         assertThat(response.getStatus(), is(HttpStatus.NO_CONTENT.value()));
     }
 
+    @Test
+    void whenListingBooksInPages_returnEveryBookOnce() throws Exception {
+        Set<String> createdIds = new HashSet<>();
+        for (int i = 0; i < 5; i++) {
+            createdIds.add(createBook("Title " + i, "Author " + i));
+        }
+
+        Set<String> listedIds = new HashSet<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            MockHttpServletRequestBuilder get = MockMvcRequestBuilders
+                .get("/books")
+                .param("limit", "2");
+            if (cursor != null) {
+                get.param("cursor", cursor);
+            }
+
+            MockHttpServletResponse response = mockMvc.perform(get).andReturn().getResponse();
+            assertThat(response.getStatus(), is(HttpStatus.OK.value()));
+
+            JsonNode body = JsonHelpers.getResponseBody(response);
+            body.get("items").forEach(book -> listedIds.add(book.get("id").asText()));
+            cursor = body.has("nextCursor") ? body.get("nextCursor").asText() : null;
+            pages++;
+        } while (cursor != null);
+
+        assertThat(pages, is(3));
+        assertThat(listedIds, is(createdIds));
+    }
+
+    @Test
+    void whenListingBooksWithAnInvalidCursor_return400() throws Exception {
+        MockHttpServletRequestBuilder get = MockMvcRequestBuilders
+            .get("/books")
+            .param("cursor", "not a cursor")
+            .accept(MediaType.APPLICATION_JSON);
+        assertThat(mockMvc.perform(get).andReturn().getResponse().getStatus(), is(HttpStatus.BAD_REQUEST.value()));
+
+        get = MockMvcRequestBuilders
+            .get("/books")
+            .param("limit", "0")
+            .accept(MediaType.APPLICATION_JSON);
+        assertThat(mockMvc.perform(get).andReturn().getResponse().getStatus(), is(HttpStatus.BAD_REQUEST.value()));
+    }
+
+    @Test
+    void whenReadingTheChangesSinceARevision_returnOnlyTheLastChangeOfEachBook() throws Exception {
+        long start = readAllChanges();
+        String dune = createBook("Dune", "Frank Herbert");
+        String emma = createBook("Emma", "Jane Austen");
+        updateBook(dune, "Dune Messiah", "Frank Herbert");
+        mockMvc.perform(MockMvcRequestBuilders.delete("/books/" + emma)).andReturn();
+
+        JsonNode changes = readChanges(start, 100);
+        JsonNode items = changes.get("items");
+        assertThat(items.size(), is(2));
+        assertThat(items.get(0).get("id").asText(), is(dune));
+        assertThat(items.get(0).get("deleted").asBoolean(), is(false));
+        assertThat(items.get(0).get("entity").get("title").asText(), is("Dune Messiah"));
+        assertThat(items.get(0).get("entity").get("version").asLong(), is(2L));
+        assertThat(items.get(1).get("id").asText(), is(emma));
+        assertThat(items.get(1).get("deleted").asBoolean(), is(true));
+        assertThat(items.get(1).has("entity"), is(false));
+        long revision = changes.get("revision").asLong();
+        assertThat(revision >= items.get(1).get("revision").asLong(), is(true));
+        assertThat(changes.get("more").asBoolean(), is(false));
+
+        JsonNode firstPage = readChanges(start, 1);
+        assertThat(firstPage.get("items").get(0).get("id").asText(), is(dune));
+        assertThat(firstPage.get("more").asBoolean(), is(true));
+        JsonNode secondPage = readChanges(firstPage.get("revision").asLong(), 1);
+        assertThat(secondPage.get("items").get(0).get("id").asText(), is(emma));
+
+        deleteAll();
+        JsonNode afterDeleteAll = readChanges(revision, 100).get("items");
+        assertThat(afterDeleteAll.size(), is(1));
+        assertThat(afterDeleteAll.get(0).get("id").asText(), is(dune));
+        assertThat(afterDeleteAll.get(0).get("deleted").asBoolean(), is(true));
+    }
+
+    @Test
+    void whenReadingTheChangesSinceAnUnknownRevision_return410() throws Exception {
+        long current = readAllChanges();
+
+        MockHttpServletRequestBuilder get = MockMvcRequestBuilders
+            .get("/books/changes")
+            .param("since", Long.toString(current + 1))
+            .accept(MediaType.APPLICATION_JSON);
+        assertThat(mockMvc.perform(get).andReturn().getResponse().getStatus(), is(HttpStatus.GONE.value()));
+
+        get = MockMvcRequestBuilders
+            .get("/books/changes")
+            .param("since", "-1")
+            .accept(MediaType.APPLICATION_JSON);
+        assertThat(mockMvc.perform(get).andReturn().getResponse().getStatus(), is(HttpStatus.BAD_REQUEST.value()));
+    }
+
+    @Test
+    void whenListingBooksByAuthor_returnOnlyTheirBooksInPages() throws Exception {
+        Set<String> huxleyIds = new HashSet<>();
+        for (int i = 0; i < 3; i++) {
+            huxleyIds.add(createBook("Huxley " + i, "Aldous Huxley"));
+        }
+        createBook("1984", "George Orwell");
+        createBook("Anonymous", null);
+
+        Set<String> listedIds = new HashSet<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            MockHttpServletRequestBuilder get = MockMvcRequestBuilders
+                .get("/books")
+                .param("author", "aldous HUXLEY")
+                .param("limit", "2");
+            if (cursor != null) {
+                get.param("cursor", cursor);
+            }
+
+            MockHttpServletResponse response = mockMvc.perform(get).andReturn().getResponse();
+            assertThat(response.getStatus(), is(HttpStatus.OK.value()));
+
+            JsonNode body = JsonHelpers.getResponseBody(response);
+            body.get("items").forEach(book -> listedIds.add(book.get("id").asText()));
+            cursor = body.has("nextCursor") ? body.get("nextCursor").asText() : null;
+            pages++;
+        } while (cursor != null);
+
+        assertThat(pages, is(2));
+        assertThat(listedIds, is(huxleyIds));
+    }
+
+    @Test
+    void whenListingBooksByAuthorAfterAnUpdateAndADelete_returnTheCurrentBooks() throws Exception {
+        String movedId = createBook("Animal farm", "Aldous Huxley");
+        String deletedId = createBook("Brave new world", "Aldous Huxley");
+
+        MockHttpServletRequestBuilder put = MockMvcRequestBuilders
+            .put(String.format("/books/%s", movedId))
+            .accept(MediaType.APPLICATION_JSON)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(MAPPER.writeValueAsString(new BookRequest("Animal farm", "George Orwell")));
+        assertThat(mockMvc.perform(put).andReturn().getResponse().getStatus(), is(HttpStatus.OK.value()));
+        mockMvc.perform(MockMvcRequestBuilders.delete(String.format("/books/%s", deletedId)));
+
+        assertThat(listIdsByAuthor("Aldous Huxley"), is(new HashSet<>()));
+        assertThat(listIdsByAuthor("George Orwell"), is(new HashSet<>(Arrays.asList(movedId))));
+    }
+
+    @Test
+    void whenSearchingTitles_returnTheMatchesSortedByTitle() throws Exception {
+        createBook("Terraform: Up & Running", "Yevgeniy Brikman");
+        createBook("Terraform in Action", "Scott Winkler");
+        createBook("Infrastructure as Code", "Kief Morris");
+
+        MockHttpServletRequestBuilder get = MockMvcRequestBuilders
+            .get("/books/search")
+            .param("q", "TERRAFORM")
+            .param("match", "substring")
+            .accept(MediaType.APPLICATION_JSON);
+        MockHttpServletResponse response = mockMvc.perform(get).andReturn().getResponse();
+        assertThat(response.getStatus(), is(HttpStatus.OK.value()));
+
+        JsonNode items = JsonHelpers.getResponseBody(response).get("items");
+        assertThat(items.size(), is(2));
+        assertThat(items.get(0).get("title").asText(), is("Terraform in Action"));
+        assertThat(items.get(1).get("title").asText(), is("Terraform: Up & Running"));
+
+        get = MockMvcRequestBuilders
+            .get("/books/search")
+            .param("q", "infra")
+            .accept(MediaType.APPLICATION_JSON);
+        items = JsonHelpers.getResponseBody(mockMvc.perform(get).andReturn().getResponse()).get("items");
+        assertThat(items.size(), is(1));
+        assertThat(items.get(0).get("title").asText(), is("Infrastructure as Code"));
+    }
+
+    @Test
+    void whenStreamingBooks_returnOneBookPerLine() throws Exception {
+        createBook("Brave new world", "Aldous Huxley");
+        createBook("1984", "George Orwell");
+
+        MockHttpServletRequestBuilder get = MockMvcRequestBuilders
+            .get("/books")
+            .accept("application/x-ndjson");
+        MvcResult result = mockMvc.perform(get).andReturn();
+        MockHttpServletResponse response = mockMvc.perform(asyncDispatch(result)).andReturn().getResponse();
+        assertThat(response.getStatus(), is(HttpStatus.OK.value()));
+        assertThat(response.getContentType(), is("application/x-ndjson"));
+
+        String[] lines = response.getContentAsString().split("\n");
+        assertThat(lines.length, is(2));
+        Set<String> titles = new HashSet<>();
+        for (String line : lines) {
+            titles.add(MAPPER.readTree(line).get("title").asText());
+        }
+        assertThat(titles, is(new HashSet<>(Arrays.asList("Brave new world", "1984"))));
+    }
+
+    @Test
+    void whenReadingABookWithItsCurrentETag_return304() throws Exception {
+        String bookId = createBook("Brave new world", "Aldous Huxley");
+
+        MockHttpServletRequestBuilder get = MockMvcRequestBuilders
+            .get(String.format("/books/%s", bookId))
+            .accept(MediaType.APPLICATION_JSON);
+        MockHttpServletResponse readResponse = mockMvc.perform(get).andReturn().getResponse();
+        assertThat(readResponse.getHeader(HttpHeaders.ETAG), is("\"" + bookId + "-1\""));
+
+        get = MockMvcRequestBuilders
+            .get(String.format("/books/%s", bookId))
+            .header(HttpHeaders.IF_NONE_MATCH, "\"" + bookId + "-1\"")
+            .accept(MediaType.APPLICATION_JSON);
+        MockHttpServletResponse notModifiedResponse = mockMvc.perform(get).andReturn().getResponse();
+        assertThat(notModifiedResponse.getStatus(), is(HttpStatus.NOT_MODIFIED.value()));
+        assertThat(notModifiedResponse.getContentAsString(), is(""));
+    }
+
+    @Test
+    void whenReadingAnUpdatedBookWithAnOldETag_return200() throws Exception {
+        String bookId = createBook("Brave new world", "Aldous Huxley");
+
+        MockHttpServletRequestBuilder put = MockMvcRequestBuilders
+            .put(String.format("/books/%s", bookId))
+            .accept(MediaType.APPLICATION_JSON)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(MAPPER.writeValueAsString(new BookRequest("Island", "Aldous Huxley")));
+        MockHttpServletResponse updateResponse = mockMvc.perform(put).andReturn().getResponse();
+        assertThat(updateResponse.getHeader(HttpHeaders.ETAG), is("\"" + bookId + "-2\""));
+        assertThat(JsonHelpers.getResponseBody(updateResponse).get("version").asLong(), is(2L));
+
+        MockHttpServletRequestBuilder get = MockMvcRequestBuilders
+            .get(String.format("/books/%s", bookId))
+            .header(HttpHeaders.IF_NONE_MATCH, "\"" + bookId + "-1\"")
+            .accept(MediaType.APPLICATION_JSON);
+        MockHttpServletResponse readResponse = mockMvc.perform(get).andReturn().getResponse();
+        assertThat(readResponse.getStatus(), is(HttpStatus.OK.value()));
+        assertThat(readResponse.getHeader(HttpHeaders.ETAG), is("\"" + bookId + "-2\""));
+        assertThat(JsonHelpers.getResponseBody(readResponse).get("title").asText(), is("Island"));
+    }
+
+    @Test
+    void whenReadingARecreatedBookByTitleWithTheETagOfTheDeletedOne_return200() throws Exception {
+        String deletedId = createBook("Brave new world", "Aldous Huxley");
+        MockHttpServletRequestBuilder get = MockMvcRequestBuilders
+            .get("/books?title=Brave new world")
+            .accept(MediaType.APPLICATION_JSON);
+        String deletedETag = mockMvc.perform(get).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(MockMvcRequestBuilders.delete(String.format("/books/%s", deletedId)));
+        String bookId = createBook("Brave new world", "Aldous Huxley");
+
+        get = MockMvcRequestBuilders
+            .get("/books?title=Brave new world")
+            .header(HttpHeaders.IF_NONE_MATCH, deletedETag)
+            .accept(MediaType.APPLICATION_JSON);
+        MockHttpServletResponse readResponse = mockMvc.perform(get).andReturn().getResponse();
+        assertThat(readResponse.getStatus(), is(HttpStatus.OK.value()));
+        assertThat(readResponse.getHeader(HttpHeaders.ETAG), is("\"" + bookId + "-1\""));
+        assertThat(JsonHelpers.getResponseBody(readResponse).get("id").asText(), is(bookId));
+    }
+
+    @Test
+    void whenUpdatingABookWithAStaleIfMatch_return412() throws Exception {
+        String bookId = createBook("Brave new world", "Aldous Huxley");
+
+        MockHttpServletRequestBuilder put = MockMvcRequestBuilders
+            .put(String.format("/books/%s", bookId))
+            .header(HttpHeaders.IF_MATCH, "\"" + bookId + "-1\"")
+            .accept(MediaType.APPLICATION_JSON)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(MAPPER.writeValueAsString(new BookRequest("Island", "Aldous Huxley")));
+        assertThat(mockMvc.perform(put).andReturn().getResponse().getStatus(), is(HttpStatus.OK.value()));
+
+        MockHttpServletResponse response = mockMvc.perform(put).andReturn().getResponse();
+        assertThat(response.getStatus(), is(HttpStatus.PRECONDITION_FAILED.value()));
+        assertThat(JsonHelpers.getResponseBody(response).get("message").asText(),
+            is(String.format("The book with ID '%s' has changed, its version is 2", bookId)));
+    }
+
+    @Test
+    void whenUpdatingABatchOfBooksWithVersions_failTheStaleOnes() throws Exception {
+        String bookId = createBook("Brave new world", "Aldous Huxley");
+        List<BookUpdateRequest> books = Arrays.asList(
+            new BookUpdateRequest(UUID.fromString(bookId), "Island", "Aldous Huxley", 1L),
+            new BookUpdateRequest(UUID.fromString(bookId), "Island", "Aldous Huxley", 1L));
+
+        MockHttpServletRequestBuilder put = MockMvcRequestBuilders
+            .put("/books/batch")
+            .accept(MediaType.APPLICATION_JSON)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(MAPPER.writeValueAsString(books));
+
+        JsonNode results = JsonHelpers.getResponseBody(mockMvc.perform(put).andReturn().getResponse());
+        assertThat(results.get(0).get("status").asInt(), is(HttpStatus.OK.value()));
+        assertThat(results.get(0).get("body").get("version").asLong(), is(2L));
+        assertThat(results.get(1).get("status").asInt(), is(HttpStatus.PRECONDITION_FAILED.value()));
+    }
+
+    @Test
+    void whenAnItemOfABatchFails_itsTitleIsFreeForTheNextItems() throws Exception {
+        String staleId = createBook("Brave new world", "Aldous Huxley");
+        String bookId = createBook("Dune", "Frank Herbert");
+        List<BookUpdateRequest> books = Arrays.asList(
+            new BookUpdateRequest(UUID.fromString(staleId), "Island", "Aldous Huxley", 5L),
+            new BookUpdateRequest(UUID.fromString(bookId), "Island", "Aldous Huxley", null));
+
+        MockHttpServletRequestBuilder put = MockMvcRequestBuilders
+            .put("/books/batch")
+            .accept(MediaType.APPLICATION_JSON)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(MAPPER.writeValueAsString(books));
+
+        JsonNode results = JsonHelpers.getResponseBody(mockMvc.perform(put).andReturn().getResponse());
+        assertThat(results.get(0).get("status").asInt(), is(HttpStatus.PRECONDITION_FAILED.value()));
+        assertThat(results.get(1).get("status").asInt(), is(HttpStatus.OK.value()));
+        assertThat(results.get(1).get("body").get("title").asText(), is("Island"));
+    }
+
+    @Test
+    void whenABatchHasTooManyItems_Return400() throws Exception {
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i <= 1000; i++) {
+            ids.add(UUID.randomUUID());
+        }
+
+        MockHttpServletRequestBuilder delete = MockMvcRequestBuilders
+            .delete("/books/batch")
+            .accept(MediaType.APPLICATION_JSON)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(MAPPER.writeValueAsString(ids));
+
+        MockHttpServletResponse response = mockMvc.perform(delete).andReturn().getResponse();
+        assertThat(response.getStatus(), is(HttpStatus.BAD_REQUEST.value()));
+        assertThat(JsonHelpers.getResponseBody(response).get("message").asText(),
+            is("a batch must have at most 1000 items"));
+    }
+
+    @Test
+    void whenSendingAndAcceptingCbor_createTheBookInCborAndReadItInJsonByDefault() throws Exception {
+        ObjectMapper cborMapper = new ObjectMapper(new CBORFactory());
+        MockHttpServletRequestBuilder post = MockMvcRequestBuilders
+            .post("/books")
+            .accept(MediaType.APPLICATION_CBOR)
+            .contentType(MediaType.APPLICATION_CBOR)
+            .content(cborMapper.writeValueAsBytes(new BookRequest("Dune", "Frank Herbert")));
+
+        MockHttpServletResponse createResponse = mockMvc.perform(post).andReturn().getResponse();
+        assertThat(createResponse.getStatus(), is(HttpStatus.CREATED.value()));
+        assertThat(createResponse.getContentType(), is(MediaType.APPLICATION_CBOR_VALUE));
+        JsonNode created = cborMapper.readTree(createResponse.getContentAsByteArray());
+        assertThat(created.get("title").asText(), is("Dune"));
+        // UUIDs are written as 16 bytes
+        ByteBuffer id = ByteBuffer.wrap(created.get("id").binaryValue());
+        UUID bookId = new UUID(id.getLong(), id.getLong());
+
+        assertThat(createResponse.getHeader(HttpHeaders.ETAG), is("\"" + bookId + "-1-cbor\""));
+        assertThat(createResponse.getHeader(HttpHeaders.VARY), is(HttpHeaders.ACCEPT));
+
+        MockHttpServletResponse readResponse = mockMvc.perform(MockMvcRequestBuilders.get("/books/{id}", bookId))
+            .andReturn()
+            .getResponse();
+        assertThat(readResponse.getContentType(), is(MediaType.APPLICATION_JSON_VALUE));
+        assertThat(readResponse.getHeader(HttpHeaders.ETAG), is("\"" + bookId + "-1\""));
+        assertThat(readResponse.getHeader(HttpHeaders.VARY), is(HttpHeaders.ACCEPT));
+        assertThat(JsonHelpers.getResponseBody(readResponse).get("author").asText(), is("Frank Herbert"));
+    }
+
+    @Test
+    void whenReadingABookInCborWithTheETagOfItsJson_return200() throws Exception {
+        String bookId = createBook("Dune", "Frank Herbert");
+
+        MockHttpServletRequestBuilder get = MockMvcRequestBuilders
+            .get(String.format("/books/%s", bookId))
+            .header(HttpHeaders.IF_NONE_MATCH, "\"" + bookId + "-1\"")
+            .accept(MediaType.APPLICATION_CBOR);
+        MockHttpServletResponse readResponse = mockMvc.perform(get).andReturn().getResponse();
+        assertThat(readResponse.getStatus(), is(HttpStatus.OK.value()));
+        assertThat(readResponse.getContentType(), is(MediaType.APPLICATION_CBOR_VALUE));
+        String eTag = readResponse.getHeader(HttpHeaders.ETAG);
+        assertThat(eTag, is("\"" + bookId + "-1-cbor\""));
+
+        get = MockMvcRequestBuilders
+            .get(String.format("/books/%s", bookId))
+            .header(HttpHeaders.IF_NONE_MATCH, eTag)
+            .accept(MediaType.APPLICATION_CBOR);
+        assertThat(mockMvc.perform(get).andReturn().getResponse().getStatus(), is(HttpStatus.NOT_MODIFIED.value()));
+
+        MockHttpServletRequestBuilder put = MockMvcRequestBuilders
+            .put(String.format("/books/%s", bookId))
+            .header(HttpHeaders.IF_MATCH, eTag)
+            .accept(MediaType.APPLICATION_JSON)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(MAPPER.writeValueAsString(new BookRequest("Dune Messiah", "Frank Herbert")));
+        assertThat(mockMvc.perform(put).andReturn().getResponse().getStatus(), is(HttpStatus.OK.value()));
+    }
+
+    private String createBook(String title, String author) throws Exception {
+        BookRequest bookRequest = new BookRequest(title, author);
+        MockHttpServletRequestBuilder create = MockMvcRequestBuilders
+            .post("/books")
+            .accept(MediaType.APPLICATION_JSON)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(MAPPER.writeValueAsString(bookRequest));
+
+        MockHttpServletResponse createResponse = mockMvc.perform(create).andReturn().getResponse();
+        assertThat(createResponse.getStatus(), is(HttpStatus.CREATED.value()));
+        return JsonHelpers.getResponseBody(createResponse).get("id").asText();
+    }
+
+    private void updateBook(String id, String title, String author) throws Exception {
+        MockHttpServletRequestBuilder update = MockMvcRequestBuilders
+            .put("/books/" + id)
+            .accept(MediaType.APPLICATION_JSON)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(MAPPER.writeValueAsString(new BookRequest(title, author)));
+        assertThat(mockMvc.perform(update).andReturn().getResponse().getStatus(), is(HttpStatus.OK.value()));
+    }
+
+    private JsonNode readChanges(long since, int limit) throws Exception {
+        MockHttpServletRequestBuilder get = MockMvcRequestBuilders
+            .get("/books/changes")
+            .param("since", Long.toString(since))
+            .param("limit", Integer.toString(limit))
+            .accept(MediaType.APPLICATION_JSON);
+        MockHttpServletResponse response = mockMvc.perform(get).andReturn().getResponse();
+        assertThat(response.getStatus(), is(HttpStatus.OK.value()));
+        return JsonHelpers.getResponseBody(response);
+    }
+
+    /**
+     * Reads every change, including the tombstones of the other tests, and returns the current
+     * revision.
+     */
+    private long readAllChanges() throws Exception {
+        JsonNode changes = readChanges(0, 1000);
+        while (changes.get("more").asBoolean()) {
+            changes = readChanges(changes.get("revision").asLong(), 1000);
+        }
+        return changes.get("revision").asLong();
+    }
+
+    private Set<String> listIdsByAuthor(String author) throws Exception {
+        MockHttpServletRequestBuilder get = MockMvcRequestBuilders
+            .get("/books")
+            .param("author", author)
+            .accept(MediaType.APPLICATION_JSON);
+        MockHttpServletResponse response = mockMvc.perform(get).andReturn().getResponse();
+        assertThat(response.getStatus(), is(HttpStatus.OK.value()));
+
+        Set<String> ids = new HashSet<>();
+        JsonHelpers.getResponseBody(response).get("items").forEach(book -> ids.add(book.get("id").asText()));
+        return ids;
+    }
+
     private MockHttpServletResponse deleteAll() throws Exception {
         MockHttpServletRequestBuilder delete = MockMvcRequestBuilders
             .delete("/books")
@@ -0,0 +1,48 @@
+package com.jespinel.terraform_provider_server.books;
+
+import com.jespinel.terraform_provider_server.exceptions.DuplicateKeyException;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.UUID;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BookReplicaStoreTest {
+
+    @Test
+    void whenAResetFailsOnADuplicateTitle_theNextResetSucceeds() throws Exception {
+        BookStore store = new InMemoryBookStore();
+        BookReplicaStore replicaStore = new BookReplicaStore(store);
+        Book dune = new Book(UUID.randomUUID(), "Dune", "Frank Herbert", Book.FIRST_VERSION);
+        Book island = new Book(UUID.randomUUID(), "Island", "Aldous Huxley", Book.FIRST_VERSION);
+        Book otherDune = new Book(UUID.randomUUID(), "DUNE", "Someone else", Book.FIRST_VERSION);
+
+        assertThrows(DuplicateKeyException.class, () -> replicaStore.reset(Arrays.asList(dune, island, otherDune)));
+        replicaStore.reset(Arrays.asList(dune, island));
+
+        assertThat(store.size(), is(2L));
+        assertThat(store.getByTitle("dune").get().getId(), is(dune.getId()));
+        replicaStore.reset(Collections.singletonList(otherDune));
+        assertThat(store.getByTitle("dune").get().getId(), is(otherDune.getId()));
+    }
+
+    @Test
+    void whenVersionsWereMissed_replaceTheBookWithTheVersionOfThePrimary() throws Exception {
+        BookStore store = new InMemoryBookStore();
+        BookReplicaStore replicaStore = new BookReplicaStore(store);
+        UUID id = UUID.randomUUID();
+        replicaStore.put(new Book(id, "Dune", "Frank Herbert", Book.FIRST_VERSION));
+
+        replicaStore.put(new Book(id, "Dune Messiah", "Frank Herbert", 4));
+
+        Book book = store.get(id).get();
+        assertThat(book.getTitle(), is("Dune Messiah"));
+        assertThat(book.getVersion(), is(4L));
+        assertThat(store.getByTitle("dune").isPresent(), is(false));
+    }
+}
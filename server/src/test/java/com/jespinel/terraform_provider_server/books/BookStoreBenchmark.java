@@ -0,0 +1,79 @@
+package com.jespinel.terraform_provider_server.books;
+
+import com.jespinel.terraform_provider_server.exceptions.DuplicateKeyException;
+import com.jespinel.terraform_provider_server.exceptions.VersionConflictException;
+import com.jespinel.terraform_provider_server.versioning.EntityTags;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Measures the operations of {@link InMemoryBookStore} on stores of several sizes. The number
+ * of threads, and so the contention, is chosen by the runner.
+ * <p>
+ * Books are shared by {@value #AUTHORS} authors, so the authors of the larger store have more
+ * books, while {@link #listByAuthor()} reads pages of the same size from both.
+ */
+@State(Scope.Benchmark)
+public class BookStoreBenchmark {
+
+    private static final int AUTHORS = 100;
+
+    @Param({"1000", "100000"})
+    public int size;
+
+    private InMemoryBookStore store;
+    private Book[] books;
+
+    @Setup
+    public void setUp() throws DuplicateKeyException {
+        store = new InMemoryBookStore();
+        books = new Book[size];
+        for (int i = 0; i < size; i++) {
+            books[i] = new Book(UUID.randomUUID(), "Title " + i, "Author " + (i % AUTHORS), Book.FIRST_VERSION);
+            store.insert(books[i]);
+        }
+    }
+
+    @Benchmark
+    public Object get() {
+        return store.get(randomBook().getId());
+    }
+
+    @Benchmark
+    public Object getByTitle() {
+        return store.getByTitle(randomBook().getTitle());
+    }
+
+    @Benchmark
+    public Object update() throws DuplicateKeyException, VersionConflictException {
+        return store.update(randomBook(), EntityTags.ANY_VERSION);
+    }
+
+    @Benchmark
+    public Object insertAndDelete() throws DuplicateKeyException {
+        Book book = new Book(UUID.randomUUID(), UUID.randomUUID().toString(), "Author", Book.FIRST_VERSION);
+        store.insert(book);
+        return store.delete(book.getId());
+    }
+
+    @Benchmark
+    public Object list() {
+        return store.list(randomBook().getId(), 100);
+    }
+
+    @Benchmark
+    public Object listByAuthor() {
+        return store.listByAuthor(randomBook().getAuthor(), null, 10);
+    }
+
+    private Book randomBook() {
+        return books[ThreadLocalRandom.current().nextInt(size)];
+    }
+}
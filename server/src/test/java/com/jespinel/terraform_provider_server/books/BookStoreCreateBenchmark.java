@@ -0,0 +1,74 @@
+package com.jespinel.terraform_provider_server.books;
+
+import com.jespinel.terraform_provider_server.changes.ChangeFeed;
+import com.jespinel.terraform_provider_server.changes.ChangesProperties;
+import com.jespinel.terraform_provider_server.exceptions.DuplicateKeyException;
+import com.jespinel.terraform_provider_server.storage.DeferredActions;
+import com.jespinel.terraform_provider_server.storage.StorageEngine;
+import com.jespinel.terraform_provider_server.storage.StripedLocks;
+import com.jespinel.terraform_provider_server.sync.RevisionClock;
+import com.jespinel.terraform_provider_server.sync.RevisionIndex;
+import com.jespinel.terraform_provider_server.sync.SyncProperties;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.UUID;
+
+/**
+ * Measures the creation of books in an {@link InMemoryBookStore} and a
+ * {@link PartitionedBookStore}. The number of threads is chosen by the runner, so runs with
+ * more threads than cores show how the throughput of each store scales with them.
+ * <p>
+ * Each store is measured alone, and wrapped as the server wraps it by default, to publish its
+ * changes to the {@link ChangeFeed} and record them in a {@link RevisionIndex}. Every creation
+ * then takes the lock of its book, shared by both wrappers, and the locks of the feed and of the
+ * index, which are shared by every book.
+ * <p>
+ * Every iteration starts with an empty store, so the stores of both engines have the same size
+ * for the same number of creations.
+ */
+@State(Scope.Benchmark)
+public class BookStoreCreateBenchmark {
+
+    private static final int PARTITIONS = 16;
+
+    @Param({"MEMORY", "PARTITIONED"})
+    public StorageEngine engine;
+
+    /**
+     * Whether the store publishes its changes and records their revisions.
+     */
+    @Param({"false", "true"})
+    public boolean changes;
+
+    private BookStore store;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        store = engine == StorageEngine.PARTITIONED ? new PartitionedBookStore(PARTITIONS) : new InMemoryBookStore();
+        if (changes) {
+            ChangesProperties feed = new ChangesProperties();
+            SyncProperties sync = new SyncProperties();
+            StripedLocks locks = new StripedLocks(StripedLocks.DEFAULT_STRIPES);
+            DeferredActions actions = new DeferredActions();
+            store = new PublishingBookStore(store,
+                new ChangeFeed(feed.getHistorySize(), feed.getBufferSize(), feed.getMaxSubscribers()), locks, actions);
+            store = new RevisionedBookStore(store,
+                new RevisionIndex<>("book", new RevisionClock(), sync.getMaxTombstones(), sync.getTombstoneTtl()),
+                locks, actions);
+        }
+    }
+
+    @Benchmark
+    public Book create() throws DuplicateKeyException {
+        UUID id = UUID.randomUUID();
+        Book book = new Book(id, id.toString(), "Author " + (id.getLeastSignificantBits() & 0xff), Book.FIRST_VERSION);
+        store.insert(book);
+        return book;
+    }
+}
@@ -0,0 +1,13 @@
+package com.jespinel.terraform_provider_server.books;
+
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Runs the book controller tests with the write-ahead log enabled.
+ */
+@TestPropertySource(properties = {
+    "storage.persistence.enabled=true",
+    "storage.persistence.directory=${java.io.tmpdir}/terraform-provider-server/${random.uuid}"
+})
+class DurableBookControllerTest extends BookControllerTest {
+}
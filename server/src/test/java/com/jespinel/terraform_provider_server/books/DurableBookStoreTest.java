@@ -0,0 +1,151 @@
+package com.jespinel.terraform_provider_server.books;
+
+import com.jespinel.terraform_provider_server.changes.ChangeFeed;
+import com.jespinel.terraform_provider_server.exceptions.DuplicateKeyException;
+import com.jespinel.terraform_provider_server.search.TextMatch;
+import com.jespinel.terraform_provider_server.storage.DeferredActions;
+import com.jespinel.terraform_provider_server.storage.Durability;
+import com.jespinel.terraform_provider_server.storage.StripedLocks;
+import com.jespinel.terraform_provider_server.storage.WriteAheadLog;
+import com.jespinel.terraform_provider_server.sync.RevisionClock;
+import com.jespinel.terraform_provider_server.sync.RevisionIndex;
+import com.jespinel.terraform_provider_server.versioning.EntityTags;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+
+class DurableBookStoreTest {
+
+    private static final int SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void whenTheStoreIsReopened_booksAreRecovered() throws Exception {
+        DurableBookStore store = open();
+        Book kept = new Book(UUID.randomUUID(), "Brave new world", "Aldous Huxley", Book.FIRST_VERSION);
+        Book updated = new Book(UUID.randomUUID(), "1984", "George Orwell", Book.FIRST_VERSION);
+        Book deleted = new Book(UUID.randomUUID(), "Dune", "Frank Herbert", Book.FIRST_VERSION);
+        store.insert(kept);
+        store.insert(updated);
+        store.insert(deleted);
+        Book newVersion = new Book(updated.getId(), "Animal farm", "George Orwell", Book.FIRST_VERSION);
+        store.update(newVersion, EntityTags.ANY_VERSION);
+        store.delete(deleted.getId());
+        store.close();
+
+        DurableBookStore recovered = open();
+        assertThat(count(recovered), is(2));
+        assertThat(recovered.get(kept.getId()), is(Optional.of(kept)));
+        assertThat(recovered.get(updated.getId()).get().getTitle(), is("Animal farm"));
+        assertThat(recovered.get(updated.getId()).get().getVersion(), is(Book.FIRST_VERSION + 1));
+        assertThat(recovered.getByTitle("1984"), is(Optional.empty()));
+        assertThat(recovered.searchTitles("farm", TextMatch.SUBSTRING, 10), contains(recovered.get(updated.getId()).get()));
+        assertThat(recovered.get(deleted.getId()), is(Optional.empty()));
+        recovered.close();
+    }
+
+    @Test
+    void whenTheStoreIsReopenedAfterDeleteAll_itIsEmpty() throws Exception {
+        DurableBookStore store = open();
+        store.insert(new Book(UUID.randomUUID(), "Brave new world", "Aldous Huxley", Book.FIRST_VERSION));
+        store.deleteAll();
+        store.close();
+
+        DurableBookStore recovered = open();
+        assertThat(count(recovered), is(0));
+        recovered.close();
+    }
+
+    @Test
+    void whenChangesArePublishedAndRecorded_theyAreOnlySeenOnceTheyAreDurable() throws Exception {
+        ChangeFeed feed = new ChangeFeed(100, 100, 1);
+        RevisionClock clock = new RevisionClock();
+        RevisionIndex<Book> revisions = new RevisionIndex<>("book", clock, 100, Duration.ofHours(1));
+        DeferredActions actions = new DeferredActions();
+        // The group commit waits for its whole window, so the book is applied long before it is durable
+        WriteAheadLog log = new WriteAheadLog(directory, SEGMENT_SIZE, 4, Durability.GROUP,
+            Duration.ofMillis(500), 1_000_000);
+        StripedLocks locks = new StripedLocks(StripedLocks.DEFAULT_STRIPES);
+        BookStore publishingStore = new PublishingBookStore(new InMemoryBookStore(), feed, locks, actions);
+        BookStore revisionedStore = new RevisionedBookStore(publishingStore, revisions, locks, actions);
+        DurableBookStore store = DurableBookStore.open(revisionedStore, log, locks, actions);
+        long sequence = feed.getSequence();
+        long revision = clock.current();
+        Book book = new Book(UUID.randomUUID(), "Dune", "Frank Herbert", Book.FIRST_VERSION);
+
+        Thread writer = new Thread(() -> {
+            try {
+                store.insert(book);
+            } catch (DuplicateKeyException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        writer.start();
+        while (!store.get(book.getId()).isPresent()) {
+            Thread.sleep(1);
+        }
+        assertThat(feed.getSequence(), is(sequence));
+        assertThat(clock.current(), is(revision));
+
+        writer.join();
+        assertThat(feed.getSequence(), is(sequence + 1));
+        assertThat(clock.current(), greaterThan(revision));
+        store.close();
+    }
+
+    @Test
+    void whenAMillionBooksAreStored_theyAreRecoveredInAFewSeconds() throws Exception {
+        int books = 1_000_000;
+        storeBooks(books);
+
+        long start = System.nanoTime();
+        DurableBookStore recovered = open();
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertThat(count(recovered), is(books));
+        assertThat(elapsedMillis, lessThan(15_000L));
+        recovered.close();
+    }
+
+    /**
+     * Stores books in a store that is closed and unreachable once this returns, so the store
+     * that recovers them does not share the heap with it.
+     */
+    private void storeBooks(int books) throws Exception {
+        DurableBookStore store = open(Durability.ASYNC);
+        for (int i = 0; i < books; i++) {
+            store.insert(new Book(UUID.randomUUID(), "Title " + i, "Author " + i, Book.FIRST_VERSION));
+        }
+        store.close();
+    }
+
+    private DurableBookStore open() throws IOException {
+        return open(Durability.GROUP);
+    }
+
+    private DurableBookStore open(Durability durability) throws IOException {
+        WriteAheadLog log = new WriteAheadLog(directory, SEGMENT_SIZE, 4, durability, Duration.ofMillis(2), 256);
+        return DurableBookStore.open(new InMemoryBookStore(), log);
+    }
+
+    private static int count(BookStore store) {
+        AtomicInteger count = new AtomicInteger();
+        store.forEach(book -> count.incrementAndGet());
+        return count.get();
+    }
+}
@@ -0,0 +1,13 @@
+package com.jespinel.terraform_provider_server.books;
+
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Runs the book controller tests with the partitioned storage engine.
+ */
+@TestPropertySource(properties = {
+    "storage.engine=partitioned",
+    "storage.partitions=4"
+})
+class PartitionedBookControllerTest extends BookControllerTest {
+}
@@ -0,0 +1,119 @@
+package com.jespinel.terraform_provider_server.books;
+
+import com.jespinel.terraform_provider_server.exceptions.DuplicateKeyException;
+import com.jespinel.terraform_provider_server.search.TextMatch;
+import com.jespinel.terraform_provider_server.versioning.EntityTags;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PartitionedBookStoreTest {
+
+    private static final int PARTITIONS = 8;
+
+    @Test
+    void whenManyThreadsInsertTheSameTitle_onlyOneBookIsStored() throws Exception {
+        PartitionedBookStore store = new PartitionedBookStore(PARTITIONS);
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Callable<Boolean>> inserts = new ArrayList<>();
+            for (int i = 0; i < threads * 10; i++) {
+                // IDs are random, so the books land in different partitions
+                Book book = new Book(UUID.randomUUID(), i % 2 == 0 ? "Dune" : "DUNE", "Frank Herbert", Book.FIRST_VERSION);
+                inserts.add(() -> {
+                    try {
+                        store.insert(book);
+                        return true;
+                    } catch (DuplicateKeyException e) {
+                        return false;
+                    }
+                });
+            }
+            int stored = 0;
+            for (Future<Boolean> inserted : executor.invokeAll(inserts)) {
+                stored += inserted.get() ? 1 : 0;
+            }
+            assertThat(stored, is(1));
+            assertThat(store.size(), is(1L));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void whenATitleIsFreedInOnePartition_aBookOfAnotherPartitionCanTakeIt() throws Exception {
+        PartitionedBookStore store = new PartitionedBookStore(PARTITIONS);
+        Book dune = new Book(UUID.randomUUID(), "Dune", "Frank Herbert", Book.FIRST_VERSION);
+        Book other = new Book(UUID.randomUUID(), "Dune messiah", "Frank Herbert", Book.FIRST_VERSION);
+        store.insert(dune);
+        store.insert(other);
+
+        Book renamed = new Book(other.getId(), "dune", "Frank Herbert", Book.FIRST_VERSION);
+        assertThrows(DuplicateKeyException.class, () -> store.update(renamed, EntityTags.ANY_VERSION));
+
+        store.delete(dune.getId());
+        store.update(renamed, EntityTags.ANY_VERSION);
+        assertThat(store.getByTitle("Dune").map(Book::getId), is(Optional.of(other.getId())));
+    }
+
+    @Test
+    void whenALoadFailsOnADuplicateTitle_itReleasesTheTitlesItClaimed() throws Exception {
+        PartitionedBookStore store = new PartitionedBookStore(PARTITIONS);
+        Book dune = new Book(UUID.randomUUID(), "Dune", "Frank Herbert", Book.FIRST_VERSION);
+        Book island = new Book(UUID.randomUUID(), "Island", "Aldous Huxley", Book.FIRST_VERSION);
+        Book otherDune = new Book(UUID.randomUUID(), "DUNE", "Someone else", Book.FIRST_VERSION);
+
+        assertThrows(DuplicateKeyException.class, () -> store.load(Arrays.asList(dune, island, otherDune)));
+
+        assertThat(store.size(), is(0L));
+        store.load(Arrays.asList(dune, island));
+        assertThat(store.getByTitle("island").map(Book::getId), is(Optional.of(island.getId())));
+    }
+
+    @Test
+    void whenBooksAreListed_pagesMergeEveryPartitionInOrder() throws Exception {
+        PartitionedBookStore store = new PartitionedBookStore(PARTITIONS);
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            Book book = new Book(UUID.randomUUID(), "Title " + i, i % 2 == 0 ? "Even" : "Odd", Book.FIRST_VERSION);
+            books.add(book);
+            store.insert(book);
+        }
+        books.sort(Comparator.comparing(Book::getId));
+
+        List<Book> listed = new ArrayList<>();
+        UUID after = null;
+        List<Book> page;
+        do {
+            page = store.list(after, 7);
+            listed.addAll(page);
+            after = page.isEmpty() ? null : page.get(page.size() - 1).getId();
+        } while (page.size() == 7);
+        assertThat(listed, is(books));
+
+        List<Book> evenBooks = books.stream().filter(book -> book.getAuthor().equals("Even")).collect(Collectors.toList());
+        List<Book> firstPage = store.listByAuthor("even", null, 10);
+        assertThat(firstPage, is(evenBooks.subList(0, 10)));
+        assertThat(store.listByAuthor("even", firstPage.get(9).getId(), 10), is(evenBooks.subList(10, 20)));
+
+        assertThat(store.searchTitles("title 1", TextMatch.PREFIX, 3), contains(
+            store.getByTitle("Title 1").get(), store.getByTitle("Title 10").get(), store.getByTitle("Title 11").get()));
+    }
+}
@@ -0,0 +1,156 @@
+package com.jespinel.terraform_provider_server.changes;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jespinel.terraform_provider_server.books.BookRequest;
+import com.jespinel.terraform_provider_server.words.WordRequest;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.startsWith;
+
+/**
+ * Follows the changes at {@code /changes} over a real connection, since MockMvc does not stream
+ * the events of an open response.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class ChangeControllerTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private ChangeFeed changeFeed;
+
+    @AfterEach
+    public void tearDown() {
+        restTemplate.delete("/books");
+        restTemplate.delete("/words");
+    }
+
+    @Test
+    void streamsTheCreationsUpdatesAndDeletions_withIncreasingSequenceNumbers() throws Exception {
+        long start = changeFeed.getSequence();
+        HttpURLConnection connection = open("/changes?after=" + start, null);
+        try (BufferedReader reader = reader(connection)) {
+            JsonNode book = restTemplate.postForObject("/books", new BookRequest("Dune", "Frank Herbert"), JsonNode.class);
+            String id = book.get("id").asText();
+            restTemplate.put("/books/" + id, new BookRequest("Dune Messiah", "Frank Herbert"));
+            restTemplate.postForObject("/words", new WordRequest("hello"), JsonNode.class);
+            restTemplate.delete("/books/" + id);
+
+            List<String> names = new ArrayList<>();
+            List<JsonNode> events = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                Event event = next(reader);
+                names.add(event.name);
+                events.add(MAPPER.readTree(event.data));
+                assertThat(event.id, is(Long.toString(start + i + 1)));
+                assertThat(events.get(i).get("sequence").asLong(), is(start + i + 1));
+            }
+
+            assertThat(names, contains("book.created", "book.updated", "word.created", "book.deleted"));
+            assertThat(events.get(0).get("id").asText(), is(id));
+            assertThat(events.get(1).get("entity").get("title").asText(), is("Dune Messiah"));
+            assertThat(events.get(1).get("entity").get("version").asLong(), is(2L));
+            assertThat(events.get(2).get("entity").get("word").asText(), is("hello"));
+            assertThat(events.get(3).has("entity"), is(false));
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    @Test
+    void resumesAfterTheLastEventId() throws Exception {
+        long start = changeFeed.getSequence();
+        restTemplate.postForObject("/words", new WordRequest("one"), JsonNode.class);
+        restTemplate.postForObject("/words", new WordRequest("two"), JsonNode.class);
+
+        HttpURLConnection connection = open("/changes", Long.toString(start + 1));
+        try (BufferedReader reader = reader(connection)) {
+            Event event = next(reader);
+            assertThat(event.id, is(Long.toString(start + 2)));
+            assertThat(MAPPER.readTree(event.data).get("entity").get("word").asText(), is("two"));
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    @Test
+    void whenResumingAfterAChangeThatIsNotKept_returnGone() throws Exception {
+        ResponseEntity<String> response = restTemplate.getForEntity(
+            "/changes?after=" + (changeFeed.getSequence() + 1), String.class);
+
+        assertThat(response.getStatusCode(), is(HttpStatus.GONE));
+        assertThat(MAPPER.readTree(response.getBody()).get("message").asText(), startsWith("The changes after"));
+    }
+
+    private HttpURLConnection open(String path, String lastEventId) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + port + path).openConnection();
+        connection.setRequestProperty("Accept", MediaType.TEXT_EVENT_STREAM_VALUE);
+        if (lastEventId != null) {
+            connection.setRequestProperty(ChangeService.LAST_EVENT_ID, lastEventId);
+        }
+        connection.setReadTimeout(10_000);
+        assertThat(connection.getResponseCode(), is(200));
+        return connection;
+    }
+
+    private static BufferedReader reader(HttpURLConnection connection) throws IOException {
+        return new BufferedReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Reads the next event, skipping the heartbeats.
+     */
+    private static Event next(BufferedReader reader) throws IOException {
+        Event event = new Event();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isEmpty()) {
+                if (event.data != null) {
+                    return event;
+                }
+            } else if (line.startsWith("id:")) {
+                event.id = line.substring(3);
+            } else if (line.startsWith("event:")) {
+                event.name = line.substring(6);
+            } else if (line.startsWith("data:")) {
+                event.data = line.substring(5);
+            }
+        }
+        throw new IOException("The stream ended before the next event");
+    }
+
+    private static final class Event {
+
+        private String id;
+        private String name;
+        private String data;
+    }
+}
@@ -0,0 +1,110 @@
+package com.jespinel.terraform_provider_server.changes;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ChangeFeedTest {
+
+    @Test
+    void numbersTheChangesInOrder_andPushesThemToTheSubscribers() {
+        ChangeFeed feed = new ChangeFeed(0, 10, 10, 10);
+        AtomicInteger signals = new AtomicInteger();
+        Subscription subscription = feed.subscribe(null, signals::incrementAndGet);
+        UUID id = UUID.randomUUID();
+
+        assertThat(feed.publish("book", ChangeType.CREATED, id, "Dune"), is(1L));
+        assertThat(feed.publish("book", ChangeType.DELETED, id, null), is(2L));
+
+        assertThat(subscription.poll(), is(new ChangeEvent(1, "book", ChangeType.CREATED, id, "Dune")));
+        assertThat(subscription.poll(), is(new ChangeEvent(2, "book", ChangeType.DELETED, id, null)));
+        assertThat(subscription.poll(), is(nullValue()));
+        assertThat(subscription.getSequence(), is(2L));
+        assertThat(signals.get(), is(2));
+    }
+
+    @Test
+    void resumesAfterAChange_withTheChangesPublishedBeforeAndAfterSubscribing() {
+        ChangeFeed feed = new ChangeFeed(0, 10, 10, 10);
+        for (int i = 1; i <= 3; i++) {
+            feed.publish("word", ChangeType.CREATED, UUID.randomUUID(), "word " + i);
+        }
+
+        Subscription subscription = feed.subscribe(1L, null);
+        feed.publish("word", ChangeType.CREATED, UUID.randomUUID(), "word 4");
+
+        for (long sequence = 2; sequence <= 4; sequence++) {
+            assertThat(subscription.poll().getSequence(), is(sequence));
+        }
+        assertThat(subscription.poll(), is(nullValue()));
+    }
+
+    @Test
+    void returnsNull_whenTheChangesToResumeFromAreNoLongerKept() {
+        ChangeFeed feed = new ChangeFeed(0, 10, 10, 10);
+        for (int i = 0; i < 25; i++) {
+            feed.publish("book", ChangeType.CREATED, UUID.randomUUID(), "book " + i);
+        }
+
+        assertThat(feed.subscribe(14L, null), is(nullValue()));
+        assertThat(feed.subscribe(26L, null), is(nullValue()));
+        assertThat(feed.subscribe(15L, null).poll().getEntity(), is("book 15"));
+    }
+
+    @Test
+    void returnsNull_forTheSequenceNumbersOfAPreviousRun() {
+        ChangeFeed previous = new ChangeFeed(1000, 10, 10, 10);
+        for (int i = 0; i < 3; i++) {
+            previous.publish("book", ChangeType.CREATED, UUID.randomUUID(), "book " + i);
+        }
+
+        ChangeFeed restarted = new ChangeFeed(2000, 10, 10, 10);
+        restarted.publish("book", ChangeType.CREATED, UUID.randomUUID(), "book 3");
+
+        assertThat(restarted.subscribe(previous.getSequence(), null), is(nullValue()));
+        assertThat(restarted.subscribe(1999L, null), is(nullValue()));
+        assertThat(restarted.subscribe(2000L, null).poll().getSequence(), is(2001L));
+    }
+
+    @Test
+    void dropsASubscriber_whenItsBufferIsFull_withoutBlockingThePublisher() {
+        ChangeFeed feed = new ChangeFeed(0, 100, 2, 10);
+        Subscription slow = feed.subscribe(null, null);
+        Subscription fast = feed.subscribe(null, null);
+
+        for (int i = 0; i < 5; i++) {
+            feed.publish("book", ChangeType.CREATED, UUID.randomUUID(), "book " + i);
+            fast.poll();
+        }
+
+        assertThat(slow.isDropped(), is(true));
+        assertThat(fast.isDropped(), is(false));
+        assertThat(feed.getSubscribers(), is(1));
+        // The dropped subscriber still gets what it has, then resumes from it
+        assertThat(slow.poll().getSequence(), is(1L));
+        assertThat(slow.poll().getSequence(), is(2L));
+        assertThat(slow.poll(), is(nullValue()));
+        Subscription resumed = feed.subscribe(slow.getSequence(), null);
+        assertThat(resumed, is(notNullValue()));
+        assertThat(resumed.poll().getSequence(), is(3L));
+    }
+
+    @Test
+    void refusesSubscribers_overTheLimit_untilOneCloses() {
+        ChangeFeed feed = new ChangeFeed(0, 10, 10, 1);
+        Subscription subscription = feed.subscribe(null, null);
+
+        assertThrows(IllegalStateException.class, () -> feed.subscribe(null, null));
+
+        subscription.close();
+        assertThat(subscription.isDropped(), is(true));
+        assertThat(feed.subscribe(null, null), is(notNullValue()));
+    }
+}
@@ -0,0 +1,93 @@
+package com.jespinel.terraform_provider_server.connector;
+
+import com.jespinel.terraform_provider_server.TerraformProviderServerApplication;
+import com.jespinel.terraform_provider_server.books.Book;
+import com.jespinel.terraform_provider_server.books.BookRequest;
+import com.jespinel.terraform_provider_server.books.BookService;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import reactor.netty.http.client.HttpClient;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.startsWith;
+
+/**
+ * Checks the settings of the {@code production} profile on both servers.
+ */
+class ProductionProfileTest {
+
+    @ParameterizedTest
+    @EnumSource(value = WebApplicationType.class, names = {"SERVLET", "REACTIVE"})
+    void compressLargeResponsesAndAcceptH2c(WebApplicationType mode) throws Exception {
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(TerraformProviderServerApplication.class)
+            .web(mode)
+            .profiles("production")
+            .run("--server.port=0");
+        try {
+            int port = context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+            Book book = createBooks(context.getBean(BookService.class), 100);
+            // Without the decompression of the default connector, which removes Content-Encoding
+            WebTestClient client = WebTestClient.bindToServer(new ReactorClientHttpConnector(HttpClient.create()))
+                .baseUrl("http://localhost:" + port)
+                .build();
+
+            client.get().uri("/books?limit=100")
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.CONTENT_ENCODING, "gzip");
+
+            client.get().uri("/books/" + book.getId())
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().doesNotExist(HttpHeaders.CONTENT_ENCODING);
+
+            assertThat(upgradeToH2c(port, "/books/" + book.getId()), startsWith("HTTP/1.1 101"));
+        } finally {
+            context.close();
+        }
+    }
+
+    private static Book createBooks(BookService bookService, int books) throws Exception {
+        Book book = null;
+        for (int i = 0; i < books; i++) {
+            book = bookService.create(new BookRequest("Title " + i, "Author " + i));
+        }
+        return book;
+    }
+
+    /**
+     * Asks to upgrade an HTTP/1.1 request to h2c, with the settings curl sends.
+     *
+     * @return The status line of the response.
+     */
+    private static String upgradeToH2c(int port, String path) throws Exception {
+        try (Socket socket = new Socket("localhost", port)) {
+            OutputStream output = socket.getOutputStream();
+            output.write(("GET " + path + " HTTP/1.1\r\n"
+                + "Host: localhost\r\n"
+                + "Connection: Upgrade, HTTP2-Settings\r\n"
+                + "Upgrade: h2c\r\n"
+                + "HTTP2-Settings: AAMAAABkAAQAAP__\r\n"
+                + "\r\n").getBytes(StandardCharsets.US_ASCII));
+            output.flush();
+            BufferedReader input = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+            return input.readLine();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.jespinel.terraform_provider_server.execution;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.web.embedded.tomcat.TomcatWebServer;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+import java.util.concurrent.ExecutorService;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.hamcrest.Matchers.startsWith;
+
+/**
+ * Checks that requests run on virtual threads with {@code execution.mode=virtual}. Only runs
+ * with {@code mvn test -Pvirtual-threads}, which needs Java 21.
+ */
+@EnabledIfSystemProperty(named = "execution.mode", matches = "virtual")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class VirtualThreadExecutionTest {
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private ServletWebServerApplicationContext context;
+
+    @Autowired
+    private ExecutorService requestExecutor;
+
+    @Test
+    void tomcatUsesTheVirtualThreadExecutor() {
+        TomcatWebServer webServer = (TomcatWebServer) context.getWebServer();
+        Object executor = webServer.getTomcat().getConnector().getProtocolHandler().getExecutor();
+        assertThat(executor, sameInstance(requestExecutor));
+    }
+
+    @Test
+    void requestsRunOnVirtualThreads() {
+        String thread = restTemplate.getForObject("/thread", String.class);
+        assertThat(thread, startsWith("VirtualThread["));
+        assertThat(thread.contains("request-"), is(true));
+    }
+
+    @TestConfiguration
+    static class ThreadController {
+
+        @Bean
+        public CurrentThread currentThread() {
+            return new CurrentThread();
+        }
+    }
+
+    /**
+     * Handler registered only by {@link ThreadController}: it has no stereotype annotation, so
+     * the other tests do not scan it.
+     */
+    @RequestMapping
+    @ResponseBody
+    static class CurrentThread {
+
+        @GetMapping("/thread")
+        public String get() {
+            return Thread.currentThread().toString();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.jespinel.terraform_provider_server.idempotency;
+
+import com.jespinel.terraform_provider_server.exceptions.APIException;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class IdempotencyCacheTest {
+
+    @Test
+    void whenAKeyIsRepeated_theCreationRunsOnce() throws Exception {
+        IdempotencyCache<Integer> cache = new IdempotencyCache<>(100, Duration.ofHours(1));
+        AtomicInteger creations = new AtomicInteger();
+
+        assertThat(cache.execute("key", "request", creations::incrementAndGet), is(1));
+        assertThat(cache.execute("key", "request", creations::incrementAndGet), is(1));
+        assertThat(cache.execute("other", "request", creations::incrementAndGet), is(2));
+        assertThat(cache.execute(null, "request", creations::incrementAndGet), is(3));
+        assertThat(cache.execute(null, "request", creations::incrementAndGet), is(4));
+    }
+
+    @Test
+    void whenTheFirstCreationFails_retriesGetTheSameFailure() throws Exception {
+        IdempotencyCache<Integer> cache = new IdempotencyCache<>(100, Duration.ofHours(1));
+        APIException conflict = new APIException(HttpStatus.CONFLICT, "conflict");
+
+        assertThrows(APIException.class, () -> cache.execute("key", "request", () -> {
+            throw conflict;
+        }));
+        APIException replayed = assertThrows(APIException.class, () -> cache.execute("key", "request", () -> 1));
+        assertThat(replayed, sameInstance(conflict));
+    }
+
+    @Test
+    void whenTheFirstCreationThrowsAnUnexpectedException_aRetryRunsItAgain() throws Exception {
+        IdempotencyCache<Integer> cache = new IdempotencyCache<>(100, Duration.ofHours(1));
+
+        assertThrows(IllegalStateException.class, () -> cache.execute("key", "request", () -> {
+            throw new IllegalStateException();
+        }));
+        assertThat(cache.execute("key", "request", () -> 2), is(2));
+    }
+
+    @Test
+    void whenAKeyExpires_theCreationRunsAgain() throws Exception {
+        IdempotencyCache<Integer> cache = new IdempotencyCache<>(100, Duration.ofMillis(50));
+        cache.execute("key", "request", () -> 1);
+
+        Thread.sleep(100);
+        assertThat(cache.execute("key", "request", () -> 2), is(2));
+        assertThat(cache.size(), is(1));
+    }
+
+    @Test
+    void whenTheCacheIsFull_theOldestKeysAreForgotten() throws Exception {
+        IdempotencyCache<Integer> cache = new IdempotencyCache<>(16, Duration.ofHours(1));
+        for (int i = 0; i < 1000; i++) {
+            int response = i;
+            cache.execute("key-" + i, "request", () -> response);
+        }
+
+        assertThat(cache.size(), is(16));
+        assertThat(cache.execute("key-999", "request", () -> -1), is(999));
+        assertThat(cache.execute("key-0", "request", () -> -1), is(-1));
+    }
+
+    @Test
+    void whenAKeyIsInvalid_return400() {
+        IdempotencyCache<Integer> cache = new IdempotencyCache<>(100, Duration.ofHours(1));
+        StringBuilder longKey = new StringBuilder();
+        for (int i = 0; i <= IdempotencyCache.MAX_KEY_LENGTH; i++) {
+            longKey.append('k');
+        }
+
+        APIException empty = assertThrows(APIException.class, () -> cache.execute("", "request", () -> 1));
+        assertThat(empty.getStatusCode(), is(HttpStatus.BAD_REQUEST));
+        assertThrows(APIException.class, () -> cache.execute(longKey.toString(), "request", () -> 1));
+    }
+}
@@ -0,0 +1,55 @@
+package com.jespinel.terraform_provider_server.logging;
+
+import org.junit.jupiter.api.Test;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.core.spi.FilterReply;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+
+class SuccessSamplingFilterTest {
+
+    private static final String PREFIX = "com.jespinel.terraform_provider_server";
+
+    private final LoggerContext context = new LoggerContext();
+    private final Logger applicationLogger = context.getLogger(PREFIX + ".books.BookService");
+    private final Logger storageLogger = context.getLogger(PREFIX + ".storage.WriteAheadLog");
+    private final Logger otherLogger = context.getLogger("org.springframework.web.servlet.DispatcherServlet");
+
+    @Test
+    void whenTheSampleRateIsZero_dropSuccessesButKeepErrors() {
+        SuccessSamplingFilter filter = createFilter(0);
+
+        assertThat(filter.decide(null, applicationLogger, Level.INFO, "", null, null), is(FilterReply.DENY));
+        assertThat(filter.decide(null, applicationLogger, Level.WARN, "", null, null), is(FilterReply.NEUTRAL));
+        assertThat(filter.decide(null, applicationLogger, Level.ERROR, "", null, null), is(FilterReply.NEUTRAL));
+        assertThat(filter.decide(null, otherLogger, Level.INFO, "", null, null), is(FilterReply.NEUTRAL));
+        assertThat(filter.decide(null, storageLogger, Level.INFO, "", null, null), is(FilterReply.NEUTRAL));
+    }
+
+    @Test
+    void whenTheSampleRateIsATenth_logAboutATenthOfTheSuccesses() {
+        SuccessSamplingFilter filter = createFilter(0.1);
+
+        int logged = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.decide(null, applicationLogger, Level.INFO, "", null, null) == FilterReply.NEUTRAL) {
+                logged++;
+            }
+        }
+        assertThat(logged, allOf(greaterThan(9_000), lessThan(11_000)));
+    }
+
+    private SuccessSamplingFilter createFilter(double sampleRate) {
+        SuccessSamplingFilter filter = new SuccessSamplingFilter();
+        filter.addLoggerName(applicationLogger.getName());
+        filter.setSampleRate(sampleRate);
+        return filter;
+    }
+}
@@ -0,0 +1,56 @@
+package com.jespinel.terraform_provider_server.metrics;
+
+import com.jespinel.terraform_provider_server.TerraformProviderServerApplicationTests;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.util.UUID;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+
+@AutoConfigureMockMvc
+class MetricsTest extends TerraformProviderServerApplicationTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @AfterEach
+    void tearDown() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.delete("/words"));
+    }
+
+    @Test
+    void whenReadingMetrics_returnLatencyHistogramsErrorsAndCounts() throws Exception {
+        MockHttpServletRequestBuilder create = MockMvcRequestBuilders
+            .post("/words")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"word\": \"hello\"}");
+        mockMvc.perform(create);
+        mockMvc.perform(MockMvcRequestBuilders.get("/words/{id}", UUID.randomUUID()));
+
+        MockHttpServletResponse response = mockMvc
+            .perform(MockMvcRequestBuilders.get("/actuator/prometheus"))
+            .andReturn()
+            .getResponse();
+        assertThat(response.getStatus(), is(HttpStatus.OK.value()));
+
+        String metrics = response.getContentAsString();
+        assertThat(metrics, containsString("http_server_requests_seconds_bucket{exception=\"None\",method=\"POST\","
+            + "outcome=\"SUCCESS\",status=\"201\",uri=\"/words\","));
+        assertThat(metrics, containsString("http_server_requests_seconds_count{exception=\"APIException\",method=\"GET\","
+            + "outcome=\"CLIENT_ERROR\",status=\"404\",uri=\"/words/{id}\",}"));
+        assertThat(metrics, containsString("api_errors_total{status=\"404\",}"));
+        assertThat(metrics, containsString("words_count 1.0"));
+    }
+}
@@ -0,0 +1,377 @@
+package com.jespinel.terraform_provider_server.reactive;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.jespinel.terraform_provider_server.books.BookRequest;
+import com.jespinel.terraform_provider_server.changes.ChangeFeed;
+import com.jespinel.terraform_provider_server.idempotency.IdempotencyCache;
+import com.jespinel.terraform_provider_server.words.WordRequest;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.test.web.reactive.server.EntityExchangeResult;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+
+/**
+ * Runs the books and words APIs in the reactive mode, which must answer like the servlet mode.
+ */
+@SpringBootTest(properties = "spring.main.web-application-type=reactive")
+@AutoConfigureWebTestClient
+class ReactiveRoutesTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private ChangeFeed changeFeed;
+
+    @Autowired
+    private ReactiveRequests requests;
+
+    @AfterEach
+    public void tearDown() {
+        webTestClient.delete().uri("/books").exchange().expectStatus().isNoContent();
+        webTestClient.delete().uri("/words").exchange().expectStatus().isNoContent();
+    }
+
+    @Test
+    void whenCreatingABook_itCanBeReadByIdTitleAndAuthor() throws Exception {
+        JsonNode book = createBook("Dune", "Frank Herbert");
+
+        webTestClient.get().uri("/books/{id}", book.get("id").asText())
+            .exchange()
+            .expectStatus().isOk()
+            .expectHeader().valueEquals(HttpHeaders.ETAG, "\"" + book.get("id").asText() + "-1\"")
+            .expectBody()
+            .jsonPath("$.title").isEqualTo("Dune")
+            .jsonPath("$.author").isEqualTo("Frank Herbert");
+
+        webTestClient.get().uri("/books?title=dune")
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.id").isEqualTo(book.get("id").asText());
+
+        webTestClient.get().uri("/books?author=frank herbert")
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.items.length()").isEqualTo(1)
+            .jsonPath("$.items[0].id").isEqualTo(book.get("id").asText());
+    }
+
+    @Test
+    void whenAcceptingCbor_returnTheResponsesAndErrorsInCbor() throws Exception {
+        ObjectMapper cborMapper = new ObjectMapper(new CBORFactory());
+        byte[] created = webTestClient.post().uri("/words")
+            .contentType(MediaType.APPLICATION_CBOR)
+            .accept(MediaType.APPLICATION_CBOR)
+            .bodyValue(cborMapper.writeValueAsBytes(new WordRequest("hello")))
+            .exchange()
+            .expectStatus().isCreated()
+            .expectHeader().contentType(MediaType.APPLICATION_CBOR)
+            .expectHeader().valueEquals(HttpHeaders.VARY, HttpHeaders.ACCEPT)
+            .expectBody(byte[].class).returnResult().getResponseBody();
+        assertThat(cborMapper.readTree(created).get("word").asText(), is("hello"));
+        // UUIDs are written as 16 bytes
+        ByteBuffer createdId = ByteBuffer.wrap(cborMapper.readTree(created).get("id").binaryValue());
+        UUID wordId = new UUID(createdId.getLong(), createdId.getLong());
+
+        webTestClient.get().uri("/words/{id}", wordId)
+            .header(HttpHeaders.IF_NONE_MATCH, "\"" + wordId + "-1\"")
+            .accept(MediaType.APPLICATION_CBOR)
+            .exchange()
+            .expectStatus().isOk()
+            .expectHeader().valueEquals(HttpHeaders.ETAG, "\"" + wordId + "-1-cbor\"")
+            .expectHeader().valueEquals(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        webTestClient.get().uri("/words/{id}", wordId)
+            .header(HttpHeaders.IF_NONE_MATCH, "\"" + wordId + "-1-cbor\"")
+            .accept(MediaType.APPLICATION_CBOR)
+            .exchange()
+            .expectStatus().isNotModified()
+            .expectHeader().valueEquals(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        webTestClient.get().uri("/words/{id}", wordId)
+            .exchange()
+            .expectStatus().isOk()
+            .expectHeader().valueEquals(HttpHeaders.ETAG, "\"" + wordId + "-1\"")
+            .expectHeader().valueEquals(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+
+        UUID id = UUID.randomUUID();
+        byte[] error = webTestClient.get().uri("/words/{id}", id)
+            .accept(MediaType.APPLICATION_CBOR)
+            .exchange()
+            .expectStatus().isNotFound()
+            .expectHeader().contentType(MediaType.APPLICATION_CBOR)
+            .expectBody(byte[].class).returnResult().getResponseBody();
+        assertThat(cborMapper.readTree(error).get("message").asText(),
+            is(String.format("The word with ID '%s' does not exist", id)));
+    }
+
+    @Test
+    void whenReadingAMissingBook_Return404WithTheErrorContract() {
+        UUID id = UUID.randomUUID();
+
+        webTestClient.get().uri("/books/{id}", id)
+            .exchange()
+            .expectStatus().isNotFound()
+            .expectBody()
+            .jsonPath("$.message").isEqualTo(String.format("The book with ID '%s' does not exist", id))
+            .jsonPath("$.timestamp").exists();
+    }
+
+    @Test
+    void whenCreatingAnInvalidBook_Return400WithTheFieldErrors() {
+        webTestClient.post().uri("/books")
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(new BookRequest("", "Frank Herbert"))
+            .exchange()
+            .expectStatus().isBadRequest()
+            .expectBody()
+            .jsonPath("$.errors.length()").isEqualTo(1)
+            .jsonPath("$.errors[0].title").isEqualTo("title is required")
+            .jsonPath("$.timestamp").exists();
+    }
+
+    @Test
+    void whenCreatingAnExistingWord_Return409() throws Exception {
+        createWord("hello");
+
+        webTestClient.post().uri("/words")
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(new WordRequest("hello"))
+            .exchange()
+            .expectStatus().isEqualTo(HttpStatus.CONFLICT)
+            .expectBody()
+            .jsonPath("$.message").isEqualTo("The word 'hello' already exists");
+    }
+
+    @Test
+    void whenRetryingACreationWithTheSameIdempotencyKey_Return201WithTheSameBook() throws Exception {
+        String key = UUID.randomUUID().toString();
+        String[] ids = new String[2];
+        for (int i = 0; i < ids.length; i++) {
+            byte[] body = webTestClient.post().uri("/books")
+                .header(IdempotencyCache.HEADER, key)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new BookRequest("Dune", "Frank Herbert"))
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody()
+                .returnResult()
+                .getResponseBody();
+            ids[i] = MAPPER.readTree(body).get("id").asText();
+        }
+        assertThat(ids[1], is(ids[0]));
+
+        webTestClient.post().uri("/books")
+            .header(IdempotencyCache.HEADER, key)
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(new BookRequest("Dune messiah", "Frank Herbert"))
+            .exchange()
+            .expectStatus().isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY);
+    }
+
+    @Test
+    void whenACallMayWait_itRunsOutsideTheEventLoop() {
+        // A retry with an Idempotency-Key waits for the first request, which must not park an event loop thread
+        String thread = requests.callWaiting(() -> Thread.currentThread().getName()).block(Duration.ofSeconds(5));
+
+        assertThat(thread.startsWith("boundedElastic"), is(true));
+    }
+
+    @Test
+    void whenReadingAnUnchangedWord_Return304() throws Exception {
+        JsonNode word = createWord("hello");
+
+        webTestClient.get().uri("/words/{id}", word.get("id").asText())
+            .header(HttpHeaders.IF_NONE_MATCH, "\"" + word.get("id").asText() + "-1\"")
+            .exchange()
+            .expectStatus().isNotModified()
+            .expectBody().isEmpty();
+    }
+
+    @Test
+    void whenUpdatingAWordWithAStaleVersion_Return412() throws Exception {
+        JsonNode word = createWord("hello");
+        String id = word.get("id").asText();
+
+        webTestClient.put().uri("/words/{id}", id)
+            .header(HttpHeaders.IF_MATCH, "\"" + id + "-1\"")
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(new WordRequest("bye"))
+            .exchange()
+            .expectStatus().isOk()
+            .expectHeader().valueEquals(HttpHeaders.ETAG, "\"" + id + "-2\"");
+
+        webTestClient.put().uri("/words/{id}", id)
+            .header(HttpHeaders.IF_MATCH, "\"" + id + "-1\"")
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(new WordRequest("hi"))
+            .exchange()
+            .expectStatus().isEqualTo(HttpStatus.PRECONDITION_FAILED)
+            .expectBody()
+            .jsonPath("$.message").isEqualTo(
+                String.format("The word with ID '%s' has changed, its version is 2", id));
+    }
+
+    @Test
+    void whenListingWords_ReturnPagesAndJsonLines() throws Exception {
+        for (String word : Arrays.asList("a", "b", "c")) {
+            createWord(word);
+        }
+
+        EntityExchangeResult<byte[]> firstPage = webTestClient.get().uri("/words?limit=2")
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.items.length()").isEqualTo(2)
+            .returnResult();
+        String cursor = MAPPER.readTree(firstPage.getResponseBody()).get("nextCursor").asText();
+
+        webTestClient.get().uri("/words?limit=2&cursor={cursor}", cursor)
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.items.length()").isEqualTo(1)
+            .jsonPath("$.nextCursor").doesNotExist();
+
+        String lines = webTestClient.get().uri("/words")
+            .accept(ReactiveResponses.JSON_LINES)
+            .exchange()
+            .expectStatus().isOk()
+            .expectHeader().contentType(ReactiveResponses.JSON_LINES)
+            .expectBody(String.class)
+            .returnResult()
+            .getResponseBody();
+        assertThat(lines.split("\n").length, is(3));
+    }
+
+    @Test
+    void whenCreatingAWordBatch_ReturnAResultPerItem() {
+        webTestClient.post().uri("/words/batch")
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(Arrays.asList(new WordRequest("hello"), new WordRequest("hello"), new WordRequest("")))
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$[0].status").isEqualTo(201)
+            .jsonPath("$[1].status").isEqualTo(409)
+            .jsonPath("$[2].status").isEqualTo(400);
+    }
+
+    @Test
+    void whenFollowingTheChanges_streamThemFromTheGivenSequenceNumber() throws Exception {
+        long start = changeFeed.getSequence();
+        JsonNode book = createBook("Dune", "Frank Herbert");
+        createWord("hello");
+
+        List<ServerSentEvent<JsonNode>> events = webTestClient.get().uri("/changes?after={after}", start)
+            .accept(MediaType.TEXT_EVENT_STREAM)
+            .exchange()
+            .expectStatus().isOk()
+            .returnResult(new ParameterizedTypeReference<ServerSentEvent<JsonNode>>() {})
+            .getResponseBody()
+            .filter(event -> event.data() != null)
+            .take(2)
+            .collectList()
+            .block(Duration.ofSeconds(10));
+
+        assertThat(events, notNullValue());
+        assertThat(events.get(0).id(), is(Long.toString(start + 1)));
+        assertThat(events.get(0).event(), is("book.created"));
+        assertThat(events.get(0).data().get("id").asText(), is(book.get("id").asText()));
+        assertThat(events.get(1).id(), is(Long.toString(start + 2)));
+        assertThat(events.get(1).event(), is("word.created"));
+        assertThat(events.get(1).data().get("entity").get("word").asText(), is("hello"));
+    }
+
+    @Test
+    void whenReadingTheWordsChangedSinceARevision_returnThemAndTheTombstones() throws Exception {
+        long start = readChanges(0).get("revision").asLong();
+        JsonNode hello = createWord("hello");
+        JsonNode bye = createWord("bye");
+        webTestClient.delete().uri("/words/{id}", bye.get("id").asText()).exchange().expectStatus().isNoContent();
+
+        JsonNode changes = readChanges(start);
+
+        assertThat(changes.get("items").size(), is(2));
+        assertThat(changes.get("items").get(0).get("entity").get("word").asText(), is("hello"));
+        assertThat(changes.get("items").get(0).get("id").asText(), is(hello.get("id").asText()));
+        assertThat(changes.get("items").get(1).get("id").asText(), is(bye.get("id").asText()));
+        assertThat(changes.get("items").get(1).get("deleted").asBoolean(), is(true));
+        webTestClient.get().uri("/words/changes?since={since}", changes.get("revision").asLong() + 1)
+            .exchange()
+            .expectStatus().isEqualTo(HttpStatus.GONE);
+    }
+
+    @Test
+    void whenTheIdIsNotAUuid_Return400() {
+        webTestClient.get().uri("/words/not-a-uuid")
+            .exchange()
+            .expectStatus().isBadRequest()
+            .expectBody()
+            .jsonPath("$.message").isEqualTo("The ID 'not-a-uuid' is not valid");
+    }
+
+    private JsonNode createBook(String title, String author) throws Exception {
+        byte[] body = webTestClient.post().uri("/books")
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(new BookRequest(title, author))
+            .exchange()
+            .expectStatus().isCreated()
+            .expectBody()
+            .returnResult()
+            .getResponseBody();
+        assertThat(body, notNullValue());
+        return MAPPER.readTree(body);
+    }
+
+    /**
+     * Reads the words changed since a revision, on a single page.
+     */
+    private JsonNode readChanges(long since) throws Exception {
+        byte[] body = webTestClient.get().uri("/words/changes?since={since}&limit={limit}", since, 1000)
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.more").isEqualTo(false)
+            .returnResult()
+            .getResponseBody();
+        assertThat(body, notNullValue());
+        return MAPPER.readTree(body);
+    }
+
+    private JsonNode createWord(String word) throws Exception {
+        byte[] body = webTestClient.post().uri("/words")
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(new WordRequest(word))
+            .exchange()
+            .expectStatus().isCreated()
+            .expectBody()
+            .returnResult()
+            .getResponseBody();
+        assertThat(body, notNullValue());
+        return MAPPER.readTree(body);
+    }
+}
@@ -0,0 +1,63 @@
+package com.jespinel.terraform_provider_server.replication;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+class ChangeLogTest {
+
+    @Test
+    void readsChangesInOrder_untilTheLimit() throws Exception {
+        ChangeLog<String> log = new ChangeLog<>(10);
+        UUID id = UUID.randomUUID();
+        log.append(id, "a");
+        log.append(id, "b");
+        log.append(id, null);
+
+        List<Change<String>> changes = log.read(0, 2, 0);
+
+        assertThat(changes, contains(new Change<>(1, id, "a"), new Change<>(2, id, "b")));
+        assertThat(log.read(2, 10, 0), contains(new Change<String>(3, id, null)));
+    }
+
+    @Test
+    void waitsForTheNextChange_whenTheReaderHasThemAll() throws Exception {
+        ChangeLog<String> log = new ChangeLog<>(10);
+        UUID id = UUID.randomUUID();
+
+        assertThat(log.read(0, 10, 10), is(empty()));
+
+        CompletableFuture<List<Change<String>>> read = CompletableFuture.supplyAsync(() -> {
+            try {
+                return log.read(0, 10, TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        Thread.sleep(100);
+        log.append(id, "a");
+
+        assertThat(read.get(5, TimeUnit.SECONDS), contains(new Change<>(1, id, "a")));
+    }
+
+    @Test
+    void returnsNull_whenTheChangesAreNoLongerKept() throws Exception {
+        ChangeLog<String> log = new ChangeLog<>(10);
+        for (int i = 0; i < 25; i++) {
+            log.append(UUID.randomUUID(), "entity " + i);
+        }
+
+        assertThat(log.read(14, 100, 0), is(nullValue()));
+        assertThat(log.read(15, 100, 0).get(0).getEntity(), is("entity 15"));
+        assertThat(log.read(26, 100, 0), is(nullValue()));
+    }
+}
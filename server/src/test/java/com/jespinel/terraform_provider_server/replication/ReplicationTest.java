@@ -0,0 +1,167 @@
+package com.jespinel.terraform_provider_server.replication;
+
+import com.jespinel.terraform_provider_server.TerraformProviderServerApplication;
+import com.jespinel.terraform_provider_server.books.Book;
+import com.jespinel.terraform_provider_server.books.BookRequest;
+import com.jespinel.terraform_provider_server.books.BookService;
+import com.jespinel.terraform_provider_server.words.WordRequest;
+import com.jespinel.terraform_provider_server.words.WordResponse;
+import com.jespinel.terraform_provider_server.words.WordService;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.UUID;
+
+import static org.hamcrest.Matchers.is;
+
+/**
+ * Runs a primary and a replica in the same JVM, on their own ports, and checks what the replica
+ * serves. The load test runs them in their own JVMs.
+ */
+class ReplicationTest {
+
+    @ParameterizedTest
+    @EnumSource(value = WebApplicationType.class, names = {"SERVLET", "REACTIVE"})
+    void replicaServesTheWritesOfThePrimary(WebApplicationType mode) throws Exception {
+        ConfigurableApplicationContext primary = start(mode, "--replication.role=primary");
+        ConfigurableApplicationContext replica = null;
+        try {
+            // Written before the replica starts, so it copies them with the pages of the API
+            BookService bookService = primary.getBean(BookService.class);
+            Book copiedBook = bookService.create(new BookRequest("Copied", "Author"));
+            WordResponse copiedWord = primary.getBean(WordService.class).create(new WordRequest("copied"));
+            for (int i = 0; i < 250; i++) {
+                bookService.create(new BookRequest("Title " + i, "Author " + i));
+            }
+
+            replica = start(mode, "--replication.role=replica",
+                "--replication.primary-url=http://localhost:" + port(primary),
+                "--replication.batch-size=100");
+            WebTestClient primaryClient = client(primary);
+            WebTestClient replicaClient = client(replica);
+
+            readStrongly(replicaClient, "/books/" + copiedBook.getId())
+                .expectStatus().isOk()
+                .expectHeader().valueEquals("ETag", "\"" + copiedBook.getId() + "-1\"")
+                .expectBody().jsonPath("$.title").isEqualTo("Copied");
+            readStrongly(replicaClient, "/words/" + copiedWord.getId())
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.word").isEqualTo("copied");
+            replicaClient.get().uri("/books?limit=1000").exchange()
+                .expectBody().jsonPath("$.items.length()").isEqualTo(251);
+
+            // Written while the replica follows the primary
+            String id = primaryClient.post().uri("/books")
+                .bodyValue(new BookRequest("First", "Author"))
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(Book.class).returnResult().getResponseBody().getId().toString();
+            primaryClient.put().uri("/books/" + id)
+                .bodyValue(new BookRequest("Second", "Author"))
+                .exchange()
+                .expectStatus().isOk();
+            primaryClient.put().uri("/books/" + copiedBook.getId())
+                .bodyValue(new BookRequest("First", "Author"))
+                .exchange()
+                .expectStatus().isOk();
+            readStrongly(replicaClient, "/books?title=first")
+                .expectStatus().isOk()
+                .expectHeader().valueEquals("ETag", "\"" + copiedBook.getId() + "-2\"")
+                .expectBody().jsonPath("$.id").isEqualTo(copiedBook.getId().toString());
+            readStrongly(replicaClient, "/books/" + id)
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.title").isEqualTo("Second");
+
+            primaryClient.delete().uri("/words/" + copiedWord.getId()).exchange().expectStatus().isNoContent();
+            readStrongly(replicaClient, "/words/" + copiedWord.getId()).expectStatus().isNotFound();
+
+            // Reads of many IDs are sent with a POST, but other writes go to the primary
+            replicaClient.post().uri("/books/lookup")
+                .bodyValue(Collections.singletonList(id))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.found.length()").isEqualTo(1);
+            replicaClient.post().uri("/books")
+                .bodyValue(new BookRequest("Rejected", "Author"))
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.METHOD_NOT_ALLOWED)
+                .expectBody().jsonPath("$.message").value(is(
+                    "This server is a read-only replica, send writes to the primary at http://localhost:" + port(primary)));
+            replicaClient.get().uri("/books/" + id)
+                .header(ReplicaRouting.READ_CONSISTENCY, "linearizable")
+                .exchange()
+                .expectStatus().isBadRequest();
+        } finally {
+            if (replica != null) {
+                replica.close();
+            }
+            primary.close();
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = WebApplicationType.class, names = {"SERVLET", "REACTIVE"})
+    void primaryAnswersWithGoneWhenItNoLongerHasTheChanges(WebApplicationType mode) throws Exception {
+        ConfigurableApplicationContext primary = start(mode, "--replication.role=primary", "--replication.log-size=10");
+        try {
+            BookService bookService = primary.getBean(BookService.class);
+            for (int i = 0; i < 20; i++) {
+                bookService.create(new BookRequest("Title " + i, "Author " + i));
+            }
+            WebTestClient client = client(primary);
+            ChangeLog<?> changeLog = primary.getBean("bookChangeLog", ChangeLog.class);
+            client.get().uri("/replication/books?limit=0").exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.log").isEqualTo(changeLog.getId().toString())
+                .jsonPath("$.sequence").isEqualTo(20)
+                .jsonPath("$.changes.length()").isEqualTo(0);
+            client.get().uri("/replication/books?log=" + changeLog.getId() + "&after=10&limit=5").exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.changes.length()").isEqualTo(5)
+                .jsonPath("$.changes[0].sequence").isEqualTo(11)
+                .jsonPath("$.changes[0].entity.title").isEqualTo("Title 10");
+            client.get().uri("/replication/books?log=" + changeLog.getId() + "&after=9").exchange()
+                .expectStatus().isEqualTo(HttpStatus.GONE);
+            client.get().uri("/replication/books?log=" + UUID.randomUUID() + "&after=10").exchange()
+                .expectStatus().isEqualTo(HttpStatus.GONE);
+        } finally {
+            primary.close();
+        }
+    }
+
+    private static ConfigurableApplicationContext start(WebApplicationType mode, String... args) {
+        String[] allArgs = new String[args.length + 1];
+        allArgs[0] = "--server.port=0";
+        System.arraycopy(args, 0, allArgs, 1, args.length);
+        return new SpringApplicationBuilder(TerraformProviderServerApplication.class)
+            .web(mode)
+            .run(allArgs);
+    }
+
+    private static int port(ConfigurableApplicationContext context) {
+        return context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+    }
+
+    private static WebTestClient client(ConfigurableApplicationContext context) {
+        return WebTestClient.bindToServer()
+            .baseUrl("http://localhost:" + port(context))
+            .responseTimeout(Duration.ofSeconds(10))
+            .build();
+    }
+
+    private static WebTestClient.ResponseSpec readStrongly(WebTestClient client, String uri) {
+        return client.get().uri(uri)
+            .header(ReplicaRouting.READ_CONSISTENCY, "strong")
+            .exchange();
+    }
+}
@@ -0,0 +1,71 @@
+package com.jespinel.terraform_provider_server.search;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Measures the searches of {@link TextIndex} on indexes of up to a million random texts. The
+ * queries are taken from indexed texts, so they always have matches.
+ */
+@State(Scope.Benchmark)
+public class TextIndexBenchmark {
+
+    private static final int TEXT_LENGTH = 12;
+
+    @Param({"1000", "1000000"})
+    public int size;
+
+    private TextIndex index;
+    private Map<UUID, String> texts;
+    private String[] indexedTexts;
+
+    @Setup
+    public void setUp() {
+        index = new TextIndex();
+        texts = new ConcurrentHashMap<>();
+        indexedTexts = new String[size];
+        Random random = new Random(42);
+        for (int i = 0; i < size; i++) {
+            char[] text = new char[TEXT_LENGTH];
+            for (int c = 0; c < TEXT_LENGTH; c++) {
+                text[c] = (char) ('a' + random.nextInt(26));
+            }
+            UUID id = UUID.randomUUID();
+            indexedTexts[i] = new String(text);
+            texts.put(id, indexedTexts[i]);
+            index.add(id, indexedTexts[i]);
+        }
+    }
+
+    @Benchmark
+    public Object prefix() {
+        return index.find(randomText().substring(0, 3), TextMatch.PREFIX, 10, texts::get, text -> text);
+    }
+
+    @Benchmark
+    public Object substring() {
+        int start = ThreadLocalRandom.current().nextInt(TEXT_LENGTH - 5);
+        return index.find(randomText().substring(start, start + 5), TextMatch.SUBSTRING, 10, texts::get, text -> text);
+    }
+
+    @Benchmark
+    public void addAndRemove() {
+        UUID id = UUID.randomUUID();
+        String text = randomText();
+        index.add(id, text);
+        index.remove(id, text);
+    }
+
+    private String randomText() {
+        return indexedTexts[ThreadLocalRandom.current().nextInt(size)];
+    }
+}
@@ -0,0 +1,70 @@
+package com.jespinel.terraform_provider_server.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+
+class TextIndexTest {
+
+    private final TextIndex index = new TextIndex();
+    private final Map<UUID, String> texts = new ConcurrentHashMap<>();
+
+    @Test
+    void whenSearchingByPrefix_returnTheTextsThatStartWithItIgnoringCase() {
+        add("Terraform");
+        add("terragrunt");
+        add("Pulumi");
+
+        assertThat(find("TERRA", TextMatch.PREFIX, 10), is(Arrays.asList("Terraform", "terragrunt")));
+        assertThat(find("terra", TextMatch.PREFIX, 1), is(Arrays.asList("Terraform")));
+        assertThat(find("rra", TextMatch.PREFIX, 10), is(empty()));
+    }
+
+    @Test
+    void whenSearchingBySubstring_returnOnlyTheTextsThatContainIt() {
+        add("Terraform");
+        add("information");
+        // Has every trigram of "form" but not "form" itself
+        add("for normal");
+
+        assertThat(find("FORM", TextMatch.SUBSTRING, 10), is(Arrays.asList("information", "Terraform")));
+        assertThat(find("xyz", TextMatch.SUBSTRING, 10), is(empty()));
+    }
+
+    @Test
+    void whenReplacingOrRemovingATextOnlyTheCurrentTextsAreFound() {
+        UUID replaced = add("terraform");
+        UUID removed = add("terragrunt");
+        UUID caseOnly = add("pulumi");
+
+        index.replace(replaced, "terraform", "opentofu");
+        texts.put(replaced, "opentofu");
+        index.remove(removed, "terragrunt");
+        texts.remove(removed);
+        index.replace(caseOnly, "pulumi", "Pulumi");
+        texts.put(caseOnly, "Pulumi");
+
+        assertThat(find("terra", TextMatch.PREFIX, 10), is(empty()));
+        assertThat(find("tofu", TextMatch.SUBSTRING, 10), is(Arrays.asList("opentofu")));
+        assertThat(find("pul", TextMatch.PREFIX, 10), is(Arrays.asList("Pulumi")));
+    }
+
+    private UUID add(String text) {
+        UUID id = UUID.randomUUID();
+        texts.put(id, text);
+        index.add(id, text);
+        return id;
+    }
+
+    private List<String> find(String query, TextMatch match, int limit) {
+        return index.find(query, match, limit, texts::get, text -> text);
+    }
+}
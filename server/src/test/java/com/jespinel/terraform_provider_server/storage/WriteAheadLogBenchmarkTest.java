@@ -0,0 +1,74 @@
+package com.jespinel.terraform_provider_server.storage;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of concurrent durable writes at each {@link Durability} level.
+ * Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+class WriteAheadLogBenchmarkTest {
+
+    private static final int SEGMENT_SIZE = 64 * 1024 * 1024;
+    private static final int THREADS = 32;
+    private static final long DURATION_NANOS = TimeUnit.SECONDS.toNanos(3);
+    private static final byte[] PAYLOAD = new byte[64];
+
+    @TempDir
+    Path directory;
+
+    @ParameterizedTest
+    @EnumSource(Durability.class)
+    void measureWriteThroughput(Durability durability) throws Exception {
+        Path logDirectory = Files.createDirectory(directory.resolve(durability.name()));
+        WriteAheadLog log = new WriteAheadLog(logDirectory, SEGMENT_SIZE, Integer.MAX_VALUE, durability,
+            Duration.ZERO, 256);
+        log.open(new WriteAheadLog.StateMachine() {
+            @Override
+            public void replay(byte type, ByteBuffer payload) {
+            }
+
+            @Override
+            public void snapshot(WriteAheadLog.RecordSink sink) {
+            }
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        long deadline = System.nanoTime() + DURATION_NANOS;
+        List<Future<Long>> writers = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            writers.add(executor.submit(() -> {
+                long writes = 0;
+                while (System.nanoTime() < deadline) {
+                    log.awaitDurable(log.append((byte) 1, PAYLOAD));
+                    writes++;
+                }
+                return writes;
+            }));
+        }
+
+        long writes = 0;
+        for (Future<Long> writer : writers) {
+            writes += writer.get();
+        }
+        executor.shutdown();
+        log.close();
+
+        double seconds = DURATION_NANOS / 1e9;
+        System.out.printf("durability=%s threads=%d writes/s=%.0f%n", durability, THREADS, writes / seconds);
+    }
+}
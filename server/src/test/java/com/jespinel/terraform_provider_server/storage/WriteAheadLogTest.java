@@ -0,0 +1,188 @@
+package com.jespinel.terraform_provider_server.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+
+class WriteAheadLogTest {
+
+    private static final int SEGMENT_SIZE = 4096;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void whenReopeningTheLog_recordsAreReplayedInOrder() throws Exception {
+        KeyValueStateMachine state = open();
+        state.put("a", "1");
+        state.put("b", "2");
+        state.put("a", "3");
+        state.delete("b");
+        state.log.close();
+
+        KeyValueStateMachine recovered = open();
+        assertThat(recovered.values.size(), is(1));
+        assertThat(recovered.values.get("a"), is("3"));
+    }
+
+    @Test
+    void whenRecordsSpanSeveralSegments_allOfThemAreReplayed() throws Exception {
+        KeyValueStateMachine state = open();
+        for (int i = 0; i < 1_000; i++) {
+            state.put("key" + i, "value" + i);
+        }
+        state.log.close();
+
+        KeyValueStateMachine recovered = open();
+        assertThat(recovered.values.size(), is(1_000));
+        assertThat(recovered.values.get("key999"), is("value999"));
+    }
+
+    @Test
+    void whenTheLogIsCompacted_oldSegmentsAreReplacedByASnapshot() throws Exception {
+        KeyValueStateMachine state = open();
+        for (int i = 0; i < 1_000; i++) {
+            state.put("key" + (i % 10), "value" + i);
+        }
+        state.log.compact();
+        state.put("key0", "last");
+        state.log.close();
+
+        assertThat(files(".snapshot"), hasSize(1));
+        assertThat(files(".log"), hasSize(1));
+
+        KeyValueStateMachine recovered = open();
+        assertThat(recovered.values.size(), is(10));
+        assertThat(recovered.values.get("key0"), is("last"));
+        assertThat(recovered.values.get("key9"), is("value999"));
+    }
+
+    @Test
+    void whenTheLastRecordIsTorn_itIsIgnored() throws Exception {
+        KeyValueStateMachine state = open();
+        state.put("a", "1");
+        state.put("b", "2");
+        state.log.close();
+
+        // Flip the last byte of the second record
+        Path segment = files(".log").get(0);
+        int secondRecordEnd = 2 * (8 + 1 + "a=1".length());
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{'x'}), secondRecordEnd - 1);
+        }
+
+        KeyValueStateMachine recovered = open();
+        assertThat(recovered.values.size(), is(1));
+        assertThat(recovered.values.get("a"), is("1"));
+    }
+
+    @Test
+    void whenWritersWaitForAGroupCommit_allOfThemAreAcknowledged() throws Exception {
+        WriteAheadLog log = new WriteAheadLog(directory, SEGMENT_SIZE, Integer.MAX_VALUE, Durability.GROUP,
+            Duration.ofMillis(5), 8);
+        KeyValueStateMachine state = new KeyValueStateMachine(log);
+        log.open(state);
+
+        int threads = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> writes = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                byte[] payload = ("key" + i + "=value").getBytes(StandardCharsets.UTF_8);
+                writes.add(executor.submit(() -> log.awaitDurable(log.append(KeyValueStateMachine.PUT, payload))));
+            }
+            for (Future<?> write : writes) {
+                write.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        log.close();
+
+        KeyValueStateMachine recovered = open();
+        assertThat(recovered.values.size(), is(threads));
+    }
+
+    private KeyValueStateMachine open() throws IOException {
+        WriteAheadLog log = new WriteAheadLog(directory, SEGMENT_SIZE, Integer.MAX_VALUE, Durability.ASYNC,
+            Duration.ZERO, 1);
+        KeyValueStateMachine state = new KeyValueStateMachine(log);
+        log.open(state);
+        return state;
+    }
+
+    private List<Path> files(String suffix) throws IOException {
+        List<Path> paths = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + suffix)) {
+            stream.forEach(paths::add);
+        }
+        return paths;
+    }
+
+    /**
+     * Map of strings, logged as "key=value" records.
+     */
+    private static class KeyValueStateMachine implements WriteAheadLog.StateMachine {
+
+        private static final byte PUT = 1;
+        private static final byte DELETE = 2;
+
+        private final WriteAheadLog log;
+        private final Map<String, String> values = new LinkedHashMap<>();
+
+        KeyValueStateMachine(WriteAheadLog log) {
+            this.log = log;
+        }
+
+        void put(String key, String value) {
+            values.put(key, value);
+            log.append(PUT, (key + "=" + value).getBytes(StandardCharsets.UTF_8));
+        }
+
+        void delete(String key) {
+            values.remove(key);
+            log.append(DELETE, key.getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public void replay(byte type, ByteBuffer payload) {
+            byte[] bytes = new byte[payload.remaining()];
+            payload.get(bytes);
+            String record = new String(bytes, StandardCharsets.UTF_8);
+            if (type == PUT) {
+                String[] keyValue = record.split("=", 2);
+                values.put(keyValue[0], keyValue[1]);
+            } else {
+                values.remove(record);
+            }
+        }
+
+        @Override
+        public void snapshot(WriteAheadLog.RecordSink sink) throws IOException {
+            for (Map.Entry<String, String> entry : values.entrySet()) {
+                sink.write(PUT, (entry.getKey() + "=" + entry.getValue()).getBytes(StandardCharsets.UTF_8));
+            }
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.jespinel.terraform_provider_server.sync;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+class RevisionIndexTest {
+
+    private static final long START = 1000;
+
+    @Test
+    void returnsTheLastChangeOfEachEntity_inTheOrderOfTheirRevisions() {
+        RevisionIndex<String> index = new RevisionIndex<>("word", new RevisionClock(START), 10, Duration.ofHours(1));
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        index.record(first, "a");
+        index.record(second, "b");
+        index.record(first, "c");
+        index.record(second, null);
+
+        Delta<String> delta = index.since(START, 10);
+
+        assertThat(delta.getItems(), contains(
+            new DeltaItem<>(START + 3, first, "c"),
+            new DeltaItem<>(START + 4, second, null)));
+        assertThat(delta.getRevision(), is(START + 4));
+        assertThat(delta.isMore(), is(false));
+        assertThat(index.since(START + 4, 10).getItems(), is(empty()));
+        assertThat(index.since(0, 10).getItems().size(), is(2));
+    }
+
+    @Test
+    void sharesTheClockWithTheOtherKinds_andReturnsItsCurrentRevision() {
+        RevisionClock clock = new RevisionClock(START);
+        RevisionIndex<String> books = new RevisionIndex<>("book", clock, 10, Duration.ofHours(1));
+        RevisionIndex<String> words = new RevisionIndex<>("word", clock, 10, Duration.ofHours(1));
+
+        assertThat(books.record(UUID.randomUUID(), "Dune"), is(START + 1));
+        assertThat(words.record(UUID.randomUUID(), "hello"), is(START + 2));
+
+        Delta<String> delta = books.since(START, 10);
+        assertThat(delta.getItems().size(), is(1));
+        assertThat(delta.getRevision(), is(START + 2));
+    }
+
+    @Test
+    void returnsPagesOfChanges_andTheRevisionOfTheLastOne_whenThereAreMore() {
+        RevisionIndex<String> index = new RevisionIndex<>("word", new RevisionClock(START), 10, Duration.ofHours(1));
+        for (int i = 0; i < 5; i++) {
+            index.record(UUID.randomUUID(), "word " + i);
+        }
+
+        Delta<String> page = index.since(START, 2);
+        assertThat(page.getItems().size(), is(2));
+        assertThat(page.getRevision(), is(START + 2));
+        assertThat(page.isMore(), is(true));
+
+        page = index.since(page.getRevision(), 3);
+        assertThat(page.getItems().get(0).getEntity(), is("word 2"));
+        assertThat(page.getRevision(), is(START + 5));
+        assertThat(page.isMore(), is(false));
+    }
+
+    @Test
+    void compactsTheOldestTombstones_overTheMaximum() {
+        RevisionIndex<String> index = new RevisionIndex<>("word", new RevisionClock(START), 2, Duration.ofHours(1));
+        for (int i = 0; i < 3; i++) {
+            UUID id = UUID.randomUUID();
+            index.record(id, "word " + i);
+            index.record(id, null);
+        }
+
+        assertThat(index.getTombstones(), is(2));
+        assertThat(index.since(START + 1, 10), is(nullValue()));
+        Delta<String> delta = index.since(START + 2, 10);
+        assertThat(delta, is(notNullValue()));
+        assertThat(delta.getItems().size(), is(2));
+        // A client without entities can always read every change
+        assertThat(index.since(0, 10).getItems().size(), is(2));
+    }
+
+    @Test
+    void compactsTheExpiredTombstones() {
+        RevisionIndex<String> index = new RevisionIndex<>("word", new RevisionClock(START), 10, Duration.ZERO);
+        UUID deleted = UUID.randomUUID();
+        UUID kept = UUID.randomUUID();
+        index.record(deleted, "a");
+        index.record(kept, "b");
+        index.record(deleted, null);
+
+        assertThat(index.getTombstones(), is(0));
+        assertThat(index.since(START + 2, 10), is(nullValue()));
+        assertThat(index.since(START + 3, 10).getItems(), is(empty()));
+        assertThat(index.since(0, 10).getItems(), contains(new DeltaItem<>(START + 2, kept, "b")));
+    }
+
+    @Test
+    void returnsNull_forTheRevisionsOfAnotherRun() {
+        RevisionIndex<String> index = new RevisionIndex<>("word", new RevisionClock(START), 10, Duration.ofHours(1));
+        index.record(UUID.randomUUID(), "a");
+
+        assertThat(index.since(START - 1, 10), is(nullValue()));
+        assertThat(index.since(START + 2, 10), is(nullValue()));
+    }
+}
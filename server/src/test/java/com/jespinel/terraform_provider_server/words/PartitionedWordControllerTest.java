@@ -0,0 +1,13 @@
+package com.jespinel.terraform_provider_server.words;
+
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Runs the word controller tests with the partitioned storage engine.
+ */
+@TestPropertySource(properties = {
+    "storage.engine=partitioned",
+    "storage.partitions=4"
+})
+class PartitionedWordControllerTest extends WordControllerTest {
+}
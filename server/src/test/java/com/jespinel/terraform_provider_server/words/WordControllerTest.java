@@ -4,24 +4,37 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.jespinel.terraform_provider_server.TerraformProviderServerApplicationTests;
 import com.jespinel.terraform_provider_server.commons.JsonHelpers;
+import com.jespinel.terraform_provider_server.exceptions.APIException;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.emptyOrNullString;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.not;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 
 @AutoConfigureMockMvc
 class WordControllerTest extends TerraformProviderServerApplicationTests {
@@ -31,6 +44,9 @@ class WordControllerTest extends TerraformProviderServerApplicationTests {
     @Autowired
     private MockMvc mockMvc;
 
+    @Autowired
+    private WordController wordController;
+
     @AfterEach
     public void tearDown() throws Exception {
         deleteAll();
@@ -99,6 +115,78 @@ class WordControllerTest extends TerraformProviderServerApplicationTests {
         assertThat(errorMessage, is("The word 'hello' already exists"));
     }
 
+    @Test
+    void whenCreatingTheSameWordConcurrently_onlyOneSucceeds() throws Exception {
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                Callable<Boolean> create = () -> {
+                    start.await();
+                    try {
+                        wordController.create(null, null, new WordRequest("hello"));
+                        return true;
+                    } catch (APIException e) {
+                        return false;
+                    }
+                };
+                results.add(executor.submit(create));
+            }
+            start.countDown();
+
+            int created = 0;
+            for (Future<Boolean> result : results) {
+                if (result.get()) {
+                    created++;
+                }
+            }
+            assertThat(created, is(1));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void whenRetryingTheSameCreationConcurrentlyWithAnIdempotencyKey_everyRetryGetsTheSameWord() throws Exception {
+        String key = UUID.randomUUID().toString();
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<WordResponse>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                Callable<WordResponse> create = () -> {
+                    start.await();
+                    return wordController.create(key, null, new WordRequest("hello")).getBody();
+                };
+                results.add(executor.submit(create));
+            }
+            start.countDown();
+
+            UUID id = results.get(0).get().getId();
+            for (Future<WordResponse> result : results) {
+                assertThat(result.get().getId(), is(id));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void whenCreatingADeletedWord_Return201() throws Exception {
+        String wordId = createWord("hello");
+
+        MockHttpServletRequestBuilder delete = MockMvcRequestBuilders
+            .delete(String.format("/words/%s", wordId))
+            .accept(MediaType.APPLICATION_JSON)
+            .contentType(MediaType.APPLICATION_JSON);
+        mockMvc.perform(delete);
+
+        createWord("hello");
+    }
+
     @Test
     void whenReadingAnExistingWord_return200() throws Exception {
         String word = "hello";
@@ -146,6 +234,48 @@ class WordControllerTest extends TerraformProviderServerApplicationTests {
         assertThat(errorMessage, is(String.format("The word with ID '%s' does not exist", wordId)));
     }
 
+    @Test
+    void whenReadingSeveralWordsByIds_returnFoundAndMissing() throws Exception {
+        String firstId = createWord("hello");
+        String secondId = createWord("bye");
+        String missingId = UUID.randomUUID().toString();
+
+        MockHttpServletRequestBuilder get = MockMvcRequestBuilders
+            .get("/words")
+            .param("ids", firstId + "," + missingId + "," + secondId)
+            .accept(MediaType.APPLICATION_JSON);
+
+        MockHttpServletResponse response = mockMvc.perform(get).andReturn().getResponse();
+        assertThat(response.getStatus(), is(HttpStatus.OK.value()));
+
+        JsonNode body = JsonHelpers.getResponseBody(response);
+        assertThat(body.get("found").size(), is(2));
+        assertThat(body.get("found").get(0).get("word").asText(), is("hello"));
+        assertThat(body.get("found").get(1).get("word").asText(), is("bye"));
+        assertThat(body.get("missing").size(), is(1));
+        assertThat(body.get("missing").get(0).asText(), is(missingId));
+    }
+
+    @Test
+    void whenLookingUpSeveralWordsInTheBody_returnFoundAndMissing() throws Exception {
+        String wordId = createWord("hello");
+        String missingId = UUID.randomUUID().toString();
+
+        MockHttpServletRequestBuilder post = MockMvcRequestBuilders
+            .post("/words/lookup")
+            .accept(MediaType.APPLICATION_JSON)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(MAPPER.writeValueAsString(Arrays.asList(wordId, missingId)));
+
+        MockHttpServletResponse response = mockMvc.perform(post).andReturn().getResponse();
+        assertThat(response.getStatus(), is(HttpStatus.OK.value()));
+
+        JsonNode body = JsonHelpers.getResponseBody(response);
+        assertThat(body.get("found").size(), is(1));
+        assertThat(body.get("found").get(0).get("id").asText(), is(wordId));
+        assertThat(body.get("missing").get(0).asText(), is(missingId));
+    }
+
     @Test
     void whenUpdatingAnExistingWord_return200() throws Exception {
         String word = "hello";
@@ -182,6 +312,41 @@ class WordControllerTest extends TerraformProviderServerApplicationTests {
         assertThat(getResponseBody.get("word").asText(), is(updatedWord));
     }
 
+    @Test
+    void whenUpdatingAWordToAnotherExistingWord_return409() throws Exception {
+        createWord("hello");
+        String wordId = createWord("bye");
+
+        MockHttpServletRequestBuilder put = MockMvcRequestBuilders
+            .put(String.format("/words/%s", wordId))
+            .accept(MediaType.APPLICATION_JSON)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(MAPPER.writeValueAsString(new WordRequest("hello")));
+
+        MockHttpServletResponse response = mockMvc.perform(put).andReturn().getResponse();
+        assertThat(response.getStatus(), is(HttpStatus.CONFLICT.value()));
+
+        JsonNode responseBody = JsonHelpers.getResponseBody(response);
+        String errorMessage = responseBody.get("message").asText();
+        assertThat(errorMessage, is("The word 'hello' already exists"));
+    }
+
+    @Test
+    void whenUpdatingAWord_theOldWordCanBeCreatedAgain() throws Exception {
+        String wordId = createWord("hello");
+
+        MockHttpServletRequestBuilder put = MockMvcRequestBuilders
+            .put(String.format("/words/%s", wordId))
+            .accept(MediaType.APPLICATION_JSON)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(MAPPER.writeValueAsString(new WordRequest("bye")));
+
+        MockHttpServletResponse response = mockMvc.perform(put).andReturn().getResponse();
+        assertThat(response.getStatus(), is(HttpStatus.OK.value()));
+
+        createWord("hello");
+    }
+
     @Test
     void whenUpdatingANonExistingWord_return404() throws Exception {
         String updatedWord = "hello2";
@@ -243,12 +408,284 @@ class WordControllerTest extends TerraformProviderServerApplicationTests {
         assertThat(response.getStatus(), is(HttpStatus.NO_CONTENT.value()));
     }
 
+    @Test
+    void whenCreatingABatchOfWords_returnAResultPerWord() throws Exception {
+        createWord("bye");
+        List<WordRequest> words = Arrays.asList(
+            new WordRequest("hello"),
+            new WordRequest("hello"),
+            new WordRequest(""),
+            new WordRequest("bye"));
+
+        MockHttpServletRequestBuilder post = MockMvcRequestBuilders
+            .post("/words/batch")
+            .accept(MediaType.APPLICATION_JSON)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(MAPPER.writeValueAsString(words));
+
+        MockHttpServletResponse response = mockMvc.perform(post).andReturn().getResponse();
+        assertThat(response.getStatus(), is(HttpStatus.OK.value()));
+
+        JsonNode results = JsonHelpers.getResponseBody(response);
+        assertThat(results.size(), is(4));
+        assertThat(results.get(0).get("status").asInt(), is(HttpStatus.CREATED.value()));
+        assertThat(results.get(0).get("body").get("word").asText(), is("hello"));
+        assertThat(results.get(1).get("status").asInt(), is(HttpStatus.CONFLICT.value()));
+        assertThat(results.get(1).get("message").asText(), is("The word 'hello' already exists"));
+        assertThat(results.get(2).get("status").asInt(), is(HttpStatus.BAD_REQUEST.value()));
+        assertThat(results.get(2).get("message").asText(), is("word is required"));
+        assertThat(results.get(3).get("status").asInt(), is(HttpStatus.CONFLICT.value()));
+    }
+
+    @Test
+    void whenUpdatingABatchOfWords_returnAResultPerWord() throws Exception {
+        String wordId = createWord("hello");
+        String missingId = UUID.randomUUID().toString();
+        List<WordUpdateRequest> words = Arrays.asList(
+            new WordUpdateRequest(UUID.fromString(wordId), "hello2", null),
+            new WordUpdateRequest(UUID.fromString(missingId), "bye", null));
+
+        MockHttpServletRequestBuilder put = MockMvcRequestBuilders
+            .put("/words/batch")
+            .accept(MediaType.APPLICATION_JSON)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(MAPPER.writeValueAsString(words));
+
+        MockHttpServletResponse response = mockMvc.perform(put).andReturn().getResponse();
+        assertThat(response.getStatus(), is(HttpStatus.OK.value()));
+
+        JsonNode results = JsonHelpers.getResponseBody(response);
+        assertThat(results.get(0).get("status").asInt(), is(HttpStatus.OK.value()));
+        assertThat(results.get(0).get("body").get("word").asText(), is("hello2"));
+        assertThat(results.get(1).get("status").asInt(), is(HttpStatus.NOT_FOUND.value()));
+        assertThat(results.get(1).get("message").asText(),
+            is(String.format("The word with ID '%s' does not exist", missingId)));
+    }
+
+    @Test
+    void whenDeletingABatchOfWords_theyAreDeleted() throws Exception {
+        String wordId = createWord("hello");
+        List<String> ids = Arrays.asList(wordId, UUID.randomUUID().toString());
+
+        MockHttpServletRequestBuilder delete = MockMvcRequestBuilders
+            .delete("/words/batch")
+            .accept(MediaType.APPLICATION_JSON)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(MAPPER.writeValueAsString(ids));
+
+        MockHttpServletResponse response = mockMvc.perform(delete).andReturn().getResponse();
+        assertThat(response.getStatus(), is(HttpStatus.OK.value()));
+        assertThat(JsonHelpers.getResponseBody(response).size(), is(2));
+
+        MockHttpServletRequestBuilder get = MockMvcRequestBuilders
+            .get(String.format("/words/%s", wordId))
+            .accept(MediaType.APPLICATION_JSON);
+        assertThat(mockMvc.perform(get).andReturn().getResponse().getStatus(), is(HttpStatus.NOT_FOUND.value()));
+    }
+
     @Test
     void whenDeletingAll_return204() throws Exception {
         MockHttpServletResponse response = deleteAll();
         assertThat(response.getStatus(), is(HttpStatus.NO_CONTENT.value()));
     }
 
+    @Test
+    void whenListingWordsInPages_returnWordsSortedById() throws Exception {
+        List<String> createdIds = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            createdIds.add(createWord("word " + i));
+        }
+        createdIds.sort(Comparator.comparing(UUID::fromString));
+
+        MockHttpServletRequestBuilder get = MockMvcRequestBuilders
+            .get("/words")
+            .param("limit", "2")
+            .accept(MediaType.APPLICATION_JSON);
+        JsonNode firstPage = JsonHelpers.getResponseBody(mockMvc.perform(get).andReturn().getResponse());
+        assertThat(firstPage.get("items").size(), is(2));
+        assertThat(firstPage.get("items").get(0).get("id").asText(), is(createdIds.get(0)));
+        assertThat(firstPage.get("items").get(1).get("id").asText(), is(createdIds.get(1)));
+
+        get = MockMvcRequestBuilders
+            .get("/words")
+            .param("limit", "2")
+            .param("cursor", firstPage.get("nextCursor").asText())
+            .accept(MediaType.APPLICATION_JSON);
+        JsonNode secondPage = JsonHelpers.getResponseBody(mockMvc.perform(get).andReturn().getResponse());
+        assertThat(secondPage.get("items").size(), is(1));
+        assertThat(secondPage.get("items").get(0).get("id").asText(), is(createdIds.get(2)));
+        assertThat(secondPage.has("nextCursor"), is(false));
+    }
+
+    @Test
+    void whenSearchingWordsByPrefixAndSubstring_returnTheMatchesSortedByWord() throws Exception {
+        createWord("Infrastructure");
+        createWord("infra");
+        createWord("terraform");
+        createWord("information");
+
+        assertThat(searchWords("INFRA", "prefix", 10), is(Arrays.asList("infra", "Infrastructure")));
+        assertThat(searchWords("inf", "prefix", 1), is(Arrays.asList("information")));
+        assertThat(searchWords("form", "substring", 10), is(Arrays.asList("information", "terraform")));
+    }
+
+    @Test
+    void whenSearchingAnUpdatedOrDeletedWord_returnItsCurrentState() throws Exception {
+        String updatedId = createWord("terraform");
+        String deletedId = createWord("terragrunt");
+
+        MockHttpServletRequestBuilder put = MockMvcRequestBuilders
+            .put(String.format("/words/%s", updatedId))
+            .accept(MediaType.APPLICATION_JSON)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(MAPPER.writeValueAsString(new WordRequest("pulumi")));
+        assertThat(mockMvc.perform(put).andReturn().getResponse().getStatus(), is(HttpStatus.OK.value()));
+        mockMvc.perform(MockMvcRequestBuilders.delete(String.format("/words/%s", deletedId)));
+
+        assertThat(searchWords("terra", "prefix", 10), is(new ArrayList<String>()));
+        assertThat(searchWords("lum", "substring", 10), is(Arrays.asList("pulumi")));
+    }
+
+    @Test
+    void whenSearchingWithATooShortSubstring_return400() throws Exception {
+        MockHttpServletRequestBuilder get = MockMvcRequestBuilders
+            .get("/words/search")
+            .param("q", "in")
+            .param("match", "substring")
+            .accept(MediaType.APPLICATION_JSON);
+        MockHttpServletResponse response = mockMvc.perform(get).andReturn().getResponse();
+        assertThat(response.getStatus(), is(HttpStatus.BAD_REQUEST.value()));
+        assertThat(JsonHelpers.getResponseBody(response).get("message").asText(),
+            is("q must have at least 3 characters for a substring search"));
+    }
+
+    @Test
+    void whenStreamingWords_returnOneWordPerLine() throws Exception {
+        String wordId = createWord("hello");
+
+        MockHttpServletRequestBuilder get = MockMvcRequestBuilders
+            .get("/words")
+            .accept("application/x-ndjson");
+        MvcResult result = mockMvc.perform(get).andReturn();
+        MockHttpServletResponse response = mockMvc.perform(asyncDispatch(result)).andReturn().getResponse();
+        assertThat(response.getStatus(), is(HttpStatus.OK.value()));
+        assertThat(response.getContentAsString(), is("{\"id\":\"" + wordId + "\",\"word\":\"hello\",\"version\":1}\n"));
+    }
+
+    @Test
+    void whenReadingAWordWithItsCurrentETag_return304() throws Exception {
+        String wordId = createWord("hello");
+
+        MockHttpServletRequestBuilder get = MockMvcRequestBuilders
+            .get(String.format("/words/%s", wordId))
+            .header(HttpHeaders.IF_NONE_MATCH, "\"" + wordId + "-1\"")
+            .accept(MediaType.APPLICATION_JSON);
+        MockHttpServletResponse notModifiedResponse = mockMvc.perform(get).andReturn().getResponse();
+        assertThat(notModifiedResponse.getStatus(), is(HttpStatus.NOT_MODIFIED.value()));
+        assertThat(notModifiedResponse.getContentAsString(), is(""));
+
+        MockHttpServletRequestBuilder put = MockMvcRequestBuilders
+            .put(String.format("/words/%s", wordId))
+            .accept(MediaType.APPLICATION_JSON)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(MAPPER.writeValueAsString(new WordRequest("bye")));
+        assertThat(mockMvc.perform(put).andReturn().getResponse().getHeader(HttpHeaders.ETAG), is("\"" + wordId + "-2\""));
+
+        MockHttpServletResponse readResponse = mockMvc.perform(get).andReturn().getResponse();
+        assertThat(readResponse.getStatus(), is(HttpStatus.OK.value()));
+        assertThat(readResponse.getHeader(HttpHeaders.ETAG), is("\"" + wordId + "-2\""));
+        assertThat(JsonHelpers.getResponseBody(readResponse).get("word").asText(), is("bye"));
+    }
+
+    @Test
+    void whenUpdatingAWordWithAStaleIfMatch_return412() throws Exception {
+        String wordId = createWord("hello");
+
+        MockHttpServletRequestBuilder put = MockMvcRequestBuilders
+            .put(String.format("/words/%s", wordId))
+            .header(HttpHeaders.IF_MATCH, "\"" + wordId + "-1\"")
+            .accept(MediaType.APPLICATION_JSON)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(MAPPER.writeValueAsString(new WordRequest("bye")));
+        MockHttpServletResponse firstResponse = mockMvc.perform(put).andReturn().getResponse();
+        assertThat(firstResponse.getStatus(), is(HttpStatus.OK.value()));
+        assertThat(firstResponse.getHeader(HttpHeaders.ETAG), is("\"" + wordId + "-2\""));
+
+        MockHttpServletResponse secondResponse = mockMvc.perform(put).andReturn().getResponse();
+        assertThat(secondResponse.getStatus(), is(HttpStatus.PRECONDITION_FAILED.value()));
+
+        put = MockMvcRequestBuilders
+            .put(String.format("/words/%s", wordId))
+            .header(HttpHeaders.IF_MATCH, "*")
+            .accept(MediaType.APPLICATION_JSON)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(MAPPER.writeValueAsString(new WordRequest("hello")));
+        assertThat(mockMvc.perform(put).andReturn().getResponse().getStatus(), is(HttpStatus.OK.value()));
+    }
+
+    @Test
+    void whenUpdatingTheSameVersionConcurrently_onlyOneSucceeds() throws Exception {
+        UUID id = UUID.fromString(createWord("hello"));
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                String word = "word " + i;
+                Callable<Boolean> update = () -> {
+                    start.await();
+                    try {
+                        wordController.update(id, "\"" + id + "-1\"", null, new WordRequest(word));
+                        return true;
+                    } catch (APIException e) {
+                        return false;
+                    }
+                };
+                results.add(executor.submit(update));
+            }
+            start.countDown();
+
+            int updated = 0;
+            for (Future<Boolean> result : results) {
+                if (result.get()) {
+                    updated++;
+                }
+            }
+            assertThat(updated, is(1));
+            assertThat(wordController.read(id, null).getBody().getVersion(), is(2L));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private String createWord(String word) throws Exception {
+        MockHttpServletRequestBuilder create = MockMvcRequestBuilders
+            .post("/words")
+            .accept(MediaType.APPLICATION_JSON)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(MAPPER.writeValueAsString(new WordRequest(word)));
+
+        MockHttpServletResponse createResponse = mockMvc.perform(create).andReturn().getResponse();
+        assertThat(createResponse.getStatus(), is(HttpStatus.CREATED.value()));
+        return JsonHelpers.getResponseBody(createResponse).get("id").asText();
+    }
+
+    private List<String> searchWords(String query, String match, int limit) throws Exception {
+        MockHttpServletRequestBuilder get = MockMvcRequestBuilders
+            .get("/words/search")
+            .param("q", query)
+            .param("match", match)
+            .param("limit", String.valueOf(limit))
+            .accept(MediaType.APPLICATION_JSON);
+        MockHttpServletResponse response = mockMvc.perform(get).andReturn().getResponse();
+        assertThat(response.getStatus(), is(HttpStatus.OK.value()));
+
+        List<String> words = new ArrayList<>();
+        JsonHelpers.getResponseBody(response).get("items").forEach(word -> words.add(word.get("word").asText()));
+        return words;
+    }
+
     private MockHttpServletResponse deleteAll() throws Exception {
         MockHttpServletRequestBuilder delete = MockMvcRequestBuilders
             .delete("/words")
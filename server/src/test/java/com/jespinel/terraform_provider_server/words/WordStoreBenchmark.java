@@ -0,0 +1,59 @@
+package com.jespinel.terraform_provider_server.words;
+
+import com.jespinel.terraform_provider_server.exceptions.DuplicateKeyException;
+import com.jespinel.terraform_provider_server.exceptions.VersionConflictException;
+import com.jespinel.terraform_provider_server.versioning.EntityTags;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Measures the operations of {@link InMemoryWordStore} on stores of several sizes. The number
+ * of threads, and so the contention, is chosen by the runner.
+ */
+@State(Scope.Benchmark)
+public class WordStoreBenchmark {
+
+    @Param({"1000", "100000"})
+    public int size;
+
+    private InMemoryWordStore store;
+    private Word[] words;
+
+    @Setup
+    public void setUp() throws DuplicateKeyException {
+        store = new InMemoryWordStore();
+        words = new Word[size];
+        for (int i = 0; i < size; i++) {
+            words[i] = new Word(UUID.randomUUID(), "word " + i, Word.FIRST_VERSION);
+            store.insert(words[i]);
+        }
+    }
+
+    @Benchmark
+    public Object get() {
+        return store.get(randomWord().getId());
+    }
+
+    @Benchmark
+    public Object update() throws DuplicateKeyException, VersionConflictException {
+        return store.update(randomWord(), EntityTags.ANY_VERSION);
+    }
+
+    @Benchmark
+    public Object insertAndDelete() throws DuplicateKeyException {
+        UUID id = UUID.randomUUID();
+        store.insert(new Word(id, id.toString(), Word.FIRST_VERSION));
+        return store.delete(id);
+    }
+
+    private Word randomWord() {
+        return words[ThreadLocalRandom.current().nextInt(size)];
+    }
+}